@@ -0,0 +1,52 @@
+package io.github.gekkoz.callchain.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * 基准测试使用的合成项目。项目按配置生成在临时目录下并在多次运行之间复用，
+ * 生成完成后写入标记文件，中途中断的目录会在下次运行时重新生成
+ */
+final class BenchmarkProjects {
+
+    private static final String COMPLETE_MARKER = ".complete";
+
+    private BenchmarkProjects() {
+    }
+
+    static SyntheticProjectGenerator generator(int classes, int fanOut, int inheritanceDepth, double cycleRatio) {
+        return SyntheticProjectGenerator.ofClassCount(classes)
+                .fanOut(fanOut)
+                .inheritanceDepth(inheritanceDepth)
+                .cycleRatio(cycleRatio);
+    }
+
+    /**
+     * 获取按配置生成的项目目录，不存在时生成
+     */
+    static synchronized Path prepare(SyntheticProjectGenerator generator) throws IOException {
+        Path root = Paths.get(System.getProperty("java.io.tmpdir"), "call-chain-benchmark", generator.getCacheKey());
+        if (Files.exists(root.resolve(COMPLETE_MARKER))) {
+            return root;
+        }
+        deleteRecursively(root);
+        long startTime = System.currentTimeMillis();
+        generator.generate(root);
+        Files.createFile(root.resolve(COMPLETE_MARKER));
+        System.out.println("已生成 " + generator.getClassCount() + " 个类，耗时: " + (System.currentTimeMillis() - startTime) + "ms: " + root);
+        return root;
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        if (!Files.exists(root)) return;
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.gekkoz.callchain.benchmark;
+
+import io.github.gekkoz.callchain.core.CallChainEngine;
+import io.github.gekkoz.callchain.core.CallChainService;
+import io.github.gekkoz.callchain.core.SearchType;
+import io.github.gekkoz.callchain.core.index.IndexUpdate;
+import io.github.gekkoz.callchain.core.trace.CallChainIterator;
+import io.github.gekkoz.callchain.core.trace.TraceOptions;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 并发查询：多个线程通过 {@link CallChainService} 查询的同时，一个线程反复修改源文件并增量更新。
+ * 修改只是在一个Service文件末尾加上或去掉一行注释，调用关系不变，用于测量更新期间的查询耗时，
+ * 每次查询得到的调用链数仍与准备阶段记录的比较。调用关系确实变化时的并发正确性由核心模块的
+ * CallChainServiceConcurrencyTest 在构建时检查。
+ * 项目生成在单独的临时目录中，不影响其他基准测试复用的项目
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ConcurrentQueryBenchmark {
+
+    private static final int QUERY_KEYS = 16;
+
+    @Param({"1000", "10000"})
+    public int classes;
+
+    @Param({"3"})
+    public int fanOut;
+
+    @Param({"2"})
+    public int inheritanceDepth;
+
+    @Param({"0.02"})
+    public double cycleRatio;
+
+    @Param({"10000"})
+    public long maxChains;
+
+    private Path root;
+    private Path modifiedFile;
+    private byte[] original;
+    private boolean modified;
+    private CallChainService service;
+    private String[] keys;
+    private final ConcurrentHashMap<String, Long> expectedChains = new ConcurrentHashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SyntheticProjectGenerator generator = BenchmarkProjects.generator(classes, fanOut, inheritanceDepth, cycleRatio);
+        root = Files.createTempDirectory("call-chain-concurrent");
+        generator.generate(root);
+        modifiedFile = root.resolve("src/main/java/com/bench/service/g0/Service0.java");
+        original = Files.readAllBytes(modifiedFile);
+
+        service = new CallChainService(CallChainEngine.build(root.toString(), 0, false)).prepareCondensedGraph(true);
+        int step = Math.max(1, generator.getMappers() / QUERY_KEYS);
+        keys = new String[Math.min(QUERY_KEYS, (generator.getMappers() + step - 1) / step)];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = generator.mapperName(i * step);
+            expectedChains.put(keys[i], countChains(service.getEngine(), keys[i], null));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private long countChains(CallChainEngine engine, String key, Blackhole blackhole) {
+        CallChainIterator chains = engine.streamCallChains(SearchType.MAPPING, key, new TraceOptions().maxTotalChains(maxChains));
+        while (chains.hasNext()) {
+            if (blackhole != null) blackhole.consume(chains.next());
+            else chains.next();
+        }
+        return chains.getChainCount();
+    }
+
+    /**
+     * 查询线程：每次取当前快照查询一个Mapper，并检查调用链数不变
+     */
+    @Benchmark
+    @Group("queryWhileUpdating")
+    @GroupThreads(7)
+    public long query(Blackhole blackhole) {
+        String key = keys[Math.floorMod(next.getAndIncrement(), keys.length)];
+        long count = countChains(service.snapshot().getEngine(), key, blackhole);
+        if (count != expectedChains.get(key)) {
+            throw new IllegalStateException(key + " 的调用链数为 " + count + "，应为 " + expectedChains.get(key));
+        }
+        return count;
+    }
+
+    /**
+     * 更新线程：修改文件后增量更新并发布新快照
+     */
+    @Benchmark
+    @Group("queryWhileUpdating")
+    @GroupThreads(1)
+    public IndexUpdate update() throws IOException {
+        modified = !modified;
+        if (modified) {
+            Files.write(modifiedFile, (new String(original, StandardCharsets.UTF_8) + "// modified\n").getBytes(StandardCharsets.UTF_8));
+        } else {
+            Files.write(modifiedFile, original);
+        }
+        return service.refresh();
+    }
+}
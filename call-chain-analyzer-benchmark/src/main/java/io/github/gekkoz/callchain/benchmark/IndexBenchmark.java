@@ -0,0 +1,70 @@
+package io.github.gekkoz.callchain.benchmark;
+
+import io.github.gekkoz.callchain.core.index.CallGraph;
+import io.github.gekkoz.callchain.core.index.CallGraphIndex;
+import io.github.gekkoz.callchain.core.index.CallGraphIndexer;
+import io.github.gekkoz.callchain.core.parse.ParsedProject;
+import io.github.gekkoz.callchain.core.parse.ProjectParser;
+import io.github.gekkoz.callchain.core.trace.CondensedCallGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 索引阶段：由文件摘要链接出调用图索引（包括被调用类的解析），
+ * 编译为整数化调用图，以及强连通分量缩点。各阶段的输入在准备阶段算好，只计量阶段本身
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class IndexBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int classes;
+
+    @Param({"3"})
+    public int fanOut;
+
+    @Param({"2"})
+    public int inheritanceDepth;
+
+    @Param({"0.02"})
+    public double cycleRatio;
+
+    private String projectPath;
+    private ParsedProject project;
+    private CallGraphIndex index;
+    private CallGraph graph;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        projectPath = BenchmarkProjects.prepare(BenchmarkProjects.generator(classes, fanOut, inheritanceDepth, cycleRatio)).toString();
+        project = new ProjectParser(0).parseProject(projectPath);
+        index = link();
+        graph = CallGraph.build(index);
+    }
+
+    /**
+     * 链接文件摘要：类和字段信息、方法定义、调用关系（含被调用类的解析）、REST控制器方法和常量引用
+     */
+    @Benchmark
+    public CallGraphIndex link() {
+        CallGraphIndexer indexer = new CallGraphIndexer(new CallGraphIndex(projectPath), 1, false);
+        indexer.build(project);
+        return indexer.getIndex();
+    }
+
+    @Benchmark
+    public CallGraph compileGraph() {
+        return CallGraph.build(index);
+    }
+
+    @Benchmark
+    public CondensedCallGraph condense() {
+        return CondensedCallGraph.build(graph);
+    }
+}
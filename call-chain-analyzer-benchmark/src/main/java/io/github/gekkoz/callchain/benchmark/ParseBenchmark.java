@@ -0,0 +1,51 @@
+package io.github.gekkoz.callchain.benchmark;
+
+import io.github.gekkoz.callchain.core.parse.ParsedProject;
+import io.github.gekkoz.callchain.core.parse.ProjectParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解析阶段：遍历源码目录、用JavaParser解析并提取文件摘要。
+ * 单次耗时较长，按单次执行时间计量
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int classes;
+
+    @Param({"3"})
+    public int fanOut;
+
+    @Param({"2"})
+    public int inheritanceDepth;
+
+    @Param({"0.02"})
+    public double cycleRatio;
+
+    /**
+     * 解析线程数，0表示使用全部可用处理器
+     */
+    @Param({"0"})
+    public int parallelism;
+
+    private String projectPath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        projectPath = BenchmarkProjects.prepare(BenchmarkProjects.generator(classes, fanOut, inheritanceDepth, cycleRatio)).toString();
+    }
+
+    @Benchmark
+    public ParsedProject parseProject() {
+        return new ProjectParser(parallelism).parseProject(projectPath);
+    }
+}
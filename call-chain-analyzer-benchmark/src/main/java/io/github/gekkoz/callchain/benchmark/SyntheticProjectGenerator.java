@@ -0,0 +1,327 @@
+package io.github.gekkoz.callchain.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * 合成Spring项目生成器，用于基准测试。
+ * 生成Controller（部分通过带映射注解的接口声明URL）、Service、Mapper接口、Service的抽象父类链和常量类，
+ * 可配置各类数量、每个方法的调用数（扇出）、继承深度以及指向编号更小的Service的调用比例（形成环）。
+ * 生成过程只依赖配置和随机种子，相同配置总是生成完全相同的源码。
+ */
+public class SyntheticProjectGenerator {
+
+    private static final String BASE_PACKAGE = "com.bench";
+
+    // 每个包中最多放置的类数，避免单个目录下文件过多
+    private static final int CLASSES_PER_PACKAGE = 1000;
+
+    private int controllers = 100;
+    private int services = 600;
+    private int mappers = 300;
+    private int methodsPerClass = 4;
+    private int fanOut = 3;
+    private int inheritanceDepth = 2;
+    private double cycleRatio = 0.02;
+    private int constants = 20;
+    private long seed = 42;
+
+    /**
+     * 按总类数分配：约10%为Controller（其中四分之一带接口），60%为Service，30%为Mapper
+     */
+    public static SyntheticProjectGenerator ofClassCount(int classes) {
+        SyntheticProjectGenerator generator = new SyntheticProjectGenerator();
+        generator.controllers = Math.max(1, classes / 10);
+        generator.mappers = Math.max(1, classes * 3 / 10);
+        generator.services = Math.max(1, classes - generator.mappers - generator.controllers * 5 / 4);
+        return generator;
+    }
+
+    public SyntheticProjectGenerator controllers(int controllers) {
+        this.controllers = controllers;
+        return this;
+    }
+
+    public SyntheticProjectGenerator services(int services) {
+        this.services = services;
+        return this;
+    }
+
+    public SyntheticProjectGenerator mappers(int mappers) {
+        this.mappers = mappers;
+        return this;
+    }
+
+    public SyntheticProjectGenerator methodsPerClass(int methodsPerClass) {
+        this.methodsPerClass = methodsPerClass;
+        return this;
+    }
+
+    /**
+     * 每个Service、Controller持有的下游Service数，也是每个方法最多发出的Service调用数
+     */
+    public SyntheticProjectGenerator fanOut(int fanOut) {
+        this.fanOut = fanOut;
+        return this;
+    }
+
+    /**
+     * Service之上的抽象父类层数，0表示不继承
+     */
+    public SyntheticProjectGenerator inheritanceDepth(int inheritanceDepth) {
+        this.inheritanceDepth = inheritanceDepth;
+        return this;
+    }
+
+    /**
+     * Service之间的调用指向编号更小的Service的比例；为0时Service调用图无环
+     */
+    public SyntheticProjectGenerator cycleRatio(double cycleRatio) {
+        this.cycleRatio = cycleRatio;
+        return this;
+    }
+
+    public SyntheticProjectGenerator constants(int constants) {
+        this.constants = constants;
+        return this;
+    }
+
+    public SyntheticProjectGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public int getMappers() {
+        return mappers;
+    }
+
+    /**
+     * 生成的类和接口总数
+     */
+    public int getClassCount() {
+        return controllers + (controllers + 3) / 4 + services + mappers + inheritanceDepth + 1;
+    }
+
+    public String mapperName(int mapper) {
+        return "Mapper" + mapper;
+    }
+
+    public String constantName(int constant) {
+        return "C" + constant;
+    }
+
+    /**
+     * 标识一组配置，相同标识的项目内容完全相同，可以复用
+     */
+    public String getCacheKey() {
+        return "c" + controllers + "-s" + services + "-m" + mappers + "-k" + methodsPerClass + "-f" + fanOut +
+                "-d" + inheritanceDepth + "-r" + cycleRatio + "-n" + constants + "-seed" + seed;
+    }
+
+    /**
+     * 在目录下生成项目源码（src/main/java）
+     */
+    public void generate(Path root) throws IOException {
+        Random random = new Random(seed);
+        Path sourceRoot = root.resolve("src/main/java");
+
+        StringBuilder constantClass = new StringBuilder();
+        constantClass.append("package ").append(BASE_PACKAGE).append(".constant;\n\n")
+                .append("public class AppConstants {\n");
+        for (int i = 0; i < constants; i++) {
+            constantClass.append("    public static final String ").append(constantName(i)).append(" = \"").append(i).append("\";\n");
+        }
+        constantClass.append("}\n");
+        write(sourceRoot, BASE_PACKAGE + ".constant", "AppConstants", constantClass);
+
+        for (int i = 0; i < mappers; i++) {
+            StringBuilder mapper = new StringBuilder();
+            mapper.append("package ").append(packageOf("mapper", i)).append(";\n\n")
+                    .append("@Mapper\n")
+                    .append("public interface ").append(mapperName(i)).append(" {\n")
+                    .append("    Object selectById(Long id);\n\n")
+                    .append("    java.util.List<Object> selectAll();\n\n")
+                    .append("    int insert(Object record);\n\n")
+                    .append("    int update(Object record);\n")
+                    .append("}\n");
+            write(sourceRoot, packageOf("mapper", i), mapperName(i), mapper);
+        }
+
+        for (int depth = 0; depth < inheritanceDepth; depth++) {
+            StringBuilder base = new StringBuilder();
+            base.append("package ").append(BASE_PACKAGE).append(".service.base;\n\n")
+                    .append("public abstract class BaseService").append(depth);
+            if (depth > 0) base.append(" extends BaseService").append(depth - 1);
+            base.append(" {\n")
+                    .append("    protected Object base").append(depth).append("(String value) {\n");
+            if (depth > 0) base.append("        base").append(depth - 1).append("(value);\n");
+            base.append("        return value;\n")
+                    .append("    }\n")
+                    .append("}\n");
+            write(sourceRoot, BASE_PACKAGE + ".service.base", "BaseService" + depth, base);
+        }
+
+        String[] mapperMethods = {"selectById(1L)", "selectAll()", "insert(null)", "update(null)"};
+        for (int i = 0; i < services; i++) {
+            int[] callees = pickCallees(random, i);
+            int[] usedMappers = {random.nextInt(mappers), random.nextInt(mappers)};
+
+            StringBuilder service = new StringBuilder();
+            service.append("package ").append(packageOf("service", i)).append(";\n\n")
+                    .append("@Service\n")
+                    .append("public class Service").append(i);
+            if (inheritanceDepth > 0) service.append(" extends BaseService").append(inheritanceDepth - 1);
+            service.append(" {\n");
+            for (int mapper : distinct(usedMappers)) {
+                service.append("    @Autowired\n    private ").append(mapperName(mapper)).append(" mapper").append(mapper).append(";\n");
+            }
+            for (int callee : callees) {
+                service.append("    @Autowired\n    private Service").append(callee).append(" service").append(callee).append(";\n");
+            }
+            for (int k = 0; k < methodsPerClass; k++) {
+                service.append("\n    public Object op").append(k).append("(String value) {\n");
+                for (int callee : callees) {
+                    if (random.nextDouble() < 0.6) {
+                        service.append("        service").append(callee).append(".op").append(random.nextInt(methodsPerClass)).append("(value);\n");
+                    }
+                }
+                if (random.nextDouble() < 0.7) {
+                    int mapper = usedMappers[random.nextInt(usedMappers.length)];
+                    service.append("        mapper").append(mapper).append('.').append(mapperMethods[random.nextInt(mapperMethods.length)]).append(";\n");
+                }
+                if (constants > 0 && random.nextDouble() < 0.2) {
+                    service.append("        String constant = AppConstants.").append(constantName(random.nextInt(constants))).append(";\n");
+                }
+                if (inheritanceDepth > 0 && random.nextDouble() < 0.2) {
+                    service.append("        base").append(random.nextInt(inheritanceDepth)).append("(value);\n");
+                }
+                if (k > 0 && random.nextDouble() < 0.2) {
+                    service.append("        this.op").append(random.nextInt(k)).append("(value);\n");
+                }
+                service.append("        return null;\n    }\n");
+            }
+            service.append("}\n");
+            write(sourceRoot, packageOf("service", i), "Service" + i, service);
+        }
+
+        for (int i = 0; i < controllers; i++) {
+            int[] callees = new int[Math.min(fanOut, services)];
+            for (int j = 0; j < callees.length; j++) {
+                callees[j] = random.nextInt(services);
+            }
+            callees = distinct(callees);
+            // 每四个Controller中有一个通过接口上的注解声明URL
+            boolean viaInterface = i % 4 == 0;
+
+            if (viaInterface) {
+                StringBuilder api = new StringBuilder();
+                api.append("package ").append(packageOf("api", i)).append(";\n\n")
+                        .append("@RequestMapping(\"/api").append(i).append("\")\n")
+                        .append("public interface Api").append(i).append(" {\n");
+                for (int k = 0; k < methodsPerClass; k++) {
+                    if (k > 0) api.append('\n');
+                    api.append(k % 2 == 0 ? "    @GetMapping(\"/get" : "    @PostMapping(value = \"/save").append(k).append("\")\n")
+                            .append("    Object handle").append(k).append("(String value);\n");
+                }
+                api.append("}\n");
+                write(sourceRoot, packageOf("api", i), "Api" + i, api);
+            }
+
+            StringBuilder controller = new StringBuilder();
+            controller.append("package ").append(packageOf("controller", i)).append(";\n\n")
+                    .append("@RestController\n");
+            if (viaInterface) {
+                controller.append("public class Controller").append(i).append(" implements Api").append(i).append(" {\n");
+            } else {
+                controller.append("@RequestMapping(\"/c").append(i).append("\")\n")
+                        .append("public class Controller").append(i).append(" {\n");
+            }
+            for (int callee : callees) {
+                controller.append("    @Autowired\n    private Service").append(callee).append(" service").append(callee).append(";\n");
+            }
+            for (int k = 0; k < methodsPerClass; k++) {
+                controller.append('\n');
+                if (viaInterface) {
+                    controller.append("    @Override\n");
+                } else {
+                    controller.append(k % 2 == 0 ? "    @GetMapping(\"/get" : "    @PostMapping(\"/save").append(k).append("\")\n");
+                }
+                controller.append("    public Object handle").append(k).append("(String value) {\n");
+                for (int callee : callees) {
+                    if (random.nextDouble() < 0.5) {
+                        controller.append("        service").append(callee).append(".op").append(random.nextInt(methodsPerClass)).append("(value);\n");
+                    }
+                }
+                controller.append("        return null;\n    }\n");
+            }
+            controller.append("}\n");
+            write(sourceRoot, packageOf("controller", i), "Controller" + i, controller);
+        }
+    }
+
+    /**
+     * 选择Service调用的下游Service：大多数指向编号更大的Service，按cycleRatio的比例指向编号更小的Service
+     */
+    private int[] pickCallees(Random random, int service) {
+        int[] callees = new int[fanOut];
+        int count = 0;
+        for (int j = 0; j < fanOut; j++) {
+            boolean backward = random.nextDouble() < cycleRatio;
+            if (backward && service > 0) {
+                callees[count++] = random.nextInt(service);
+            } else if (!backward && service < services - 1) {
+                callees[count++] = service + 1 + random.nextInt(services - service - 1);
+            }
+        }
+        return distinct(Arrays.copyOf(callees, count));
+    }
+
+    private static int[] distinct(int[] values) {
+        return Arrays.stream(values).distinct().toArray();
+    }
+
+    private static String packageOf(String kind, int index) {
+        return BASE_PACKAGE + "." + kind + ".g" + (index / CLASSES_PER_PACKAGE);
+    }
+
+    private static void write(Path sourceRoot, String packageName, String className, CharSequence content) throws IOException {
+        Path directory = sourceRoot.resolve(packageName.replace('.', '/'));
+        Files.createDirectories(directory);
+        Files.write(directory.resolve(className + ".java"), content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 命令行生成项目，便于用CLI手工分析
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("用法: java SyntheticProjectGenerator <输出目录> [--classes=N] [--fan-out=N] [--depth=N] [--cycle-ratio=R] [--methods=N] [--seed=N]");
+            System.exit(1);
+        }
+        SyntheticProjectGenerator generator = new SyntheticProjectGenerator();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--classes=")) {
+                SyntheticProjectGenerator sized = ofClassCount(Integer.parseInt(value));
+                generator.controllers(sized.controllers).services(sized.services).mappers(sized.mappers);
+            } else if (arg.startsWith("--fan-out=")) {
+                generator.fanOut(Integer.parseInt(value));
+            } else if (arg.startsWith("--depth=")) {
+                generator.inheritanceDepth(Integer.parseInt(value));
+            } else if (arg.startsWith("--cycle-ratio=")) {
+                generator.cycleRatio(Double.parseDouble(value));
+            } else if (arg.startsWith("--methods=")) {
+                generator.methodsPerClass(Integer.parseInt(value));
+            } else if (arg.startsWith("--seed=")) {
+                generator.seed(Long.parseLong(value));
+            }
+        }
+        generator.generate(Paths.get(args[0]));
+        System.out.println("已生成 " + generator.getClassCount() + " 个类: " + args[0]);
+    }
+}
@@ -0,0 +1,113 @@
+package io.github.gekkoz.callchain.benchmark;
+
+import io.github.gekkoz.callchain.core.CallChainEngine;
+import io.github.gekkoz.callchain.core.SearchType;
+import io.github.gekkoz.callchain.core.trace.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询阶段：在构建好的索引上按Mapper类查询。
+ * 查询关键字在固定的一组Mapper之间轮换，避免只测到某一个Mapper的调用链形状
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TraceBenchmark {
+
+    private static final int QUERY_KEYS = 16;
+
+    @Param({"1000", "10000", "100000"})
+    public int classes;
+
+    @Param({"3"})
+    public int fanOut;
+
+    @Param({"2"})
+    public int inheritanceDepth;
+
+    @Param({"0.02"})
+    public double cycleRatio;
+
+    /**
+     * 逐条枚举时每次查询最多输出的调用链数，路径数随深度指数增长，不限制时大项目上单次查询可能无法结束
+     */
+    @Param({"10000"})
+    public long maxChains;
+
+    private CallChainEngine engine;
+    private final List<String> keys = new ArrayList<>();
+    private List<ImpactInput> batch;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SyntheticProjectGenerator generator = BenchmarkProjects.generator(classes, fanOut, inheritanceDepth, cycleRatio);
+        engine = CallChainEngine.build(BenchmarkProjects.prepare(generator).toString(), 0, false);
+        engine.getCondensedGraph();
+
+        int step = Math.max(1, generator.getMappers() / QUERY_KEYS);
+        batch = new ArrayList<>();
+        for (int i = 0; i < QUERY_KEYS && i * step < generator.getMappers(); i++) {
+            String key = generator.mapperName(i * step);
+            keys.add(key);
+            batch.add(engine.usageInput(SearchType.MAPPING, key));
+        }
+    }
+
+    private String nextKey() {
+        String key = keys.get(next);
+        next = (next + 1) % keys.size();
+        return key;
+    }
+
+    /**
+     * 逐条枚举调用链（默认模式），达到maxChains后停止
+     */
+    @Benchmark
+    public long exactChains(Blackhole blackhole) {
+        CallChainIterator chains = engine.streamCallChains(SearchType.MAPPING, nextKey(), new TraceOptions().maxTotalChains(maxChains));
+        while (chains.hasNext()) {
+            blackhole.consume(chains.next());
+        }
+        return chains.getChainCount();
+    }
+
+    /**
+     * 缩点追踪：只求出共享后缀表示和调用链数量，不展开
+     */
+    @Benchmark
+    public long dagChainCount() {
+        long total = 0;
+        for (ChainDag dag : engine.findCallChainDags(SearchType.MAPPING, nextKey()).values()) {
+            total += dag.getChainCount();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public List<ReachableEndpoint> endpoints() {
+        return engine.findReachableEndpoints(SearchType.MAPPING, nextKey(), false);
+    }
+
+    @Benchmark
+    public List<ReachableEndpoint> endpointsWithWitness() {
+        return engine.findReachableEndpoints(SearchType.MAPPING, nextKey(), true);
+    }
+
+    /**
+     * 全部查询关键字作为一批输入的影响分析
+     */
+    @Benchmark
+    public List<EndpointImpact> batchImpact() {
+        return engine.analyzeImpact(batch);
+    }
+}
@@ -1,90 +1,646 @@
 package io.github.gekkoz.callchain.cli;
 
 
-import io.github.gekkoz.callchain.core.CallChainAnalyzer;
+import io.github.gekkoz.callchain.cli.server.AnalyzerClient;
+import io.github.gekkoz.callchain.cli.server.AnalyzerServer;
+import io.github.gekkoz.callchain.cli.server.MetricsReport;
+import io.github.gekkoz.callchain.core.CallChainEngine;
+import io.github.gekkoz.callchain.core.CallChainService;
+import io.github.gekkoz.callchain.core.LazyCallChainEngine;
+import io.github.gekkoz.callchain.core.SearchType;
+import io.github.gekkoz.callchain.core.diff.UnifiedDiff;
+import io.github.gekkoz.callchain.core.index.CallGraphIndex;
+import io.github.gekkoz.callchain.core.index.CallGraphIndexer;
+import io.github.gekkoz.callchain.core.index.IndexFile;
+import io.github.gekkoz.callchain.core.index.IndexUpdate;
+import io.github.gekkoz.callchain.core.metrics.AnalysisMetrics;
+import io.github.gekkoz.callchain.core.parse.SourceDiscovery;
+import io.github.gekkoz.callchain.core.trace.CallChain;
+import io.github.gekkoz.callchain.core.trace.CallChainIterator;
+import io.github.gekkoz.callchain.core.trace.EndpointImpact;
+import io.github.gekkoz.callchain.core.trace.ImpactInput;
+import io.github.gekkoz.callchain.core.trace.ReachableEndpoint;
+import io.github.gekkoz.callchain.core.trace.TraceOptions;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
 
 /**
  * 调用链分析器的主入口点
  */
 public class Main {
+
+    private static final String USAGE = "用法: java Main <项目路径> <查询类型：0-Mapper(类名，如AppInfoMapper),1-方法(如AppInfoMapper#getDeviceList,AppInfoMapper是类名，不能是驼峰，类与方法名之间使用#连接),2-常量> <查询关键字> [--debug] [--threads=N] [--index=索引文件] [--lazy] [--types=precise|heuristic] [--exclude=glob]... [--include-tests] [--sources=源码归档]... [--query=类型:关键字]... [--stdin] [--trace=exact|dag] [--top-k=N] [--max-depth=N] [--max-chains-per-start=N] [--max-chains=N] [--timeout=毫秒] [--endpoints] [--witness] [--batch] [--diff=补丁文件] [--metrics[=报告文件]] [--jfr]";
+
+    private static final String SERVE_USAGE = "用法: java Main serve <项目路径> [--port=N] [--index=索引文件] [--threads=N] [--query-cache=N] [--types=precise|heuristic] [--exclude=glob]... [--include-tests] [--sources=源码归档]... [--debug] [--metrics] [--jfr]";
+
     public static void main(String[] args) {
-        if (args.length < 3) { // 至少需要3个参数
-            System.out.println("用法: java Main <项目路径> <查询类型：0-Mapper(类名，如AppInfoMapper),1-方法(如AppInfoMapper#getDeviceList,AppInfoMapper是类名，不能是驼峰，类与方法名之间使用#连接),2-常量> <查询关键字> [--debug]");
-            System.exit(1);
+        if (args.length > 0 && "serve".equals(args[0])) {
+            runServer(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && "client".equals(args[0])) {
+            try {
+                System.exit(AnalyzerClient.run(Arrays.copyOfRange(args, 1, args.length)));
+            } catch (IOException e) {
+                System.err.println("请求服务时出错: " + e.getMessage());
+                System.exit(1);
+            }
         }
 
-        String projectPath = args[0];
-        String searchType = args[1];
-        String searchKeywork = args[2];
-        boolean debug = args.length > 3 && "--debug".equals(args[3]);
+        List<String> positional = new ArrayList<>();
+        List<String[]> queries = new ArrayList<>();
+        boolean debug = false;
+        boolean readStdin = false;
+        TraceOptions options = new TraceOptions();
+        boolean endpoints = false;
+        boolean witness = false;
+        boolean batch = false;
+        String diffFile = null;
+        int threads = 0;
+        String indexFile = null;
+        SourceDiscovery discovery = new SourceDiscovery();
+        boolean lazy = false;
+        boolean preciseTypes = false;
+        boolean metricsEnabled = false;
+        boolean jfr = false;
+        String metricsFile = null;
+        for (String arg : args) {
+            if ("--debug".equals(arg)) {
+                debug = true;
+            } else if ("--metrics".equals(arg)) {
+                metricsEnabled = true;
+            } else if (arg.startsWith("--metrics=")) {
+                metricsEnabled = true;
+                metricsFile = arg.substring("--metrics=".length());
+            } else if ("--jfr".equals(arg)) {
+                jfr = true;
+            } else if ("--lazy".equals(arg)) {
+                lazy = true;
+            } else if ("--types=precise".equals(arg)) {
+                preciseTypes = true;
+            } else if ("--types=heuristic".equals(arg)) {
+                preciseTypes = false;
+            } else if (arg.startsWith("--exclude=")) {
+                discovery.exclude(arg.substring("--exclude=".length()));
+            } else if (arg.startsWith("--sources=")) {
+                discovery.archive(Paths.get(arg.substring("--sources=".length())));
+            } else if ("--include-tests".equals(arg)) {
+                discovery.includeTests(true);
+            } else if ("--stdin".equals(arg)) {
+                readStdin = true;
+            } else if ("--endpoints".equals(arg)) {
+                endpoints = true;
+            } else if ("--witness".equals(arg)) {
+                endpoints = true;
+                witness = true;
+            } else if ("--batch".equals(arg)) {
+                batch = true;
+            } else if (arg.startsWith("--diff=")) {
+                batch = true;
+                diffFile = arg.substring("--diff=".length());
+            } else if ("--trace=dag".equals(arg)) {
+                options.condensed(true);
+            } else if ("--trace=exact".equals(arg)) {
+                options.condensed(false);
+            } else if (arg.startsWith("--top-k=")) {
+                options.topK((int) numberOption(arg, 0, Integer.MAX_VALUE, USAGE));
+            } else if (arg.startsWith("--max-depth=")) {
+                options.maxDepth((int) numberOption(arg, 0, Integer.MAX_VALUE, USAGE));
+            } else if (arg.startsWith("--max-chains-per-start=")) {
+                options.maxChainsPerStart((int) numberOption(arg, 0, Integer.MAX_VALUE, USAGE));
+            } else if (arg.startsWith("--max-chains=")) {
+                options.maxTotalChains(numberOption(arg, 0, Long.MAX_VALUE, USAGE));
+            } else if (arg.startsWith("--timeout=")) {
+                options.timeoutMillis(numberOption(arg, 0, Long.MAX_VALUE, USAGE));
+            } else if (arg.startsWith("--threads=")) {
+                threads = (int) numberOption(arg, 0, Integer.MAX_VALUE, USAGE);
+            } else if (arg.startsWith("--index=")) {
+                indexFile = arg.substring("--index=".length());
+            } else if (arg.startsWith("--query=")) {
+                String query = arg.substring("--query=".length());
+                int separator = query.indexOf(':');
+                if (separator > 0) {
+                    queries.add(new String[]{query.substring(0, separator), query.substring(separator + 1)});
+                }
+            } else if (arg.startsWith("--")) {
+                unknownOption(arg, USAGE);
+            } else {
+                positional.add(arg);
+            }
+        }
+        if (positional.size() >= 3) {
+            queries.add(0, new String[]{positional.get(1), positional.get(2)});
+        }
 
-        Set<String> urlList = new HashSet<>();
+        if (positional.isEmpty() || (queries.isEmpty() && !readStdin && diffFile == null)) { // 至少需要项目路径和一个查询
+            System.out.println(USAGE);
+            System.out.println("  查询关键字可以是模式：含*、?为通配符，regex:开头为正则表达式，如 '*Mapper'、'com.example.dao.*#find*'；全部匹配的名称只做一次追踪");
+            System.out.println("  --query=类型:关键字  追加查询，可重复指定，所有查询共用同一份索引");
+            System.out.println("  --lazy              按需解析：先做词法扫描，只解析与查询相关的文件，适用于对大型项目做少量查询；不读写索引文件");
+            System.out.println("  --types=precise     由局部变量、参数、字段和方法返回类型推断调用作用域的类型来确定被调用类，无法确定时不产生调用关系；默认heuristic按作用域文本推测");
+            System.out.println("  --exclude=glob      排除相对于项目目录的路径，可重复指定，如 **/generated/**；以 /** 结尾的规则整棵跳过目录");
+            System.out.println("  --include-tests     同时解析测试源码目录，默认只解析各模块的主源码目录");
+            System.out.println("  --sources=源码归档  同时分析 -sources.jar 或zip中的源码，可重复指定；归档原地读取，未变化的归档在增量更新时不会重新解析；项目路径本身也可以是归档");
+            System.out.println("  --stdin             索引构建完成后从标准输入逐行读取查询，每行格式为: 类型 关键字");
+            System.out.println("  --trace=dag         按强连通分量缩点并记忆化追踪，适用于被大量Controller调用的公共方法；环内只保留最短路径");
+            System.out.println("  --top-k=N           按调用层数由少到多，每个可达的Controller方法只输出最短的N条调用链，耗时与N成正比而与调用链总数无关");
+            System.out.println("  --max-depth=N       最多向上追踪N层调用");
+            System.out.println("  --max-chains-per-start=N / --max-chains=N  每个起始方法 / 每个查询最多输出的调用链数");
+            System.out.println("  --timeout=毫秒      单个查询的最长耗时，超时后停止输出");
+            System.out.println("  --endpoints         只输出受影响的接口，不枚举调用链；--witness 同时输出每个接口的一条最短调用链");
+            System.out.println("  --batch             把全部查询作为一批输入，一次遍历得到每个接口受哪些查询影响");
+            System.out.println("  --diff=补丁文件     把统一格式补丁（如git diff的输出）中修改的方法作为批量输入，隐含--batch");
+            System.out.println("  --metrics[=报告文件] 记录各阶段耗时、每个文件的解析耗时和索引规模，结束时以JSON输出到标准输出或写入文件");
+            System.out.println("  --jfr               记录度量时同时提交自定义JFR事件，需配合 -XX:StartFlightRecording 使用");
+            System.out.println("常驻服务: java Main serve <项目路径> [--port=N] [--index=索引文件] [--threads=N] [--query-cache=N] [--types=precise|heuristic] [--exclude=glob]... [--include-tests] [--sources=源码归档]... [--debug] [--metrics] [--jfr]");
+            System.out.println("客户端:   java Main client [--port=N] <查询类型> <查询关键字> [--endpoints] [--witness] [--trace=exact|dag] [--top-k=N] [--max-depth=N] ...");
+            System.out.println("          java Main client [--port=N] --batch --query=类型:关键字... | --diff=补丁文件 | --status | --metrics | --refresh | --shutdown");
+            System.exit(1);
+        }
 
-        System.out.println("正在分析调用链: " + searchKeywork);
+        String projectPath = positional.get(0);
         System.out.println("项目路径: " + projectPath);
-        System.out.println("查询类型: " + getSearchTypeName(searchType));
-
-        try {
-            long startTime = System.currentTimeMillis();
-            CallChainAnalyzer analyzer = new CallChainAnalyzer(projectPath, searchType, searchKeywork, debug);
-            Map<String, List<List<String>>> allCallChains = analyzer.findAllCallChainsToRestController(searchKeywork);
-            long endTime = System.currentTimeMillis();
+        AnalysisMetrics metrics = metricsEnabled || jfr ? AnalysisMetrics.create(jfr) : AnalysisMetrics.disabled();
 
-            System.out.println("分析总耗时: " + (endTime - startTime) + "ms");
+        if (lazy && diffFile != null) {
+            System.out.println("补丁分析需要完整的索引，忽略 --lazy");
+            lazy = false;
+        } else if (lazy && indexFile != null) {
+            System.out.println("按需解析时不读写索引文件，忽略 --index");
+        }
+        if (lazy && preciseTypes) {
+            // 按需解析只扩展出现被调用类名的文件，而精确模式下被调用类可以来自变量的类型推断，文件中未必出现该类名
+            System.out.println("按需解析只支持启发式的被调用类解析，忽略 --types=precise");
+            preciseTypes = false;
+        }
 
-            if (allCallChains.isEmpty()) {
-                System.out.println("未找到目标到REST控制器的调用链");
+        int rejected = 0; // 关键字不合法而跳过的查询数
+        try {
+            CallChainEngine engine = null;
+            LazyCallChainEngine lazyEngine = null;
+            if (lazy) {
+                lazyEngine = new LazyCallChainEngine(projectPath, discovery.parallelism(threads), threads, debug, metrics);
             } else {
-                System.out.println("找到以下调用链:");
-                int chainIndex = 1;
-                int totalChainCount = 0;
-                // 修改循环逻辑以处理多条调用链
-                for (Map.Entry<String, List<List<String>>> entry : allCallChains.entrySet()) {
-                    String startPoint = entry.getKey();
-                    List<List<String>> callChains = entry.getValue();
-                    totalChainCount += callChains.size();
-
-                    for (List<String> callChain : callChains) {
-                        System.out.println("\n调用链 #" + chainIndex++);
-                        System.out.println("起始方法: " + startPoint);
-                        for (int i = callChain.size() - 1; i >= 0; i--) {
-                            System.out.println("  " + (callChain.size() - i) + ". " + callChain.get(i));
-                        }
+                long startTime = System.currentTimeMillis();
+                engine = createEngine(projectPath, discovery.parallelism(threads), preciseTypes, debug, threads, indexFile, metrics);
+                System.out.println("索引准备耗时: " + (System.currentTimeMillis() - startTime) + "ms");
+                if (!engine.getParseFailures().isEmpty()) {
+                    System.out.println("解析失败的文件数: " + engine.getParseFailures().size());
+                }
+            }
 
-                        // 获取并打印Controller方法的URL
-                        String controllerMethod = callChain.get(0); // Controller方法在调用链的顶部
-                        String url = analyzer.getControllerMethodUrl(controllerMethod);
-                        if (!url.isEmpty()) {
-                            System.out.println("  URL: " + url);
-                            urlList.add(url);
-                        } else {
-                            System.out.println("  URL: 未找到");
+            if (batch) {
+                if (readStdin) {
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] parts = line.trim().split("\\s+", 2);
+                        if (parts.length == 2) {
+                            queries.add(parts);
+                        } else if (!line.trim().isEmpty()) {
+                            System.out.println("无法识别的查询: " + line);
                         }
                     }
                 }
+                for (Iterator<String[]> it = queries.iterator(); it.hasNext(); ) {
+                    String[] query = it.next();
+                    try {
+                        engine = engineFor(engine, lazyEngine, query[0], query[1]);
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("无效的查询关键字，已跳过: " + e.getMessage());
+                        it.remove();
+                        rejected++;
+                    }
+                }
+                if (engine == null) {
+                    System.out.println("没有可分析的查询");
+                    if (rejected > 0) System.exit(1);
+                    return;
+                }
+                rejected += runImpactQuery(engine, queries, diffFile);
+                writeMetrics(metrics, metricsFile);
+                if (rejected > 0) System.exit(1);
+                return;
+            }
 
-                System.out.println("\n总计找到 " + totalChainCount + " 条调用链");
-                if (!urlList.isEmpty()) {
-                    System.out.println("共计涉及" + urlList.size() +"个接口，去重后的URL列表：" + urlList);
+            for (String[] query : queries) {
+                try {
+                    engine = engineFor(engine, lazyEngine, query[0], query[1]);
+                    if (endpoints) {
+                        runEndpointQuery(engine, query[0], query[1], witness);
+                    } else {
+                        runQuery(engine, query[0], query[1], options);
+                    }
+                } catch (IllegalArgumentException e) {
+                    System.out.println("无效的查询关键字，已跳过: " + e.getMessage());
+                    rejected++;
                 }
             }
+
+            if (readStdin) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.trim().split("\\s+", 2);
+                    if (parts.length != 2) {
+                        if (!line.trim().isEmpty()) {
+                            System.out.println("无法识别的查询: " + line);
+                        }
+                        continue;
+                    }
+                    try {
+                        engine = engineFor(engine, lazyEngine, parts[0], parts[1]);
+                        if (endpoints) {
+                            runEndpointQuery(engine, parts[0], parts[1], witness);
+                        } else {
+                            runQuery(engine, parts[0], parts[1], options);
+                        }
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("无效的查询关键字，已跳过: " + e.getMessage());
+                        rejected++;
+                    }
+                }
+            }
+            writeMetrics(metrics, metricsFile);
         } catch (Exception e) {
             System.err.println("分析调用链时出错: " + e.getMessage());
             e.printStackTrace();
         }
+        if (rejected > 0) {
+            System.exit(1);
+        }
     }
 
-    private static String getSearchTypeName(String searchType) {
-        switch (searchType) {
-            case "0": return "Mapper类";
-            case "1": return "方法调用";
-            case "2": return "常量";
-            default: return "未知";
+    /**
+     * 启动常驻服务，直到收到 /shutdown 请求
+     */
+    private static void runServer(String[] args) {
+        String projectPath = null;
+        boolean debug = false;
+        int threads = 0;
+        int port = AnalyzerServer.DEFAULT_PORT;
+        String indexFile = null;
+        SourceDiscovery discovery = new SourceDiscovery();
+        boolean preciseTypes = false;
+        boolean metricsEnabled = false;
+        boolean jfr = false;
+        long queryCache = CallChainService.DEFAULT_QUERY_CACHE_WEIGHT;
+        for (String arg : args) {
+            if ("--debug".equals(arg)) {
+                debug = true;
+            } else if ("--metrics".equals(arg)) {
+                metricsEnabled = true;
+            } else if ("--jfr".equals(arg)) {
+                jfr = true;
+            } else if ("--types=precise".equals(arg)) {
+                preciseTypes = true;
+            } else if ("--types=heuristic".equals(arg)) {
+                preciseTypes = false;
+            } else if (arg.startsWith("--threads=")) {
+                threads = (int) numberOption(arg, 0, Integer.MAX_VALUE, SERVE_USAGE);
+            } else if (arg.startsWith("--exclude=")) {
+                discovery.exclude(arg.substring("--exclude=".length()));
+            } else if (arg.startsWith("--sources=")) {
+                discovery.archive(Paths.get(arg.substring("--sources=".length())));
+            } else if ("--include-tests".equals(arg)) {
+                discovery.includeTests(true);
+            } else if (arg.startsWith("--port=")) {
+                port = (int) numberOption(arg, 0, 65535, SERVE_USAGE);
+            } else if (arg.startsWith("--query-cache=")) {
+                queryCache = numberOption(arg, 0, Long.MAX_VALUE, SERVE_USAGE);
+            } else if (arg.startsWith("--index=")) {
+                indexFile = arg.substring("--index=".length());
+            } else if (arg.startsWith("--")) {
+                unknownOption(arg, SERVE_USAGE);
+            } else if (projectPath == null) {
+                projectPath = arg;
+            }
         }
+        if (projectPath == null) {
+            System.out.println(SERVE_USAGE);
+            System.exit(1);
+        }
+
+        System.out.println("项目路径: " + projectPath);
+        AnalysisMetrics metrics = metricsEnabled || jfr ? AnalysisMetrics.create(jfr) : AnalysisMetrics.disabled();
+        try {
+            long startTime = System.currentTimeMillis();
+            CallChainEngine engine = createEngine(projectPath, discovery.parallelism(threads), preciseTypes, debug, threads,
+                    indexFile, metrics);
+            AnalyzerServer server = new AnalyzerServer(engine, indexFile == null ? null : Paths.get(indexFile), threads, debug)
+                    .queryCache(queryCache);
+            server.start(port);
+            System.out.println("服务已启动: http://127.0.0.1:" + server.getPort() + "，启动耗时: " + (System.currentTimeMillis() - startTime) + "ms");
+            server.awaitShutdown();
+            System.out.println("服务已停止");
+        } catch (Exception e) {
+            System.err.println("启动服务时出错: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 解析 --名称=N 形式的数值参数。值不是整数或超出范围时输出错误和用法并退出，
+     * 避免格式错误的参数在分析开始后才以异常的形式出现。查询、serve和client共用
+     */
+    public static long numberOption(String arg, long min, long max, String usage) {
+        int separator = arg.indexOf('=');
+        String value = arg.substring(separator + 1);
+        try {
+            long number = Long.parseLong(value);
+            if (number >= min && number <= max) return number;
+        } catch (NumberFormatException e) {
+            // 与超出范围相同，输出用法后退出
+        }
+        String range = max == Integer.MAX_VALUE || max == Long.MAX_VALUE ? "不小于" + min + "的整数" : min + "到" + max + "之间的整数";
+        System.err.println("参数 " + arg.substring(0, separator) + " 的值无效: " + value + "，应为" + range);
+        System.out.println(usage);
+        System.exit(1);
+        return min;
+    }
+
+    /**
+     * 不认识的 --选项：输出错误和用法并退出，避免拼错的选项被当作项目路径或查询关键字。查询、serve和client共用
+     */
+    public static void unknownOption(String arg, String usage) {
+        System.err.println("未知参数: " + arg);
+        System.out.println(usage);
+        System.exit(1);
+    }
+
+    /**
+     * 执行一次查询，边查找边打印调用链
+     */
+    private static void runQuery(CallChainEngine engine, String searchType, String searchKeywork, TraceOptions options) {
+        System.out.println("\n正在分析调用链: " + searchKeywork);
+        System.out.println("查询类型: " + getSearchTypeName(searchType));
+
+        SearchType type = SearchType.fromCode(searchType);
+        if (type == null) {
+            System.out.println("未知的查询类型: " + searchType);
+            return;
+        }
+
+        Set<String> urlList = new HashSet<>();
+        long startTime = System.currentTimeMillis();
+        CallChainIterator chains = engine.streamCallChains(type, searchKeywork, options);
+
+        int chainIndex = 1;
+        while (chains.hasNext()) {
+            CallChain chain = chains.next();
+            if (chainIndex == 1) {
+                System.out.println("找到以下调用链:");
+            }
+            List<String> callChain = chain.getMethods();
+            System.out.println("\n调用链 #" + chainIndex++);
+            System.out.println("起始方法: " + chain.getStart());
+            for (int i = callChain.size() - 1; i >= 0; i--) {
+                System.out.println("  " + (callChain.size() - i) + ". " + callChain.get(i));
+            }
+
+            // 获取并打印Controller方法的URL
+            String url = engine.getControllerMethodUrl(chain.getControllerMethod()); // Controller方法在调用链的顶部
+            if (!url.isEmpty()) {
+                System.out.println("  URL: " + url);
+                urlList.add(url);
+            } else {
+                System.out.println("  URL: 未找到");
+            }
+        }
+        long endTime = System.currentTimeMillis();
+
+        if (chains.getChainCount() == 0) {
+            System.out.println("未找到目标到REST控制器的调用链");
+        } else {
+            System.out.println("\n总计找到 " + chains.getChainCount() + " 条调用链");
+            if (!urlList.isEmpty()) {
+                System.out.println("共计涉及" + urlList.size() +"个接口，去重后的URL列表：" + urlList);
+            }
+        }
+        if (chains.isTruncated()) {
+            System.out.println("结果已截断: " + getStopReasonName(chains));
+        }
+        System.out.println("分析总耗时: " + (endTime - startTime) + "ms");
+    }
+
+    /**
+     * 执行一次端点可达性查询，只打印受影响的接口
+     */
+    private static void runEndpointQuery(CallChainEngine engine, String searchType, String searchKeywork, boolean witness) {
+        System.out.println("\n正在分析受影响的接口: " + searchKeywork);
+        System.out.println("查询类型: " + getSearchTypeName(searchType));
+
+        SearchType type = SearchType.fromCode(searchType);
+        if (type == null) {
+            System.out.println("未知的查询类型: " + searchType);
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<ReachableEndpoint> endpoints = engine.findReachableEndpoints(type, searchKeywork, witness);
+        long endTime = System.currentTimeMillis();
+
+        if (endpoints.isEmpty()) {
+            System.out.println("未找到目标到REST控制器的调用链");
+        } else {
+            Set<String> urlList = new LinkedHashSet<>();
+            for (ReachableEndpoint endpoint : endpoints) {
+                String url = endpoint.getUrl();
+                System.out.println("\n" + (url.isEmpty() ? "URL: 未找到" : "URL: " + url));
+                System.out.println("  Controller方法: " + endpoint.getControllerMethod() + " (距离 " + endpoint.getDistance() + " 层)");
+                if (endpoint.getWitness() != null) {
+                    List<String> callChain = endpoint.getWitness();
+                    System.out.println("  最短调用链:");
+                    for (int i = callChain.size() - 1; i >= 0; i--) {
+                        System.out.println("    " + (callChain.size() - i) + ". " + callChain.get(i));
+                    }
+                }
+                if (!url.isEmpty()) urlList.add(url);
+            }
+            System.out.println("\n共找到 " + endpoints.size() + " 个Controller方法");
+            if (!urlList.isEmpty()) {
+                System.out.println("共计涉及" + urlList.size() + "个接口，去重后的URL列表：" + urlList);
+            }
+        }
+        System.out.println("分析总耗时: " + (endTime - startTime) + "ms");
+    }
+
+    /**
+     * 执行一次批量影响分析，按接口打印影响到它的查询或修改的方法
+     *
+     * @return 关键字不合法而跳过的查询数
+     */
+    private static int runImpactQuery(CallChainEngine engine, List<String[]> queries, String diffFile) throws IOException {
+        System.out.println("\n正在进行批量影响分析");
+
+        List<ImpactInput> inputs = new ArrayList<>();
+        int rejected = 0;
+        for (String[] query : queries) {
+            SearchType type = SearchType.fromCode(query[0]);
+            if (type == null) {
+                System.out.println("未知的查询类型: " + query[0]);
+                continue;
+            }
+            try {
+                inputs.add(engine.usageInput(type, query[1]));
+            } catch (IllegalArgumentException e) {
+                System.out.println("无效的查询关键字，已跳过: " + e.getMessage());
+                rejected++;
+            }
+        }
+        if (diffFile != null) {
+            List<ImpactInput> changed = engine.findChangedMethods(UnifiedDiff.parse(Paths.get(diffFile)));
+            System.out.println("补丁中修改的方法数: " + changed.size());
+            for (ImpactInput input : changed) {
+                System.out.println("  " + input.getLabel());
+            }
+            inputs.addAll(changed);
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<EndpointImpact> impacts = engine.analyzeImpact(inputs);
+        long endTime = System.currentTimeMillis();
+
+        Set<String> affected = new HashSet<>();
+        for (EndpointImpact impact : impacts) {
+            String url = impact.getUrl();
+            System.out.println("\n" + (url.isEmpty() ? "URL: 未找到" : "URL: " + url));
+            System.out.println("  Controller方法: " + impact.getControllerMethod());
+            System.out.println("  受以下输入影响:");
+            for (String input : impact.getInputs()) {
+                System.out.println("    " + input);
+            }
+            affected.addAll(impact.getInputs());
+        }
+
+        for (ImpactInput input : inputs) {
+            if (!affected.contains(input.getLabel())) {
+                System.out.println("\n未影响任何接口: " + input.getLabel() + (input.getStarts().isEmpty() ? " (未找到使用位置)" : ""));
+            }
+        }
+        System.out.println("\n共 " + inputs.size() + " 个输入，影响 " + impacts.size() + " 个Controller方法");
+        System.out.println("分析总耗时: " + (endTime - startTime) + "ms");
+        return rejected;
+    }
+
+    /**
+     * 输出度量报告：指定了文件时写入文件，否则打印到标准输出；未启用度量时不输出
+     */
+    private static void writeMetrics(AnalysisMetrics metrics, String metricsFile) throws IOException {
+        if (!metrics.isEnabled()) return;
+        String report = MetricsReport.toJson(metrics);
+        if (metricsFile == null) {
+            System.out.println("\n度量报告: " + report);
+        } else {
+            Files.write(Paths.get(metricsFile), report.getBytes(StandardCharsets.UTF_8));
+            System.out.println("度量报告已写入: " + metricsFile);
+        }
+    }
+
+    /**
+     * 按需解析时先解析查询所需的文件并返回新的引擎，否则返回原有引擎
+     */
+    private static CallChainEngine engineFor(CallChainEngine engine, LazyCallChainEngine lazyEngine,
+                                             String searchType, String searchKeywork) {
+        SearchType type = SearchType.fromCode(searchType);
+        if (lazyEngine == null || type == null) return engine;
+
+        long startTime = System.currentTimeMillis();
+        CallChainEngine prepared = lazyEngine.prepare(type, searchKeywork);
+        System.out.println("按需解析耗时: " + (System.currentTimeMillis() - startTime) + "ms，已解析 "
+                + lazyEngine.getParsedFileCount() + "/" + lazyEngine.getFileCount() + " 个文件");
+        return prepared;
+    }
+
+    private static String getStopReasonName(CallChainIterator chains) {
+        switch (chains.getStopReason()) {
+            case MAX_TOTAL_CHAINS:
+                return "达到调用链总数限制";
+            case TIMEOUT:
+                return "超过查询时间限制";
+            default:
+                return "部分起始方法达到调用链数量限制";
+        }
+    }
+
+    /**
+     * 创建分析引擎：指定了索引文件时加载索引，索引过期则只重新解析变化的文件并写回；否则解析整个项目。
+     * 索引的被调用类解析方式与要求不同时重新构建索引。写回索引文件失败时只打印警告，仍返回内存中的索引
+     */
+    private static CallChainEngine createEngine(String projectPath, SourceDiscovery discovery, boolean preciseTypes,
+                                                boolean debug, int threads, String indexFile,
+                                                AnalysisMetrics metrics) {
+        CallGraphIndex newIndex = new CallGraphIndex(projectPath);
+        newIndex.setSourceDiscovery(discovery);
+        newIndex.setPreciseTypes(preciseTypes);
+        if (indexFile == null) {
+            return CallChainEngine.build(newIndex, threads, debug, metrics);
+        }
+
+        Path indexPath = Paths.get(indexFile);
+        CallGraphIndex index = null;
+        if (Files.exists(indexPath)) {
+            try {
+                long phaseStart = metrics.startTime();
+                index = IndexFile.read(indexPath);
+                metrics.endPhase(AnalysisMetrics.PHASE_READ_INDEX, phaseStart);
+            } catch (IOException e) {
+                System.out.println("无法读取索引文件，重新构建索引: " + e.getMessage());
+            }
+        }
+
+        if (index != null) {
+            index.setSourceDiscovery(discovery);
+            if (!Paths.get(index.getProjectPath()).equals(Paths.get(projectPath))) {
+                System.out.println("索引文件对应的项目路径不同，重新构建索引: " + index.getProjectPath());
+            } else if (index.isPreciseTypes() != preciseTypes) {
+                System.out.println("索引文件的被调用类解析方式不同，重新构建索引");
+            } else if (index.isStale()) {
+                IndexUpdate update = new CallGraphIndexer(index, threads, debug, metrics).update();
+                System.out.println("索引已过期，增量更新: " + update);
+                writeIndex(index, indexPath, metrics);
+                return new CallChainEngine(index, debug, metrics);
+            } else {
+                System.out.println("使用已有索引: " + indexPath);
+                return new CallChainEngine(index, debug, metrics);
+            }
+        }
+
+        CallChainEngine engine = CallChainEngine.build(newIndex, threads, debug, metrics);
+        if (writeIndex(engine.getIndex(), indexPath, metrics)) {
+            System.out.println("索引已写入: " + indexPath);
+        }
+        return engine;
+    }
+
+    /**
+     * 写入索引文件。写入失败只影响下次运行，本次仍使用内存中的索引，因此只打印警告
+     *
+     * @return 是否写入成功
+     */
+    private static boolean writeIndex(CallGraphIndex index, Path indexPath, AnalysisMetrics metrics) {
+        long phaseStart = metrics.startTime();
+        try {
+            IndexFile.write(index, indexPath);
+            return true;
+        } catch (IOException e) {
+            System.err.println("写入索引文件失败: " + e.getMessage());
+            return false;
+        } finally {
+            metrics.endPhase(AnalysisMetrics.PHASE_WRITE_INDEX, phaseStart);
+        }
+    }
+
+    private static String getSearchTypeName(String searchType) {
+        SearchType type = SearchType.fromCode(searchType);
+        return type == null ? "未知" : type.getDisplayName();
     }
 }
@@ -0,0 +1,126 @@
+package io.github.gekkoz.callchain.cli.server;
+
+import io.github.gekkoz.callchain.cli.Main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 常驻服务的命令行客户端，把参数转换为HTTP请求并原样输出服务返回的JSON
+ */
+public class AnalyzerClient {
+
+    private static final String USAGE = "用法: java Main client [--port=N] <查询类型> <查询关键字> [--endpoints] [--witness] [--trace=exact|dag] [--top-k=N] [--max-depth=N] ... | --batch --query=类型:关键字... | --diff=补丁文件 | --status | --metrics | --refresh | --shutdown";
+
+    /**
+     * 数值参数的值无效或选项未知时与查询、serve的参数一样由 {@link Main#numberOption}、{@link Main#unknownOption} 输出用法并退出
+     *
+     * @return 进程退出码：成功为0，请求错误或无法连接为1
+     */
+    public static int run(String[] args) throws IOException {
+        int port = AnalyzerServer.DEFAULT_PORT;
+        String path = "/query";
+        String diffFile = null;
+        List<String> positional = new ArrayList<>();
+        StringBuilder params = new StringBuilder();
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = (int) Main.numberOption(arg, 1, 65535, USAGE);
+            } else if ("--status".equals(arg)) {
+                path = "/status";
+            } else if ("--metrics".equals(arg)) {
+                path = "/metrics";
+            } else if ("--refresh".equals(arg)) {
+                path = "/refresh";
+            } else if ("--shutdown".equals(arg)) {
+                path = "/shutdown";
+            } else if ("--endpoints".equals(arg)) {
+                path = "/endpoints";
+            } else if ("--witness".equals(arg)) {
+                path = "/endpoints";
+                append(params, "witness", "true");
+            } else if ("--batch".equals(arg)) {
+                path = "/impact";
+            } else if (arg.startsWith("--diff=")) {
+                path = "/impact";
+                diffFile = arg.substring("--diff=".length());
+            } else if (arg.startsWith("--query=")) {
+                append(params, "q", arg.substring("--query=".length()));
+            } else if (arg.startsWith("--trace=")) {
+                append(params, "trace", arg.substring("--trace=".length()));
+            } else if (arg.startsWith("--top-k=")) {
+                append(params, "topK", arg.substring("--top-k=".length()));
+            } else if (arg.startsWith("--max-depth=")) {
+                append(params, "maxDepth", arg.substring("--max-depth=".length()));
+            } else if (arg.startsWith("--max-chains-per-start=")) {
+                append(params, "maxChainsPerStart", arg.substring("--max-chains-per-start=".length()));
+            } else if (arg.startsWith("--max-chains=")) {
+                append(params, "maxChains", arg.substring("--max-chains=".length()));
+            } else if (arg.startsWith("--timeout=")) {
+                append(params, "timeout", arg.substring("--timeout=".length()));
+            } else if (arg.startsWith("--")) {
+                Main.unknownOption(arg, USAGE);
+            } else {
+                positional.add(arg);
+            }
+        }
+        if (positional.size() >= 2) {
+            if ("/impact".equals(path)) {
+                append(params, "q", positional.get(0) + ":" + positional.get(1));
+            } else {
+                append(params, "type", positional.get(0));
+                append(params, "key", positional.get(1));
+            }
+        }
+
+        URL url = new URL("http://127.0.0.1:" + port + path + (params.length() > 0 ? "?" + params : ""));
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            // 与服务端一致：有副作用的接口和批量影响分析使用POST
+            if ("/impact".equals(path) || "/refresh".equals(path) || "/shutdown".equals(path)) {
+                connection.setRequestMethod("POST");
+                connection.setDoOutput(true);
+                try (OutputStream out = connection.getOutputStream()) {
+                    if (diffFile != null) out.write(Files.readAllBytes(Paths.get(diffFile)));
+                }
+            }
+            int status = connection.getResponseCode();
+            InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            System.out.println(read(in));
+            return status < 400 ? 0 : 1;
+        } catch (ConnectException e) {
+            System.err.println("无法连接到服务 127.0.0.1:" + port + "，请先使用 serve 启动服务");
+            return 1;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static void append(StringBuilder params, String name, String value) throws IOException {
+        if (params.length() > 0) params.append('&');
+        params.append(name).append('=').append(URLEncoder.encode(value, "UTF-8"));
+    }
+
+    private static String read(InputStream in) throws IOException {
+        if (in == null) return "";
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int n;
+        while ((n = in.read(chunk)) > 0) {
+            buffer.write(chunk, 0, n);
+        }
+        in.close();
+        return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
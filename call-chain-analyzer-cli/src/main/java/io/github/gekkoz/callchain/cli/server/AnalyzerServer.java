@@ -0,0 +1,356 @@
+package io.github.gekkoz.callchain.cli.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.github.gekkoz.callchain.core.CallChainEngine;
+import io.github.gekkoz.callchain.core.CallChainService;
+import io.github.gekkoz.callchain.core.QueryCache;
+import io.github.gekkoz.callchain.core.SearchType;
+import io.github.gekkoz.callchain.core.diff.UnifiedDiff;
+import io.github.gekkoz.callchain.core.index.CallGraphIndex;
+import io.github.gekkoz.callchain.core.index.IndexFile;
+import io.github.gekkoz.callchain.core.index.IndexUpdate;
+import io.github.gekkoz.callchain.core.metrics.AnalysisMetrics;
+import io.github.gekkoz.callchain.core.trace.*;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 常驻服务：索引常驻内存，监听源码目录并在后台增量更新，通过本机回环地址上的HTTP接口以JSON格式回答查询。
+ * <p>
+ * 接口：
+ * <ul>
+ *     <li>{@code GET /query?type=0&key=UserMapper} 调用链，可选参数 trace=dag|exact、topK、maxDepth、maxChainsPerStart、maxChains、timeout</li>
+ *     <li>{@code GET /endpoints?type=0&key=UserMapper} 受影响的接口，可选参数 witness=true</li>
+ *     <li>{@code POST /impact?q=0:UserMapper&q=2:DEFAULT_MESSAGE} 批量影响分析，请求体可以是统一格式补丁</li>
+ *     <li>{@code GET /status} 索引状态，{@code GET /metrics} 度量报告（启动时指定 --metrics）</li>
+ *     <li>{@code POST /refresh} 立即检查源码变化，{@code POST /shutdown} 停止服务</li>
+ * </ul>
+ * 只接受Host为 {@code 127.0.0.1:端口} 或 {@code localhost:端口} 的请求（否则返回403），防止网页通过DNS重绑定访问；
+ * 有副作用的接口只接受POST（否则返回405），浏览器无法通过简单的跨站GET请求触发。
+ * 索引由 {@link CallChainService} 以不可变快照的形式管理：每个请求开始时取得当前快照，查询不加锁；
+ * 增量更新在索引副本上进行，完成后原子替换快照，更新期间查询不会被阻塞。响应中的generation为所用快照的版本号。
+ * 调用链查询的结果按快照版本缓存，{@code /status} 中的queryCache为缓存的命中统计。
+ */
+public class AnalyzerServer {
+
+    public static final int DEFAULT_PORT = 7077;
+
+    // 未指定timeout参数时单个调用链查询的最长耗时，避免一个查询长时间占用服务线程
+    private static final long DEFAULT_QUERY_TIMEOUT_MILLIS = 30_000;
+
+    private static final long WATCH_QUIET_MILLIS = 300;
+
+    private final Path indexPath;
+    private final int threads;
+    private final boolean debug;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final CallChainService service;
+
+    private HttpServer server;
+    private Set<String> allowedHosts;
+    private ExecutorService executor;
+    private SourceWatcher watcher;
+    private Thread watcherThread;
+
+    /**
+     * @param indexPath 索引文件，每次增量更新后写回；为null时不持久化
+     */
+    public AnalyzerServer(CallChainEngine engine, Path indexPath, int threads, boolean debug) {
+        this.service = new CallChainService(engine, threads, debug);
+        this.indexPath = indexPath;
+        this.threads = threads;
+        this.debug = debug;
+    }
+
+    /**
+     * 调用链查询结果缓存的上限，见 {@link CallChainService#queryCache(long)}
+     */
+    public AnalyzerServer queryCache(long maxWeight) {
+        service.queryCache(maxWeight);
+        return this;
+    }
+
+    /**
+     * 在本机回环地址上启动服务并开始监听源码目录
+     */
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        server.setExecutor(executor);
+        int boundPort = server.getAddress().getPort();
+        allowedHosts = new HashSet<>(Arrays.asList("127.0.0.1:" + boundPort, "localhost:" + boundPort));
+        server.createContext("/query", handler(false, this::query));
+        server.createContext("/endpoints", handler(false, this::endpoints));
+        server.createContext("/impact", handler(true, this::impact));
+        server.createContext("/status", handler(false, exchange -> status()));
+        server.createContext("/metrics", handler(false, exchange -> MetricsReport.toJson(service.getEngine().getMetrics())));
+        server.createContext("/refresh", handler(true, exchange -> {
+            refresh();
+            return status();
+        }));
+        server.createContext("/shutdown", handler(true, exchange -> {
+            stopped.countDown();
+            return new Json().beginObject().field("stopping", true).endObject().toString();
+        }));
+        server.start();
+
+        CallGraphIndex index = service.getEngine().getIndex();
+        watcher = new SourceWatcher(Paths.get(index.getProjectPath()), index.getSourceDiscovery(), WATCH_QUIET_MILLIS,
+                this::refresh, debug);
+        watcherThread = new Thread(watcher, "source-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+
+        // 发布快照前预先构建缩点图，按dag方式查询时无需等待
+        service.prepareCondensedGraph(true);
+    }
+
+    /**
+     * 等待 /shutdown 请求，然后停止服务
+     */
+    public void awaitShutdown() throws InterruptedException, IOException {
+        stopped.await();
+        server.stop(1);
+        executor.shutdown();
+        watcherThread.interrupt();
+        watcher.close();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * 检查源码变化并增量更新索引，有变化时发布新的快照并写回索引文件。
+     * 监听线程和 /refresh 请求可能同时调用，加锁保证索引文件按版本顺序写入，不影响查询
+     */
+    public synchronized void refresh() {
+        IndexUpdate update = service.refresh();
+        if (!update.hasChanges()) return;
+        System.out.println("索引已增量更新: " + update);
+        if (indexPath != null) {
+            CallChainEngine current = service.getEngine();
+            try {
+                long phaseStart = current.getMetrics().startTime();
+                IndexFile.write(current.getIndex(), indexPath);
+                current.getMetrics().endPhase(AnalysisMetrics.PHASE_WRITE_INDEX, phaseStart);
+            } catch (IOException e) {
+                System.err.println("写入索引文件失败: " + e.getMessage());
+            }
+        }
+    }
+
+    private String query(HttpExchange exchange) {
+        Map<String, List<String>> params = parameters(exchange);
+        SearchType type = searchType(params);
+        String key = required(params, "key");
+
+        TraceOptions options = new TraceOptions().timeoutMillis(DEFAULT_QUERY_TIMEOUT_MILLIS);
+        String trace = first(params, "trace");
+        if (trace != null) options.condensed("dag".equals(trace));
+        if (first(params, "topK") != null) options.topK(Integer.parseInt(first(params, "topK")));
+        if (first(params, "maxDepth") != null) options.maxDepth(Integer.parseInt(first(params, "maxDepth")));
+        if (first(params, "maxChainsPerStart") != null) options.maxChainsPerStart(Integer.parseInt(first(params, "maxChainsPerStart")));
+        if (first(params, "maxChains") != null) options.maxTotalChains(Long.parseLong(first(params, "maxChains")));
+        if (first(params, "timeout") != null) options.timeoutMillis(Long.parseLong(first(params, "timeout")));
+
+        long startTime = System.currentTimeMillis();
+        CallChainService.Snapshot snapshot = service.snapshot();
+        CallChainEngine current = snapshot.getEngine();
+        Json json = new Json().beginObject().field("type", type.getCode()).field("key", key);
+        json.name("chains").beginArray();
+        CallChainResult chains = service.findCallChains(snapshot, type, key, options);
+        for (CallChain chain : chains.getChains()) {
+            json.beginObject()
+                    .field("start", chain.getStart().toString())
+                    .field("methods", chain.getMethods())
+                    .field("url", current.getControllerMethodUrl(chain.getControllerMethod()))
+                    .endObject();
+        }
+        json.endArray();
+        return json.field("chainCount", chains.getChainCount())
+                .field("truncated", chains.isTruncated())
+                .field("stopReason", chains.getStopReason().name())
+                .field("generation", snapshot.getVersion())
+                .field("elapsedMillis", System.currentTimeMillis() - startTime)
+                .endObject().toString();
+    }
+
+    private String endpoints(HttpExchange exchange) {
+        Map<String, List<String>> params = parameters(exchange);
+        SearchType type = searchType(params);
+        String key = required(params, "key");
+        boolean witness = "true".equals(first(params, "witness"));
+
+        long startTime = System.currentTimeMillis();
+        CallChainService.Snapshot snapshot = service.snapshot();
+        Json json = new Json().beginObject().field("type", type.getCode()).field("key", key);
+        json.name("endpoints").beginArray();
+        for (ReachableEndpoint endpoint : snapshot.getEngine().findReachableEndpoints(type, key, witness)) {
+            json.beginObject()
+                    .field("controller", endpoint.getControllerMethod().toString())
+                    .field("url", endpoint.getUrl())
+                    .field("distance", endpoint.getDistance());
+            if (endpoint.getWitness() != null) json.field("witness", endpoint.getWitness());
+            json.endObject();
+        }
+        json.endArray();
+        return json.field("generation", snapshot.getVersion())
+                .field("elapsedMillis", System.currentTimeMillis() - startTime)
+                .endObject().toString();
+    }
+
+    private String impact(HttpExchange exchange) throws IOException {
+        Map<String, List<String>> params = parameters(exchange);
+        List<String> diffLines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            diffLines.add(line);
+        }
+
+        long startTime = System.currentTimeMillis();
+        CallChainService.Snapshot snapshot = service.snapshot();
+        CallChainEngine current = snapshot.getEngine();
+        List<ImpactInput> inputs = new ArrayList<>();
+        for (String query : params.getOrDefault("q", Collections.emptyList())) {
+            int separator = query.indexOf(':');
+            SearchType type = separator > 0 ? SearchType.fromCode(query.substring(0, separator)) : null;
+            if (type == null) throw new IllegalArgumentException("无法识别的查询: " + query);
+            inputs.add(current.usageInput(type, query.substring(separator + 1)));
+        }
+        if (!diffLines.isEmpty()) {
+            inputs.addAll(current.findChangedMethods(UnifiedDiff.parse(diffLines)));
+        }
+
+        Json json = new Json().beginObject();
+        json.name("inputs").beginArray();
+        for (ImpactInput input : inputs) {
+            json.beginObject().field("label", input.getLabel()).field("usages", input.getStarts().size()).endObject();
+        }
+        json.endArray();
+        json.name("endpoints").beginArray();
+        for (EndpointImpact impact : current.analyzeImpact(inputs)) {
+            json.beginObject()
+                    .field("controller", impact.getControllerMethod().toString())
+                    .field("url", impact.getUrl())
+                    .field("inputs", impact.getInputs())
+                    .endObject();
+        }
+        json.endArray();
+        return json.field("generation", snapshot.getVersion())
+                .field("elapsedMillis", System.currentTimeMillis() - startTime)
+                .endObject().toString();
+    }
+
+    private String status() {
+        CallChainService.Snapshot snapshot = service.snapshot();
+        CallChainEngine current = snapshot.getEngine();
+        QueryCache cache = service.getQueryCache();
+        return new Json().beginObject()
+                .field("projectPath", current.getIndex().getProjectPath())
+                .field("files", current.getIndex().getFiles().size())
+                .field("parseFailures", current.getParseFailures().size())
+                .field("methods", current.getGraph().getNodeCount())
+                .field("edges", current.getGraph().getEdgeCount())
+                .field("generation", snapshot.getVersion())
+                .field("lastUpdateMillis", snapshot.getPublishedMillis())
+                .name("queryCache").beginObject()
+                .field("entries", cache.getSize())
+                .field("weight", cache.getWeight())
+                .field("maxWeight", cache.getMaxWeight())
+                .field("hits", cache.getHits())
+                .field("misses", cache.getMisses())
+                .field("evictions", cache.getEvictions())
+                .endObject()
+                .endObject().toString();
+    }
+
+    private SearchType searchType(Map<String, List<String>> params) {
+        String code = required(params, "type");
+        SearchType type = SearchType.fromCode(code);
+        if (type == null) throw new IllegalArgumentException("未知的查询类型: " + code);
+        return type;
+    }
+
+    private static String required(Map<String, List<String>> params, String name) {
+        String value = first(params, name);
+        if (value == null || value.isEmpty()) throw new IllegalArgumentException("缺少参数: " + name);
+        return value;
+    }
+
+    private static String first(Map<String, List<String>> params, String name) {
+        List<String> values = params.get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    private static Map<String, List<String>> parameters(HttpExchange exchange) {
+        Map<String, List<String>> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return params;
+        try {
+            for (String pair : query.split("&")) {
+                if (pair.isEmpty()) continue;
+                int separator = pair.indexOf('=');
+                String name = URLDecoder.decode(separator < 0 ? pair : pair.substring(0, separator), "UTF-8");
+                String value = separator < 0 ? "" : URLDecoder.decode(pair.substring(separator + 1), "UTF-8");
+                params.computeIfAbsent(name, n -> new ArrayList<>()).add(value);
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        return params;
+    }
+
+    private interface Endpoint {
+        String handle(HttpExchange exchange) throws IOException;
+    }
+
+    /**
+     * @param postOnly 有副作用的接口只接受POST请求
+     */
+    private HttpHandler handler(boolean postOnly, Endpoint endpoint) {
+        return exchange -> {
+            int status = 200;
+            String body;
+            String host = exchange.getRequestHeaders().getFirst("Host");
+            try {
+                if (host == null || !allowedHosts.contains(host.toLowerCase(Locale.ROOT))) {
+                    status = 403;
+                    body = Json.error("不允许的Host: " + host);
+                } else if (postOnly && !"POST".equals(exchange.getRequestMethod())) {
+                    status = 405;
+                    exchange.getResponseHeaders().set("Allow", "POST");
+                    body = Json.error("只接受POST请求: " + exchange.getRequestURI().getPath());
+                } else {
+                    body = endpoint.handle(exchange);
+                }
+            } catch (IllegalArgumentException e) {
+                status = 400;
+                body = Json.error(e.getMessage());
+            } catch (RuntimeException e) {
+                status = 500;
+                body = Json.error(String.valueOf(e));
+                if (debug) e.printStackTrace();
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        };
+    }
+}
@@ -0,0 +1,156 @@
+package io.github.gekkoz.callchain.cli.server;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * 拼接JSON响应的简单工具，只支持服务端输出用到的字符串、数字、布尔值、数组和对象
+ */
+final class Json {
+
+    private final StringBuilder out = new StringBuilder();
+    // 当前层级是否已经写入过元素，用于决定是否需要逗号
+    private boolean[] hasElement = new boolean[8];
+    private int depth;
+
+    Json beginObject() {
+        value();
+        out.append('{');
+        push();
+        return this;
+    }
+
+    Json endObject() {
+        depth--;
+        out.append('}');
+        return this;
+    }
+
+    Json beginArray() {
+        value();
+        out.append('[');
+        push();
+        return this;
+    }
+
+    Json endArray() {
+        depth--;
+        out.append(']');
+        return this;
+    }
+
+    /**
+     * 写入对象的键，之后紧跟一个值
+     */
+    Json name(String name) {
+        separator();
+        quote(name);
+        out.append(':');
+        return this;
+    }
+
+    Json value(String value) {
+        value();
+        if (value == null) {
+            out.append("null");
+        } else {
+            quote(value);
+        }
+        return this;
+    }
+
+    Json value(long value) {
+        value();
+        out.append(value);
+        return this;
+    }
+
+    Json value(boolean value) {
+        value();
+        out.append(value);
+        return this;
+    }
+
+    Json value(Collection<String> values) {
+        beginArray();
+        for (String value : values) {
+            value(value);
+        }
+        return endArray();
+    }
+
+    Json field(String name, String value) {
+        return name(name).value(value);
+    }
+
+    Json field(String name, long value) {
+        return name(name).value(value);
+    }
+
+    Json field(String name, boolean value) {
+        return name(name).value(value);
+    }
+
+    Json field(String name, Collection<String> values) {
+        return name(name).value(values);
+    }
+
+    static String error(String message) {
+        return new Json().beginObject().field("error", message).endObject().toString();
+    }
+
+    private void push() {
+        if (++depth == hasElement.length) {
+            hasElement = Arrays.copyOf(hasElement, depth * 2);
+        }
+        hasElement[depth] = false;
+    }
+
+    // 数组元素前需要逗号；对象的值紧跟在键之后，逗号已由name()写入
+    private void value() {
+        if (depth > 0 && out.charAt(out.length() - 1) != ':') {
+            separator();
+        }
+    }
+
+    private void separator() {
+        if (hasElement[depth]) out.append(',');
+        hasElement[depth] = true;
+    }
+
+    private void quote(String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.gekkoz.callchain.cli.server;
+
+import io.github.gekkoz.callchain.core.metrics.AnalysisMetrics;
+import io.github.gekkoz.callchain.core.metrics.PhaseStats;
+
+import java.util.Map;
+
+/**
+ * 把 {@link AnalysisMetrics} 输出为JSON报告，命令行的 --metrics 选项和服务的 /metrics 接口共用
+ */
+public final class MetricsReport {
+
+    // 报告中列出的解析最慢的文件数，全部文件的耗时可通过 AnalysisMetrics#getFileParseNanos() 获取
+    private static final int SLOWEST_FILES = 20;
+
+    private MetricsReport() {
+    }
+
+    public static String toJson(AnalysisMetrics metrics) {
+        Json json = new Json().beginObject()
+                .field("enabled", metrics.isEnabled())
+                .field("jfr", metrics.isJfrEnabled());
+
+        json.name("phases").beginObject();
+        for (PhaseStats phase : metrics.getPhases().values()) {
+            json.name(phase.getName()).beginObject()
+                    .field("count", phase.getCount())
+                    .field("totalNanos", phase.getTotalNanos())
+                    .field("maxNanos", phase.getMaxNanos())
+                    .endObject();
+        }
+        json.endObject();
+
+        json.name("counts").beginObject();
+        for (Map.Entry<String, Long> count : metrics.getCounts().entrySet()) {
+            json.field(count.getKey(), count.getValue());
+        }
+        json.endObject();
+
+        json.field("nodeVisits", metrics.getNodeVisits())
+                .field("peakChainCount", metrics.getPeakChainCount());
+
+        Map<String, Long> fileParseNanos = metrics.getFileParseNanos();
+        long totalNanos = 0;
+        for (long nanos : fileParseNanos.values()) {
+            totalNanos += nanos;
+        }
+        json.name("fileParse").beginObject()
+                .field("files", fileParseNanos.size())
+                .field("totalNanos", totalNanos);
+        json.name("slowest").beginArray();
+        for (Map.Entry<String, Long> file : metrics.getSlowestFiles(SLOWEST_FILES)) {
+            json.beginObject().field("file", file.getKey()).field("nanos", file.getValue()).endObject();
+        }
+        json.endArray().endObject();
+
+        return json.endObject().toString();
+    }
+}
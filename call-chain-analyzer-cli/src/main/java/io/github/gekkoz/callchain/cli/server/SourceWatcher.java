@@ -0,0 +1,157 @@
+package io.github.gekkoz.callchain.cli.server;
+
+import io.github.gekkoz.callchain.core.parse.SourceArchive;
+import io.github.gekkoz.callchain.core.parse.SourceDiscovery;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * 监听项目中Java源文件的变化。
+ * 一批变化在静默一段时间后才触发一次回调，避免保存、切换分支等操作产生的大量事件逐个触发增量更新；
+ * WatchService不支持递归监听，新建的目录在收到事件时补充注册。
+ * <p>
+ * 只监听 {@link SourceDiscovery} 会遍历的目录：有构建文件时只监听各模块的源码目录，
+ * 否则监听整个项目目录但跳过target、build、node_modules等构建输出目录，隐藏目录和排除的目录总是跳过。
+ * 这样既不会在大型仓库中耗尽inotify的监听数，mvn clean等删除构建输出的操作也不会触发增量更新。
+ * 构建文件中新增的模块在服务重启后才会被监听。
+ * <p>
+ * 源码归档（项目路径本身或 --sources 指定的归档）通过监听其所在目录实现，该目录中其他文件的变化被忽略。
+ */
+class SourceWatcher implements Runnable {
+
+    private final long quietMillis;
+    private final Runnable onChange;
+    private final boolean debug;
+    private final WatchService watchService;
+    private final Predicate<Path> skipped;
+    // 监听的源码归档
+    private final Set<Path> archives = new HashSet<>();
+    // registerTree注册过的目录，其余目录只是为了监听其中的归档
+    private final Set<Path> treeDirectories = new HashSet<>();
+
+    /**
+     * @param discovery 索引查找源文件的规则
+     */
+    SourceWatcher(Path root, SourceDiscovery discovery, long quietMillis, Runnable onChange, boolean debug) throws IOException {
+        this.quietMillis = quietMillis;
+        this.onChange = onChange;
+        this.debug = debug;
+        this.watchService = root.getFileSystem().newWatchService();
+        List<Path> sourceRoots = discovery.findSourceRoots(root);
+        boolean pruneOutputs = sourceRoots.isEmpty();
+        this.skipped = discovery.skippedDirectories(root, pruneOutputs);
+        if (SourceArchive.isArchive(root)) {
+            registerArchive(root);
+        } else {
+            for (Path sourceRoot : pruneOutputs ? Collections.singletonList(root) : sourceRoots) {
+                registerTree(sourceRoot);
+            }
+        }
+        for (Path archive : discovery.getArchives()) {
+            registerArchive(archive);
+        }
+    }
+
+    /**
+     * 监听归档所在的目录，归档被替换、删除或重新创建时触发更新
+     */
+    private void registerArchive(Path archive) throws IOException {
+        Path file = archive.toAbsolutePath().normalize();
+        archives.add(file);
+        Path dir = file.getParent();
+        if (dir != null && Files.isDirectory(dir)) {
+            dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        }
+    }
+
+    /**
+     * 注册目录及其全部子目录，跳过查找源文件时不会遍历的目录
+     */
+    private void registerTree(Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!dir.equals(start) && skipped.test(dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                treeDirectories.add(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Override
+    public void run() {
+        boolean pending = false;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = pending ? watchService.poll(quietMillis, TimeUnit.MILLISECONDS) : watchService.take();
+                if (key == null) {
+                    // 静默期内没有新的事件，处理这一批变化
+                    pending = false;
+                    try {
+                        onChange.run();
+                    } catch (RuntimeException e) {
+                        System.err.println("增量更新失败: " + e.getMessage());
+                    }
+                    continue;
+                }
+
+                Path dir = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        pending = true;
+                        continue;
+                    }
+                    Path path = dir.resolve((Path) event.context());
+                    if (archives.contains(path)) {
+                        if (debug) System.out.println("源码归档变化: " + event.kind().name() + " " + path);
+                        pending = true;
+                        continue;
+                    }
+                    // 只为监听归档而注册的目录
+                    if (!treeDirectories.contains(dir)) continue;
+                    // 构建输出、隐藏和排除的目录，以及按名称会被跳过的路径，其变化与索引无关
+                    if (skipped.test(path)) continue;
+                    if (event.kind() == ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                        try {
+                            registerTree(path);
+                        } catch (IOException e) {
+                            if (debug) System.out.println("无法监听目录: " + path + ", " + e.getMessage());
+                        }
+                        // 目录可能是连同其中的文件一起移入的
+                        pending = true;
+                    } else if (path.toString().endsWith(".java") || event.kind() == ENTRY_DELETE) {
+                        if (debug) System.out.println("源文件变化: " + event.kind().name() + " " + path);
+                        pending = true;
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // 服务已停止
+        }
+    }
+
+    void close() throws IOException {
+        watchService.close();
+    }
+}
@@ -0,0 +1,392 @@
+package io.github.gekkoz.callchain.core;
+
+import io.github.gekkoz.callchain.core.descriptor.ControllerMethodDescriptor;
+import io.github.gekkoz.callchain.core.descriptor.MethodDescriptor;
+import io.github.gekkoz.callchain.core.diff.UnifiedDiff;
+import io.github.gekkoz.callchain.core.index.CallGraph;
+import io.github.gekkoz.callchain.core.index.CallGraphIndex;
+import io.github.gekkoz.callchain.core.index.CallGraphIndexer;
+import io.github.gekkoz.callchain.core.index.FileContribution;
+import io.github.gekkoz.callchain.core.metrics.AnalysisMetrics;
+import io.github.gekkoz.callchain.core.parse.SourceDiscovery;
+import io.github.gekkoz.callchain.core.trace.*;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * 调用链分析引擎。
+ * 索引只构建一次（或从磁盘加载），之后可以对任意查询类型和关键字反复查询，无需重新解析项目。
+ * 查询只读取索引和调用图，索引不再被修改时引擎可由多个线程并发查询；需要在查询的同时更新索引时使用 {@link CallChainService}。
+ */
+public class CallChainEngine {
+
+    private final CallGraphIndex index;
+    private final CallGraph graph;
+    private final boolean debug;
+    private final AnalysisMetrics metrics;
+
+    // 缩点图在第一次按共享后缀方式追踪时构建，之后所有查询共享
+    private volatile CondensedCallGraph condensed;
+
+    public CallChainEngine(CallGraphIndex index, boolean debug) {
+        this(index, debug, AnalysisMetrics.disabled());
+    }
+
+    /**
+     * @param metrics 记录调用图编译、缩点和各次查询的耗时，以及索引规模
+     */
+    public CallChainEngine(CallGraphIndex index, boolean debug, AnalysisMetrics metrics) {
+        this.index = index;
+        this.debug = debug;
+        this.metrics = metrics;
+        long phaseStart = metrics.startTime();
+        this.graph = CallGraph.build(index);
+        metrics.endPhase(AnalysisMetrics.PHASE_COMPILE_GRAPH, phaseStart);
+        metrics.setCount(AnalysisMetrics.COUNT_FILES, index.getFiles().size());
+        metrics.setCount(AnalysisMetrics.COUNT_PARSE_FAILURES, index.getParseFailures().size());
+        metrics.setCount(AnalysisMetrics.COUNT_METHODS, graph.getNodeCount());
+        metrics.setCount(AnalysisMetrics.COUNT_EDGES, graph.getEdgeCount());
+        metrics.setCount(AnalysisMetrics.COUNT_DISPATCH_EDGES, graph.getDispatchEdgeCount());
+        metrics.setCount(AnalysisMetrics.COUNT_CONTROLLERS, index.getRestControllerMethods().size());
+    }
+
+    /**
+     * 解析项目并构建索引
+     *
+     * @param parallelism 解析线程数，小于1时使用可用处理器数
+     */
+    public static CallChainEngine build(String projectPath, int parallelism, boolean debug) {
+        return build(projectPath, parallelism, debug, AnalysisMetrics.disabled());
+    }
+
+    /**
+     * 解析项目并构建索引，同时记录各阶段的度量
+     *
+     * @param parallelism 解析线程数，小于1时使用可用处理器数
+     */
+    public static CallChainEngine build(String projectPath, int parallelism, boolean debug, AnalysisMetrics metrics) {
+        return build(projectPath, new SourceDiscovery(), parallelism, debug, metrics);
+    }
+
+    /**
+     * 按给定的规则查找源文件，解析项目并构建索引
+     *
+     * @param discovery 查找源文件的规则，之后的增量更新沿用该规则
+     */
+    public static CallChainEngine build(String projectPath, SourceDiscovery discovery, int parallelism, boolean debug,
+                                        AnalysisMetrics metrics) {
+        CallGraphIndex index = new CallGraphIndex(projectPath);
+        index.setSourceDiscovery(discovery);
+        return build(index, parallelism, debug, metrics);
+    }
+
+    /**
+     * 按索引上的设置（查找源文件的规则、被调用类的解析方式）全量构建索引，索引中原有的内容被清空
+     */
+    public static CallChainEngine build(CallGraphIndex index, int parallelism, boolean debug, AnalysisMetrics metrics) {
+        CallGraphIndexer indexer = new CallGraphIndexer(index, parallelism, debug, metrics);
+        indexer.build();
+        return new CallChainEngine(indexer.getIndex(), debug, metrics);
+    }
+
+    public CallGraphIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * 获取追踪使用的整数化调用图
+     */
+    public CallGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * 获取记录度量的对象，未启用时为 {@link AnalysisMetrics#disabled()}
+     */
+    public AnalysisMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 查找Mapper类所有方法的调用链
+     */
+    public Map<String, List<List<String>>> findMapperCallChains(String mapperClassName) {
+        return findCallChains(SearchType.MAPPING, mapperClassName);
+    }
+
+    /**
+     * 查找指定方法（类名#方法名）的调用链
+     */
+    public Map<String, List<List<String>>> findMethodCallChains(String methodKey) {
+        return findCallChains(SearchType.METHOD_CALL, methodKey);
+    }
+
+    /**
+     * 查找常量的调用链
+     */
+    public Map<String, List<List<String>>> findConstantCallChains(String constantName) {
+        return findCallChains(SearchType.CONSTANT, constantName);
+    }
+
+    /**
+     * 查找从关键字使用位置到REST控制器端点的所有调用链
+     *
+     * @param searchType 查询类型
+     * @param searchKey  查询关键字
+     * @return 起始方法到调用链列表的映射，每条调用链从Controller方法开始、以起始方法结束
+     */
+    public Map<String, List<List<String>>> findCallChains(SearchType searchType, String searchKey) {
+        if (debug) System.out.println("开始查找 " + searchKey + " 的调用链...");
+        long startTime = System.currentTimeMillis();
+
+        Map<String, List<List<String>>> allCallChains = new HashMap<>();
+        Map<String, MethodDescriptor> owners = new HashMap<>();
+        CallChainIterator chains = streamCallChains(searchType, searchKey, new TraceOptions());
+        while (chains.hasNext()) {
+            CallChain chain = chains.next();
+            String startPoint = chain.getStart().toString();
+            // 不同文件中的同名方法以后出现的为准
+            if (owners.put(startPoint, chain.getStart()) != chain.getStart()) {
+                allCallChains.put(startPoint, new ArrayList<>());
+            }
+            allCallChains.get(startPoint).add(chain.getMethods());
+        }
+
+        long endTime = System.currentTimeMillis();
+        if (debug) System.out.println("调用链查找完成，耗时: " + (endTime - startTime) + "ms");
+
+        return allCallChains;
+    }
+
+    /**
+     * 逐条产生从关键字使用位置到REST控制器端点的调用链。
+     * 调用链在迭代时才计算，可以边查找边输出，并可通过选项限制深度、数量和耗时
+     *
+     * @param options 追踪选项
+     * @return 调用链迭代器
+     */
+    public CallChainIterator streamCallChains(SearchType searchType, String searchKey, TraceOptions options) {
+        List<MethodDescriptor> usages = findUsages(searchType, searchKey);
+        if (debug) System.out.println("找到 " + searchKey + " 的 " + usages.size() + " 个使用位置");
+        return new CallChainIterator(graph, options.isCondensed() && options.getTopK() <= 0 ? getCondensedGraph() : null, usages, options, metrics);
+    }
+
+    /**
+     * 查找关键字影响到的REST控制器端点，不枚举调用链，耗时与调用图规模成线性关系
+     *
+     * @param witness 是否为每个端点附带一条最短调用链
+     * @return 可到达的Controller方法及其URL，按到最近使用位置的距离排列
+     */
+    public List<ReachableEndpoint> findReachableEndpoints(SearchType searchType, String searchKey, boolean witness) {
+        long startTime = System.currentTimeMillis();
+        List<ReachableEndpoint> endpoints = Reachability.search(graph, findUsages(searchType, searchKey),
+                index.getControllerMethodUrls(), witness, metrics);
+        if (debug) System.out.println("找到 " + endpoints.size() + " 个可到达的REST控制器方法，耗时: " + (System.currentTimeMillis() - startTime) + "ms");
+        return endpoints;
+    }
+
+    /**
+     * 批量影响分析：一次遍历求出每个REST控制器端点受哪些输入影响，
+     * 耗时与输入数量基本无关，适合对一组查询或一次代码修改涉及的全部方法做影响评估
+     *
+     * @param inputs 输入，可由 {@link #usageInput} 或 {@link #findChangedMethods} 得到
+     * @return 受影响的Controller方法及影响到它的输入
+     */
+    public List<EndpointImpact> analyzeImpact(List<ImpactInput> inputs) {
+        long startTime = System.currentTimeMillis();
+        List<EndpointImpact> impacts = ImpactAnalysis.analyze(getCondensedGraph(), inputs, index.getControllerMethodUrls(), metrics);
+        if (debug) System.out.println(inputs.size() + " 个输入共影响 " + impacts.size() + " 个REST控制器方法，耗时: " + (System.currentTimeMillis() - startTime) + "ms");
+        return impacts;
+    }
+
+    /**
+     * 以关键字的全部使用位置作为一项批量影响分析的输入，名称为查询关键字
+     */
+    public ImpactInput usageInput(SearchType searchType, String searchKey) {
+        return new ImpactInput(searchKey, findUsages(searchType, searchKey));
+    }
+
+    /**
+     * 把补丁中修改的行映射到方法定义，每个被修改的方法作为一项批量影响分析的输入，名称为方法描述。
+     * 补丁中的路径按后缀与索引中的文件路径匹配，因此补丁可以相对于项目目录或其上层的仓库根目录
+     */
+    public List<ImpactInput> findChangedMethods(UnifiedDiff diff) {
+        List<ImpactInput> inputs = new ArrayList<>();
+        for (String diffPath : diff.getFiles()) {
+            Path relative = Paths.get(diffPath);
+            for (FileContribution file : index.getFiles().values()) {
+                if (!Paths.get(file.getFilePath()).endsWith(relative)) continue;
+                for (MethodDescriptor method : file.getMethods()) {
+                    if (diff.isChanged(diffPath, method.getBeginLine(), method.getEndLine())) {
+                        inputs.add(new ImpactInput(method.toString(), Collections.singletonList(method)));
+                    }
+                }
+            }
+        }
+        if (debug) System.out.println("补丁涉及 " + diff.getFiles().size() + " 个文件、" + inputs.size() + " 个方法");
+        return inputs;
+    }
+
+    /**
+     * 查找从关键字使用位置到REST控制器端点的所有调用链，以共享后缀的形式返回。
+     * 追踪基于强连通分量缩点和记忆化，耗时与调用图规模成多项式关系，调用链在遍历时才展开；
+     * 无环部分的结果与 {@link #findCallChains} 一致，环内只保留每对入口、出口之间的一条最短路径。
+     *
+     * @return 起始方法到调用链的映射，只包含至少有一条调用链的起始方法
+     */
+    public Map<String, ChainDag> findCallChainDags(SearchType searchType, String searchKey) {
+        CondensedCallGraph condensed = getCondensedGraph();
+        long startTime = metrics.startTime();
+        long chainCount = 0;
+        Map<String, ChainDag> result = new LinkedHashMap<>();
+        for (MethodDescriptor usage : findUsages(searchType, searchKey)) {
+            int node = graph.nodeOf(usage);
+            if (node < 0) continue;
+            ChainDag dag = condensed.trace(node);
+            if (!dag.isEmpty()) {
+                result.put(usage.toString(), dag);
+                long count = dag.getChainCount();
+                chainCount = chainCount > Long.MAX_VALUE - count ? Long.MAX_VALUE : chainCount + count;
+            }
+        }
+        metrics.recordQuery(AnalysisMetrics.QUERY_DAG, startTime, chainCount, 0);
+        metrics.recordChainCount(chainCount);
+        if (debug) System.out.println("找到 " + result.size() + " 个可到达REST控制器的起始方法");
+        return result;
+    }
+
+    /**
+     * 获取缩点后的调用图，第一次调用时构建
+     */
+    public CondensedCallGraph getCondensedGraph() {
+        CondensedCallGraph result = condensed;
+        if (result == null) {
+            synchronized (this) {
+                result = condensed;
+                if (result == null) {
+                    long startTime = System.currentTimeMillis();
+                    long phaseStart = metrics.startTime();
+                    condensed = result = CondensedCallGraph.build(graph);
+                    metrics.endPhase(AnalysisMetrics.PHASE_CONDENSE, phaseStart);
+                    if (debug) System.out.println("缩点图构建完成，耗时: " + (System.currentTimeMillis() - startTime) + "ms");
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 从索引中查找关键字的使用位置
+     *
+     * @return 使用该关键字的方法
+     */
+    public List<MethodDescriptor> findUsages(SearchType searchType, String searchKey) {
+        return findUsages(index, searchType, searchKey);
+    }
+
+    static List<MethodDescriptor> findUsages(CallGraphIndex index, SearchType searchType, String searchKey) {
+        if (SearchPattern.isPattern(searchKey)) {
+            return findUsages(index, SearchPattern.compile(searchType, searchKey));
+        }
+        List<MethodDescriptor> references = index.getConstantReferences().getOrDefault(searchKey, Collections.emptyList());
+        if (searchType == SearchType.CONSTANT) {
+            return Collections.unmodifiableList(references);
+        }
+
+        List<MethodDescriptor> usages = new ArrayList<>();
+        if (searchType == SearchType.MAPPING) {
+            Map<String, List<MethodDescriptor>> calledMethods = index.getCallSites().get(searchKey);
+            if (calledMethods != null) {
+                calledMethods.values().forEach(usages::addAll);
+            }
+        } else if (searchType == SearchType.METHOD_CALL) {
+            int separator = searchKey.lastIndexOf('#');
+            if (separator > 0) {
+                Map<String, List<MethodDescriptor>> calledMethods = index.getCallSites().get(searchKey.substring(0, separator));
+                if (calledMethods != null) {
+                    usages.addAll(calledMethods.getOrDefault(searchKey.substring(separator + 1), Collections.emptyList()));
+                }
+            }
+        }
+
+        // 与查询关键字同名的标识符引用同样视为使用位置
+        usages.addAll(references);
+        return usages;
+    }
+
+    /**
+     * 按模式查找使用位置：在项目中声明的类名、索引的被调用方法名和常量名中找出全部匹配的名称，
+     * 合并它们的使用位置，之后与单个关键字一样只做一次追踪。名称按字典序处理，同一方法只出现一次。
+     * 类名模式只与声明过的类比较，被调用类表中未能解析的作用域文本（如变量名userMapper）不参与匹配
+     */
+    static List<MethodDescriptor> findUsages(CallGraphIndex index, SearchPattern pattern) {
+        Set<MethodDescriptor> usages = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<MethodDescriptor> result = new ArrayList<>();
+        SearchType searchType = pattern.getSearchType();
+        Set<String> classNames = searchType == SearchType.CONSTANT ? Collections.emptySet() : declaredClasses(index, pattern);
+        for (String className : classNames) {
+            Map<String, List<MethodDescriptor>> calledMethods = index.getCallSites().get(className);
+            if (calledMethods == null) continue;
+            for (String methodName : new TreeSet<>(calledMethods.keySet())) {
+                if (!pattern.matchesMember(methodName)) continue;
+                for (MethodDescriptor caller : calledMethods.get(methodName)) {
+                    if (usages.add(caller)) result.add(caller);
+                }
+            }
+        }
+        // 与精确查找一致：查询Mapper类时同名的标识符引用同样视为使用位置
+        Set<String> names = new TreeSet<>();
+        if (searchType == SearchType.CONSTANT) {
+            for (String name : index.getConstantReferences().keySet()) {
+                if (pattern.matchesMember(name)) names.add(name);
+            }
+        } else if (searchType == SearchType.MAPPING) {
+            names.addAll(classNames);
+        }
+        for (String name : names) {
+            for (MethodDescriptor method : index.getConstantReferences().getOrDefault(name, Collections.emptyList())) {
+                if (usages.add(method)) result.add(method);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 项目中声明的、类名与模式匹配的类，带包名前缀时只取声明在该包下的类，按字典序排列
+     */
+    private static Set<String> declaredClasses(CallGraphIndex index, SearchPattern pattern) {
+        Set<String> classes = new TreeSet<>();
+        for (FileContribution file : index.getFiles().values()) {
+            if (!pattern.inPackage(file.getPackageName())) continue;
+            for (String className : file.getClassNames()) {
+                if (pattern.matchesClass(className)) classes.add(className);
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * 获取Controller方法的完整URL路径
+     *
+     * @param methodIdentifier Controller方法的标识符
+     * @return 完整的URL路径
+     */
+    public String getControllerMethodUrl(String methodIdentifier) {
+        ControllerMethodDescriptor info = index.getControllerMethodUrls().get(methodIdentifier);
+        if (info != null) {
+            return info.getFullUrl();
+        }
+        return "";
+    }
+
+    /**
+     * 获取解析失败的文件及失败原因
+     *
+     * @return 文件路径到失败原因的映射
+     */
+    public Map<String, String> getParseFailures() {
+        return index.getParseFailures();
+    }
+}
@@ -0,0 +1,180 @@
+package io.github.gekkoz.callchain.core;
+
+import io.github.gekkoz.callchain.core.index.CallGraphIndex;
+import io.github.gekkoz.callchain.core.index.CallGraphIndexer;
+import io.github.gekkoz.callchain.core.index.IndexUpdate;
+import io.github.gekkoz.callchain.core.metrics.AnalysisMetrics;
+import io.github.gekkoz.callchain.core.trace.CallChainResult;
+import io.github.gekkoz.callchain.core.trace.TraceOptions;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 可由任意多个线程并发查询的分析服务，适合嵌入常驻进程。
+ * <p>
+ * 索引及其调用图以快照 {@link Snapshot} 的形式发布，快照发布后不再修改，查询时取得当前快照即可，无需加锁。
+ * 增量更新采用写时复制：复制当前快照的索引，在副本上更新并编译新的调用图，完成后原子替换当前快照；
+ * 更新期间查询继续使用旧快照，不会被阻塞，已取得旧快照的查询在替换后仍可正常完成。更新之间互斥。
+ * <p>
+ * 快照中的索引由多个线程共享，调用者不能修改它；需要修改时先 {@link CallGraphIndex#copy()}。
+ * <p>
+ * {@link #findCallChains} 的结果缓存在 {@link QueryCache} 中，以快照版本号区分，发布新快照时旧结果全部失效。
+ */
+public class CallChainService {
+
+    /**
+     * 默认的查询结果缓存上限，每个缓存的结果计1再加上其中的方法数
+     */
+    public static final long DEFAULT_QUERY_CACHE_WEIGHT = 1_000_000;
+
+    private final int parallelism;
+    private final boolean debug;
+    private final AtomicReference<Snapshot> current;
+    private final Object updateLock = new Object();
+    private volatile boolean prepareCondensedGraph;
+    private volatile QueryCache queryCache;
+
+    public CallChainService(CallChainEngine engine) {
+        this(engine, 0, false);
+    }
+
+    /**
+     * @param engine      初始的分析引擎，其索引交由服务管理，之后不能再被修改
+     * @param parallelism 增量更新时的解析线程数，小于1时使用可用处理器数
+     */
+    public CallChainService(CallChainEngine engine, int parallelism, boolean debug) {
+        this.parallelism = parallelism;
+        this.debug = debug;
+        this.current = new AtomicReference<>(new Snapshot(engine, 1, System.currentTimeMillis()));
+        queryCache(DEFAULT_QUERY_CACHE_WEIGHT);
+    }
+
+    /**
+     * 发布快照之前是否预先构建缩点图，使按dag方式追踪和批量影响分析的第一次查询无需等待构建
+     */
+    public CallChainService prepareCondensedGraph(boolean prepareCondensedGraph) {
+        this.prepareCondensedGraph = prepareCondensedGraph;
+        if (prepareCondensedGraph) getEngine().getCondensedGraph();
+        return this;
+    }
+
+    /**
+     * 替换查询结果缓存，已缓存的结果和命中统计一并丢弃
+     *
+     * @param maxWeight 缓存结果的大小之和的上限，每个结果计1再加上其调用链中的方法数，
+     *                  因此同时限制了缓存的结果数，空结果也计入；0表示不缓存
+     */
+    public CallChainService queryCache(long maxWeight) {
+        synchronized (updateLock) {
+            QueryCache cache = new QueryCache(maxWeight);
+            cache.invalidate(current.get().getVersion());
+            this.queryCache = cache;
+        }
+        return this;
+    }
+
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+     * 在当前快照上查询全部调用链，相同的查询在快照更新之前直接返回缓存的结果
+     */
+    public CallChainResult findCallChains(SearchType searchType, String searchKey, TraceOptions options) {
+        return findCallChains(snapshot(), searchType, searchKey, options);
+    }
+
+    /**
+     * 在指定快照上查询全部调用链，快照已不是当前快照时结果不会放入缓存
+     */
+    public CallChainResult findCallChains(Snapshot snapshot, SearchType searchType, String searchKey, TraceOptions options) {
+        QueryCache cache = queryCache;
+        AnalysisMetrics metrics = snapshot.getEngine().getMetrics();
+        CallChainResult result = cache.get(snapshot.getVersion(), searchType, searchKey, options);
+        if (result != null) {
+            metrics.addCount(AnalysisMetrics.COUNT_QUERY_CACHE_HITS, 1);
+            return result;
+        }
+        metrics.addCount(AnalysisMetrics.COUNT_QUERY_CACHE_MISSES, 1);
+        result = CallChainResult.collect(snapshot.getEngine().streamCallChains(searchType, searchKey, options));
+        cache.put(snapshot.getVersion(), searchType, searchKey, options, result);
+        return result;
+    }
+
+    /**
+     * 当前快照。同一次查询中的多个调用应使用同一个快照，以免前后看到不同版本的索引
+     */
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    /**
+     * 当前快照的分析引擎
+     */
+    public CallChainEngine getEngine() {
+        return current.get().getEngine();
+    }
+
+    /**
+     * 检查源码变化并在索引副本上增量更新，有变化时发布新的快照
+     *
+     * @return 本次更新的统计信息
+     */
+    public IndexUpdate refresh() {
+        synchronized (updateLock) {
+            Snapshot snapshot = current.get();
+            CallChainEngine engine = snapshot.getEngine();
+            CallGraphIndex index = engine.getIndex().copy();
+            IndexUpdate update = new CallGraphIndexer(index, parallelism, debug, engine.getMetrics()).update();
+            if (update.hasChanges()) {
+                publish(new CallChainEngine(index, debug, engine.getMetrics()));
+            }
+            return update;
+        }
+    }
+
+    /**
+     * 发布在别处构建的分析引擎，如全量重建的结果，版本号递增
+     *
+     * @return 新的快照
+     */
+    public Snapshot publish(CallChainEngine engine) {
+        if (prepareCondensedGraph) engine.getCondensedGraph();
+        synchronized (updateLock) {
+            Snapshot snapshot = new Snapshot(engine, current.get().getVersion() + 1, System.currentTimeMillis());
+            current.set(snapshot);
+            queryCache.invalidate(snapshot.getVersion());
+            return snapshot;
+        }
+    }
+
+    /**
+     * 不可变的索引快照：分析引擎及其版本号。版本号从1开始，每发布一次递增1
+     */
+    public static final class Snapshot {
+        private final CallChainEngine engine;
+        private final long version;
+        private final long publishedMillis;
+
+        Snapshot(CallChainEngine engine, long version, long publishedMillis) {
+            this.engine = engine;
+            this.version = version;
+            this.publishedMillis = publishedMillis;
+        }
+
+        public CallChainEngine getEngine() {
+            return engine;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * 快照发布的时间
+         */
+        public long getPublishedMillis() {
+            return publishedMillis;
+        }
+    }
+}
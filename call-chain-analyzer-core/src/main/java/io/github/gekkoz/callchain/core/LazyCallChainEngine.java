@@ -0,0 +1,223 @@
+package io.github.gekkoz.callchain.core;
+
+import io.github.gekkoz.callchain.core.descriptor.MethodDescriptor;
+import io.github.gekkoz.callchain.core.index.CallGraphIndex;
+import io.github.gekkoz.callchain.core.index.CallGraphIndexer;
+import io.github.gekkoz.callchain.core.index.ClassHierarchy;
+import io.github.gekkoz.callchain.core.metrics.AnalysisMetrics;
+import io.github.gekkoz.callchain.core.parse.*;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * 按需解析的调用链分析引擎，适用于对大型项目只做少量查询的场景。
+ * <p>
+ * 第一次查询前对全部源文件做一次不构建AST的词法扫描，得到标识符到文件的倒排索引 {@link IdentifierIndex}。
+ * 每次查询只解析包含查询关键字（或与模式匹配的标识符，见 {@link SearchPattern}）的文件，再沿调用方向逐轮向上扩展：对每个新到达的方法（类名#方法名），
+ * 只解析同时出现该类名和方法名的文件，直到不再出现新文件；父类型中的同名方法经分派边调用该方法，同样向上扩展。
+ * 已解析类所继承、实现类型的声明文件也会被解析，以便识别Controller、接口上的URL映射和分派边。
+ * <p>
+ * 调用关系只能来自同时出现被调用类名和方法名的文件，因此结果与全量解析一致；
+ * 不同文件中存在同名类时，以类名为键的字段声明可能与全量解析时的覆盖结果不同。
+ * 解析得到的文件摘要在查询之间缓存，后续查询只解析尚未解析过的文件。
+ */
+public class LazyCallChainEngine {
+
+    private final String projectPath;
+    private final SourceDiscovery discovery;
+    private final int parallelism;
+    private final boolean debug;
+    private final AnalysisMetrics metrics;
+
+    private IdentifierIndex identifiers;
+
+    // 已解析文件的摘要，按路径排序，使链接顺序与全量构建一致
+    private final Map<String, FileSummary> summaries = new TreeMap<>();
+    private final Map<String, String> failures = new TreeMap<>();
+    private final Map<String, FileFingerprint> fingerprints = new TreeMap<>();
+
+    // 已解析的文件编号
+    private final BitSet parsed = new BitSet();
+
+    // 已查找过调用者所在文件的方法键和已查找过声明文件的父类型名
+    private final Set<String> expandedKeys = new HashSet<>();
+    private final Set<String> resolvedTypes = new HashSet<>();
+
+    private CallChainEngine engine;
+
+    public LazyCallChainEngine(String projectPath, int parallelism, boolean debug) {
+        this(projectPath, parallelism, debug, AnalysisMetrics.disabled());
+    }
+
+    /**
+     * @param parallelism 扫描和解析线程数，小于1时使用可用处理器数
+     * @param metrics     记录扫描、解析和链接各阶段的耗时
+     */
+    public LazyCallChainEngine(String projectPath, int parallelism, boolean debug, AnalysisMetrics metrics) {
+        this(projectPath, new SourceDiscovery(), parallelism, debug, metrics);
+    }
+
+    /**
+     * @param discovery   查找源文件的规则
+     * @param parallelism 扫描和解析线程数，小于1时使用可用处理器数
+     * @param metrics     记录扫描、解析和链接各阶段的耗时
+     */
+    public LazyCallChainEngine(String projectPath, SourceDiscovery discovery, int parallelism, boolean debug,
+                               AnalysisMetrics metrics) {
+        this.projectPath = projectPath;
+        this.discovery = discovery;
+        this.parallelism = parallelism;
+        this.debug = debug;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 解析回答该查询所需的文件，返回覆盖目前所有已解析文件的分析引擎。
+     * 返回的引擎可以回答此前准备过的任意查询
+     */
+    public synchronized CallChainEngine prepare(SearchType searchType, String searchKey) {
+        IdentifierIndex identifiers = getIdentifiers();
+        long startTime = System.currentTimeMillis();
+        int parsedBefore = parsed.cardinality();
+
+        BitSet pending = new BitSet();
+        if (SearchPattern.isPattern(searchKey)) {
+            // 模式先与标识符表匹配，方法调用只需解析同时出现匹配的类名和方法名的文件
+            SearchPattern pattern = SearchPattern.compile(searchType, searchKey);
+            BitSet files = searchType == SearchType.CONSTANT ? identifiers.filesContainingAny(pattern::matchesMember)
+                    : identifiers.filesContainingAny(pattern::matchesClass);
+            if (searchType == SearchType.METHOD_CALL) files.and(identifiers.filesContainingAny(pattern::matchesMember));
+            files.andNot(parsed);
+            pending.or(files);
+        } else if (searchType == SearchType.METHOD_CALL) {
+            int separator = searchKey.lastIndexOf('#');
+            if (separator > 0) {
+                addUnparsed(pending, identifiers.filesContainingAll(
+                        searchKey.substring(0, separator), searchKey.substring(separator + 1)));
+            }
+        } else {
+            addUnparsed(pending, identifiers.filesContaining(searchKey));
+        }
+
+        CallGraphIndex index = engine == null || !pending.isEmpty() ? parseAndLink(pending) : engine.getIndex();
+        int rounds = 0;
+        while (true) {
+            pending = new BitSet();
+            // 从使用位置出发沿已知调用关系和分派边向上遍历，尚未展开的方法需要解析可能调用它的文件
+            ClassHierarchy hierarchy = ClassHierarchy.build(index);
+            Deque<String> queue = new ArrayDeque<>();
+            Set<String> visited = new HashSet<>();
+            for (MethodDescriptor usage : CallChainEngine.findUsages(index, searchType, searchKey)) {
+                String key = usage.getClassName() + "#" + usage.getMethodName();
+                if (visited.add(key)) queue.add(key);
+            }
+            while (!queue.isEmpty()) {
+                String key = queue.poll();
+                int separator = key.indexOf('#');
+                if (expandedKeys.add(key)) {
+                    addUnparsed(pending, identifiers.filesContainingAll(key.substring(0, separator), key.substring(separator + 1)));
+                }
+                for (String caller : index.getMethodCallers().getOrDefault(key, Collections.emptySet())) {
+                    if (visited.add(caller)) queue.add(caller);
+                }
+                for (String superType : hierarchy.getSupertypes(key.substring(0, separator))) {
+                    String superKey = superType + key.substring(separator);
+                    if (index.getMethodDefinitions().containsKey(superKey) && visited.add(superKey)) queue.add(superKey);
+                }
+            }
+            if (pending.isEmpty()) break;
+            index = parseAndLink(pending);
+            rounds++;
+        }
+
+        if (engine == null || engine.getIndex() != index) {
+            engine = new CallChainEngine(index, debug, metrics);
+        }
+        if (debug) {
+            System.out.println("按需解析 " + searchKey + ": 扩展 " + rounds + " 轮，新解析 " + (parsed.cardinality() - parsedBefore)
+                    + " 个文件，共解析 " + parsed.cardinality() + "/" + identifiers.getFileCount()
+                    + " 个文件，耗时: " + (System.currentTimeMillis() - startTime) + "ms");
+        }
+        return engine;
+    }
+
+    /**
+     * 最近一次 {@link #prepare} 返回的引擎，尚未查询时为null
+     */
+    public synchronized CallChainEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * 项目中的Java文件总数
+     */
+    public synchronized int getFileCount() {
+        return getIdentifiers().getFileCount();
+    }
+
+    /**
+     * 目前已解析的文件数
+     */
+    public synchronized int getParsedFileCount() {
+        return parsed.cardinality();
+    }
+
+    private IdentifierIndex getIdentifiers() {
+        if (identifiers == null) {
+            long phaseStart = metrics.startTime();
+            List<Path> files = discovery.discover(Paths.get(projectPath));
+            metrics.endPhase(AnalysisMetrics.PHASE_DISCOVER, phaseStart);
+            long startTime = System.currentTimeMillis();
+            phaseStart = metrics.startTime();
+            identifiers = IdentifierIndex.build(files, parallelism);
+            metrics.endPhase(AnalysisMetrics.PHASE_SCAN, phaseStart);
+            if (debug) System.out.println("词法扫描 " + files.size() + " 个文件，耗时: " + (System.currentTimeMillis() - startTime) + "ms");
+        }
+        return identifiers;
+    }
+
+    /**
+     * 解析给定的文件以及它们所继承、实现类型的声明文件，再由全部已解析文件的摘要重新链接索引
+     */
+    private CallGraphIndex parseAndLink(BitSet pending) {
+        ProjectParser parser = new ProjectParser(parallelism, metrics);
+        while (!pending.isEmpty()) {
+            List<Path> files = new ArrayList<>();
+            for (int id = pending.nextSetBit(0); id >= 0; id = pending.nextSetBit(id + 1)) {
+                files.add(identifiers.getFile(id));
+            }
+            parsed.or(pending);
+            ParsedProject project = parser.parse(files);
+            summaries.putAll(project.getSummaries());
+            failures.putAll(project.getFailures());
+            fingerprints.putAll(project.getFingerprints());
+
+            // Controller的判断和接口上的URL映射依赖所实现接口的注解，分派边依赖父类型中声明的方法
+            pending = new BitSet();
+            for (FileSummary summary : project.getSummaries().values()) {
+                for (ClassSummary classSummary : summary.getClasses()) {
+                    for (String type : classSummary.getImplementedTypes()) {
+                        if (resolvedTypes.add(type)) addUnparsed(pending, identifiers.filesDeclaring(type));
+                    }
+                    for (String type : classSummary.getExtendedTypes()) {
+                        if (resolvedTypes.add(type)) addUnparsed(pending, identifiers.filesDeclaring(type));
+                    }
+                }
+            }
+        }
+
+        CallGraphIndex index = new CallGraphIndex(projectPath);
+        index.setSourceDiscovery(discovery);
+        CallGraphIndexer indexer = new CallGraphIndexer(index, parallelism, debug, metrics);
+        indexer.build(new ParsedProject(summaries, failures, fingerprints, 0));
+        return indexer.getIndex();
+    }
+
+    private void addUnparsed(BitSet pending, int[] files) {
+        for (int id : files) {
+            if (!parsed.get(id)) pending.set(id);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package io.github.gekkoz.callchain.core;
+
+import io.github.gekkoz.callchain.core.trace.CallChainIterator;
+import io.github.gekkoz.callchain.core.trace.CallChainResult;
+import io.github.gekkoz.callchain.core.trace.EdgeWeight;
+import io.github.gekkoz.callchain.core.trace.TraceOptions;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+/**
+ * 调用链查询结果的缓存，以查询类型、关键字、追踪选项和索引版本为键。
+ * <p>
+ * 缓存总大小按 {@link CallChainResult#getWeight()} 计算，即每个结果计1再加上其中的方法数，
+ * 没有调用链的结果同样占用缓存；超出上限时淘汰最久未使用的结果，单个结果超过上限时不缓存。
+ * 发布新版本的索引后调用 {@link #invalidate(long)}，旧版本的结果全部失效；
+ * 之后才完成的旧版本查询的结果也不会放入缓存。
+ * 超时结束的结果取决于当时的负载，不缓存；查询超时不计入键，未超时的结果对任何超时设置都相同。
+ * 自定义的边权按实例区分，重复使用同一个 {@link EdgeWeight} 实例才能命中缓存。
+ */
+public class QueryCache {
+
+    private final long maxWeight;
+    private final LinkedHashMap<Key, CallChainResult> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long version;
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxWeight 缓存结果的大小之和的上限，每个结果计1再加上其中的方法数，因此也是缓存结果数的上限；0表示不缓存
+     */
+    public QueryCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * @param version 查询所用索引快照的版本号
+     * @return 缓存的结果，没有时为null
+     */
+    public synchronized CallChainResult get(long version, SearchType searchType, String searchKey, TraceOptions options) {
+        CallChainResult result = version == this.version ? entries.get(new Key(searchType, searchKey, options)) : null;
+        if (result == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return result;
+    }
+
+    public synchronized void put(long version, SearchType searchType, String searchKey, TraceOptions options, CallChainResult result) {
+        if (maxWeight <= 0 || version != this.version || result.getStopReason() == CallChainIterator.StopReason.TIMEOUT
+                || result.getWeight() > maxWeight) {
+            return;
+        }
+        CallChainResult previous = entries.put(new Key(searchType, searchKey, options), result);
+        if (previous != null) weight -= previous.getWeight();
+        weight += result.getWeight();
+        Iterator<CallChainResult> eldest = entries.values().iterator();
+        while (weight > maxWeight) {
+            weight -= eldest.next().getWeight();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * 丢弃全部结果，之后只接受指定版本的结果
+     */
+    public synchronized void invalidate(long version) {
+        this.version = version;
+        entries.clear();
+        weight = 0;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * 因超出大小上限而淘汰的结果数，不包括索引更新时失效的结果
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    private static final class Key {
+        private final SearchType searchType;
+        private final String searchKey;
+        private final int maxDepth;
+        private final int maxChainsPerStart;
+        private final long maxTotalChains;
+        private final boolean condensed;
+        private final int topK;
+        private final EdgeWeight edgeWeight;
+
+        Key(SearchType searchType, String searchKey, TraceOptions options) {
+            this.searchType = searchType;
+            this.searchKey = searchKey;
+            this.maxDepth = options.getMaxDepth();
+            this.maxChainsPerStart = options.getMaxChainsPerStart();
+            this.maxTotalChains = options.getMaxTotalChains();
+            this.topK = options.getTopK();
+            // 按代价排序时不使用缩点图，不按代价排序时边权不影响结果
+            this.condensed = topK <= 0 && options.isCondensed();
+            this.edgeWeight = topK > 0 ? options.getEdgeWeight() : null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return searchType == other.searchType && searchKey.equals(other.searchKey)
+                    && maxDepth == other.maxDepth && maxChainsPerStart == other.maxChainsPerStart
+                    && maxTotalChains == other.maxTotalChains && condensed == other.condensed
+                    && topK == other.topK && Objects.equals(edgeWeight, other.edgeWeight);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(searchType, searchKey, maxDepth, maxChainsPerStart, maxTotalChains, condensed, topK, edgeWeight);
+        }
+    }
+}
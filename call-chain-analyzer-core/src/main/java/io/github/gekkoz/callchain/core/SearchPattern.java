@@ -0,0 +1,140 @@
+package io.github.gekkoz.callchain.core;
+
+import java.util.regex.Pattern;
+
+/**
+ * 匹配多个名称的查询关键字，一次查询覆盖全部匹配的类、方法或常量。
+ * <p>
+ * 关键字含有 {@code *} 或 {@code ?} 时为通配符模式（{@code *} 匹配任意个字符，{@code ?} 匹配一个字符），
+ * 以 {@code regex:} 开头时其余部分为正则表达式，需与整个名称匹配；其他关键字按名称精确查找，与以前相同。
+ * <ul>
+ *     <li>Mapper类：匹配类名，如 {@code *Mapper}、{@code regex:(User|Order)Mapper}</li>
+ *     <li>方法调用：在最后一个#处拆分，类名和方法名分别匹配，如 {@code *Mapper#select*}、{@code regex:.*Dao#(find|get).*}</li>
+ *     <li>常量：匹配常量名，如 {@code ERROR_*}</li>
+ * </ul>
+ * 类名模式只与项目中声明的类比较，项目外的类和未能解析为类名的作用域文本（如变量名 {@code userMapper}）不会被匹配，
+ * 需要时可用精确的类名查询。通配符模式中的类名可以带包名前缀，如 {@code com.example.dao.*}、
+ * {@code com.example.dao.*#find*}，只匹配声明在该包及其子包中的类。包名取自声明类的源文件中的package声明，
+ * 与文件所在目录无关。
+ */
+public final class SearchPattern {
+
+    private static final String REGEX_PREFIX = "regex:";
+
+    private final SearchType searchType;
+    private final NamePattern owner;
+    private final NamePattern member;
+
+    private SearchPattern(SearchType searchType, NamePattern owner, NamePattern member) {
+        this.searchType = searchType;
+        this.owner = owner;
+        this.member = member;
+    }
+
+    /**
+     * 关键字是否为模式，不是模式的关键字按名称精确查找
+     */
+    public static boolean isPattern(String searchKey) {
+        return searchKey.startsWith(REGEX_PREFIX) || searchKey.indexOf('*') >= 0 || searchKey.indexOf('?') >= 0;
+    }
+
+    /**
+     * @throws IllegalArgumentException 正则表达式不合法，或方法调用的关键字中没有#
+     */
+    public static SearchPattern compile(SearchType searchType, String searchKey) {
+        boolean regex = searchKey.startsWith(REGEX_PREFIX);
+        String pattern = regex ? searchKey.substring(REGEX_PREFIX.length()) : searchKey;
+        switch (searchType) {
+            case MAPPING:
+                return new SearchPattern(searchType, NamePattern.of(pattern, regex, true), null);
+            case METHOD_CALL:
+                int separator = pattern.lastIndexOf('#');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("方法调用的查询关键字应为 类名#方法名: " + searchKey);
+                }
+                return new SearchPattern(searchType, NamePattern.of(pattern.substring(0, separator), regex, true),
+                        NamePattern.of(pattern.substring(separator + 1), regex, false));
+            default:
+                return new SearchPattern(searchType, null, NamePattern.of(pattern, regex, false));
+        }
+    }
+
+    public SearchType getSearchType() {
+        return searchType;
+    }
+
+    /**
+     * 类名是否匹配，不考虑包名前缀；查询常量时总是false
+     */
+    public boolean matchesClass(String className) {
+        return owner != null && owner.name.matcher(className).matches();
+    }
+
+    /**
+     * 方法名或常量名是否匹配；查询Mapper类时总是true
+     */
+    public boolean matchesMember(String name) {
+        return member == null || member.name.matcher(name).matches();
+    }
+
+    /**
+     * 类名部分是否带有包名前缀
+     */
+    public boolean hasPackage() {
+        return owner != null && owner.packageName != null;
+    }
+
+    /**
+     * 源文件声明的包是否为包名前缀或其子包；没有包名前缀时总是true
+     *
+     * @param packageName 源文件的package声明，默认包为空字符串，未知时为null
+     */
+    public boolean inPackage(String packageName) {
+        if (!hasPackage()) return true;
+        String prefix = owner.packageName;
+        return packageName != null && packageName.startsWith(prefix)
+                && (packageName.length() == prefix.length() || packageName.charAt(prefix.length()) == '.');
+    }
+
+    /**
+     * 单个名称的模式：名称的正则表达式，以及类名的包名前缀（形如 com.example.dao）
+     */
+    private static final class NamePattern {
+        final Pattern name;
+        final String packageName;
+
+        private NamePattern(Pattern name, String packageName) {
+            this.name = name;
+            this.packageName = packageName;
+        }
+
+        /**
+         * @param qualified 是否为类名，通配符模式中的类名可以带包名前缀
+         */
+        static NamePattern of(String pattern, boolean regex, boolean qualified) {
+            if (regex) return new NamePattern(Pattern.compile(pattern), null);
+            String packageName = null;
+            int dot = qualified ? pattern.lastIndexOf('.') : -1;
+            if (dot >= 0) {
+                packageName = pattern.substring(0, dot);
+                pattern = pattern.substring(dot + 1);
+            }
+            return new NamePattern(Pattern.compile(globToRegex(pattern)), packageName);
+        }
+
+        private static String globToRegex(String glob) {
+            StringBuilder regex = new StringBuilder();
+            int literal = 0;
+            for (int i = 0; i < glob.length(); i++) {
+                char c = glob.charAt(i);
+                if (c == '*' || c == '?') {
+                    if (i > literal) regex.append(Pattern.quote(glob.substring(literal, i)));
+                    regex.append(c == '*' ? ".*" : ".");
+                    literal = i + 1;
+                }
+            }
+            if (glob.length() > literal) regex.append(Pattern.quote(glob.substring(literal)));
+            return regex.toString();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package io.github.gekkoz.callchain.core;
+
+/**
+ * 查询类型。各类型的关键字也可以是通配符或正则表达式，见 {@link SearchPattern}
+ */
+public enum SearchType {
+    /**
+     * Mapper类，关键字为类名，如AppInfoMapper
+     */
+    MAPPING("0", "Mapper类"),
+    /**
+     * 方法调用，关键字为类名#方法名，如AppInfoMapper#getDeviceList
+     */
+    METHOD_CALL("1", "方法调用"),
+    /**
+     * 常量，关键字为常量名，如DEFAULT_MESSAGE
+     */
+    CONSTANT("2", "常量");
+
+    private final String code;
+    private final String displayName;
+
+    SearchType(String code, String displayName) {
+        this.code = code;
+        this.displayName = displayName;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * 根据命令行使用的类型值获取查询类型
+     *
+     * @return 对应的查询类型，类型值未知时返回null
+     */
+    public static SearchType fromCode(String code) {
+        for (SearchType type : values()) {
+            if (type.code.equals(code)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -1,6 +1,7 @@
 package io.github.gekkoz.callchain.core.descriptor;
 
 import java.util.Objects;
+import java.util.function.UnaryOperator;
 
 /**
  * Java方法的简单表示，包含其签名
@@ -10,12 +11,28 @@ public class MethodDescriptor {
     private final String methodName;
     private final String methodSignature;
     private final String filePath;
+    private final int beginLine;
+    private final int endLine;
+    // 方法标识（类名#方法名#方法签名），第一次使用时生成；多线程下最多重复生成几次，结果相同
+    private String key;
+    private int hash;
 
     public MethodDescriptor(String className, String methodName, String methodSignature, String filePath) {
+        this(className, methodName, methodSignature, filePath, 0, 0);
+    }
+
+    /**
+     * @param beginLine 方法声明的起始行（从1开始），未知时为0
+     * @param endLine   方法声明的结束行，未知时为0
+     */
+    public MethodDescriptor(String className, String methodName, String methodSignature, String filePath,
+                            int beginLine, int endLine) {
         this.className = className;
         this.methodName = methodName;
         this.methodSignature = methodSignature;
         this.filePath = filePath;
+        this.beginLine = beginLine;
+        this.endLine = endLine;
     }
 
     public String getClassName() {
@@ -34,9 +51,42 @@ public class MethodDescriptor {
         return filePath;
     }
 
+    public int getBeginLine() {
+        return beginLine;
+    }
+
+    public int getEndLine() {
+        return endLine;
+    }
+
+    /**
+     * 判断行号是否位于方法声明范围内
+     */
+    public boolean containsLine(int line) {
+        return beginLine > 0 && line >= beginLine && line <= endLine;
+    }
+
+    /**
+     * 方法标识：类名#方法名#方法签名。作为映射的键和调用链中的方法反复使用，只生成一次
+     */
     @Override
     public String toString() {
-        return className + "#" + methodName + "#" + methodSignature;
+        String result = key;
+        if (result == null) {
+            result = className + "#" + methodName + "#" + methodSignature;
+            key = result;
+        }
+        return result;
+    }
+
+    /**
+     * 让方法标识使用共享表中的字符串，内容相同的方法描述（如从索引文件载入的、增量更新后重新解析的同一方法）
+     * 以及索引中以方法标识为键的集合共用一份标识
+     *
+     * @param symbols 返回与参数内容相同的共享字符串，见 {@link io.github.gekkoz.callchain.core.index.SymbolTable#intern(String)}
+     */
+    public void internKey(UnaryOperator<String> symbols) {
+        key = symbols.apply(toString());
     }
 
     @Override
@@ -51,6 +101,11 @@ public class MethodDescriptor {
 
     @Override
     public int hashCode() {
-        return Objects.hash(className, methodName, methodSignature);
+        int result = hash;
+        if (result == 0) {
+            result = Objects.hash(className, methodName, methodSignature);
+            hash = result;
+        }
+        return result;
     }
 }
@@ -0,0 +1,130 @@
+package io.github.gekkoz.callchain.core.diff;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * 统一格式（git diff / diff -u）补丁中的修改位置。
+ * 只记录修改后文件中的行号：新增的行记为修改，删除的行记为其前后相邻的两行；被删除的文件不记录。
+ */
+public class UnifiedDiff {
+
+    // 修改后的文件路径 -> 修改的行号
+    private final Map<String, BitSet> changedLines = new LinkedHashMap<>();
+
+    public static UnifiedDiff parse(Path diffFile) throws IOException {
+        return parse(Files.readAllLines(diffFile, StandardCharsets.UTF_8));
+    }
+
+    public static UnifiedDiff parse(List<String> lines) {
+        UnifiedDiff diff = new UnifiedDiff();
+        BitSet current = null;
+        int newLine = 0;
+        int remainingOld = 0;
+        int remainingNew = 0;
+
+        for (String line : lines) {
+            if (remainingOld > 0 || remainingNew > 0) {
+                if (line.startsWith("+")) {
+                    if (current != null) current.set(newLine);
+                    newLine++;
+                    remainingNew--;
+                    continue;
+                }
+                if (line.startsWith("-")) {
+                    if (current != null) {
+                        if (newLine > 1) current.set(newLine - 1);
+                        current.set(newLine);
+                    }
+                    remainingOld--;
+                    continue;
+                }
+                if (line.startsWith(" ") || line.isEmpty()) {
+                    newLine++;
+                    remainingOld--;
+                    remainingNew--;
+                    continue;
+                }
+                if (line.startsWith("\\")) continue;
+                // 行数与块头不符时，按块已结束处理
+                remainingOld = remainingNew = 0;
+            }
+
+            if (line.startsWith("+++ ")) {
+                String path = stripPath(line.substring(4));
+                current = path == null ? null : diff.changedLines.computeIfAbsent(path, p -> new BitSet());
+            } else if (line.startsWith("@@ ")) {
+                int[] header = parseHunkHeader(line);
+                if (header == null) continue;
+                remainingOld = header[1];
+                remainingNew = header[3];
+                // 新文件部分为空时，起始行号指向删除位置之前的一行
+                newLine = header[3] == 0 ? header[2] + 1 : header[2];
+            }
+        }
+        diff.changedLines.values().removeIf(BitSet::isEmpty);
+        return diff;
+    }
+
+    /**
+     * 去掉时间戳和git的 b/ 前缀，/dev/null 返回null
+     */
+    private static String stripPath(String path) {
+        int tab = path.indexOf('\t');
+        if (tab >= 0) path = path.substring(0, tab);
+        path = path.trim();
+        if (path.equals("/dev/null")) return null;
+        if (path.startsWith("b/")) path = path.substring(2);
+        return path;
+    }
+
+    /**
+     * 解析 "@@ -起始,行数 +起始,行数 @@"，省略的行数为1
+     *
+     * @return {旧起始, 旧行数, 新起始, 新行数}，格式不正确时返回null
+     */
+    private static int[] parseHunkHeader(String line) {
+        String[] parts = line.split(" ");
+        if (parts.length < 3 || !parts[1].startsWith("-") || !parts[2].startsWith("+")) return null;
+        try {
+            int[] oldRange = parseRange(parts[1].substring(1));
+            int[] newRange = parseRange(parts[2].substring(1));
+            return new int[]{oldRange[0], oldRange[1], newRange[0], newRange[1]};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int[] parseRange(String range) {
+        int comma = range.indexOf(',');
+        if (comma < 0) return new int[]{Integer.parseInt(range), 1};
+        return new int[]{Integer.parseInt(range.substring(0, comma)), Integer.parseInt(range.substring(comma + 1))};
+    }
+
+    /**
+     * 补丁中修改过的文件，路径与补丁中的写法一致（通常相对于仓库根目录）
+     */
+    public Set<String> getFiles() {
+        return changedLines.keySet();
+    }
+
+    /**
+     * 文件中修改的行号，文件不在补丁中时返回空位图
+     */
+    public BitSet getChangedLines(String path) {
+        return changedLines.getOrDefault(path, new BitSet());
+    }
+
+    /**
+     * 文件在 [beginLine, endLine] 范围内是否有修改
+     */
+    public boolean isChanged(String path, int beginLine, int endLine) {
+        BitSet lines = changedLines.get(path);
+        if (lines == null || endLine < beginLine) return false;
+        int next = lines.nextSetBit(beginLine);
+        return next >= 0 && next <= endLine;
+    }
+}
@@ -0,0 +1,307 @@
+package io.github.gekkoz.callchain.core.index;
+
+import io.github.gekkoz.callchain.core.descriptor.MethodDescriptor;
+
+import java.util.*;
+
+/**
+ * 由 {@link CallGraphIndex} 编译得到的只读调用图，供调用链追踪使用。
+ * 每个方法定义分配一个稠密的整数ID（节点），每个方法键（类名#方法签名）也分配一个整数ID；
+ * 反向调用关系以CSR数组（offsets + targets）按方法键存储，REST控制器方法以位图标记，
+ * 追踪时只访问整数数组，不再拼接、拆分或哈希字符串。
+ * <p>
+ * 重载方法是不同的方法键。调用位置按参数个数和实参类型选择被调用的重载方法，规则见 {@link OverloadSelector}；
+ * 调用者为发起调用的那个方法，而不是其所有重载。
+ * <p>
+ * 除源码中的调用关系外，还包含由类层次 {@link ClassHierarchy} 得到的分派边：对父类型（接口或父类）上的调用
+ * 可能执行子类型中覆盖它的方法，因此父类型中参数个数相同的同名方法作为子类型方法的调用者，
+ * 如通过注入的 UserService 接口调用 save 时，调用链经 UserService#save 到达 UserServiceImpl#save。
+ * 分派边只连到每条继承路径上最近的声明，I#m、A#m、C#m 逐层覆盖时为 I#m → A#m → C#m，不另有 I#m → C#m。
+ */
+public final class CallGraph {
+
+    // 节点 -> 方法描述
+    private final MethodDescriptor[] methods;
+
+    // 节点 -> 方法键ID
+    private final int[] methodKeys;
+
+    // 方法键ID -> 调用者节点，调用者节点位于 callers[callerOffsets[k], callerOffsets[k + 1])
+    private final int[] callerOffsets;
+    private final int[] callers;
+
+    // REST控制器方法节点
+    private final BitSet controllers;
+
+    private final String[] keyNames;
+
+    // 方法描述 -> 节点，只用于查询入口
+    private final Map<MethodDescriptor, Integer> nodeIds;
+
+    private final ClassHierarchy hierarchy;
+
+    // 调用边中分派边的数量
+    private final int dispatchEdgeCount;
+
+    private CallGraph(MethodDescriptor[] methods, int[] methodKeys, int[] callerOffsets, int[] callers,
+                      BitSet controllers, String[] keyNames, Map<MethodDescriptor, Integer> nodeIds,
+                      ClassHierarchy hierarchy, int dispatchEdgeCount) {
+        this.methods = methods;
+        this.methodKeys = methodKeys;
+        this.callerOffsets = callerOffsets;
+        this.callers = callers;
+        this.controllers = controllers;
+        this.keyNames = keyNames;
+        this.nodeIds = nodeIds;
+        this.hierarchy = hierarchy;
+        this.dispatchEdgeCount = dispatchEdgeCount;
+    }
+
+    /**
+     * 编译索引中的方法定义和调用关系。节点按文件路径及文件内的定义顺序编号，结果与索引的构建方式无关
+     */
+    public static CallGraph build(CallGraphIndex index) {
+        List<MethodDescriptor> methodList = new ArrayList<>();
+        Map<MethodDescriptor, Integer> nodeIds = new IdentityHashMap<>();
+        Map<String, Integer> keyIds = new HashMap<>();
+        List<String> keyNames = new ArrayList<>();
+        List<Integer> methodKeyList = new ArrayList<>();
+
+        for (FileContribution file : index.getFiles().values()) {
+            for (MethodDescriptor method : file.getMethods()) {
+                if (nodeIds.containsKey(method)) continue;
+                String key = method.getClassName() + "#" + method.getMethodSignature();
+                Integer keyId = keyIds.get(key);
+                if (keyId == null) {
+                    keyId = keyNames.size();
+                    keyIds.put(key, keyId);
+                    keyNames.add(key);
+                }
+                nodeIds.put(method, methodList.size());
+                methodList.add(method);
+                methodKeyList.add(keyId);
+            }
+        }
+
+        int nodeCount = methodList.size();
+        int keyCount = keyNames.size();
+        MethodDescriptor[] methods = methodList.toArray(new MethodDescriptor[0]);
+        int[] methodKeys = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            methodKeys[i] = methodKeyList.get(i);
+        }
+
+        // 方法键 -> 该键下的全部节点（不同文件中同名类的相同方法）
+        int[] keyNodeOffsets = new int[keyCount + 1];
+        for (int key : methodKeys) keyNodeOffsets[key + 1]++;
+        for (int k = 0; k < keyCount; k++) keyNodeOffsets[k + 1] += keyNodeOffsets[k];
+        int[] keyNodes = new int[nodeCount];
+        int[] fill = Arrays.copyOf(keyNodeOffsets, keyCount);
+        for (int node = 0; node < nodeCount; node++) {
+            keyNodes[fill[methodKeys[node]]++] = node;
+        }
+
+        // 类#方法名 -> 重载方法的方法键，以及每个方法键的形参类型，用于按调用的实参选择重载方法
+        Map<String, int[]> overloads = new HashMap<>();
+        OverloadSelector.Parameters[] parameters = new OverloadSelector.Parameters[keyCount];
+        for (int k = 0; k < keyCount; k++) {
+            MethodDescriptor method = methods[keyNodes[keyNodeOffsets[k]]];
+            parameters[k] = OverloadSelector.Parameters.of(method.getMethodSignature());
+            overloads.merge(method.getClassName() + "#" + method.getMethodName(), new int[]{k}, CallGraph::concat);
+        }
+        ClassHierarchy hierarchy = ClassHierarchy.build(index);
+        OverloadSelector selector = new OverloadSelector(index, hierarchy, parameters);
+
+        // 源码中的调用关系：每个调用位置的调用者节点作为所选重载方法的调用者
+        int[] edgeKeys = new int[16];
+        int[] edgeCallers = new int[16];
+        int pairCount = 0;
+        for (FileContribution file : index.getFiles().values()) {
+            for (int i = 0; i < file.getCallSiteCount(); i++) {
+                Integer caller = nodeIds.get(file.getCaller(i));
+                int[] candidates = overloads.get(file.getCalledClass(i) + "#" + file.getCalledMethod(i));
+                if (caller == null || candidates == null) continue;
+                int[] targets = selector.select(candidates, file.getArgumentTypes(i));
+                if (edgeKeys.length < pairCount + targets.length) {
+                    edgeKeys = Arrays.copyOf(edgeKeys, Math.max(edgeKeys.length * 2, pairCount + targets.length));
+                    edgeCallers = Arrays.copyOf(edgeCallers, edgeKeys.length);
+                }
+                for (int target : targets) {
+                    edgeKeys[pairCount] = target;
+                    edgeCallers[pairCount++] = caller;
+                }
+            }
+        }
+        int[] pairOffsets = new int[keyCount + 1];
+        for (int i = 0; i < pairCount; i++) pairOffsets[edgeKeys[i] + 1]++;
+        for (int k = 0; k < keyCount; k++) pairOffsets[k + 1] += pairOffsets[k];
+        int[] pairs = new int[pairCount];
+        fill = Arrays.copyOf(pairOffsets, keyCount);
+        for (int i = 0; i < pairCount; i++) {
+            pairs[fill[edgeKeys[i]]++] = edgeCallers[i];
+        }
+
+        // 构建反向邻接表，每个方法键的调用者节点按ID升序排列并去重
+        int[] callerOffsets = new int[keyCount + 1];
+        int[] callers = new int[16];
+        int edgeCount = 0;
+        int dispatchEdgeCount = 0;
+        int[] dispatch = new int[16];
+        int[] declaring = new int[16];
+        for (int k = 0; k < keyCount; k++) {
+            int from = pairOffsets[k];
+            int size = pairOffsets[k + 1] - from;
+            Arrays.sort(pairs, from, from + size);
+
+            // 分派边：父类型中声明的、可被该方法覆盖的同名方法。只连到每条继承路径上最近的声明，
+            // 更远的声明经由这些方法的分派边到达，否则同一条调用链会经不同层数重复出现
+            int dispatchSize = 0;
+            int declaringCount = 0;
+            MethodDescriptor method = methods[keyNodes[keyNodeOffsets[k]]];
+            int type = hierarchy.idOf(method.getClassName());
+            if (type >= 0) {
+                for (int p = hierarchy.supertypesStart(type); p < hierarchy.supertypesEnd(type); p++) {
+                    int superType = hierarchy.getSupertype(p);
+                    int[] candidates = overloads.get(hierarchy.getName(superType) + "#" + method.getMethodName());
+                    if (candidates == null || selector.overridden(candidates, parameters[k]).length == 0) continue;
+                    if (declaring.length == declaringCount) declaring = Arrays.copyOf(declaring, declaringCount * 2);
+                    declaring[declaringCount++] = superType;
+                }
+            }
+            for (int d = 0; d < declaringCount; d++) {
+                if (hasNearerDeclaration(hierarchy, declaring, declaringCount, declaring[d])) continue;
+                int[] candidates = overloads.get(hierarchy.getName(declaring[d]) + "#" + method.getMethodName());
+                for (int superKey : selector.overridden(candidates, parameters[k])) {
+                    int keyFrom = keyNodeOffsets[superKey];
+                    int keyTo = keyNodeOffsets[superKey + 1];
+                    if (dispatch.length < dispatchSize + keyTo - keyFrom) dispatch = Arrays.copyOf(dispatch, Math.max(dispatch.length * 2, dispatchSize + keyTo - keyFrom));
+                    for (int i = keyFrom; i < keyTo; i++) dispatch[dispatchSize++] = keyNodes[i];
+                }
+            }
+
+            Arrays.sort(dispatch, 0, dispatchSize);
+            if (callers.length < edgeCount + size + dispatchSize) callers = Arrays.copyOf(callers, Math.max(callers.length * 2, edgeCount + size + dispatchSize));
+            int start = edgeCount;
+            for (int i = from; i < from + size; i++) {
+                if (i == from || pairs[i] != pairs[i - 1]) callers[edgeCount++] = pairs[i];
+            }
+            // 与源码中的调用关系合并，已存在的边不重复计为分派边
+            int direct = edgeCount;
+            for (int i = 0; i < dispatchSize; i++) {
+                if ((i > 0 && dispatch[i] == dispatch[i - 1]) || Arrays.binarySearch(callers, start, direct, dispatch[i]) >= 0) continue;
+                callers[edgeCount++] = dispatch[i];
+                dispatchEdgeCount++;
+            }
+            Arrays.sort(callers, start, edgeCount);
+            callerOffsets[k + 1] = edgeCount;
+        }
+
+        BitSet controllers = new BitSet(nodeCount);
+        for (int node = 0; node < nodeCount; node++) {
+            if (index.getRestControllerMethods().contains(methods[node].toString())) {
+                controllers.set(node);
+            }
+        }
+
+        return new CallGraph(methods, methodKeys, callerOffsets, Arrays.copyOf(callers, edgeCount),
+                controllers, keyNames.toArray(new String[0]), nodeIds, hierarchy, dispatchEdgeCount);
+    }
+
+    /**
+     * 声明了被覆盖方法的父类型中，是否有另一个是type的子类型，即在同一条继承路径上离起始类型更近。
+     * 继承关系成环时互为子类型的声明都保留
+     */
+    private static boolean hasNearerDeclaration(ClassHierarchy hierarchy, int[] declaring, int count, int type) {
+        for (int i = 0; i < count; i++) {
+            int other = declaring[i];
+            if (other != type && hierarchy.isSubtypeOf(other, type) && !hierarchy.isSubtypeOf(type, other)) return true;
+        }
+        return false;
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    /**
+     * 节点数量
+     */
+    public int getNodeCount() {
+        return methods.length;
+    }
+
+    /**
+     * 方法键数量
+     */
+    public int getKeyCount() {
+        return keyNames.length;
+    }
+
+    /**
+     * 调用边数量
+     */
+    public int getEdgeCount() {
+        return callers.length;
+    }
+
+    /**
+     * 调用边中由类层次得到的分派边数量
+     */
+    public int getDispatchEdgeCount() {
+        return dispatchEdgeCount;
+    }
+
+    /**
+     * 编译调用图时使用的类层次
+     */
+    public ClassHierarchy getHierarchy() {
+        return hierarchy;
+    }
+
+    /**
+     * 获取方法描述对应的节点，方法不在图中时返回-1
+     */
+    public int nodeOf(MethodDescriptor method) {
+        Integer node = nodeIds.get(method);
+        return node == null ? -1 : node;
+    }
+
+    public MethodDescriptor getMethod(int node) {
+        return methods[node];
+    }
+
+    /**
+     * 节点所属的方法键ID
+     */
+    public int keyOf(int node) {
+        return methodKeys[node];
+    }
+
+    public String getKeyName(int key) {
+        return keyNames[key];
+    }
+
+    public boolean isController(int node) {
+        return controllers.get(node);
+    }
+
+    /**
+     * 方法键的调用者在调用者数组中的起始位置，配合 {@link #getCaller(int)} 使用
+     */
+    public int callersStart(int key) {
+        return callerOffsets[key];
+    }
+
+    /**
+     * 方法键的调用者在调用者数组中的结束位置（不含）
+     */
+    public int callersEnd(int key) {
+        return callerOffsets[key + 1];
+    }
+
+    public int getCaller(int position) {
+        return callers[position];
+    }
+}
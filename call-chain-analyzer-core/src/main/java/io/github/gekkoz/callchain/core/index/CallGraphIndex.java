@@ -0,0 +1,412 @@
+package io.github.gekkoz.callchain.core.index;
+
+import io.github.gekkoz.callchain.core.descriptor.ControllerMethodDescriptor;
+import io.github.gekkoz.callchain.core.descriptor.MethodDescriptor;
+import io.github.gekkoz.callchain.core.parse.SourceArchive;
+import io.github.gekkoz.callchain.core.parse.SourceDiscovery;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * 与具体查询无关的调用图索引。
+ * 保存解析项目后得到的全部缓存结构，可以写入磁盘并在之后直接加载，避免每次查询重新解析整个项目。
+ */
+public class CallGraphIndex {
+
+    private final String projectPath;
+
+    // 构建索引时源码树的指纹，用于判断索引是否过期
+    private long sourceFingerprint;
+
+    // 是否由作用域的静态类型解析被调用类，见 TypeResolver；为false时使用基于作用域文本的启发式规则
+    private boolean preciseTypes;
+
+    // 查找源文件的规则，不随索引持久化；规则改变后源码树指纹随之改变，下次更新时按新规则增删文件
+    private SourceDiscovery sourceDiscovery = new SourceDiscovery();
+
+    // 方法定义 (类名#方法名 -> 方法描述)
+    private final Map<String, List<MethodDescriptor>> methodDefinitions = new HashMap<>();
+
+    // 方法调用关系 (被调用方法 -> 调用者方法)
+    private final Map<String, Set<String>> methodCallers = new HashMap<>();
+
+    // REST控制器方法
+    private final Set<String> restControllerMethods = new HashSet<>();
+
+    // 字段声明（用于依赖注入）
+    private final Map<String, Map<String, String>> fieldDeclarations = new HashMap<>();
+
+    // 接口中的REST映射信息
+    private final Map<String, Map<String, String>> interfaceMethodMappings = new HashMap<>();
+
+    // Controller方法的URL映射信息
+    private final Map<String, ControllerMethodDescriptor> controllerMethodUrls = new HashMap<>();
+
+    // 调用位置 (被调用类 -> 被调用方法 -> 发起调用的方法)
+    private final Map<String, Map<String, List<MethodDescriptor>>> callSites = new HashMap<>();
+
+    // 常量引用位置 (常量或标识符名称 -> 引用它的方法)
+    private final Map<String, List<MethodDescriptor>> constantReferences = new HashMap<>();
+
+    // 类上的@RequestMapping映射 (类名 -> 映射路径，注解存在但没有路径值时为null)
+    private final Map<String, String> classMappings = new HashMap<>();
+
+    // 父类 (类名 -> 第一个父类名)
+    private final Map<String, String> superClasses = new HashMap<>();
+
+    // 直接父类型 (类名 -> extends和implements声明的全部类型，按声明顺序)
+    private final Map<String, List<String>> superTypes = new HashMap<>();
+
+    // 方法返回类型 (类名 -> 方法名 -> 返回类型，重载方法的返回类型不一致时为空字符串)
+    private final Map<String, Map<String, String>> methodReturnTypes = new HashMap<>();
+
+    // 每个源文件对索引的贡献，用于增量更新
+    private final TreeMap<String, FileContribution> files = new TreeMap<>();
+
+    // 索引中字符串的共享表，副本与原索引共用
+    private final SymbolTable symbols;
+
+    // 正在记录的文件中每个调用位置、常量引用列表已加入的方法，用于去重。
+    // 方法描述只属于一个文件，换到下一个文件时清空
+    private FileContribution distinctFile;
+    private final Map<List<MethodDescriptor>, Set<MethodDescriptor>> distinctMethods = new IdentityHashMap<>();
+
+    public CallGraphIndex(String projectPath) {
+        this(projectPath, new SymbolTable());
+    }
+
+    /**
+     * @param symbols 字符串共享表，如读取索引文件时已载入其中字符串的表
+     */
+    CallGraphIndex(String projectPath, SymbolTable symbols) {
+        this.projectPath = projectPath;
+        this.symbols = symbols;
+    }
+
+    /**
+     * 复制索引，副本与原索引互不影响，用于在不修改已发布索引的前提下做增量更新。
+     * 方法描述等不可变对象在副本间共享，因此副本中按对象身份比较方法描述的逻辑不受影响
+     */
+    public CallGraphIndex copy() {
+        CallGraphIndex copy = new CallGraphIndex(projectPath, symbols);
+        copy.sourceFingerprint = sourceFingerprint;
+        copy.preciseTypes = preciseTypes;
+        copy.sourceDiscovery = sourceDiscovery;
+        methodDefinitions.forEach((key, methods) -> copy.methodDefinitions.put(key, new ArrayList<>(methods)));
+        methodCallers.forEach((key, callers) -> copy.methodCallers.put(key, new HashSet<>(callers)));
+        copy.restControllerMethods.addAll(restControllerMethods);
+        fieldDeclarations.forEach((key, fields) -> copy.fieldDeclarations.put(key, new HashMap<>(fields)));
+        interfaceMethodMappings.forEach((key, mappings) -> copy.interfaceMethodMappings.put(key, new HashMap<>(mappings)));
+        copy.controllerMethodUrls.putAll(controllerMethodUrls);
+        callSites.forEach((calledClass, methods) -> {
+            Map<String, List<MethodDescriptor>> copied = new HashMap<>();
+            methods.forEach((calledMethod, callers) -> copied.put(calledMethod, new ArrayList<>(callers)));
+            copy.callSites.put(calledClass, copied);
+        });
+        constantReferences.forEach((name, methods) -> copy.constantReferences.put(name, new ArrayList<>(methods)));
+        copy.classMappings.putAll(classMappings);
+        copy.superClasses.putAll(superClasses);
+        superTypes.forEach((key, types) -> copy.superTypes.put(key, new ArrayList<>(types)));
+        methodReturnTypes.forEach((key, types) -> copy.methodReturnTypes.put(key, new HashMap<>(types)));
+        files.forEach((path, file) -> copy.files.put(path, file.copy()));
+        return copy;
+    }
+
+    /**
+     * 记录一个方法定义
+     */
+    public void addMethod(FileContribution file, MethodDescriptor method) {
+        method.internKey(symbols::intern);
+        methodDefinitions.computeIfAbsent(symbols.intern(methodKey(method)), k -> new ArrayList<>()).add(method);
+        file.getMethods().add(method);
+    }
+
+    /**
+     * 记录一次方法调用：调用关系 (被调用方法 -> 调用者方法) 以及调用位置。
+     * 调用关系只按方法名记录，实参类型保存在调用位置中，编译调用图时用于在重载方法中选择被调用的方法
+     *
+     * @param argumentTypes 以逗号分隔的实参类型，无法确定的参数为"?"，没有参数时为空字符串，未知参数个数时为null
+     */
+    public void addCallSite(FileContribution file, String calledClassName, String calledMethodName, String argumentTypes,
+                            MethodDescriptor caller) {
+        calledClassName = symbols.intern(calledClassName);
+        calledMethodName = symbols.intern(calledMethodName);
+        argumentTypes = symbols.intern(argumentTypes);
+        methodCallers.computeIfAbsent(symbols.intern(calledClassName + "#" + calledMethodName), k -> new HashSet<>())
+                .add(symbols.intern(methodKey(caller)));
+        addDistinct(file, callSites.computeIfAbsent(calledClassName, k -> new HashMap<>())
+                .computeIfAbsent(calledMethodName, k -> new ArrayList<>()), caller);
+        file.addCallSite(calledClassName, calledMethodName, argumentTypes, caller);
+    }
+
+    /**
+     * 记录一次常量（或标识符）引用的位置
+     */
+    public void addConstantReference(FileContribution file, String name, MethodDescriptor method) {
+        name = symbols.intern(name);
+        if (addDistinct(file, constantReferences.computeIfAbsent(name, k -> new ArrayList<>()), method)) {
+            file.addConstantReference(name, method);
+        }
+    }
+
+    /**
+     * 从索引中撤销若干文件的全部贡献。
+     * 不同文件可能贡献相同的键：同名类的以类名为键的条目、同名调用者的调用关系、同名Controller方法的URL映射，
+     * 其余文件仍然贡献的键保留在索引中
+     */
+    public void removeFiles(Collection<String> filePaths) {
+        List<FileContribution> removed = new ArrayList<>();
+        Set<String> removedClasses = new HashSet<>();
+        for (String filePath : filePaths) {
+            FileContribution file = files.remove(filePath);
+            if (file != null) {
+                removed.add(file);
+                removedClasses.addAll(file.getClassNames());
+            }
+        }
+
+        // 被撤销的类中仍由其余文件声明的类
+        Set<String> declaredElsewhere = new HashSet<>();
+        if (!removedClasses.isEmpty()) {
+            for (FileContribution file : files.values()) {
+                for (String className : file.getClassNames()) {
+                    if (removedClasses.contains(className)) declaredElsewhere.add(className);
+                }
+            }
+        }
+        for (FileContribution file : removed) {
+            undo(file, declaredElsewhere);
+        }
+    }
+
+    /**
+     * 撤销单个文件的贡献
+     *
+     * @param declaredElsewhere 其余文件中仍有声明的类，保留以其类名为键的条目
+     */
+    private void undo(FileContribution file, Set<String> declaredElsewhere) {
+        for (String className : file.getClassNames()) {
+            if (declaredElsewhere.contains(className)) continue;
+            fieldDeclarations.remove(className);
+            interfaceMethodMappings.remove(className);
+            classMappings.remove(className);
+            superClasses.remove(className);
+            superTypes.remove(className);
+            methodReturnTypes.remove(className);
+        }
+
+        for (MethodDescriptor method : file.getMethods()) {
+            removeFromList(methodDefinitions, methodKey(method), method);
+            // URL映射记录了来源文件，同名Controller方法的映射来自其他文件时保留
+            String key = method.toString();
+            ControllerMethodDescriptor url = controllerMethodUrls.get(key);
+            if (url == null || file.getFilePath().equals(url.getFilePath())) {
+                restControllerMethods.remove(key);
+                controllerMethodUrls.remove(key);
+            }
+        }
+
+        for (int i = 0; i < file.getCallSiteCount(); i++) {
+            String calledClass = file.getCalledClass(i);
+            String calledMethod = file.getCalledMethod(i);
+            MethodDescriptor caller = file.getCaller(i);
+
+            // 调用关系由调用位置得出，剩余的调用位置中仍有同名调用者时保留
+            boolean stillCalled = false;
+            Map<String, List<MethodDescriptor>> methods = callSites.get(calledClass);
+            if (methods != null) {
+                removeFromList(methods, calledMethod, caller);
+                stillCalled = containsSameMethod(methods.get(calledMethod), caller);
+                if (methods.isEmpty()) callSites.remove(calledClass);
+            }
+
+            String calledKey = calledClass + "#" + calledMethod;
+            Set<String> callers = methodCallers.get(calledKey);
+            if (callers != null && !stillCalled) {
+                callers.remove(methodKey(caller));
+                if (callers.isEmpty()) methodCallers.remove(calledKey);
+            }
+        }
+
+        for (int i = 0; i < file.getConstantReferenceCount(); i++) {
+            removeFromList(constantReferences, file.getReferenceName(i), file.getReferencingMethod(i));
+        }
+    }
+
+    /**
+     * 清空索引中的全部内容
+     */
+    public void clear() {
+        methodDefinitions.clear();
+        methodCallers.clear();
+        restControllerMethods.clear();
+        fieldDeclarations.clear();
+        interfaceMethodMappings.clear();
+        controllerMethodUrls.clear();
+        callSites.clear();
+        constantReferences.clear();
+        classMappings.clear();
+        superClasses.clear();
+        superTypes.clear();
+        methodReturnTypes.clear();
+        files.clear();
+    }
+
+    private static void removeFromList(Map<String, List<MethodDescriptor>> map, String key, MethodDescriptor method) {
+        List<MethodDescriptor> list = map.get(key);
+        if (list != null) {
+            list.removeIf(m -> m == method);
+            if (list.isEmpty()) map.remove(key);
+        }
+    }
+
+    // 列表中是否有与方法类名、方法名相同的方法，即调用关系中的同一个调用者
+    private static boolean containsSameMethod(List<MethodDescriptor> list, MethodDescriptor method) {
+        if (list == null) return false;
+        for (MethodDescriptor m : list) {
+            if (m.getMethodName().equals(method.getMethodName()) && m.getClassName().equals(method.getClassName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String methodKey(MethodDescriptor method) {
+        return method.getClassName() + "#" + method.getMethodName();
+    }
+
+    // 同一方法的多次调用和引用只在列表中出现一次。嵌套类、匿名类中的引用会与外层方法的交错出现，
+    // 因此按方法身份检查列表中是否已有该方法，而不是只与最后一个元素比较
+    private boolean addDistinct(FileContribution file, List<MethodDescriptor> list, MethodDescriptor method) {
+        if (file != distinctFile) {
+            distinctFile = file;
+            distinctMethods.clear();
+        }
+        if (!distinctMethods.computeIfAbsent(list, k -> Collections.newSetFromMap(new IdentityHashMap<>())).add(method)) {
+            return false;
+        }
+        list.add(method);
+        return true;
+    }
+
+    public String getProjectPath() {
+        return projectPath;
+    }
+
+    /**
+     * 索引中字符串的共享表，向索引写入新的方法描述等内容前用它去重
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    public long getSourceFingerprint() {
+        return sourceFingerprint;
+    }
+
+    public void setSourceFingerprint(long sourceFingerprint) {
+        this.sourceFingerprint = sourceFingerprint;
+    }
+
+    /**
+     * 是否由作用域的静态类型解析被调用类。改变后需要全量重建索引
+     */
+    public boolean isPreciseTypes() {
+        return preciseTypes;
+    }
+
+    public void setPreciseTypes(boolean preciseTypes) {
+        this.preciseTypes = preciseTypes;
+    }
+
+    public SourceDiscovery getSourceDiscovery() {
+        return sourceDiscovery;
+    }
+
+    public void setSourceDiscovery(SourceDiscovery sourceDiscovery) {
+        this.sourceDiscovery = sourceDiscovery;
+    }
+
+    /**
+     * 检查索引是否与当前源码树一致
+     */
+    public boolean isStale() {
+        Path root = Paths.get(projectPath);
+        return SourceFingerprint.of(root, sourceDiscovery.discover(root)) != sourceFingerprint;
+    }
+
+    public Map<String, List<MethodDescriptor>> getMethodDefinitions() {
+        return methodDefinitions;
+    }
+
+    public Map<String, Set<String>> getMethodCallers() {
+        return methodCallers;
+    }
+
+    public Set<String> getRestControllerMethods() {
+        return restControllerMethods;
+    }
+
+    public Map<String, Map<String, String>> getFieldDeclarations() {
+        return fieldDeclarations;
+    }
+
+    public Map<String, Map<String, String>> getInterfaceMethodMappings() {
+        return interfaceMethodMappings;
+    }
+
+    public Map<String, ControllerMethodDescriptor> getControllerMethodUrls() {
+        return controllerMethodUrls;
+    }
+
+    public Map<String, Map<String, List<MethodDescriptor>>> getCallSites() {
+        return callSites;
+    }
+
+    public Map<String, List<MethodDescriptor>> getConstantReferences() {
+        return constantReferences;
+    }
+
+    public Map<String, String> getClassMappings() {
+        return classMappings;
+    }
+
+    public Map<String, String> getSuperClasses() {
+        return superClasses;
+    }
+
+    public Map<String, List<String>> getSuperTypes() {
+        return superTypes;
+    }
+
+    public Map<String, Map<String, String>> getMethodReturnTypes() {
+        return methodReturnTypes;
+    }
+
+    public Map<String, FileContribution> getFiles() {
+        return files;
+    }
+
+    /**
+     * 来自某个源码归档的文件贡献，按条目路径排序
+     */
+    public SortedMap<String, FileContribution> getArchiveEntries(Path archive) {
+        String prefix = SourceArchive.entryPrefix(archive);
+        return files.subMap(prefix, prefix + Character.MAX_VALUE);
+    }
+
+    /**
+     * 获取索引中记录的解析失败文件
+     *
+     * @return 文件路径到失败原因的映射
+     */
+    public Map<String, String> getParseFailures() {
+        Map<String, String> failures = new LinkedHashMap<>();
+        files.forEach((path, file) -> {
+            if (file.getParseFailure() != null) failures.put(path, file.getParseFailure());
+        });
+        return failures;
+    }
+}
@@ -0,0 +1,538 @@
+package io.github.gekkoz.callchain.core.index;
+
+import io.github.gekkoz.callchain.core.descriptor.ControllerMethodDescriptor;
+import io.github.gekkoz.callchain.core.descriptor.MethodDescriptor;
+import io.github.gekkoz.callchain.core.metrics.AnalysisMetrics;
+import io.github.gekkoz.callchain.core.parse.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * 调用图索引构建器，支持全量构建和基于文件变更检测的增量更新。
+ * 每个文件的贡献都记录在 {@link FileContribution} 中，增量更新时只重新解析新增、修改的文件
+ * 以及依赖受影响类的文件，撤销旧贡献后补回新结果；源码归档以整个归档为单位判断是否变化。
+ * 索引只从解析阶段提取的 {@link FileSummary} 链接而成，不持有任何AST。
+ */
+public class CallGraphIndexer {
+
+    private final CallGraphIndex index;
+    private final int parallelism;
+    private final boolean debug;
+    private final AnalysisMetrics metrics;
+
+    public CallGraphIndexer(CallGraphIndex index, int parallelism, boolean debug) {
+        this(index, parallelism, debug, AnalysisMetrics.disabled());
+    }
+
+    /**
+     * @param metrics 记录源码遍历、解析、链接和增量更新各阶段的耗时
+     */
+    public CallGraphIndexer(CallGraphIndex index, int parallelism, boolean debug, AnalysisMetrics metrics) {
+        this.index = index;
+        this.parallelism = parallelism;
+        this.debug = debug;
+        this.metrics = metrics;
+    }
+
+    public CallGraphIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * 全量构建索引：解析项目中的所有Java文件并构建全部缓存
+     */
+    public void build() {
+        index.clear();
+        List<Path> files = listJavaFiles();
+        index.setSourceFingerprint(SourceFingerprint.of(Paths.get(index.getProjectPath()), files));
+
+        ParsedProject project = parse(files);
+        indexFiles(project);
+    }
+
+    /**
+     * 由已有的解析结果全量构建索引，不重新解析，也不更新源码树指纹
+     */
+    public void build(ParsedProject project) {
+        index.clear();
+        indexFiles(project);
+    }
+
+    /**
+     * 增量更新索引：只重新解析发生变化的文件，并修补来自这些文件的索引条目
+     *
+     * @return 本次更新的统计信息
+     */
+    public IndexUpdate update() {
+        long phaseStart = metrics.startTime();
+        IndexUpdate update = doUpdate();
+        metrics.endPhase(AnalysisMetrics.PHASE_UPDATE, phaseStart);
+        return update;
+    }
+
+    private IndexUpdate doUpdate() {
+        long startTime = System.currentTimeMillis();
+        List<Path> files = listJavaFiles();
+
+        List<Path> added = new ArrayList<>();
+        List<Path> changed = new ArrayList<>();
+        Set<String> deleted = new TreeSet<>(index.getFiles().keySet());
+        for (Path path : files) {
+            Collection<FileContribution> contributions = contributionsOf(path);
+            contributions.forEach(contribution -> deleted.remove(contribution.getFilePath()));
+            // 归档条目的指纹就是整个归档的指纹，检查第一个条目即可
+            if (contributions.isEmpty()) {
+                added.add(path);
+            } else if (isModified(path, contributions.iterator().next())) {
+                changed.add(path);
+            }
+        }
+
+        if (added.isEmpty() && changed.isEmpty() && deleted.isEmpty()) {
+            index.setSourceFingerprint(SourceFingerprint.of(Paths.get(index.getProjectPath()), files));
+            return new IndexUpdate(0, 0, 0, 0, System.currentTimeMillis() - startTime);
+        }
+
+        List<Path> reparse = new ArrayList<>(changed);
+        reparse.addAll(added);
+        ParsedProject project = parse(reparse);
+
+        // 受影响的类：被修改、删除文件中原有的类，以及新解析结果中的类
+        Set<String> affectedFiles = new HashSet<>();
+        Set<String> touchedClasses = new HashSet<>();
+        for (Path path : changed) {
+            for (FileContribution contribution : contributionsOf(path)) {
+                affectedFiles.add(contribution.getFilePath());
+                touchedClasses.addAll(contribution.getClassNames());
+            }
+        }
+        for (String filePath : deleted) {
+            affectedFiles.add(filePath);
+            touchedClasses.addAll(index.getFiles().get(filePath).getClassNames());
+        }
+        for (Path path : added) {
+            affectedFiles.add(path.toString());
+        }
+        for (FileSummary summary : project.getSummaries().values()) {
+            summary.getClasses().forEach(cls -> touchedClasses.add(cls.getName()));
+        }
+
+        // 未修改但依赖受影响类的文件也要重新索引：实现了受影响接口的文件需要重新计算控制器信息，
+        // 精确模式下解析调用时查找过受影响类的文件需要重新解析被调用类。
+        // 声明了同名类的文件共享以类名为键的条目，需要一起按路径顺序重新索引，才与全量构建时保留的条目相同；
+        // 重新索引的文件中的其他类又可能与别的文件同名，因此按类名传递地扩展，直到没有新的类
+        List<Path> dependents = new ArrayList<>();
+        Set<String> reindexed = new HashSet<>(affectedFiles);
+        Set<String> sharedClasses = new HashSet<>(touchedClasses);
+        boolean grown = true;
+        while (grown) {
+            grown = false;
+            for (FileContribution contribution : index.getFiles().values()) {
+                if (reindexed.contains(contribution.getFilePath())) continue;
+                if (!Collections.disjoint(contribution.getImplementedInterfaces(), touchedClasses) ||
+                        !Collections.disjoint(contribution.getClassNames(), sharedClasses) ||
+                        !Collections.disjoint(contribution.getResolvedTypes(), touchedClasses)) {
+                    reindexed.add(contribution.getFilePath());
+                    dependents.add(Paths.get(contribution.getFilePath()));
+                    grown |= sharedClasses.addAll(contribution.getClassNames());
+                }
+            }
+        }
+
+        if (!dependents.isEmpty()) {
+            Map<String, FileSummary> merged = new TreeMap<>(project.getSummaries());
+            Map<String, String> failures = new TreeMap<>(project.getFailures());
+            Map<String, FileFingerprint> fingerprints = new TreeMap<>(project.getFingerprints());
+            ParsedProject dependentProject = parse(dependents);
+            merged.putAll(dependentProject.getSummaries());
+            failures.putAll(dependentProject.getFailures());
+            fingerprints.putAll(dependentProject.getFingerprints());
+            project = new ParsedProject(merged, failures, fingerprints,
+                    project.getElapsedMillis() + dependentProject.getElapsedMillis());
+        }
+
+        index.removeFiles(reindexed);
+        indexFiles(project);
+        index.setSourceFingerprint(SourceFingerprint.of(Paths.get(index.getProjectPath()), files));
+
+        IndexUpdate update = new IndexUpdate(added.size(), changed.size(), deleted.size(), dependents.size(),
+                System.currentTimeMillis() - startTime);
+        if (debug) System.out.println("增量更新完成: " + update);
+        return update;
+    }
+
+    /**
+     * 判断文件是否被修改：大小和修改时间一致时视为未修改，否则比较内容哈希
+     */
+    private boolean isModified(Path path, FileContribution contribution) {
+        try {
+            FileFingerprint old = contribution.getFingerprint();
+            if (old == null) return true;
+            if (old.sameMetadata(path)) return false;
+
+            FileFingerprint current = FileFingerprint.of(path);
+            if (current.getContentHash() == old.getContentHash() && current.getSize() == old.getSize()) {
+                // 仅修改时间变化，更新记录的指纹即可
+                contribution.setFingerprint(current);
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * 文件在索引中的贡献；源码归档为其中全部条目的贡献
+     */
+    private Collection<FileContribution> contributionsOf(Path path) {
+        if (SourceArchive.isArchive(path)) {
+            return new ArrayList<>(index.getArchiveEntries(path).values());
+        }
+        FileContribution contribution = index.getFiles().get(path.toString());
+        return contribution == null ? Collections.<FileContribution>emptyList() : Collections.singletonList(contribution);
+    }
+
+    private List<Path> listJavaFiles() {
+        long phaseStart = metrics.startTime();
+        List<Path> files = index.getSourceDiscovery().discover(Paths.get(index.getProjectPath()));
+        metrics.endPhase(AnalysisMetrics.PHASE_DISCOVER, phaseStart);
+        return files;
+    }
+
+    private ParsedProject parse(List<Path> files) {
+        ProjectParser parser = new ProjectParser(parallelism, metrics);
+        if (debug) System.out.println("开始解析 " + files.size() + " 个文件，并行度: " + parser.getParallelism());
+
+        ParsedProject project = parser.parse(files);
+
+        if (debug) {
+            project.getFailures().forEach((path, message) -> System.err.println("解析文件失败: " + path + " - " + message));
+            System.out.println("解析完成，耗时: " + project.getElapsedMillis() + "ms，成功 " +
+                    project.getSummaries().size() + " 个文件，失败 " + project.getFailures().size() + " 个文件");
+        }
+        return project;
+    }
+
+    /**
+     * 由文件摘要构建缓存，并记录每个文件的贡献
+     */
+    private void indexFiles(ParsedProject project) {
+        if (debug) System.out.println("开始构建缓存...");
+        long startTime = System.currentTimeMillis();
+        long phaseStart = metrics.startTime();
+
+        Map<String, FileContribution> contributions = new LinkedHashMap<>();
+        project.getFingerprints().forEach((path, fingerprint) ->
+                contributions.put(path, new FileContribution(path, fingerprint)));
+        project.getFailures().forEach((path, message) ->
+                contributions.computeIfAbsent(path, p -> new FileContribution(p, null)).setParseFailure(message));
+
+        // 第一遍：收集类和字段信息
+        for (Map.Entry<String, FileSummary> entry : project.getSummaries().entrySet()) {
+            FileContribution file = contributions.computeIfAbsent(entry.getKey(), p -> new FileContribution(p, null));
+            collectClasses(entry.getValue(), file);
+        }
+
+        // 第二遍：构建其他缓存，精确模式下被调用类依赖第一遍收集的字段、返回类型和父类
+        TypeResolver resolver = index.isPreciseTypes() ? new TypeResolver(index, ClassHierarchy.build(index)) : null;
+        int unresolved = 0;
+        for (Map.Entry<String, FileSummary> entry : project.getSummaries().entrySet()) {
+            unresolved += collectMethods(entry.getValue(), contributions.get(entry.getKey()), resolver);
+        }
+        if (resolver != null) {
+            metrics.addCount(AnalysisMetrics.COUNT_UNRESOLVED_CALLS, unresolved);
+            metrics.addCount(AnalysisMetrics.COUNT_TYPE_CACHE_HITS, resolver.getCacheHits());
+            metrics.addCount(AnalysisMetrics.COUNT_TYPE_CACHE_MISSES, resolver.getCacheMisses());
+            if (debug) System.out.println("类型解析: " + unresolved + " 个调用无法确定被调用类，缓存命中 "
+                    + resolver.getCacheHits() + " 次，未命中 " + resolver.getCacheMisses() + " 次");
+        }
+
+        index.getFiles().putAll(contributions);
+        metrics.endPhase(AnalysisMetrics.PHASE_LINK, phaseStart);
+
+        long endTime = System.currentTimeMillis();
+        if (debug) System.out.println("缓存构建完成，耗时: " + (endTime - startTime) + "ms");
+        if (debug) System.out.println("缓存统计: " + index.getMethodDefinitions().size() + " 个方法定义, " +
+                index.getMethodCallers().size() + " 个调用关系, " +
+                index.getRestControllerMethods().size() + " 个REST控制器方法, " +
+                index.getConstantReferences().size() + " 个常量引用");
+    }
+
+    /**
+     * 收集类级别信息：字段声明、父类及全部直接父类型、类上的映射、接口中的方法映射、方法返回类型
+     */
+    private void collectClasses(FileSummary summary, FileContribution file) {
+        for (ClassSummary cls : summary.getClasses()) {
+            String className = cls.getName();
+            index.getFieldDeclarations().put(className, new HashMap<>(cls.getFields()));
+            file.getClassNames().add(className);
+            file.setPackageName(cls.getPackageName());
+
+            if (cls.getSuperClass() != null) {
+                index.getSuperClasses().put(className, cls.getSuperClass());
+            }
+            if (!cls.getExtendedTypes().isEmpty() || !cls.getImplementedTypes().isEmpty()) {
+                List<String> superTypes = new ArrayList<>(cls.getExtendedTypes());
+                superTypes.addAll(cls.getImplementedTypes());
+                index.getSuperTypes().put(className, superTypes);
+            }
+            if (cls.hasRequestMapping()) {
+                index.getClassMappings().put(className, cls.getRequestMapping());
+            }
+            file.getImplementedInterfaces().addAll(cls.getImplementedTypes());
+
+            // 如果是接口，收集接口中的方法映射信息
+            if (cls.isInterface() && !cls.getInterfaceMethodMappings().isEmpty()) {
+                index.getInterfaceMethodMappings().put(className, new HashMap<>(cls.getInterfaceMethodMappings()));
+            }
+            if (!cls.getMethodReturnTypes().isEmpty()) {
+                index.getMethodReturnTypes().put(className, new HashMap<>(cls.getMethodReturnTypes()));
+            }
+        }
+    }
+
+    /**
+     * 收集方法定义、REST控制器方法、调用关系和常量引用。
+     * 类是否为Controller以及类级别的映射路径每个类只计算一次
+     *
+     * @param resolver 精确模式下的类型解析器，启发式模式下为null
+     * @return 无法确定被调用类的调用数
+     */
+    private int collectMethods(FileSummary summary, FileContribution file, TypeResolver resolver) {
+        int unresolved = 0;
+        SymbolTable symbols = index.getSymbols();
+        String filePath = symbols.intern(summary.getFilePath());
+        // 类 -> 类级别的映射路径，不是Controller类时为null
+        Map<ClassSummary, String> controllerClasses = new IdentityHashMap<>();
+
+        for (MethodSummary method : summary.getMethods()) {
+            String className = symbols.intern(method.getClassName());
+            String methodName = symbols.intern(method.getName());
+            String methodSignature = symbols.intern(method.getSignature());
+            MethodDescriptor methodDef = new MethodDescriptor(className, methodName, methodSignature, filePath,
+                    method.getBeginLine(), method.getEndLine());
+
+            // 添加到方法定义缓存
+            index.addMethod(file, methodDef);
+
+            // 检查是否为REST控制器方法：所在类是Controller，且方法本身有映射注解或实现了接口中的映射方法
+            ClassSummary owner = method.getOwner();
+            String classLevelMapping = null;
+            if (owner != null) {
+                if (!controllerClasses.containsKey(owner)) {
+                    controllerClasses.put(owner, isControllerClass(owner) ? extractClassLevelMapping(owner) : null);
+                }
+                classLevelMapping = controllerClasses.get(owner);
+            }
+            String interfaceMapping = classLevelMapping != null && method.getMapping() == null
+                    ? getInterfaceMethodMapping(owner, method) : null;
+            if (classLevelMapping != null && (method.hasMappingAnnotation() || interfaceMapping != null)) {
+                index.getRestControllerMethods().add(methodDef.toString());
+
+                // 提取URL映射信息：优先使用方法本身的映射，其次是接口中对应方法的映射
+                String methodLevelMapping = method.getMapping() != null ? method.getMapping()
+                        : interfaceMapping != null ? interfaceMapping : "";
+
+                ControllerMethodDescriptor controllerInfo = new ControllerMethodDescriptor(
+                        className, methodName, methodSignature,
+                        classLevelMapping, methodLevelMapping, filePath);
+
+                index.getControllerMethodUrls().put(methodDef.toString(), controllerInfo);
+            }
+
+            for (String constantName : method.getConstantReferences()) {
+                index.addConstantReference(file, constantName, methodDef);
+            }
+
+            for (int i = 0; i < method.getCallCount(); i++) {
+                String calledMethodName = method.getCalledMethod(i);
+
+                // 获取被调用方法的类名
+                String calledClassName;
+                if (resolver == null) {
+                    calledClassName = resolveCalledClass(className, method.getCallScope(i));
+                } else {
+                    calledClassName = resolveCalledClass(resolver, file, className, method.getCallScopeType(i));
+                    if (calledClassName == null) {
+                        unresolved++;
+                        continue;
+                    }
+                }
+
+                // 添加调用关系和调用位置到缓存 (被调用方法 -> 调用者方法)
+                String argumentTypes = resolveArgumentTypes(resolver, file, className, method.getCallArguments(i));
+                index.addCallSite(file, calledClassName, calledMethodName, argumentTypes, methodDef);
+            }
+        }
+        return unresolved;
+    }
+
+    /**
+     * 由作用域的静态类型解析被调用方法的类名，并记录解析时查找过的类
+     *
+     * @param scopeType 作用域的静态类型，没有作用域时为null
+     * @return 被调用类名，无法确定时为null
+     */
+    private String resolveCalledClass(TypeResolver resolver, FileContribution file, String callerClassName,
+                                      ScopeType scopeType) {
+        if (scopeType == null) return callerClassName;
+        TypeResolver.Resolution resolution = resolver.resolve(callerClassName, scopeType);
+        Collections.addAll(file.getResolvedTypes(), resolution.getConsulted());
+        return resolution.getType();
+    }
+
+    /**
+     * 解析实参类型。启发式模式只使用单个文件中已确定的类型，精确模式下与作用域一样跨文件解析
+     *
+     * @return 以逗号分隔的实参类型，无法确定的参数为"?"；未知参数个数时为null
+     */
+    private String resolveArgumentTypes(TypeResolver resolver, FileContribution file, String callerClassName,
+                                        ScopeType[] argumentTypes) {
+        if (argumentTypes == null) return null;
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < argumentTypes.length; i++) {
+            ScopeType argumentType = argumentTypes[i];
+            String type;
+            if (resolver != null && argumentType.getKind() != ScopeType.Kind.UNKNOWN) {
+                type = resolveCalledClass(resolver, file, callerClassName, argumentType);
+            } else if (argumentType.getKind() == ScopeType.Kind.TYPE && argumentType.getMemberCount() == 0) {
+                type = argumentType.getName();
+            } else {
+                type = null;
+            }
+            if (i > 0) result.append(',');
+            result.append(type == null ? "?" : type);
+        }
+        return result.toString();
+    }
+
+    /**
+     * 解析被调用方法的类名
+     *
+     * @param scopeStr 调用的作用域表达式，没有作用域时为null
+     */
+    private String resolveCalledClass(String callerClassName, String scopeStr) {
+        String calledClassName = callerClassName; // 默认为同类调用
+
+        if (scopeStr != null) {
+            // 移除Optional包装（如果存在）
+            if (scopeStr.startsWith("Optional[")) {
+                scopeStr = scopeStr.substring(9, scopeStr.length() - 1);
+            }
+
+            // 处理super调用
+            if ("super".equals(scopeStr)) {
+                // 查找父类信息
+                calledClassName = resolveSuperClass(callerClassName);
+                return calledClassName;
+            }
+
+            // 处理this调用
+            if ("this".equals(scopeStr)) {
+                return callerClassName;
+            }
+
+            Map<String, Map<String, String>> fieldDeclarations = index.getFieldDeclarations();
+            // 处理完全限定名
+            if (scopeStr.contains(".")) {
+                calledClassName = scopeStr.substring(scopeStr.lastIndexOf('.') + 1);
+            }
+            // 处理字段访问（依赖注入的情况）
+            else if (fieldDeclarations.containsKey(callerClassName) &&
+                    fieldDeclarations.get(callerClassName).containsKey(scopeStr)) {
+                calledClassName = fieldDeclarations.get(callerClassName).get(scopeStr);
+            }
+            // 处理其他类的实例调用
+            else if (!scopeStr.equals(callerClassName)) {
+                calledClassName = scopeStr;
+            }
+        }
+
+        return calledClassName;
+    }
+
+    /**
+     * 解析父类名称
+     */
+    private String resolveSuperClass(String className) {
+        return index.getSuperClasses().getOrDefault(className, className);
+    }
+
+    /**
+     * 检查类是否为Controller：使用了@RestController或@Controller注解，或实现了带有@RequestMapping的接口
+     */
+    private boolean isControllerClass(ClassSummary classDecl) {
+        if (classDecl.isInterface()) {
+            return false;
+        }
+
+        if (classDecl.isAnnotationPresent("RestController") || classDecl.isAnnotationPresent("Controller")) {
+            return true;
+        }
+
+        for (String interfaceName : classDecl.getImplementedTypes()) {
+            if (hasRequestMappingInInterface(interfaceName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 检查接口是否包含@RequestMapping注解
+     */
+    private boolean hasRequestMappingInInterface(String interfaceName) {
+        return index.getClassMappings().containsKey(interfaceName);
+    }
+
+    /**
+     * 提取类级别的@RequestMapping映射路径
+     */
+    private String extractClassLevelMapping(ClassSummary cls) {
+        if (cls != null) {
+            // 检查类上的@RequestMapping注解
+            if (cls.getRequestMapping() != null) {
+                return cls.getRequestMapping();
+            }
+
+            // 如果是实现类，检查接口上的@RequestMapping注解
+            if (!cls.isInterface()) {
+                for (String interfaceName : cls.getImplementedTypes()) {
+                    String interfaceMapping = getInterfaceMapping(interfaceName);
+                    if (interfaceMapping != null) {
+                        return interfaceMapping;
+                    }
+                }
+            }
+        }
+
+        return "";
+    }
+
+    /**
+     * 获取接口上的@RequestMapping映射路径
+     */
+    private String getInterfaceMapping(String interfaceName) {
+        return index.getClassMappings().get(interfaceName);
+    }
+
+    /**
+     * 在类实现的接口中查找与方法签名一致的方法映射
+     */
+    private String getInterfaceMethodMapping(ClassSummary classDecl, MethodSummary method) {
+        for (String interfaceName : classDecl.getImplementedTypes()) {
+            Map<String, String> mappings = index.getInterfaceMethodMappings().get(interfaceName);
+            if (mappings != null) {
+                String mapping = mappings.get(method.getName() + "#" + method.getSignature());
+                if (mapping != null) {
+                    return mapping;
+                }
+            }
+        }
+        return null;
+    }
+}
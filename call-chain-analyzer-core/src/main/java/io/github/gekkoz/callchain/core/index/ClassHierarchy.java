@@ -0,0 +1,280 @@
+package io.github.gekkoz.callchain.core.index;
+
+import java.util.*;
+
+/**
+ * 由 {@link CallGraphIndex} 中的父类型关系编译得到的只读类层次索引。
+ * 每个出现过的类型名（声明的类、接口以及被继承、实现的类型）分配一个稠密的整数ID，
+ * 直接父类型、直接子类型以及父类型的传递闭包、子类型的传递闭包都以CSR数组（offsets + ids）存储。
+ * 父类型闭包按距离由近到远排列，另存一份按ID排序的副本用于判断子类型关系；
+ * 继承关系成环时闭包中不包含类型自身。
+ */
+public final class ClassHierarchy {
+
+    private final String[] names;
+    private final Map<String, Integer> ids;
+
+    // 类型 -> 第一个父类，没有时为-1
+    private final int[] superClasses;
+
+    private final int[] superOffsets;
+    private final int[] supers;
+    private final int[] subOffsets;
+    private final int[] subs;
+
+    // 父类型闭包，由近到远；sortedAncestors 与其区间相同，按ID升序
+    private final int[] ancestorOffsets;
+    private final int[] ancestors;
+    private final int[] sortedAncestors;
+
+    // 子类型闭包，按ID升序
+    private final int[] descendantOffsets;
+    private final int[] descendants;
+
+    private ClassHierarchy(String[] names, Map<String, Integer> ids, int[] superClasses,
+                           int[] superOffsets, int[] supers, int[] subOffsets, int[] subs,
+                           int[] ancestorOffsets, int[] ancestors, int[] sortedAncestors,
+                           int[] descendantOffsets, int[] descendants) {
+        this.names = names;
+        this.ids = ids;
+        this.superClasses = superClasses;
+        this.superOffsets = superOffsets;
+        this.supers = supers;
+        this.subOffsets = subOffsets;
+        this.subs = subs;
+        this.ancestorOffsets = ancestorOffsets;
+        this.ancestors = ancestors;
+        this.sortedAncestors = sortedAncestors;
+        this.descendantOffsets = descendantOffsets;
+        this.descendants = descendants;
+    }
+
+    /**
+     * 编译索引中的父类和直接父类型，类型按名称排序编号，结果与索引的构建方式无关
+     */
+    public static ClassHierarchy build(CallGraphIndex index) {
+        Set<String> nameSet = new TreeSet<>();
+        index.getSuperTypes().forEach((name, superTypes) -> {
+            nameSet.add(name);
+            nameSet.addAll(superTypes);
+        });
+        index.getSuperClasses().forEach((name, superClass) -> {
+            nameSet.add(name);
+            nameSet.add(superClass);
+        });
+        String[] names = nameSet.toArray(new String[0]);
+        int count = names.length;
+        Map<String, Integer> ids = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            ids.put(names[i], i);
+        }
+
+        int[] superClasses = new int[count];
+        Arrays.fill(superClasses, -1);
+        index.getSuperClasses().forEach((name, superClass) -> superClasses[ids.get(name)] = ids.get(superClass));
+
+        // 直接父类型，去重并保持声明顺序
+        int[][] direct = new int[count][];
+        for (int i = 0; i < count; i++) {
+            List<String> superTypes = index.getSuperTypes().get(names[i]);
+            LinkedHashSet<Integer> set = new LinkedHashSet<>();
+            if (superClasses[i] >= 0) set.add(superClasses[i]);
+            if (superTypes != null) {
+                for (String superType : superTypes) set.add(ids.get(superType));
+            }
+            set.remove(i);
+            direct[i] = toArray(set);
+        }
+        int[] superOffsets = new int[count + 1];
+        int[] supers = flatten(direct, superOffsets);
+        int[] subOffsets = new int[count + 1];
+        int[] subs = transpose(superOffsets, supers, count, subOffsets);
+
+        // 父类型闭包：从每个类型出发沿直接父类型广度优先遍历
+        int[] ancestorOffsets = new int[count + 1];
+        int[] ancestors = new int[Math.max(16, supers.length)];
+        int size = 0;
+        int[] visited = new int[count];
+        for (int i = 0; i < count; i++) {
+            int start = size;
+            visited[i] = i + 1;
+            if (ancestors.length < size + count) ancestors = Arrays.copyOf(ancestors, Math.max(ancestors.length * 2, size + count));
+            for (int p = superOffsets[i]; p < superOffsets[i + 1]; p++) {
+                if (visited[supers[p]] != i + 1) {
+                    visited[supers[p]] = i + 1;
+                    ancestors[size++] = supers[p];
+                }
+            }
+            for (int q = start; q < size; q++) {
+                int current = ancestors[q];
+                for (int p = superOffsets[current]; p < superOffsets[current + 1]; p++) {
+                    if (visited[supers[p]] != i + 1) {
+                        visited[supers[p]] = i + 1;
+                        ancestors[size++] = supers[p];
+                    }
+                }
+            }
+            ancestorOffsets[i + 1] = size;
+        }
+        ancestors = Arrays.copyOf(ancestors, size);
+        int[] sortedAncestors = ancestors.clone();
+        for (int i = 0; i < count; i++) {
+            Arrays.sort(sortedAncestors, ancestorOffsets[i], ancestorOffsets[i + 1]);
+        }
+        int[] descendantOffsets = new int[count + 1];
+        int[] descendants = transpose(ancestorOffsets, ancestors, count, descendantOffsets);
+
+        return new ClassHierarchy(names, ids, superClasses, superOffsets, supers, subOffsets, subs,
+                ancestorOffsets, ancestors, sortedAncestors, descendantOffsets, descendants);
+    }
+
+    /**
+     * 类型数量
+     */
+    public int getTypeCount() {
+        return names.length;
+    }
+
+    /**
+     * 类型名对应的ID，类型没有出现在任何继承关系中时返回-1
+     */
+    public int idOf(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public String getName(int id) {
+        return names[id];
+    }
+
+    /**
+     * 第一个父类，没有时为null
+     */
+    public String getSuperClass(String name) {
+        int id = idOf(name);
+        return id < 0 || superClasses[id] < 0 ? null : names[superClasses[id]];
+    }
+
+    /**
+     * sub是否为sup的子类型（直接或间接继承、实现），类型与自身不构成子类型关系
+     */
+    public boolean isSubtypeOf(String sub, String sup) {
+        int subId = idOf(sub);
+        int supId = idOf(sup);
+        return subId >= 0 && supId >= 0 && isSubtypeOf(subId, supId);
+    }
+
+    public boolean isSubtypeOf(int sub, int sup) {
+        return Arrays.binarySearch(sortedAncestors, ancestorOffsets[sub], ancestorOffsets[sub + 1], sup) >= 0;
+    }
+
+    /**
+     * 全部父类型，由近到远
+     */
+    public List<String> getSupertypes(String name) {
+        int id = idOf(name);
+        return id < 0 ? Collections.<String>emptyList() : names(ancestors, ancestorOffsets[id], ancestorOffsets[id + 1]);
+    }
+
+    /**
+     * 全部子类型，按名称排序
+     */
+    public List<String> getSubtypes(String name) {
+        int id = idOf(name);
+        return id < 0 ? Collections.<String>emptyList() : names(descendants, descendantOffsets[id], descendantOffsets[id + 1]);
+    }
+
+    /**
+     * 直接父类型，父类在前，其余按声明顺序
+     */
+    public List<String> getDirectSupertypes(String name) {
+        int id = idOf(name);
+        return id < 0 ? Collections.<String>emptyList() : names(supers, superOffsets[id], superOffsets[id + 1]);
+    }
+
+    /**
+     * 直接子类型，按名称排序
+     */
+    public List<String> getDirectSubtypes(String name) {
+        int id = idOf(name);
+        return id < 0 ? Collections.<String>emptyList() : names(subs, subOffsets[id], subOffsets[id + 1]);
+    }
+
+    /**
+     * 父类型闭包在数组中的起始位置，配合 {@link #getSupertype(int)} 使用
+     */
+    public int supertypesStart(int id) {
+        return ancestorOffsets[id];
+    }
+
+    /**
+     * 父类型闭包在数组中的结束位置（不含）
+     */
+    public int supertypesEnd(int id) {
+        return ancestorOffsets[id + 1];
+    }
+
+    public int getSupertype(int position) {
+        return ancestors[position];
+    }
+
+    /**
+     * 子类型闭包在数组中的起始位置，配合 {@link #getSubtype(int)} 使用
+     */
+    public int subtypesStart(int id) {
+        return descendantOffsets[id];
+    }
+
+    /**
+     * 子类型闭包在数组中的结束位置（不含）
+     */
+    public int subtypesEnd(int id) {
+        return descendantOffsets[id + 1];
+    }
+
+    public int getSubtype(int position) {
+        return descendants[position];
+    }
+
+    private List<String> names(int[] values, int from, int to) {
+        List<String> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            result.add(names[values[i]]);
+        }
+        return result;
+    }
+
+    private static int[] toArray(Collection<Integer> values) {
+        int[] result = new int[values.size()];
+        int i = 0;
+        for (int value : values) result[i++] = value;
+        return result;
+    }
+
+    private static int[] flatten(int[][] lists, int[] offsets) {
+        for (int i = 0; i < lists.length; i++) {
+            offsets[i + 1] = offsets[i] + lists[i].length;
+        }
+        int[] result = new int[offsets[lists.length]];
+        for (int i = 0; i < lists.length; i++) {
+            System.arraycopy(lists[i], 0, result, offsets[i], lists[i].length);
+        }
+        return result;
+    }
+
+    /**
+     * 转置CSR邻接表，结果中每个区间按ID升序
+     */
+    private static int[] transpose(int[] offsets, int[] values, int count, int[] resultOffsets) {
+        for (int value : values) resultOffsets[value + 1]++;
+        for (int i = 0; i < count; i++) resultOffsets[i + 1] += resultOffsets[i];
+        int[] result = new int[values.length];
+        int[] fill = Arrays.copyOf(resultOffsets, count);
+        for (int i = 0; i < count; i++) {
+            for (int p = offsets[i]; p < offsets[i + 1]; p++) {
+                result[fill[values[p]]++] = i;
+            }
+        }
+        return result;
+    }
+}
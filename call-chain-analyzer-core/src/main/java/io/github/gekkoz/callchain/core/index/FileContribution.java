@@ -0,0 +1,158 @@
+package io.github.gekkoz.callchain.core.index;
+
+import io.github.gekkoz.callchain.core.descriptor.MethodDescriptor;
+import io.github.gekkoz.callchain.core.parse.FileFingerprint;
+
+import java.util.*;
+
+/**
+ * 单个源文件对索引的贡献记录。
+ * 增量更新时先按记录从索引中撤销该文件的全部条目，再用重新解析的结果补回。
+ */
+public class FileContribution {
+
+    private final String filePath;
+    private FileFingerprint fingerprint;
+    private String parseFailure;
+
+    // 文件中声明的包名，默认包为空字符串，没有类声明或解析失败时为null
+    private String packageName;
+
+    // 文件中声明的类（字段声明、父类、类级映射、接口映射均以类名为键）
+    private final List<String> classNames = new ArrayList<>();
+
+    // 文件中的类实现的接口，接口变化时这些文件需要重新计算控制器信息
+    private final Set<String> implementedInterfaces = new LinkedHashSet<>();
+
+    // 精确模式下解析调用作用域时查找过的类，这些类变化后文件需要重新链接
+    private final Set<String> resolvedTypes = new LinkedHashSet<>();
+
+    // 文件中定义的方法（REST控制器方法和URL映射以其toString()为键）
+    private final List<MethodDescriptor> methods = new ArrayList<>();
+
+    // 调用位置，与调用关系一一对应：被调用类、被调用方法、实参类型、调用者
+    private final List<String> calledClasses = new ArrayList<>();
+    private final List<String> calledMethods = new ArrayList<>();
+    private final List<String> argumentTypes = new ArrayList<>();
+    private final List<MethodDescriptor> callers = new ArrayList<>();
+
+    // 常量引用：名称、引用它的方法
+    private final List<String> referenceNames = new ArrayList<>();
+    private final List<MethodDescriptor> referencingMethods = new ArrayList<>();
+
+    public FileContribution(String filePath, FileFingerprint fingerprint) {
+        this.filePath = filePath;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * 复制贡献记录，方法描述在副本间共享
+     */
+    FileContribution copy() {
+        FileContribution copy = new FileContribution(filePath, fingerprint);
+        copy.parseFailure = parseFailure;
+        copy.packageName = packageName;
+        copy.classNames.addAll(classNames);
+        copy.implementedInterfaces.addAll(implementedInterfaces);
+        copy.resolvedTypes.addAll(resolvedTypes);
+        copy.methods.addAll(methods);
+        copy.calledClasses.addAll(calledClasses);
+        copy.calledMethods.addAll(calledMethods);
+        copy.argumentTypes.addAll(argumentTypes);
+        copy.callers.addAll(callers);
+        copy.referenceNames.addAll(referenceNames);
+        copy.referencingMethods.addAll(referencingMethods);
+        return copy;
+    }
+
+    void addCallSite(String calledClassName, String calledMethodName, String argumentTypes, MethodDescriptor caller) {
+        calledClasses.add(calledClassName);
+        calledMethods.add(calledMethodName);
+        this.argumentTypes.add(argumentTypes);
+        callers.add(caller);
+    }
+
+    void addConstantReference(String name, MethodDescriptor method) {
+        referenceNames.add(name);
+        referencingMethods.add(method);
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public FileFingerprint getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(FileFingerprint fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public String getParseFailure() {
+        return parseFailure;
+    }
+
+    public void setParseFailure(String parseFailure) {
+        this.parseFailure = parseFailure;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public void setPackageName(String packageName) {
+        this.packageName = packageName;
+    }
+
+    public List<String> getClassNames() {
+        return classNames;
+    }
+
+    public Set<String> getImplementedInterfaces() {
+        return implementedInterfaces;
+    }
+
+    public Set<String> getResolvedTypes() {
+        return resolvedTypes;
+    }
+
+    public List<MethodDescriptor> getMethods() {
+        return methods;
+    }
+
+    public int getCallSiteCount() {
+        return callers.size();
+    }
+
+    public String getCalledClass(int i) {
+        return calledClasses.get(i);
+    }
+
+    public String getCalledMethod(int i) {
+        return calledMethods.get(i);
+    }
+
+    /**
+     * 调用的实参类型，见 {@link CallGraphIndex#addCallSite(FileContribution, String, String, String, MethodDescriptor)}
+     */
+    public String getArgumentTypes(int i) {
+        return argumentTypes.get(i);
+    }
+
+    public MethodDescriptor getCaller(int i) {
+        return callers.get(i);
+    }
+
+    public int getConstantReferenceCount() {
+        return referenceNames.size();
+    }
+
+    public String getReferenceName(int i) {
+        return referenceNames.get(i);
+    }
+
+    public MethodDescriptor getReferencingMethod(int i) {
+        return referencingMethods.get(i);
+    }
+}
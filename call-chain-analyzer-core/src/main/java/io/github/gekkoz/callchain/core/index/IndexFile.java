@@ -0,0 +1,505 @@
+package io.github.gekkoz.callchain.core.index;
+
+import io.github.gekkoz.callchain.core.descriptor.ControllerMethodDescriptor;
+import io.github.gekkoz.callchain.core.descriptor.MethodDescriptor;
+import io.github.gekkoz.callchain.core.parse.FileFingerprint;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * 调用图索引的二进制文件格式。
+ * <pre>
+ * 文件头    : magic(int) version(int)
+ * 字符串表  : count, (byteLength, UTF-8字节)*
+ * 描述符表  : count, (className, methodName, methodSignature, filePath, beginLine, endLine)*   -- 前四项为字符串编号
+ * 元数据    : projectPath, sourceFingerprint(long), preciseTypes(byte)
+ * 各缓存区段: 依次为方法定义、调用关系、REST控制器方法、字段声明、接口映射、Controller URL、调用位置、常量引用、
+ *            类级映射、父类、直接父类型、方法返回类型
+ * 文件区段  : count, (filePath, size(long), lastModified(long), contentHash(long), parseFailure, packageName,
+ *              classNames, implementedInterfaces, resolvedTypes, methods, callSites, constantReferences)*
+ * 文件调用位置: count, (calledClass, calledMethod, argumentTypes, caller)*
+ * </pre>
+ * 所有整数为大端序，字符串和方法描述符只存储一次，区段中通过编号引用；空值使用编号-1表示。
+ * 读取时把整个文件读入堆内存再解码，不保留文件映射，因此随后可以原子替换同一个文件；
+ * 各数量在分配前按剩余字节数校验，损坏的文件不会导致分配过大的数组。
+ */
+public final class IndexFile {
+
+    public static final int MAGIC = 0x43434958; // "CCIX"
+    public static final int VERSION = 7;
+
+    private IndexFile() {
+    }
+
+    /**
+     * 将索引写入文件，先写临时文件再原子替换，避免留下不完整的索引
+     */
+    public static void write(CallGraphIndex index, Path file) throws IOException {
+        Writer writer = new Writer(index);
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            writer.writeTo(out);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 读取索引文件
+     *
+     * @throws IOException 文件不存在、格式不匹配、版本不兼容或文件已损坏时抛出
+     */
+    public static CallGraphIndex read(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        try {
+            return new Reader(buffer, file).read();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("索引文件已损坏: " + file, e);
+        }
+    }
+
+    private static final class Writer {
+        private final CallGraphIndex index;
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final Map<MethodDescriptor, Integer> descriptors = new IdentityHashMap<>();
+        private final List<MethodDescriptor> descriptorList = new ArrayList<>();
+
+        Writer(CallGraphIndex index) {
+            this.index = index;
+            collect();
+        }
+
+        // 预先收集所有字符串和方法描述符，为其分配编号
+        private void collect() {
+            str(index.getProjectPath());
+            index.getMethodDefinitions().forEach((key, list) -> {
+                str(key);
+                list.forEach(this::desc);
+            });
+            index.getMethodCallers().forEach((key, callers) -> {
+                str(key);
+                callers.forEach(this::str);
+            });
+            index.getRestControllerMethods().forEach(this::str);
+            collectNested(index.getFieldDeclarations());
+            collectNested(index.getInterfaceMethodMappings());
+            index.getControllerMethodUrls().forEach((key, info) -> {
+                str(key);
+                str(info.getClassName());
+                str(info.getMethodName());
+                str(info.getMethodSignature());
+                str(info.getClassLevelMapping());
+                str(info.getMethodLevelMapping());
+                str(info.getFilePath());
+            });
+            index.getCallSites().forEach((calledClass, methods) -> {
+                str(calledClass);
+                methods.forEach((calledMethod, callers) -> {
+                    str(calledMethod);
+                    callers.forEach(this::desc);
+                });
+            });
+            index.getConstantReferences().forEach((name, list) -> {
+                str(name);
+                list.forEach(this::desc);
+            });
+            collectFlat(index.getClassMappings());
+            collectFlat(index.getSuperClasses());
+            index.getSuperTypes().forEach((name, superTypes) -> {
+                str(name);
+                superTypes.forEach(this::str);
+            });
+            collectNested(index.getMethodReturnTypes());
+            index.getFiles().forEach((path, file) -> {
+                str(path);
+                str(file.getParseFailure());
+                str(file.getPackageName());
+                file.getClassNames().forEach(this::str);
+                file.getImplementedInterfaces().forEach(this::str);
+                file.getResolvedTypes().forEach(this::str);
+                file.getMethods().forEach(this::desc);
+                for (int i = 0; i < file.getCallSiteCount(); i++) {
+                    str(file.getCalledClass(i));
+                    str(file.getCalledMethod(i));
+                    str(file.getArgumentTypes(i));
+                    desc(file.getCaller(i));
+                }
+                for (int i = 0; i < file.getConstantReferenceCount(); i++) {
+                    str(file.getReferenceName(i));
+                    desc(file.getReferencingMethod(i));
+                }
+            });
+        }
+
+        private void collectFlat(Map<String, String> map) {
+            map.forEach((k, v) -> {
+                str(k);
+                str(v);
+            });
+        }
+
+        private void collectNested(Map<String, Map<String, String>> map) {
+            map.forEach((key, inner) -> {
+                str(key);
+                inner.forEach((k, v) -> {
+                    str(k);
+                    str(v);
+                });
+            });
+        }
+
+        private int str(String s) {
+            if (s == null) return -1;
+            Integer id = strings.get(s);
+            if (id == null) {
+                id = strings.size();
+                strings.put(s, id);
+            }
+            return id;
+        }
+
+        private int desc(MethodDescriptor d) {
+            Integer id = descriptors.get(d);
+            if (id == null) {
+                id = descriptorList.size();
+                descriptors.put(d, id);
+                descriptorList.add(d);
+                str(d.getClassName());
+                str(d.getMethodName());
+                str(d.getMethodSignature());
+                str(d.getFilePath());
+            }
+            return id;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(strings.size());
+            for (String s : strings.keySet()) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            out.writeInt(descriptorList.size());
+            for (MethodDescriptor d : descriptorList) {
+                out.writeInt(str(d.getClassName()));
+                out.writeInt(str(d.getMethodName()));
+                out.writeInt(str(d.getMethodSignature()));
+                out.writeInt(str(d.getFilePath()));
+                out.writeInt(d.getBeginLine());
+                out.writeInt(d.getEndLine());
+            }
+
+            out.writeInt(str(index.getProjectPath()));
+            out.writeLong(index.getSourceFingerprint());
+            out.writeByte(index.isPreciseTypes() ? 1 : 0);
+
+            out.writeInt(index.getMethodDefinitions().size());
+            for (Map.Entry<String, List<MethodDescriptor>> e : index.getMethodDefinitions().entrySet()) {
+                out.writeInt(str(e.getKey()));
+                writeDescriptors(out, e.getValue());
+            }
+
+            out.writeInt(index.getMethodCallers().size());
+            for (Map.Entry<String, Set<String>> e : index.getMethodCallers().entrySet()) {
+                out.writeInt(str(e.getKey()));
+                writeStrings(out, e.getValue());
+            }
+
+            writeStrings(out, index.getRestControllerMethods());
+            writeNested(out, index.getFieldDeclarations());
+            writeNested(out, index.getInterfaceMethodMappings());
+
+            out.writeInt(index.getControllerMethodUrls().size());
+            for (Map.Entry<String, ControllerMethodDescriptor> e : index.getControllerMethodUrls().entrySet()) {
+                ControllerMethodDescriptor info = e.getValue();
+                out.writeInt(str(e.getKey()));
+                out.writeInt(str(info.getClassName()));
+                out.writeInt(str(info.getMethodName()));
+                out.writeInt(str(info.getMethodSignature()));
+                out.writeInt(str(info.getClassLevelMapping()));
+                out.writeInt(str(info.getMethodLevelMapping()));
+                out.writeInt(str(info.getFilePath()));
+            }
+
+            out.writeInt(index.getCallSites().size());
+            for (Map.Entry<String, Map<String, List<MethodDescriptor>>> e : index.getCallSites().entrySet()) {
+                out.writeInt(str(e.getKey()));
+                out.writeInt(e.getValue().size());
+                for (Map.Entry<String, List<MethodDescriptor>> m : e.getValue().entrySet()) {
+                    out.writeInt(str(m.getKey()));
+                    writeDescriptors(out, m.getValue());
+                }
+            }
+
+            out.writeInt(index.getConstantReferences().size());
+            for (Map.Entry<String, List<MethodDescriptor>> e : index.getConstantReferences().entrySet()) {
+                out.writeInt(str(e.getKey()));
+                writeDescriptors(out, e.getValue());
+            }
+
+            writeFlat(out, index.getClassMappings());
+            writeFlat(out, index.getSuperClasses());
+            out.writeInt(index.getSuperTypes().size());
+            for (Map.Entry<String, List<String>> e : index.getSuperTypes().entrySet()) {
+                out.writeInt(str(e.getKey()));
+                writeStrings(out, e.getValue());
+            }
+            writeNested(out, index.getMethodReturnTypes());
+
+            out.writeInt(index.getFiles().size());
+            for (FileContribution file : index.getFiles().values()) {
+                FileFingerprint fingerprint = file.getFingerprint();
+                out.writeInt(str(file.getFilePath()));
+                out.writeLong(fingerprint == null ? -1 : fingerprint.getSize());
+                out.writeLong(fingerprint == null ? -1 : fingerprint.getLastModified());
+                out.writeLong(fingerprint == null ? 0 : fingerprint.getContentHash());
+                out.writeInt(str(file.getParseFailure()));
+                out.writeInt(str(file.getPackageName()));
+                writeStrings(out, file.getClassNames());
+                writeStrings(out, file.getImplementedInterfaces());
+                writeStrings(out, file.getResolvedTypes());
+                writeDescriptors(out, file.getMethods());
+                out.writeInt(file.getCallSiteCount());
+                for (int i = 0; i < file.getCallSiteCount(); i++) {
+                    out.writeInt(str(file.getCalledClass(i)));
+                    out.writeInt(str(file.getCalledMethod(i)));
+                    out.writeInt(str(file.getArgumentTypes(i)));
+                    out.writeInt(desc(file.getCaller(i)));
+                }
+                out.writeInt(file.getConstantReferenceCount());
+                for (int i = 0; i < file.getConstantReferenceCount(); i++) {
+                    out.writeInt(str(file.getReferenceName(i)));
+                    out.writeInt(desc(file.getReferencingMethod(i)));
+                }
+            }
+        }
+
+        private void writeFlat(DataOutputStream out, Map<String, String> map) throws IOException {
+            out.writeInt(map.size());
+            for (Map.Entry<String, String> e : map.entrySet()) {
+                out.writeInt(str(e.getKey()));
+                out.writeInt(str(e.getValue()));
+            }
+        }
+
+        private void writeDescriptors(DataOutputStream out, List<MethodDescriptor> list) throws IOException {
+            out.writeInt(list.size());
+            for (MethodDescriptor d : list) {
+                out.writeInt(desc(d));
+            }
+        }
+
+        private void writeStrings(DataOutputStream out, Collection<String> values) throws IOException {
+            out.writeInt(values.size());
+            for (String s : values) {
+                out.writeInt(str(s));
+            }
+        }
+
+        private void writeNested(DataOutputStream out, Map<String, Map<String, String>> map) throws IOException {
+            out.writeInt(map.size());
+            for (Map.Entry<String, Map<String, String>> e : map.entrySet()) {
+                out.writeInt(str(e.getKey()));
+                out.writeInt(e.getValue().size());
+                for (Map.Entry<String, String> inner : e.getValue().entrySet()) {
+                    out.writeInt(str(inner.getKey()));
+                    out.writeInt(str(inner.getValue()));
+                }
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final ByteBuffer buffer;
+        private final Path source;
+        private String[] strings;
+        private MethodDescriptor[] descriptors;
+
+        Reader(ByteBuffer buffer, Path source) {
+            this.buffer = buffer;
+            this.source = source;
+        }
+
+        CallGraphIndex read() throws IOException {
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+                throw new IOException("不是有效的调用链索引文件");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("不支持的索引版本: " + version + "，当前版本: " + VERSION);
+            }
+
+            // 文件中的字符串表本身没有重复，载入共享表后增量更新时新解析的内容也能与之共享
+            SymbolTable symbols = new SymbolTable();
+            strings = new String[count(4)];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[count(1)];
+                buffer.get(bytes);
+                strings[i] = symbols.intern(new String(bytes, StandardCharsets.UTF_8));
+            }
+
+            descriptors = new MethodDescriptor[count(24)];
+            for (int i = 0; i < descriptors.length; i++) {
+                descriptors[i] = new MethodDescriptor(str(), str(), str(), str(), buffer.getInt(), buffer.getInt());
+                descriptors[i].internKey(symbols::intern);
+            }
+
+            CallGraphIndex index = new CallGraphIndex(str(), symbols);
+            index.setSourceFingerprint(buffer.getLong());
+            index.setPreciseTypes(buffer.get() != 0);
+
+            int count = count(8);
+            for (int i = 0; i < count; i++) {
+                index.getMethodDefinitions().put(str(), readDescriptors());
+            }
+
+            count = count(8);
+            for (int i = 0; i < count; i++) {
+                String key = str();
+                index.getMethodCallers().put(key, readStrings(new HashSet<>()));
+            }
+
+            readStrings(index.getRestControllerMethods());
+            readNested(index.getFieldDeclarations());
+            readNested(index.getInterfaceMethodMappings());
+
+            count = count(28);
+            for (int i = 0; i < count; i++) {
+                String key = str();
+                index.getControllerMethodUrls().put(key,
+                        new ControllerMethodDescriptor(str(), str(), str(), str(), str(), str()));
+            }
+
+            count = count(8);
+            for (int i = 0; i < count; i++) {
+                String calledClass = str();
+                int methodCount = count(8);
+                Map<String, List<MethodDescriptor>> methods = new HashMap<>();
+                for (int j = 0; j < methodCount; j++) {
+                    String calledMethod = str();
+                    methods.put(calledMethod, readDescriptors());
+                }
+                index.getCallSites().put(calledClass, methods);
+            }
+
+            count = count(8);
+            for (int i = 0; i < count; i++) {
+                String name = str();
+                index.getConstantReferences().put(name, readDescriptors());
+            }
+
+            readFlat(index.getClassMappings());
+            readFlat(index.getSuperClasses());
+            count = count(8);
+            for (int i = 0; i < count; i++) {
+                String name = str();
+                index.getSuperTypes().put(name, readStrings(new ArrayList<>()));
+            }
+            readNested(index.getMethodReturnTypes());
+
+            count = count(60);
+            for (int i = 0; i < count; i++) {
+                String path = str();
+                long size = buffer.getLong();
+                long lastModified = buffer.getLong();
+                long contentHash = buffer.getLong();
+                FileContribution file = new FileContribution(path,
+                        size < 0 ? null : new FileFingerprint(size, lastModified, contentHash));
+                file.setParseFailure(str());
+                file.setPackageName(str());
+                readStrings(file.getClassNames());
+                readStrings(file.getImplementedInterfaces());
+                readStrings(file.getResolvedTypes());
+                file.getMethods().addAll(readDescriptors());
+                int callSiteCount = count(16);
+                for (int j = 0; j < callSiteCount; j++) {
+                    String calledClass = str();
+                    String calledMethod = str();
+                    String argumentTypes = str();
+                    file.addCallSite(calledClass, calledMethod, argumentTypes, descriptors[buffer.getInt()]);
+                }
+                int referenceCount = count(8);
+                for (int j = 0; j < referenceCount; j++) {
+                    String name = str();
+                    file.addConstantReference(name, descriptors[buffer.getInt()]);
+                }
+                index.getFiles().put(path, file);
+            }
+
+            return index;
+        }
+
+        private void readFlat(Map<String, String> target) throws IOException {
+            int size = count(8);
+            for (int i = 0; i < size; i++) {
+                String key = str();
+                target.put(key, str());
+            }
+        }
+
+        /**
+         * 读取一个数量，每个元素至少占elementBytes字节；数量为负或超出剩余字节数时文件已损坏
+         */
+        private int count(int elementBytes) throws IOException {
+            int position = buffer.position();
+            int count = buffer.getInt();
+            if (count < 0 || (long) count * elementBytes > buffer.remaining()) {
+                throw new IOException("索引文件已损坏: " + source + "，第 " + position + " 字节处的数量 " + count + " 超出文件剩余长度");
+            }
+            return count;
+        }
+
+        private String str() {
+            int id = buffer.getInt();
+            return id < 0 ? null : strings[id];
+        }
+
+        private List<MethodDescriptor> readDescriptors() throws IOException {
+            int size = count(4);
+            List<MethodDescriptor> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(descriptors[buffer.getInt()]);
+            }
+            return list;
+        }
+
+        private <C extends Collection<String>> C readStrings(C target) throws IOException {
+            int size = count(4);
+            for (int i = 0; i < size; i++) {
+                target.add(str());
+            }
+            return target;
+        }
+
+        private void readNested(Map<String, Map<String, String>> target) throws IOException {
+            int size = count(8);
+            for (int i = 0; i < size; i++) {
+                String key = str();
+                int innerSize = count(8);
+                Map<String, String> inner = new HashMap<>();
+                for (int j = 0; j < innerSize; j++) {
+                    String k = str();
+                    inner.put(k, str());
+                }
+                target.put(key, inner);
+            }
+        }
+    }
+}
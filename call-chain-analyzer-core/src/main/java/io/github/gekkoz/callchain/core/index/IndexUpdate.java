@@ -0,0 +1,56 @@
+package io.github.gekkoz.callchain.core.index;
+
+/**
+ * 一次增量更新的统计信息
+ */
+public class IndexUpdate {
+    private final int addedFiles;
+    private final int changedFiles;
+    private final int deletedFiles;
+    private final int dependentFiles;
+    private final long elapsedMillis;
+
+    public IndexUpdate(int addedFiles, int changedFiles, int deletedFiles, int dependentFiles, long elapsedMillis) {
+        this.addedFiles = addedFiles;
+        this.changedFiles = changedFiles;
+        this.deletedFiles = deletedFiles;
+        this.dependentFiles = dependentFiles;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * 源码树相对索引是否有变化
+     */
+    public boolean hasChanges() {
+        return addedFiles + changedFiles + deletedFiles > 0;
+    }
+
+    public int getAddedFiles() {
+        return addedFiles;
+    }
+
+    public int getChangedFiles() {
+        return changedFiles;
+    }
+
+    public int getDeletedFiles() {
+        return deletedFiles;
+    }
+
+    /**
+     * 内容未变化但因依赖受影响的类而重新索引的文件数
+     */
+    public int getDependentFiles() {
+        return dependentFiles;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "新增 " + addedFiles + " 个文件, 修改 " + changedFiles + " 个文件, 删除 " + deletedFiles +
+                " 个文件, 关联重建 " + dependentFiles + " 个文件, 耗时 " + elapsedMillis + "ms";
+    }
+}
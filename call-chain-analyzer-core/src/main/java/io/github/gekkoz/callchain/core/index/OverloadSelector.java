@@ -0,0 +1,184 @@
+package io.github.gekkoz.callchain.core.index;
+
+import io.github.gekkoz.callchain.core.parse.ScopeType;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * 编译调用图时在同名的重载方法中选择调用位置实际调用的方法，以及子类型方法覆盖的父类型方法。
+ * <p>
+ * 调用位置先按参数个数筛选（可变参数方法接受不少于固定参数个数的实参），再按已知的实参类型筛选：
+ * 实参类型与形参相同、是项目中形参类型的子类型，或可经装箱、拆箱和基本类型拓宽转换为形参类型时兼容；
+ * 形参为项目外的类型或类型参数时不作判断。多个重载都兼容时，形参类型与实参完全相同的优先。
+ * 任何一步筛选后没有剩余方法时退回上一步的结果，例如调用的是项目外父类中的重载方法，
+ * 因此选择只会去掉能确定不会被调用的重载，而不会丢失调用关系。
+ */
+final class OverloadSelector {
+
+    private static final String UNKNOWN = "?";
+
+    private static final List<String> NUMERIC = Arrays.asList("byte", "short", "char", "int", "long", "float", "double");
+
+    private static final Map<String, String> BOXES = new HashMap<>();
+
+    static {
+        BOXES.put("Byte", "byte");
+        BOXES.put("Short", "short");
+        BOXES.put("Character", "char");
+        BOXES.put("Integer", "int");
+        BOXES.put("Long", "long");
+        BOXES.put("Float", "float");
+        BOXES.put("Double", "double");
+        BOXES.put("Boolean", "boolean");
+    }
+
+    private final CallGraphIndex index;
+    private final ClassHierarchy hierarchy;
+    private final Parameters[] parameters;
+
+    /**
+     * @param parameters 方法键 -> 形参
+     */
+    OverloadSelector(CallGraphIndex index, ClassHierarchy hierarchy, Parameters[] parameters) {
+        this.index = index;
+        this.hierarchy = hierarchy;
+        this.parameters = parameters;
+    }
+
+    /**
+     * 选择调用位置可能调用的重载方法
+     *
+     * @param candidates    被调用类中同名方法的方法键
+     * @param argumentTypes 调用位置记录的实参类型，见 {@link FileContribution#getArgumentTypes(int)}
+     */
+    int[] select(int[] candidates, String argumentTypes) {
+        if (candidates.length == 1 || argumentTypes == null) return candidates;
+        String[] arguments = argumentTypes.isEmpty() ? new String[0] : argumentTypes.split(",", -1);
+
+        int[] applicable = filter(candidates, key -> parameters[key].accepts(arguments.length));
+        if (applicable.length <= 1) return applicable.length == 0 ? candidates : applicable;
+
+        int[] compatible = filter(applicable, key -> compatible(parameters[key], arguments));
+        if (compatible.length == 0) return applicable;
+        int[] exact = filter(compatible, key -> parameters[key].matches(arguments));
+        return exact.length == 0 ? compatible : exact;
+    }
+
+    /**
+     * 选择父类型中被子类型方法覆盖的重载方法：参数个数相同，形参类型完全相同的优先
+     *
+     * @param candidates 父类型中同名方法的方法键
+     */
+    int[] overridden(int[] candidates, Parameters method) {
+        int[] sameArity = filter(candidates, key -> parameters[key].types.length == method.types.length
+                && parameters[key].varArgs == method.varArgs);
+        if (sameArity.length <= 1) return sameArity;
+        int[] exact = filter(sameArity, key -> Arrays.equals(parameters[key].types, method.types));
+        return exact.length == 0 ? sameArity : exact;
+    }
+
+    private boolean compatible(Parameters method, String[] arguments) {
+        for (int i = 0; i < arguments.length; i++) {
+            if (!assignable(arguments[i], method.typeAt(i))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 实参类型能否传给形参
+     *
+     * @param parameter 擦除泛型后的形参类型，数组、可变参数等无法比较的类型为null
+     */
+    private boolean assignable(String argument, String parameter) {
+        if (UNKNOWN.equals(argument) || parameter == null || parameter.equals(argument)) return true;
+        String unboxed = BOXES.getOrDefault(argument, argument);
+        if (NUMERIC.contains(parameter)) {
+            // 基本类型拓宽，char只能拓宽为int及以上
+            int from = NUMERIC.indexOf(unboxed);
+            int to = NUMERIC.indexOf(parameter);
+            return from >= 0 && from <= to && !(from < 2 && to == 2);
+        }
+        if ("boolean".equals(parameter)) return "boolean".equals(unboxed);
+        if (BOXES.containsKey(parameter)) return BOXES.get(parameter).equals(argument);
+        if ("String".equals(parameter)) return false;
+        if (NUMERIC.contains(argument) || "boolean".equals(argument) || "String".equals(argument)) {
+            // 基本类型和字符串只能传给Object等项目外的类型
+            return !index.getFieldDeclarations().containsKey(parameter);
+        }
+        if (!index.getFieldDeclarations().containsKey(parameter)) return true;
+        return hierarchy.isSubtypeOf(argument, parameter);
+    }
+
+    private static int[] filter(int[] keys, IntPredicate predicate) {
+        int[] result = new int[keys.length];
+        int count = 0;
+        for (int key : keys) {
+            if (predicate.test(key)) result[count++] = key;
+        }
+        return count == keys.length ? keys : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * 由方法签名得到的形参：擦除泛型后的类型，以及最后一个参数是否为可变参数
+     */
+    static final class Parameters {
+        private final String[] types;
+        private final boolean varArgs;
+
+        private Parameters(String[] types, boolean varArgs) {
+            this.types = types;
+            this.varArgs = varArgs;
+        }
+
+        /**
+         * 解析形如 {@code name(Map<String, Object>,int...)} 的方法签名
+         */
+        static Parameters of(String signature) {
+            int open = signature.indexOf('(');
+            int close = signature.lastIndexOf(')');
+            if (open < 0 || close <= open + 1) return new Parameters(new String[0], false);
+            List<String> types = new ArrayList<>();
+            int depth = 0;
+            int start = open + 1;
+            for (int i = start; i < close; i++) {
+                char c = signature.charAt(i);
+                if (c == '<') depth++;
+                else if (c == '>') depth--;
+                else if (c == ',' && depth == 0) {
+                    types.add(signature.substring(start, i).trim());
+                    start = i + 1;
+                }
+            }
+            types.add(signature.substring(start, close).trim());
+            boolean varArgs = types.get(types.size() - 1).endsWith("...");
+            String[] erased = new String[types.size()];
+            for (int i = 0; i < erased.length; i++) {
+                erased[i] = ScopeType.erase(types.get(i));
+            }
+            return new Parameters(erased, varArgs);
+        }
+
+        boolean accepts(int arity) {
+            return varArgs ? arity >= types.length - 1 : arity == types.length;
+        }
+
+        /**
+         * 第i个实参对应的形参类型，对应可变参数时为null
+         */
+        String typeAt(int i) {
+            return varArgs && i >= types.length - 1 ? null : types[i];
+        }
+
+        /**
+         * 形参类型与全部实参类型完全相同
+         */
+        boolean matches(String[] arguments) {
+            if (varArgs || arguments.length != types.length) return false;
+            for (int i = 0; i < arguments.length; i++) {
+                if (!arguments[i].equals(types[i])) return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.gekkoz.callchain.core.index;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 源码树指纹：对所有Java文件和源码归档的相对路径、大小和修改时间计算64位FNV-1a哈希。
+ * 只读取文件元数据，不读取文件内容，因此远比重新解析项目便宜。
+ */
+public final class SourceFingerprint {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private SourceFingerprint() {
+    }
+
+    public static long of(Path root, List<Path> files) {
+        long hash = FNV_OFFSET;
+        for (Path file : files) {
+            try {
+                // 项目目录之外的源码归档使用完整路径
+                Path relative = file.startsWith(root) ? root.relativize(file) : file;
+                hash = mix(hash, relative.toString().getBytes(StandardCharsets.UTF_8));
+                hash = mix(hash, Files.size(file));
+                hash = mix(hash, Files.getLastModifiedTime(file).toMillis());
+            } catch (IOException e) {
+                // 文件在遍历期间被删除，视为不同的源码树
+                hash = mix(hash, -1L);
+            }
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, byte[] bytes) {
+        for (byte b : bytes) {
+            hash ^= (b & 0xff);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (i * 8)) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
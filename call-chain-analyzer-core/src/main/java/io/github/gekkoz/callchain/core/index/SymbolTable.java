@@ -0,0 +1,97 @@
+package io.github.gekkoz.callchain.core.index;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * 索引中类名、方法名、方法签名、文件路径等字符串的共享表。
+ * <p>
+ * 同一个字符串在解析结果中每出现一次就是一个新对象，例如每个调用位置都带有被调用类名，
+ * 每个方法描述都带有所在文件的完整路径。写入索引前经过 {@link #intern(String)}，
+ * 相同内容的字符串在整个索引中只保留一份。
+ * <p>
+ * 索引副本共享同一个表，常驻服务中的表随快照一直传递下去。表对字符串只持有弱引用，
+ * 被删除的文件、改名的方法等不再被任何索引引用的字符串会被垃圾回收，并在之后的 {@link #intern(String)} 中移出表，
+ * 表的大小不随更新次数增长。每个字符串只占一个弱引用项，比 {@link java.util.WeakHashMap} 加弱引用值节省一半以上的开销。
+ * 可被多个线程同时使用。
+ */
+public final class SymbolTable {
+
+    private final ReferenceQueue<String> collected = new ReferenceQueue<>();
+    private Symbol[] table = new Symbol[1024];
+    private int size;
+
+    /**
+     * @return 与s内容相同的共享字符串，s为null时返回null
+     */
+    public synchronized String intern(String s) {
+        if (s == null) return null;
+        removeCollected();
+        int hash = hash(s);
+        int bucket = hash & (table.length - 1);
+        for (Symbol symbol = table[bucket]; symbol != null; symbol = symbol.next) {
+            if (symbol.hash == hash) {
+                String existing = symbol.get();
+                if (s.equals(existing)) return existing;
+            }
+        }
+        table[bucket] = new Symbol(s, hash, table[bucket], collected);
+        if (++size > table.length - (table.length >>> 2)) resize();
+        return s;
+    }
+
+    /**
+     * 表中尚未移出的字符串数，包括已被回收但还未移出的项
+     */
+    public synchronized int size() {
+        removeCollected();
+        return size;
+    }
+
+    private void removeCollected() {
+        for (Reference<? extends String> ref; (ref = collected.poll()) != null; ) {
+            Symbol dead = (Symbol) ref;
+            int bucket = dead.hash & (table.length - 1);
+            Symbol prev = null;
+            for (Symbol symbol = table[bucket]; symbol != null; prev = symbol, symbol = symbol.next) {
+                if (symbol == dead) {
+                    if (prev == null) table[bucket] = symbol.next;
+                    else prev.next = symbol.next;
+                    size--;
+                    break;
+                }
+            }
+        }
+    }
+
+    private void resize() {
+        Symbol[] old = table;
+        table = new Symbol[old.length << 1];
+        for (Symbol symbol : old) {
+            while (symbol != null) {
+                Symbol next = symbol.next;
+                int bucket = symbol.hash & (table.length - 1);
+                symbol.next = table[bucket];
+                table[bucket] = symbol;
+                symbol = next;
+            }
+        }
+    }
+
+    private static int hash(String s) {
+        int h = s.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Symbol extends WeakReference<String> {
+        final int hash;
+        Symbol next;
+
+        Symbol(String s, int hash, Symbol next, ReferenceQueue<String> queue) {
+            super(s, queue);
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+}
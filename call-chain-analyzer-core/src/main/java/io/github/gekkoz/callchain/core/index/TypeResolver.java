@@ -0,0 +1,201 @@
+package io.github.gekkoz.callchain.core.index;
+
+import io.github.gekkoz.callchain.core.parse.ScopeType;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 精确模式下由调用作用域的静态类型 {@link ScopeType} 解析被调用类，类型信息来自项目源码中的字段声明、
+ * 方法返回类型和类层次 {@link ClassHierarchy}。
+ * <p>
+ * 尚未确定的名称依次作为调用者类及其父类型的字段、类名解析；字段访问和方法调用由近到远在父类型中查找字段类型和返回类型。
+ * 无法确定类型时不产生调用关系，而不是像启发式模式那样以作用域文本作为类名。
+ * 作用域解析和成员查找的结果分别缓存在有上限的并发缓存中，缓存满时清空；
+ * 解析器只在一次链接过程中使用，索引变化后需要重新创建。
+ */
+class TypeResolver {
+
+    private static final int DEFAULT_CACHE_SIZE = 1 << 16;
+
+    private static final Resolution UNRESOLVED = new Resolution(null, new String[0]);
+
+    private final CallGraphIndex index;
+    private final ClassHierarchy hierarchy;
+    private final int cacheSize;
+
+    // 调用者类 + 作用域类型 -> 解析结果
+    private final Map<String, Resolution> scopeCache = new ConcurrentHashMap<>();
+
+    // 类#成员 -> 成员类型及查找时经过的类
+    private final Map<String, Resolution> memberCache = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    TypeResolver(CallGraphIndex index, ClassHierarchy hierarchy) {
+        this(index, hierarchy, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param hierarchy 由索引中当前的父类型关系编译得到的类层次
+     * @param cacheSize 每个缓存的最大条目数
+     */
+    TypeResolver(CallGraphIndex index, ClassHierarchy hierarchy, int cacheSize) {
+        this.index = index;
+        this.hierarchy = hierarchy;
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * 解析调用作用域的类型
+     *
+     * @param callerClassName 发起调用的类
+     * @param scopeType       作用域的静态类型
+     * @return 解析结果，无法确定类型时 {@link Resolution#getType()} 为null
+     */
+    Resolution resolve(String callerClassName, ScopeType scopeType) {
+        String key = callerClassName + '\u0000' + scopeType.getKey();
+        Resolution resolution = scopeCache.get(key);
+        if (resolution != null) {
+            hits.incrementAndGet();
+            return resolution;
+        }
+        misses.incrementAndGet();
+        resolution = doResolve(callerClassName, scopeType);
+        put(scopeCache, key, resolution);
+        return resolution;
+    }
+
+    long getCacheHits() {
+        return hits.get();
+    }
+
+    long getCacheMisses() {
+        return misses.get();
+    }
+
+    private Resolution doResolve(String callerClassName, ScopeType scopeType) {
+        Set<String> consulted = new LinkedHashSet<>();
+        String type;
+        int member = 0;
+        switch (scopeType.getKind()) {
+            case TYPE:
+                type = scopeType.getName();
+                break;
+            case SUPER:
+                consulted.add(callerClassName);
+                type = index.getSuperClasses().get(callerClassName);
+                break;
+            case NAME:
+                String name = scopeType.getName();
+                Resolution field = findMember(callerClassName, name, false);
+                consulted.addAll(Arrays.asList(field.consulted));
+                if (field.type != null) {
+                    type = field.type;
+                } else if (isTypeName(name)) {
+                    // 类名，如静态方法调用
+                    type = name;
+                } else {
+                    // 包名：跳过小写开头的各段，第一个大写开头的段为类名，如 com.example.Util.run()
+                    type = null;
+                    while (member < scopeType.getMemberCount() && !ScopeType.isMethod(scopeType.getMember(member))) {
+                        String segment = scopeType.getMember(member++);
+                        if (isTypeName(segment)) {
+                            type = segment;
+                            break;
+                        }
+                    }
+                }
+                break;
+            default:
+                type = null;
+        }
+
+        for (; type != null && member < scopeType.getMemberCount(); member++) {
+            String name = scopeType.getMember(member);
+            boolean method = ScopeType.isMethod(name);
+            Resolution resolution = findMember(type, method ? name.substring(0, name.length() - 2) : name, method);
+            consulted.addAll(Arrays.asList(resolution.consulted));
+            if (resolution.type == null && !method && isTypeName(name)) {
+                // 嵌套类，如 Outer.Inner.run()
+                type = name;
+            } else {
+                type = resolution.type;
+            }
+        }
+        return type == null && consulted.isEmpty() ? UNRESOLVED
+                : new Resolution(type, consulted.toArray(new String[0]));
+    }
+
+    /**
+     * 在类及其父类型中由近到远查找字段类型或方法返回类型
+     */
+    private Resolution findMember(String className, String name, boolean method) {
+        String key = className + (method ? "#" + name + "()" : "#" + name);
+        Resolution resolution = memberCache.get(key);
+        if (resolution != null) return resolution;
+
+        List<String> consulted = new ArrayList<>();
+        consulted.add(className);
+        String type = memberType(className, name, method);
+        int id = hierarchy.idOf(className);
+        if (type == null && id >= 0) {
+            for (int p = hierarchy.supertypesStart(id); p < hierarchy.supertypesEnd(id) && type == null; p++) {
+                String superType = hierarchy.getName(hierarchy.getSupertype(p));
+                consulted.add(superType);
+                type = memberType(superType, name, method);
+            }
+        }
+        if (type != null && type.isEmpty()) type = null;
+        resolution = new Resolution(type, consulted.toArray(new String[0]));
+        put(memberCache, key, resolution);
+        return resolution;
+    }
+
+    /**
+     * 类中直接声明的成员类型，未声明时为null，已声明但类型无法使用（如数组）时为空字符串
+     */
+    private String memberType(String className, String name, boolean method) {
+        Map<String, String> members = method ? index.getMethodReturnTypes().get(className)
+                : index.getFieldDeclarations().get(className);
+        String memberType = members == null ? null : members.get(name);
+        if (memberType == null || method) return memberType;
+        String erased = ScopeType.erase(memberType);
+        return erased == null ? "" : erased;
+    }
+
+    private void put(Map<String, Resolution> cache, String key, Resolution resolution) {
+        if (cache.size() >= cacheSize) cache.clear();
+        cache.put(key, resolution);
+    }
+
+    private static boolean isTypeName(String name) {
+        return !name.isEmpty() && Character.isUpperCase(name.charAt(0));
+    }
+
+    /**
+     * 解析结果：作用域的类型，以及解析时查找过的类；这些类变化后解析结果可能随之变化
+     */
+    static final class Resolution {
+        private final String type;
+        private final String[] consulted;
+
+        Resolution(String type, String[] consulted) {
+            this.type = type;
+            this.consulted = consulted;
+        }
+
+        /**
+         * 作用域的类名，无法确定时为null
+         */
+        String getType() {
+            return type;
+        }
+
+        String[] getConsulted() {
+            return consulted;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package io.github.gekkoz.callchain.core.metrics;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分析过程的度量：各阶段耗时、每个文件的解析耗时、索引规模计数、遍历访问的节点数以及单次查询的最大调用链数。
+ * <p>
+ * 通过 {@link #disabled()} 得到的实例不记录任何数据，各记录方法在检查一个final字段后立即返回，
+ * 调用方无需再判断是否启用；启用JFR时每个阶段、文件和查询还会各提交一个自定义JFR事件，
+ * 在未开启飞行记录时这些事件不会被写出。
+ * <p>
+ * 所有方法都是线程安全的，解析线程和查询线程可以同时记录。
+ */
+public final class AnalysisMetrics {
+
+    public static final String PHASE_DISCOVER = "discover";
+    public static final String PHASE_SCAN = "scan";
+    public static final String PHASE_PARSE = "parse";
+    public static final String PHASE_LINK = "link";
+    public static final String PHASE_UPDATE = "update";
+    public static final String PHASE_COMPILE_GRAPH = "compileGraph";
+    public static final String PHASE_CONDENSE = "condense";
+    public static final String PHASE_READ_INDEX = "readIndex";
+    public static final String PHASE_WRITE_INDEX = "writeIndex";
+
+    public static final String QUERY_CHAINS = "query.chains";
+    public static final String QUERY_DAG = "query.dag";
+    public static final String QUERY_RANKED = "query.ranked";
+    public static final String QUERY_ENDPOINTS = "query.endpoints";
+    public static final String QUERY_IMPACT = "query.impact";
+
+    /** 索引中的文件数 */
+    public static final String COUNT_FILES = "files";
+    /** 索引中解析失败的文件数 */
+    public static final String COUNT_PARSE_FAILURES = "parseFailures";
+    /** 调用图中的方法数 */
+    public static final String COUNT_METHODS = "methods";
+    /** 调用图中的调用边数 */
+    public static final String COUNT_EDGES = "edges";
+    /** 调用边中由类层次得到的分派边数 */
+    public static final String COUNT_DISPATCH_EDGES = "dispatchEdges";
+    /** REST控制器方法数 */
+    public static final String COUNT_CONTROLLERS = "controllers";
+    /** 累计解析的文件数，包括增量更新时重新解析的文件 */
+    public static final String COUNT_PARSED_FILES = "parsedFiles";
+    /** 累计解析失败的文件数 */
+    public static final String COUNT_FAILED_FILES = "failedFiles";
+    /** 精确类型模式下累计无法确定被调用类、因而未产生调用关系的调用数 */
+    public static final String COUNT_UNRESOLVED_CALLS = "unresolvedCalls";
+    /** 精确类型模式下作用域类型缓存的累计命中数 */
+    public static final String COUNT_TYPE_CACHE_HITS = "typeCacheHits";
+    /** 精确类型模式下作用域类型缓存的累计未命中数 */
+    public static final String COUNT_TYPE_CACHE_MISSES = "typeCacheMisses";
+    /** 常驻服务中调用链查询结果缓存的累计命中数 */
+    public static final String COUNT_QUERY_CACHE_HITS = "queryCacheHits";
+    /** 常驻服务中调用链查询结果缓存的累计未命中数 */
+    public static final String COUNT_QUERY_CACHE_MISSES = "queryCacheMisses";
+
+    private static final AnalysisMetrics DISABLED = new AnalysisMetrics(false, false);
+
+    private final boolean enabled;
+    private final boolean jfr;
+
+    private final Map<String, PhaseStats> phases = new ConcurrentHashMap<>();
+    private final Map<String, Long> fileParseNanos = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+    private final LongAdder nodeVisits = new LongAdder();
+    private final AtomicLong peakChainCount = new AtomicLong();
+
+    private AnalysisMetrics(boolean enabled, boolean jfr) {
+        this.enabled = enabled;
+        this.jfr = jfr;
+    }
+
+    /**
+     * 不记录任何数据的实例
+     */
+    public static AnalysisMetrics disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * 创建记录数据的实例
+     *
+     * @param jfr 是否同时提交JFR事件；当前JVM不支持JFR时忽略
+     */
+    public static AnalysisMetrics create(boolean jfr) {
+        return new AnalysisMetrics(true, jfr && JfrEvents.isAvailable());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isJfrEnabled() {
+        return jfr;
+    }
+
+    /**
+     * 当前时间，未启用时为0，用于在阶段结束时调用 {@link #endPhase} 或 {@link #recordQuery}
+     */
+    public long startTime() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * 记录一个阶段从 {@link #startTime()} 到现在的耗时
+     *
+     * @param startTime {@link #startTime()} 的返回值
+     */
+    public void endPhase(String name, long startTime) {
+        if (!enabled) return;
+        recordPhase(name, System.nanoTime() - startTime);
+    }
+
+    public void recordPhase(String name, long nanos) {
+        if (!enabled) return;
+        phases.computeIfAbsent(name, PhaseStats::new).add(nanos);
+        if (jfr) JfrEvents.phase(name, nanos);
+    }
+
+    /**
+     * 记录单个文件的读取、解析和摘要提取耗时
+     */
+    public void recordFileParse(String filePath, long nanos, boolean success) {
+        if (!enabled) return;
+        fileParseNanos.put(filePath, nanos);
+        addCount(COUNT_PARSED_FILES, 1);
+        if (!success) addCount(COUNT_FAILED_FILES, 1);
+        if (jfr) JfrEvents.fileParsed(filePath, nanos, success);
+    }
+
+    /**
+     * 记录一次查询
+     *
+     * @param kind      查询方式，如 {@link #QUERY_CHAINS}
+     * @param startTime {@link #startTime()} 的返回值
+     * @param results   查询结果数量（调用链、端点等）
+     * @param visits    遍历时访问的节点或边数
+     */
+    public void recordQuery(String kind, long startTime, long results, long visits) {
+        if (!enabled) return;
+        long nanos = System.nanoTime() - startTime;
+        phases.computeIfAbsent(kind, PhaseStats::new).add(nanos);
+        nodeVisits.add(visits);
+        if (jfr) JfrEvents.query(kind, nanos, results, visits);
+    }
+
+    /**
+     * 记录一次查询得到的调用链数量，保留最大值
+     */
+    public void recordChainCount(long chains) {
+        if (!enabled) return;
+        peakChainCount.accumulateAndGet(chains, Math::max);
+    }
+
+    public void setCount(String name, long value) {
+        if (!enabled) return;
+        counts.computeIfAbsent(name, n -> new AtomicLong()).set(value);
+    }
+
+    public void addCount(String name, long delta) {
+        if (!enabled) return;
+        counts.computeIfAbsent(name, n -> new AtomicLong()).addAndGet(delta);
+    }
+
+    /**
+     * 各阶段的累计耗时，按名称排序
+     */
+    public Map<String, PhaseStats> getPhases() {
+        Map<String, PhaseStats> result = new TreeMap<>();
+        phases.forEach((name, stats) -> result.put(name, stats.copy()));
+        return result;
+    }
+
+    /**
+     * 文件路径 -> 最近一次解析的耗时（纳秒）
+     */
+    public Map<String, Long> getFileParseNanos() {
+        return new HashMap<>(fileParseNanos);
+    }
+
+    /**
+     * 解析最慢的文件，按耗时从高到低排列
+     */
+    public List<Map.Entry<String, Long>> getSlowestFiles(int limit) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(getFileParseNanos().entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return entries.subList(0, Math.min(limit, entries.size()));
+    }
+
+    /**
+     * 各项计数，按名称排序
+     */
+    public Map<String, Long> getCounts() {
+        Map<String, Long> result = new TreeMap<>();
+        counts.forEach((name, value) -> result.put(name, value.get()));
+        return result;
+    }
+
+    public long getCount(String name) {
+        AtomicLong value = counts.get(name);
+        return value == null ? 0 : value.get();
+    }
+
+    /**
+     * 所有查询遍历时访问的节点或边数之和
+     */
+    public long getNodeVisits() {
+        return nodeVisits.sum();
+    }
+
+    /**
+     * 单次查询得到的最大调用链数
+     */
+    public long getPeakChainCount() {
+        return peakChainCount.get();
+    }
+}
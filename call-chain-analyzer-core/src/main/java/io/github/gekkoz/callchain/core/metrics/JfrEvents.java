@@ -0,0 +1,96 @@
+package io.github.gekkoz.callchain.core.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * 自定义JFR事件。只有在 {@link #isAvailable()} 为true时才会加载事件类，不支持JFR的JVM上运行不受影响。
+ * 使用 -XX:StartFlightRecording 或 jcmd JFR.start 开启记录后，事件以 io.github.gekkoz.callchain 为前缀出现在记录中。
+ * <p>
+ * 编译时需要jdk.jfr包，即JDK 8u262或更高版本，且不能使用 --release 8（其API签名中没有jdk.jfr），见README的先决条件
+ */
+final class JfrEvents {
+
+    private JfrEvents() {
+    }
+
+    static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    static void phase(String name, long nanos) {
+        PhaseEvent event = new PhaseEvent();
+        if (!event.isEnabled()) return;
+        event.phase = name;
+        event.elapsed = nanos;
+        event.commit();
+    }
+
+    static void fileParsed(String filePath, long nanos, boolean success) {
+        FileParseEvent event = new FileParseEvent();
+        if (!event.isEnabled()) return;
+        event.filePath = filePath;
+        event.elapsed = nanos;
+        event.success = success;
+        event.commit();
+    }
+
+    static void query(String kind, long nanos, long results, long visits) {
+        QueryEvent event = new QueryEvent();
+        if (!event.isEnabled()) return;
+        event.kind = kind;
+        event.elapsed = nanos;
+        event.results = results;
+        event.visits = visits;
+        event.commit();
+    }
+
+    @Name("io.github.gekkoz.callchain.Phase")
+    @Label("Analysis Phase")
+    @Category({"Call Chain Analyzer"})
+    static final class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    @Name("io.github.gekkoz.callchain.FileParse")
+    @Label("File Parse")
+    @Category({"Call Chain Analyzer"})
+    static final class FileParseEvent extends Event {
+        @Label("File Path")
+        String filePath;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+
+        @Label("Success")
+        boolean success;
+    }
+
+    @Name("io.github.gekkoz.callchain.Query")
+    @Label("Query")
+    @Category({"Call Chain Analyzer"})
+    static final class QueryEvent extends Event {
+        @Label("Kind")
+        String kind;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+
+        @Label("Results")
+        long results;
+
+        @Label("Visits")
+        long visits;
+    }
+}
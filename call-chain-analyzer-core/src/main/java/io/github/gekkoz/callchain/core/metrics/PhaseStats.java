@@ -0,0 +1,53 @@
+package io.github.gekkoz.callchain.core.metrics;
+
+/**
+ * 一个阶段的累计耗时：执行次数、总耗时和单次最长耗时
+ */
+public final class PhaseStats {
+    private final String name;
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+
+    PhaseStats(String name) {
+        this.name = name;
+    }
+
+    private PhaseStats(PhaseStats other) {
+        this.name = other.name;
+        this.count = other.count;
+        this.totalNanos = other.totalNanos;
+        this.maxNanos = other.maxNanos;
+    }
+
+    synchronized void add(long nanos) {
+        count++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    synchronized PhaseStats copy() {
+        return new PhaseStats(this);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + count + " 次，共 " + totalNanos / 1_000_000 + "ms，最长 " + maxNanos / 1_000_000 + "ms";
+    }
+}
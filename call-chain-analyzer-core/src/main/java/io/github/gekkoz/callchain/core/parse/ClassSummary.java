@@ -0,0 +1,113 @@
+package io.github.gekkoz.callchain.core.parse;
+
+import java.util.*;
+
+/**
+ * 类或接口的摘要：索引所需的类级别信息
+ */
+public class ClassSummary {
+    private final String name;
+    private final String packageName;
+    private final boolean isInterface;
+    private final Set<String> annotations = new HashSet<>();
+    private String superClass;
+    private final List<String> extendedTypes = new ArrayList<>();
+    private final List<String> implementedTypes = new ArrayList<>();
+    private boolean hasRequestMapping;
+    private String requestMapping;
+    private final Map<String, String> fields = new LinkedHashMap<>();
+    private final Map<String, String> interfaceMethodMappings = new LinkedHashMap<>();
+    private final Map<String, String> methodReturnTypes = new LinkedHashMap<>();
+
+    public ClassSummary(String name, String packageName, boolean isInterface) {
+        this.name = name;
+        this.packageName = packageName;
+        this.isInterface = isInterface;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 编译单元中声明的包名，默认包为空字符串
+     */
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public boolean isInterface() {
+        return isInterface;
+    }
+
+    /**
+     * 类上的注解名称
+     */
+    public Set<String> getAnnotations() {
+        return annotations;
+    }
+
+    public boolean isAnnotationPresent(String annotationName) {
+        return annotations.contains(annotationName);
+    }
+
+    /**
+     * 第一个父类，没有父类时为null
+     */
+    public String getSuperClass() {
+        return superClass;
+    }
+
+    public void setSuperClass(String superClass) {
+        this.superClass = superClass;
+    }
+
+    /**
+     * extends声明的全部类型，类最多一个，接口可以有多个
+     */
+    public List<String> getExtendedTypes() {
+        return extendedTypes;
+    }
+
+    public List<String> getImplementedTypes() {
+        return implementedTypes;
+    }
+
+    public boolean hasRequestMapping() {
+        return hasRequestMapping;
+    }
+
+    /**
+     * 类上@RequestMapping的路径，注解存在但无法提取路径时为null
+     */
+    public String getRequestMapping() {
+        return requestMapping;
+    }
+
+    public void setRequestMapping(String requestMapping) {
+        this.hasRequestMapping = true;
+        this.requestMapping = requestMapping;
+    }
+
+    /**
+     * 字段名 -> 字段类型
+     */
+    public Map<String, String> getFields() {
+        return fields;
+    }
+
+    /**
+     * 接口方法的映射路径 (方法名#方法签名 -> 映射路径)，仅对接口收集
+     */
+    public Map<String, String> getInterfaceMethodMappings() {
+        return interfaceMethodMappings;
+    }
+
+    /**
+     * 类中直接声明的方法的返回类型 (方法名 -> 擦除泛型后的简单类名)。
+     * 重载方法的返回类型不一致、返回类型为类型参数或数组时为空字符串
+     */
+    public Map<String, String> getMethodReturnTypes() {
+        return methodReturnTypes;
+    }
+}
@@ -0,0 +1,67 @@
+package io.github.gekkoz.callchain.core.parse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 单个源文件的指纹：文件大小、修改时间和内容哈希（64位FNV-1a）。
+ * 大小和修改时间未变化时直接视为未修改；否则再比较内容哈希，避免仅被touch的文件触发重新解析。
+ */
+public final class FileFingerprint {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long size;
+    private final long lastModified;
+    private final long contentHash;
+
+    public FileFingerprint(long size, long lastModified, long contentHash) {
+        this.size = size;
+        this.lastModified = lastModified;
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * 读取文件内容计算指纹
+     */
+    public static FileFingerprint of(Path path) throws IOException {
+        return of(path, Files.readAllBytes(path));
+    }
+
+    /**
+     * 使用已读取的文件内容计算指纹
+     */
+    public static FileFingerprint of(Path path, byte[] content) throws IOException {
+        return new FileFingerprint(content.length, Files.getLastModifiedTime(path).toMillis(), hash(content));
+    }
+
+    public static long hash(byte[] content) {
+        long hash = FNV_OFFSET;
+        for (byte b : content) {
+            hash ^= (b & 0xff);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * 大小和修改时间是否与给定文件一致
+     */
+    public boolean sameMetadata(Path path) throws IOException {
+        return Files.size(path) == size && Files.getLastModifiedTime(path).toMillis() == lastModified;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public long getContentHash() {
+        return contentHash;
+    }
+}
@@ -0,0 +1,32 @@
+package io.github.gekkoz.callchain.core.parse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单个源文件的紧凑摘要。
+ * 解析完成后立即从AST中提取，之后AST即可被回收，索引只依赖摘要构建。
+ */
+public class FileSummary {
+    private final String filePath;
+
+    // 按AST后序遍历的顺序排列（内部类在外部类之前）
+    private final List<ClassSummary> classes = new ArrayList<>();
+    private final List<MethodSummary> methods = new ArrayList<>();
+
+    public FileSummary(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public List<ClassSummary> getClasses() {
+        return classes;
+    }
+
+    public List<MethodSummary> getMethods() {
+        return methods;
+    }
+}
@@ -0,0 +1,234 @@
+package io.github.gekkoz.callchain.core.parse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * 标识符到文件的倒排索引，由不构建AST的词法扫描得到。
+ * 扫描跳过注释、字符串和字符字面量，记录每个文件中出现的标识符，以及紧跟在class、interface、enum之后的类型声明名称。
+ * 扫描只需读取文件内容，耗时远小于解析，用于在解析前找出可能与查询相关的文件。
+ * 源码归档展开为其中的条目，每个条目作为一个文件，见 {@link SourceArchive}。
+ */
+public final class IdentifierIndex {
+
+    private static final int[] NONE = new int[0];
+
+    private final List<Path> files;
+
+    // 标识符 -> 包含它的文件编号，升序
+    private final Map<String, int[]> postings;
+
+    // 类型名 -> 声明它的文件编号，升序
+    private final Map<String, int[]> declarations;
+
+    private IdentifierIndex(List<Path> files, Map<String, int[]> postings, Map<String, int[]> declarations) {
+        this.files = files;
+        this.postings = postings;
+        this.declarations = declarations;
+    }
+
+    /**
+     * 并行扫描给定的文件，无法读取的文件不包含任何标识符
+     *
+     * @param parallelism 扫描线程数，小于1时使用可用处理器数
+     */
+    public static IdentifierIndex build(List<Path> sources, int parallelism) {
+        List<Path> files;
+        ScannedFile[] scanned;
+        ForkJoinPool pool = new ForkJoinPool(parallelism < 1 ? Runtime.getRuntime().availableProcessors() : parallelism);
+        try (SourceArchive.Reader reader = new SourceArchive.Reader()) {
+            files = reader.expand(sources);
+            scanned = new ScannedFile[files.size()];
+            pool.submit(() -> IntStream.range(0, files.size()).parallel()
+                    .forEach(i -> scanned[i] = scan(files.get(i), reader))).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("扫描项目文件被中断", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("扫描项目文件失败", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        // 按文件顺序合并，倒排表天然有序
+        Map<String, IntList> postingLists = new HashMap<>();
+        Map<String, IntList> declarationLists = new HashMap<>();
+        for (int i = 0; i < scanned.length; i++) {
+            for (String identifier : scanned[i].identifiers) {
+                postingLists.computeIfAbsent(identifier, k -> new IntList()).add(i);
+            }
+            for (String type : scanned[i].declarations) {
+                declarationLists.computeIfAbsent(type, k -> new IntList()).add(i);
+            }
+        }
+        return new IdentifierIndex(files, toArrays(postingLists), toArrays(declarationLists));
+    }
+
+    public int getFileCount() {
+        return files.size();
+    }
+
+    public Path getFile(int id) {
+        return files.get(id);
+    }
+
+    /**
+     * 包含标识符的文件编号，升序
+     */
+    public int[] filesContaining(String identifier) {
+        return postings.getOrDefault(identifier, NONE);
+    }
+
+    /**
+     * 同时包含全部标识符的文件编号，升序
+     */
+    public int[] filesContainingAll(String... identifiers) {
+        int[] result = filesContaining(identifiers[0]);
+        for (int i = 1; i < identifiers.length && result.length > 0; i++) {
+            result = intersect(result, filesContaining(identifiers[i]));
+        }
+        return result;
+    }
+
+    /**
+     * 包含任一满足条件的标识符的文件，用于按模式查询时在解析前找出相关文件
+     */
+    public BitSet filesContainingAny(Predicate<String> identifier) {
+        BitSet result = new BitSet(files.size());
+        postings.forEach((name, ids) -> {
+            if (identifier.test(name)) {
+                for (int id : ids) result.set(id);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 声明了该类型（类、接口或枚举）的文件编号，升序
+     */
+    public int[] filesDeclaring(String typeName) {
+        return declarations.getOrDefault(typeName, NONE);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static Map<String, int[]> toArrays(Map<String, IntList> lists) {
+        Map<String, int[]> result = new HashMap<>(lists.size() * 2);
+        lists.forEach((key, list) -> result.put(key, list.toArray()));
+        return result;
+    }
+
+    private static ScannedFile scan(Path path, SourceArchive.Reader reader) {
+        ScannedFile file = new ScannedFile();
+        try {
+            scan(reader.read(path), file);
+        } catch (IOException e) {
+            // 读取失败的文件在解析时会记录为解析失败
+        }
+        return file;
+    }
+
+    /**
+     * 扫描源码字节。非ASCII字节视为标识符的一部分，标识符按UTF-8解码
+     */
+    static void scan(byte[] content, ScannedFile file) {
+        int n = content.length;
+        int i = 0;
+        boolean declarationNext = false;
+        boolean afterDot = false;
+        while (i < n) {
+            byte b = content[i];
+            if (b == '/' && i + 1 < n && content[i + 1] == '/') {
+                while (i < n && content[i] != '\n') i++;
+            } else if (b == '/' && i + 1 < n && content[i + 1] == '*') {
+                i += 2;
+                while (i + 1 < n && !(content[i] == '*' && content[i + 1] == '/')) i++;
+                i += 2;
+            } else if (b == '"' && i + 2 < n && content[i + 1] == '"' && content[i + 2] == '"') {
+                // 文本块
+                i += 3;
+                while (i + 2 < n && !(content[i] == '"' && content[i + 1] == '"' && content[i + 2] == '"')) {
+                    i += content[i] == '\\' ? 2 : 1;
+                }
+                i += 3;
+                declarationNext = afterDot = false;
+            } else if (b == '"' || b == '\'') {
+                i++;
+                while (i < n && content[i] != b && content[i] != '\n') {
+                    i += content[i] == '\\' ? 2 : 1;
+                }
+                i++;
+                declarationNext = afterDot = false;
+            } else if (isIdentifierStart(b)) {
+                int start = i;
+                while (i < n && isIdentifierPart(content[i])) i++;
+                String token = new String(content, start, i - start, StandardCharsets.UTF_8);
+                if (declarationNext) {
+                    file.declarations.add(token);
+                }
+                // Foo.class 不是声明
+                declarationNext = !afterDot && ("class".equals(token) || "interface".equals(token) || "enum".equals(token));
+                afterDot = false;
+                file.identifiers.add(token);
+            } else if (b >= '0' && b <= '9') {
+                // 数字字面量，如0x1F、1e10、10L
+                while (i < n && (isIdentifierPart(content[i]) || content[i] == '.')) i++;
+                declarationNext = afterDot = false;
+            } else {
+                if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                    declarationNext = false;
+                    afterDot = b == '.';
+                }
+                i++;
+            }
+        }
+    }
+
+    private static boolean isIdentifierStart(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '_' || b == '$' || b < 0;
+    }
+
+    private static boolean isIdentifierPart(byte b) {
+        return isIdentifierStart(b) || (b >= '0' && b <= '9');
+    }
+
+    static final class ScannedFile {
+        final Set<String> identifiers = new HashSet<>();
+        final Set<String> declarations = new HashSet<>();
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package io.github.gekkoz.callchain.core.parse;
+
+import java.util.*;
+
+/**
+ * 方法的摘要：方法签名、REST映射注解以及方法体中的调用位置和常量引用
+ */
+public class MethodSummary {
+    private final ClassSummary owner;
+    private final String className;
+    private final String name;
+    private final String signature;
+    private boolean hasMappingAnnotation;
+    private String mapping;
+    private int beginLine;
+    private int endLine;
+
+    // 调用位置：作用域表达式（没有作用域时为null）、作用域的静态类型、被调用方法名和实参类型，同一方法内去重
+    private final List<String> callScopes = new ArrayList<>();
+    private final List<ScopeType> callScopeTypes = new ArrayList<>();
+    private final List<String> calledMethods = new ArrayList<>();
+    private final List<ScopeType[]> callArguments = new ArrayList<>();
+    private final Set<String> callKeys = new HashSet<>();
+
+    // 以Constants结尾的类上的常量访问，以及方法体中的全部标识符引用，同一方法内去重
+    private final Set<String> constantReferences = new LinkedHashSet<>();
+
+    /**
+     * @param owner 直接包含该方法的类或接口，不在任何类或接口中时为null
+     */
+    public MethodSummary(ClassSummary owner, String name, String signature) {
+        this.owner = owner;
+        this.className = owner == null ? "Unknown" : owner.getName();
+        this.name = name;
+        this.signature = signature;
+    }
+
+    /**
+     * 记录一次方法调用，参数个数或实参类型不同的调用分别记录
+     *
+     * @param scope         作用域表达式，没有作用域时为null
+     * @param scopeType     作用域的静态类型，没有作用域时为null
+     * @param argumentTypes 各实参的静态类型，未知参数个数时为null
+     */
+    public void addCall(String scope, ScopeType scopeType, String calledMethod, ScopeType[] argumentTypes) {
+        StringBuilder key = new StringBuilder().append(scope).append('#').append(calledMethod);
+        if (argumentTypes != null) {
+            key.append('(');
+            for (ScopeType argumentType : argumentTypes) {
+                key.append(argumentType.getKey()).append(',');
+            }
+        }
+        if (callKeys.add(key.toString())) {
+            callScopes.add(scope);
+            callScopeTypes.add(scopeType);
+            calledMethods.add(calledMethod);
+            callArguments.add(argumentTypes);
+        }
+    }
+
+    public void addConstantReference(String name) {
+        constantReferences.add(name);
+    }
+
+    /**
+     * 直接包含该方法的类或接口，匿名类中的方法属于外层的类；不在任何类或接口中时为null
+     */
+    public ClassSummary getOwner() {
+        return owner;
+    }
+
+    /**
+     * 方法所属的类名
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    /**
+     * 方法上是否存在任何REST映射注解
+     */
+    public boolean hasMappingAnnotation() {
+        return hasMappingAnnotation;
+    }
+
+    public void setHasMappingAnnotation(boolean hasMappingAnnotation) {
+        this.hasMappingAnnotation = hasMappingAnnotation;
+    }
+
+    /**
+     * 方法上的映射路径，没有映射注解或无法提取路径时为null
+     */
+    public String getMapping() {
+        return mapping;
+    }
+
+    public void setMapping(String mapping) {
+        this.mapping = mapping;
+    }
+
+    /**
+     * 方法声明的起始行，未知时为0
+     */
+    public int getBeginLine() {
+        return beginLine;
+    }
+
+    /**
+     * 方法声明的结束行，未知时为0
+     */
+    public int getEndLine() {
+        return endLine;
+    }
+
+    public void setLines(int beginLine, int endLine) {
+        this.beginLine = beginLine;
+        this.endLine = endLine;
+    }
+
+    public int getCallCount() {
+        return calledMethods.size();
+    }
+
+    public String getCallScope(int i) {
+        return callScopes.get(i);
+    }
+
+    /**
+     * 作用域的静态类型，没有作用域时为null
+     */
+    public ScopeType getCallScopeType(int i) {
+        return callScopeTypes.get(i);
+    }
+
+    public String getCalledMethod(int i) {
+        return calledMethods.get(i);
+    }
+
+    /**
+     * 各实参的静态类型，未知参数个数时为null
+     */
+    public ScopeType[] getCallArguments(int i) {
+        return callArguments.get(i);
+    }
+
+    public Set<String> getConstantReferences() {
+        return constantReferences;
+    }
+}
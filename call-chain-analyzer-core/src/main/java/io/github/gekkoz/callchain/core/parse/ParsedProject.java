@@ -0,0 +1,47 @@
+package io.github.gekkoz.callchain.core.parse;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 项目解析结果：解析成功文件的摘要以及按文件收集的解析失败信息
+ */
+public class ParsedProject {
+    private final Map<String, FileSummary> summaries;
+    private final Map<String, String> failures;
+    private final Map<String, FileFingerprint> fingerprints;
+    private final long elapsedMillis;
+
+    public ParsedProject(Map<String, FileSummary> summaries, Map<String, String> failures,
+                         Map<String, FileFingerprint> fingerprints, long elapsedMillis) {
+        this.summaries = Collections.unmodifiableMap(summaries);
+        this.failures = Collections.unmodifiableMap(failures);
+        this.fingerprints = Collections.unmodifiableMap(fingerprints);
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * 解析成功的文件路径 -> 文件摘要
+     */
+    public Map<String, FileSummary> getSummaries() {
+        return summaries;
+    }
+
+    /**
+     * 解析失败的文件路径 -> 失败原因
+     */
+    public Map<String, String> getFailures() {
+        return failures;
+    }
+
+    /**
+     * 所有可读取文件的指纹（包括解析失败的文件）
+     */
+    public Map<String, FileFingerprint> getFingerprints() {
+        return fingerprints;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
@@ -0,0 +1,147 @@
+package io.github.gekkoz.callchain.core.parse;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.Problem;
+import com.github.javaparser.ast.CompilationUnit;
+import io.github.gekkoz.callchain.core.metrics.AnalysisMetrics;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 并行解析项目中的Java源文件。
+ * 每个工作线程持有自己的JavaParser实例和ParserConfiguration，不再修改全局的StaticJavaParser配置；
+ * 各文件的解析结果先写入独立槽位，全部完成后再按路径顺序合并，合并过程无数据竞争且结果确定。
+ * 每个文件解析后立即提取 {@link FileSummary} 并丢弃AST，内存中同时存在的AST数量不超过并行度。
+ * 源码归档（见 {@link SourceArchive}）展开为其中的Java条目，与普通文件一起并行解析。
+ */
+public class ProjectParser {
+
+    private final int parallelism;
+    private final AnalysisMetrics metrics;
+
+    // 每个工作线程一个解析器，JavaParser实例本身不是线程安全的
+    private final ThreadLocal<JavaParser> parsers = ThreadLocal.withInitial(() ->
+            new JavaParser(new ParserConfiguration().setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_8)));
+
+    /**
+     * @param parallelism 解析线程数，小于1时使用可用处理器数
+     */
+    public ProjectParser(int parallelism) {
+        this(parallelism, AnalysisMetrics.disabled());
+    }
+
+    /**
+     * @param parallelism 解析线程数，小于1时使用可用处理器数
+     * @param metrics     记录解析阶段和每个文件的解析耗时
+     */
+    public ProjectParser(int parallelism, AnalysisMetrics metrics) {
+        this.parallelism = parallelism < 1 ? Runtime.getRuntime().availableProcessors() : parallelism;
+        this.metrics = metrics;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * 按默认规则列出项目中的Java源文件，按路径排序，见 {@link SourceDiscovery}
+     */
+    public static List<Path> listJavaFiles(String projectPath) {
+        return new SourceDiscovery().discover(Paths.get(projectPath));
+    }
+
+    /**
+     * 解析项目目录下的所有Java文件
+     */
+    public ParsedProject parseProject(String projectPath) {
+        return parse(listJavaFiles(projectPath));
+    }
+
+    /**
+     * 在独立的ForkJoinPool上并行解析给定的文件，可以包含源码归档和归档中的条目
+     */
+    public ParsedProject parse(List<Path> sources) {
+        long startTime = System.currentTimeMillis();
+        long phaseStart = metrics.startTime();
+
+        List<Path> files;
+        FileOutcome[] outcomes;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (SourceArchive.Reader reader = new SourceArchive.Reader()) {
+            files = reader.expand(sources);
+            outcomes = new FileOutcome[files.size()];
+            pool.submit(() -> IntStream.range(0, files.size()).parallel()
+                    .forEach(i -> outcomes[i] = parseFile(files.get(i), reader))).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("解析项目文件被中断", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("解析项目文件失败", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        // 按文件顺序合并
+        Map<String, FileSummary> summaries = new LinkedHashMap<>();
+        Map<String, String> failures = new LinkedHashMap<>();
+        Map<String, FileFingerprint> fingerprints = new LinkedHashMap<>();
+        for (int i = 0; i < outcomes.length; i++) {
+            String path = files.get(i).toString();
+            FileOutcome outcome = outcomes[i];
+            if (outcome.fingerprint != null) {
+                fingerprints.put(path, outcome.fingerprint);
+            }
+            if (outcome.summary != null) {
+                summaries.put(path, outcome.summary);
+            } else {
+                failures.put(path, outcome.failure);
+            }
+        }
+
+        metrics.endPhase(AnalysisMetrics.PHASE_PARSE, phaseStart);
+        return new ParsedProject(summaries, failures, fingerprints,
+                System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 解析单个文件：文件内容只读取一次，同时用于计算指纹和解析；提取摘要后AST不再被引用
+     */
+    private FileOutcome parseFile(Path path, SourceArchive.Reader reader) {
+        FileOutcome outcome = new FileOutcome();
+        long startTime = metrics.startTime();
+        try {
+            byte[] content = reader.read(path);
+            outcome.fingerprint = reader.fingerprint(path, content);
+
+            ParseResult<CompilationUnit> result = parsers.get().parse(new ByteArrayInputStream(content));
+            if (result.isSuccessful() && result.getResult().isPresent()) {
+                outcome.summary = SummaryExtractor.extract(path.toString(), result.getResult().get());
+            } else {
+                outcome.failure = result.getProblems().stream()
+                        .map(Problem::getVerboseMessage)
+                        .collect(Collectors.joining("; "));
+            }
+        } catch (Exception e) {
+            outcome.failure = String.valueOf(e.getMessage());
+        }
+        if (metrics.isEnabled()) {
+            metrics.recordFileParse(path.toString(), System.nanoTime() - startTime, outcome.summary != null);
+        }
+        return outcome;
+    }
+
+    private static final class FileOutcome {
+        private FileSummary summary;
+        private String failure;
+        private FileFingerprint fingerprint;
+    }
+}
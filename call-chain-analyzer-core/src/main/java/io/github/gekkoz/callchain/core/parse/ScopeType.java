@@ -0,0 +1,132 @@
+package io.github.gekkoz.callchain.core.parse;
+
+import java.util.Arrays;
+
+/**
+ * 调用作用域的静态类型描述，由单个文件的AST推断，跨文件的部分留给索引构建时解析。
+ * <p>
+ * 由一个起点和若干成员访问组成：起点是已知类型（局部变量、参数、本类字段、this、new、强制转换等）、
+ * 尚未确定的名称（继承的字段或类名）、super或无法推断；其后依次是字段访问和方法调用，
+ * 如 {@code userService.getRepository().findAll()} 中findAll的作用域为 名称userService → getRepository()。
+ * 实例不可变，{@link #getKey()} 可作为缓存键。
+ */
+public final class ScopeType {
+
+    public enum Kind {
+        /** 已知类型，名称为擦除泛型后的简单类名 */
+        TYPE,
+        /** 尚未确定的简单名称：继承的字段、类名或包名的第一段 */
+        NAME,
+        /** super */
+        SUPER,
+        /** 无法推断，如数组元素、未声明类型的lambda参数 */
+        UNKNOWN
+    }
+
+    public static final ScopeType SUPER = new ScopeType(Kind.SUPER, null, new String[0]);
+    public static final ScopeType UNKNOWN = new ScopeType(Kind.UNKNOWN, null, new String[0]);
+
+    private final Kind kind;
+    private final String name;
+    // 成员访问：字段名，或以"()"结尾的方法名
+    private final String[] members;
+    private final String key;
+
+    private ScopeType(Kind kind, String name, String[] members) {
+        this.kind = kind;
+        this.name = name;
+        this.members = members;
+        StringBuilder key = new StringBuilder().append(kind.name().charAt(0));
+        if (name != null) key.append(name);
+        for (String member : members) {
+            key.append('.').append(member);
+        }
+        this.key = key.toString();
+    }
+
+    public static ScopeType type(String typeName) {
+        return typeName == null ? UNKNOWN : new ScopeType(Kind.TYPE, typeName, new String[0]);
+    }
+
+    public static ScopeType name(String name) {
+        return new ScopeType(Kind.NAME, name, new String[0]);
+    }
+
+    /**
+     * 在此作用域上访问字段
+     */
+    public ScopeType field(String fieldName) {
+        return member(fieldName);
+    }
+
+    /**
+     * 在此作用域上调用方法，结果为方法的返回类型
+     */
+    public ScopeType method(String methodName) {
+        return member(methodName + "()");
+    }
+
+    private ScopeType member(String member) {
+        if (kind == Kind.UNKNOWN) return this;
+        String[] result = Arrays.copyOf(members, members.length + 1);
+        result[members.length] = member;
+        return new ScopeType(kind, name, result);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * 起点的类型名或名称，SUPER和UNKNOWN时为null
+     */
+    public String getName() {
+        return name;
+    }
+
+    public int getMemberCount() {
+        return members.length;
+    }
+
+    public String getMember(int i) {
+        return members[i];
+    }
+
+    public static boolean isMethod(String member) {
+        return member.endsWith("()");
+    }
+
+    /**
+     * 唯一标识此类型描述的字符串
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 擦除类型字符串中的泛型参数和限定名，得到简单类名；数组类型和空字符串返回null
+     */
+    public static String erase(String typeName) {
+        if (typeName == null) return null;
+        int generic = typeName.indexOf('<');
+        String erased = generic >= 0 ? typeName.substring(0, generic) : typeName;
+        if (typeName.endsWith("]") || typeName.endsWith("...")) return null;
+        erased = erased.substring(erased.lastIndexOf('.') + 1).trim();
+        return erased.isEmpty() ? null : erased;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ScopeType && key.equals(((ScopeType) o).key);
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+}
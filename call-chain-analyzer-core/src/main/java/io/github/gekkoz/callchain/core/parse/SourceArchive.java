@@ -0,0 +1,165 @@
+package io.github.gekkoz.callchain.core.parse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 源码归档（-sources.jar、zip）的读取，归档通过zip文件系统原地读取，不解压到磁盘。
+ * <p>
+ * 归档中的Java文件以“归档路径!/条目路径”的形式表示，如 /repo/lib-1.0-sources.jar!/com/example/Foo.java，
+ * 与普通文件一样作为索引中的文件路径。条目的指纹取整个归档的指纹，归档未变化时其中的条目都无需重新解析。
+ */
+public final class SourceArchive {
+
+    private SourceArchive() {
+    }
+
+    /**
+     * 是否为源码归档：以.jar或.zip结尾的普通文件
+     */
+    public static boolean isArchive(Path path) {
+        String name = path.getFileName() == null ? "" : path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return (name.endsWith(".jar") || name.endsWith(".zip")) && Files.isRegularFile(path);
+    }
+
+    /**
+     * 是否为归档中的条目路径
+     */
+    public static boolean isEntry(String filePath) {
+        return separatorIndex(filePath) >= 0;
+    }
+
+    /**
+     * 条目所在归档的路径，不是条目路径时返回null
+     */
+    public static String archiveOf(String filePath) {
+        int separator = separatorIndex(filePath);
+        return separator < 0 ? null : filePath.substring(0, separator);
+    }
+
+    /**
+     * 归档中全部条目路径的公共前缀
+     */
+    public static String entryPrefix(Path archive) {
+        return archive.toString() + "!" + archive.getFileSystem().getSeparator();
+    }
+
+    private static int separatorIndex(String filePath) {
+        int index = filePath.indexOf('!');
+        while (index > 0) {
+            String archive = filePath.substring(0, index).toLowerCase(Locale.ROOT);
+            if ((archive.endsWith(".jar") || archive.endsWith(".zip")) && index + 1 < filePath.length()
+                    && (filePath.charAt(index + 1) == '/' || filePath.charAt(index + 1) == '\\')) {
+                return index;
+            }
+            index = filePath.indexOf('!', index + 1);
+        }
+        return -1;
+    }
+
+    /**
+     * 读取普通文件和归档条目的读取器，每个归档只打开一次，可被多个线程同时使用
+     */
+    public static final class Reader implements Closeable {
+
+        private final Map<Path, FileSystem> fileSystems = new ConcurrentHashMap<>();
+        private final Map<Path, FileFingerprint> archiveFingerprints = new ConcurrentHashMap<>();
+
+        /**
+         * 把归档展开为其中的Java条目，其他路径保持不变
+         */
+        public List<Path> expand(List<Path> files) {
+            List<Path> result = new ArrayList<>(files.size());
+            for (Path path : files) {
+                if (isArchive(path)) {
+                    result.addAll(entries(path));
+                } else {
+                    result.add(path);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 归档中的Java条目，按条目路径排序
+         */
+        public List<Path> entries(Path archive) {
+            FileSystem fileSystem = open(archive);
+            String prefix = archive.toString() + "!";
+            List<Path> result = new ArrayList<>();
+            for (Path root : fileSystem.getRootDirectories()) {
+                try (Stream<Path> paths = Files.walk(root)) {
+                    result.addAll(paths.filter(path -> path.toString().endsWith(".java") && Files.isRegularFile(path))
+                            .map(path -> Paths.get(prefix + path))
+                            .sorted()
+                            .collect(Collectors.toList()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("读取归档失败: " + archive, e);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 读取文件或归档条目的内容
+         */
+        public byte[] read(Path path) throws IOException {
+            String filePath = path.toString();
+            int separator = separatorIndex(filePath);
+            if (separator < 0) {
+                return Files.readAllBytes(path);
+            }
+            FileSystem fileSystem = open(Paths.get(filePath.substring(0, separator)));
+            return Files.readAllBytes(fileSystem.getPath(filePath.substring(separator + 1).replace('\\', '/')));
+        }
+
+        /**
+         * 计算指纹：普通文件使用自身内容，归档条目使用所在归档的指纹
+         */
+        public FileFingerprint fingerprint(Path path, byte[] content) throws IOException {
+            String archive = archiveOf(path.toString());
+            if (archive == null) {
+                return FileFingerprint.of(path, content);
+            }
+            try {
+                return archiveFingerprints.computeIfAbsent(Paths.get(archive), file -> {
+                    try {
+                        return FileFingerprint.of(file);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        private FileSystem open(Path archive) {
+            return fileSystems.computeIfAbsent(archive, file -> {
+                try {
+                    return FileSystems.newFileSystem(file, (ClassLoader) null);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("无法打开归档: " + file, e);
+                }
+            });
+        }
+
+        @Override
+        public void close() {
+            for (FileSystem fileSystem : fileSystems.values()) {
+                try {
+                    fileSystem.close();
+                } catch (IOException e) {
+                    // 只读打开的归档，关闭失败不影响结果
+                }
+            }
+            fileSystems.clear();
+        }
+    }
+}
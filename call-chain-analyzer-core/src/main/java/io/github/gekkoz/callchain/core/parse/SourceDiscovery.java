@@ -0,0 +1,380 @@
+package io.github.gekkoz.callchain.core.parse;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 查找项目中需要解析的Java源文件。
+ * <p>
+ * 项目根目录有pom.xml时按Maven模块布局查找：递归读取 &lt;modules&gt;（包括各profile中声明的模块），
+ * 每个模块的源码目录取 &lt;sourceDirectory&gt;，未指定时为src/main/java；
+ * 有settings.gradle或build.gradle时按Gradle布局查找：读取include声明的子项目，
+ * 源码目录为src/main/java以及构建脚本中srcDir、srcDirs指定的目录。
+ * 只遍历这些源码目录，构建输出、生成代码、测试代码、node_modules等目录不会被访问。
+ * 没有构建文件或找不到任何源码目录时遍历整个项目目录，并整棵跳过target、build、out、node_modules和测试源码目录。
+ * <p>
+ * 隐藏目录和匹配排除规则的目录在遍历时整棵跳过。排除规则是相对于项目根目录的glob，
+ * 如 {@code **}{@code /generated/**}、{@code legacy/**}、{@code **}{@code /*Test.java}。
+ * 各源码目录在独立的ForkJoinPool上并行遍历，结果按路径排序。
+ * <p>
+ * 项目路径本身是源码归档（-sources.jar、zip）时只返回该归档；通过 {@link #archive} 追加的归档总是包含在结果中，
+ * 归档在解析时原地读取，见 {@link SourceArchive}。
+ */
+public class SourceDiscovery {
+
+    private static final String DEFAULT_SOURCE_DIRECTORY = "src/main/java";
+    private static final String DEFAULT_TEST_SOURCE_DIRECTORY = "src/test/java";
+
+    // 没有构建文件时整棵跳过的目录
+    private static final Set<String> OUTPUT_DIRECTORIES = new HashSet<>(Arrays.asList("target", "build", "out", "node_modules"));
+
+    private static final Pattern QUOTED = Pattern.compile("['\"]([^'\"]+)['\"]");
+
+    // settings脚本中的include语句：Kotlin的 include(...) 或Groovy的 include 'a', 'b'，参数可以跨行；不匹配includeBuild等
+    private static final Pattern INCLUDE = Pattern.compile(
+            "(?<![\\w.])include(?!\\w)\\s*(?:\\(([^)]*)\\)|((?:['\"][^'\"]*['\"]\\s*,\\s*)*['\"][^'\"]*['\"]))");
+
+    // 行注释和块注释，行注释不能紧跟在冒号后面，以免截断字符串中的URL
+    private static final Pattern COMMENT = Pattern.compile("(?<!:)//[^\\n]*|/\\*.*?\\*/", Pattern.DOTALL);
+
+    private final List<String> excludes = new ArrayList<>();
+    private final List<Path> archives = new ArrayList<>();
+    private boolean includeTests;
+    private int parallelism;
+
+    /**
+     * 追加一条排除规则：相对于项目根目录的glob，以 /** 结尾的规则在遍历时直接跳过整个目录
+     */
+    public SourceDiscovery exclude(String glob) {
+        excludes.add(glob);
+        return this;
+    }
+
+    /**
+     * 追加一个源码归档，如本地Maven仓库中依赖的 -sources.jar
+     */
+    public SourceDiscovery archive(Path archive) {
+        archives.add(archive.toAbsolutePath().normalize());
+        return this;
+    }
+
+    /**
+     * 是否包含测试源码目录，默认不包含
+     */
+    public SourceDiscovery includeTests(boolean includeTests) {
+        this.includeTests = includeTests;
+        return this;
+    }
+
+    /**
+     * 并行遍历的线程数，小于1时使用可用处理器数
+     */
+    public SourceDiscovery parallelism(int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public List<String> getExcludes() {
+        return Collections.unmodifiableList(excludes);
+    }
+
+    public List<Path> getArchives() {
+        return Collections.unmodifiableList(archives);
+    }
+
+    public boolean isIncludeTests() {
+        return includeTests;
+    }
+
+    /**
+     * 查找项目中的Java源文件和源码归档，按路径排序
+     */
+    public List<Path> discover(Path root) {
+        if (archives.isEmpty()) {
+            return discoverSources(root);
+        }
+        Set<Path> result = new TreeSet<>(discoverSources(root));
+        for (Path archive : archives) {
+            if (SourceArchive.isArchive(archive)) result.add(archive);
+        }
+        return new ArrayList<>(result);
+    }
+
+    private List<Path> discoverSources(Path root) {
+        if (SourceArchive.isArchive(root)) {
+            return Collections.singletonList(root);
+        }
+        Walker walker = new Walker(root);
+        List<Path> sourceRoots = findSourceRoots(root);
+        boolean pruneOutputs = sourceRoots.isEmpty();
+        if (pruneOutputs) sourceRoots = Collections.singletonList(root);
+
+        if (sourceRoots.size() == 1) {
+            return walker.walk(sourceRoots.get(0), pruneOutputs);
+        }
+
+        List<Path> roots = sourceRoots;
+        int threads = Math.min(roots.size(), parallelism < 1 ? Runtime.getRuntime().availableProcessors() : parallelism);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            // 嵌套的源码目录可能重复访问同一文件，用有序集合去重
+            return new ArrayList<>(pool.submit(() -> roots.parallelStream()
+                    .flatMap(sourceRoot -> walker.walk(sourceRoot, false).stream())
+                    .collect(Collectors.toCollection(TreeSet::new))).get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("遍历项目文件被中断", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("解析项目文件失败", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 查找时整棵跳过的目录，与 {@link #discover} 的规则相同：隐藏目录、匹配排除规则的目录，
+     * pruneOutputs为true时还有构建输出目录和不包含的测试源码目录。只按路径判断，不访问文件系统，
+     * 供监听源码目录时使用
+     *
+     * @param pruneOutputs 是否为 {@link #findSourceRoots} 找不到源码目录、遍历整个项目时的规则
+     */
+    public Predicate<Path> skippedDirectories(Path root, boolean pruneOutputs) {
+        Walker walker = new Walker(root);
+        return dir -> walker.skips(dir, pruneOutputs);
+    }
+
+    /**
+     * 从构建文件中读取存在的源码目录；没有构建文件时返回空列表
+     */
+    public List<Path> findSourceRoots(Path root) {
+        Set<Path> roots = new LinkedHashSet<>();
+        if (Files.isRegularFile(root.resolve("pom.xml"))) {
+            collectMavenRoots(root, roots, new HashSet<>());
+        } else if (hasAny(root, "settings.gradle", "settings.gradle.kts", "build.gradle", "build.gradle.kts")) {
+            collectGradleRoots(root, roots);
+        }
+        List<Path> result = new ArrayList<>();
+        for (Path sourceRoot : roots) {
+            if (Files.isDirectory(sourceRoot)) result.add(sourceRoot);
+        }
+        return result;
+    }
+
+    private void collectMavenRoots(Path moduleDir, Set<Path> roots, Set<Path> visited) {
+        if (!visited.add(moduleDir.toAbsolutePath().normalize())) return;
+
+        Element project = readPom(moduleDir.resolve("pom.xml"));
+        Element build = child(project, "build");
+        roots.add(sourceDirectory(moduleDir, text(child(build, "sourceDirectory")), DEFAULT_SOURCE_DIRECTORY));
+        if (includeTests) {
+            roots.add(sourceDirectory(moduleDir, text(child(build, "testSourceDirectory")), DEFAULT_TEST_SOURCE_DIRECTORY));
+        }
+
+        List<String> modules = new ArrayList<>();
+        for (Element module : children(child(project, "modules"), "module")) {
+            modules.add(text(module));
+        }
+        for (Element profile : children(child(project, "profiles"), "profile")) {
+            for (Element module : children(child(profile, "modules"), "module")) {
+                modules.add(text(module));
+            }
+        }
+        for (String module : modules) {
+            if (module == null || module.isEmpty()) continue;
+            Path child = moduleDir.resolve(module).normalize();
+            // <module>可以直接指向模块的pom文件
+            if (module.endsWith(".xml")) child = child.getParent();
+            if (child != null && Files.isRegularFile(child.resolve("pom.xml"))) {
+                collectMavenRoots(child, roots, visited);
+            }
+        }
+    }
+
+    private void collectGradleRoots(Path root, Set<Path> roots) {
+        List<Path> projectDirs = new ArrayList<>();
+        projectDirs.add(root);
+        String settings = String.join("\n", readLines(firstExisting(root, "settings.gradle", "settings.gradle.kts")));
+        Matcher include = INCLUDE.matcher(COMMENT.matcher(settings).replaceAll(""));
+        while (include.find()) {
+            Matcher matcher = QUOTED.matcher(include.group(1) != null ? include.group(1) : include.group(2));
+            while (matcher.find()) {
+                String path = matcher.group(1).replaceFirst("^:", "").replace(':', '/');
+                if (!path.isEmpty()) projectDirs.add(root.resolve(path).normalize());
+            }
+        }
+
+        for (Path projectDir : projectDirs) {
+            roots.add(projectDir.resolve(DEFAULT_SOURCE_DIRECTORY));
+            if (includeTests) roots.add(projectDir.resolve(DEFAULT_TEST_SOURCE_DIRECTORY));
+            for (String line : readLines(firstExisting(projectDir, "build.gradle", "build.gradle.kts"))) {
+                if (!line.contains("srcDir")) continue;
+                Matcher matcher = QUOTED.matcher(line.substring(line.indexOf("srcDir")));
+                while (matcher.find()) {
+                    String directory = matcher.group(1);
+                    if (includeTests || !isTestPath(directory)) roots.add(projectDir.resolve(directory).normalize());
+                }
+            }
+        }
+    }
+
+    private static Path sourceDirectory(Path moduleDir, String configured, String defaultDirectory) {
+        if (configured != null) {
+            String directory = configured.replace("${project.basedir}", ".").replace("${basedir}", ".");
+            if (!directory.contains("${")) return moduleDir.resolve(directory).normalize();
+        }
+        return moduleDir.resolve(defaultDirectory);
+    }
+
+    private static boolean isTestPath(String directory) {
+        for (String segment : directory.split("[/\\\\]")) {
+            if (segment.equals("test") || segment.endsWith("Test")) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 读取pom文件的project元素，无法读取时返回null，按默认源码目录处理
+     */
+    private static Element readPom(Path pom) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            try {
+                // pom文件不需要DTD，禁用以免解析外部实体
+                factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            } catch (Exception e) {
+                factory.setExpandEntityReferences(false);
+            }
+            Document document = factory.newDocumentBuilder().parse(pom.toFile());
+            return document.getDocumentElement();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Element child(Element parent, String name) {
+        List<Element> children = children(parent, name);
+        return children.isEmpty() ? null : children.get(0);
+    }
+
+    private static List<Element> children(Element parent, String name) {
+        if (parent == null) return Collections.emptyList();
+        List<Element> result = new ArrayList<>();
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element && name.equals(((Element) node).getTagName())) {
+                result.add((Element) node);
+            }
+        }
+        return result;
+    }
+
+    private static String text(Element element) {
+        return element == null ? null : element.getTextContent().trim();
+    }
+
+    private static boolean hasAny(Path dir, String... names) {
+        return firstExisting(dir, names) != null;
+    }
+
+    private static Path firstExisting(Path dir, String... names) {
+        for (String name : names) {
+            Path path = dir.resolve(name);
+            if (Files.isRegularFile(path)) return path;
+        }
+        return null;
+    }
+
+    private static List<String> readLines(Path path) {
+        if (path == null) return Collections.emptyList();
+        try {
+            return Files.readAllLines(path, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 带排除规则的目录遍历，可被多个线程共享
+     */
+    private final class Walker {
+        private final Path projectRoot;
+        private final List<PathMatcher> fileMatchers = new ArrayList<>();
+        private final List<PathMatcher> directoryMatchers = new ArrayList<>();
+
+        Walker(Path projectRoot) {
+            this.projectRoot = projectRoot;
+            FileSystem fileSystem = projectRoot.getFileSystem();
+            for (String glob : excludes) {
+                fileMatchers.add(fileSystem.getPathMatcher("glob:" + glob));
+                directoryMatchers.add(fileSystem.getPathMatcher("glob:" + glob));
+                if (glob.endsWith("/**")) {
+                    directoryMatchers.add(fileSystem.getPathMatcher("glob:" + glob.substring(0, glob.length() - 3)));
+                }
+            }
+        }
+
+        List<Path> walk(Path start, boolean pruneOutputs) {
+            List<Path> files = new ArrayList<>();
+            try {
+                Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                        if (dir.equals(start)) return FileVisitResult.CONTINUE;
+                        return skips(dir, pruneOutputs) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (attrs.isRegularFile() && file.toString().endsWith(".java") && !matches(fileMatchers, file)) {
+                            files.add(file);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                throw new RuntimeException("解析项目文件失败", e);
+            }
+            Collections.sort(files);
+            return files;
+        }
+
+        boolean skips(Path dir, boolean pruneOutputs) {
+            String name = dir.getFileName().toString();
+            if (name.startsWith(".") || matches(directoryMatchers, dir)) return true;
+            return pruneOutputs && (OUTPUT_DIRECTORIES.contains(name) || (!includeTests && isTestRoot(dir)));
+        }
+
+        private boolean matches(List<PathMatcher> matchers, Path path) {
+            if (matchers.isEmpty()) return false;
+            Path relative = projectRoot.relativize(path);
+            for (PathMatcher matcher : matchers) {
+                if (matcher.matches(relative)) return true;
+            }
+            return false;
+        }
+
+        private boolean isTestRoot(Path dir) {
+            Path parent = dir.getParent();
+            return "test".equals(dir.getFileName().toString()) && parent != null && parent.getFileName() != null
+                    && "src".equals(parent.getFileName().toString());
+        }
+    }
+}
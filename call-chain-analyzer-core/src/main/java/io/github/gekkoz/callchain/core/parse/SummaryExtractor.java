@@ -0,0 +1,390 @@
+package io.github.gekkoz.callchain.core.parse;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.*;
+import com.github.javaparser.ast.nodeTypes.NodeWithAnnotations;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.ast.type.TypeParameter;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+
+import java.util.*;
+
+/**
+ * 从编译单元中提取 {@link FileSummary}，每个编译单元只遍历一次。
+ * 提取只依赖单个文件的AST，可以在解析线程中完成，提取后AST即可丢弃；
+ * 需要跨文件信息的部分（调用目标类、接口映射等）留给索引构建时处理。
+ */
+public final class SummaryExtractor {
+
+    private static final String[] REST_ANNOTATIONS = {"GetMapping", "PostMapping", "PutMapping", "DeleteMapping", "PatchMapping", "RequestMapping"};
+
+    private SummaryExtractor() {
+    }
+
+    public static FileSummary extract(String filePath, CompilationUnit cu) {
+        FileSummary summary = new FileSummary(filePath);
+        String packageName = cu.getPackageDeclaration().map(p -> p.getNameAsString()).orElse("");
+        cu.accept(new ExtractingVisitor(summary, packageName), null);
+        return summary;
+    }
+
+    /**
+     * 单次遍历编译单元的访问器。
+     * 类栈记录当前所在的类或接口，方法归属于栈顶的类（匿名类中的方法归属于外层的类）；
+     * 方法栈记录当前所在的方法体，方法体中的调用和标识符引用记入栈中的每个方法，
+     * 即外层方法同样包含其中匿名类、局部类方法体里的调用。
+     * 变量栈记录方法体和lambda中声明的参数与局部变量的类型，用于推断调用作用域的静态类型 {@link ScopeType}；
+     * 同一方法体内不区分语句块，后声明的同名变量覆盖先声明的。
+     */
+    private static final class ExtractingVisitor extends VoidVisitorAdapter<Void> {
+        private final FileSummary summary;
+        private final String packageName;
+        private final Deque<ClassOrInterfaceDeclaration> declarations = new ArrayDeque<>();
+        private final Deque<ClassSummary> classes = new ArrayDeque<>();
+        private final List<MethodSummary> methods = new ArrayList<>();
+        private final List<Map<String, ScopeType>> locals = new ArrayList<>();
+        private final List<Set<String>> methodTypeParameters = new ArrayList<>();
+
+        ExtractingVisitor(FileSummary summary, String packageName) {
+            this.summary = summary;
+            this.packageName = packageName;
+        }
+
+        @Override
+        public void visit(ClassOrInterfaceDeclaration cid, Void arg) {
+            ClassSummary cls = extractClass(cid, packageName);
+            declarations.push(cid);
+            classes.push(cls);
+            super.visit(cid, arg);
+            declarations.pop();
+            classes.pop();
+            summary.getClasses().add(cls);
+        }
+
+        @Override
+        public void visit(MethodDeclaration md, Void arg) {
+            ClassSummary owner = classes.peek();
+            MethodSummary method = new MethodSummary(owner, md.getNameAsString(), getMethodSignature(md));
+            for (String annotation : REST_ANNOTATIONS) {
+                if (md.isAnnotationPresent(annotation)) {
+                    method.setHasMappingAnnotation(true);
+                    break;
+                }
+            }
+            method.setMapping(extractMethodLevelMapping(md));
+            md.getRange().ifPresent(range -> method.setLines(range.begin.line, range.end.line));
+
+            // 如果是接口自身声明的方法，收集接口中的方法映射信息
+            if (owner != null && owner.isInterface() && method.getMapping() != null &&
+                    md.getParentNode().orElse(null) == declarations.peek()) {
+                owner.getInterfaceMethodMappings().put(method.getName() + "#" + method.getSignature(), method.getMapping());
+            }
+
+            if (owner != null && md.getParentNode().orElse(null) == declarations.peek()) {
+                recordReturnType(owner, md);
+            }
+
+            if (md.getBody().isPresent()) {
+                Set<String> typeParameters = new HashSet<>();
+                md.getTypeParameters().forEach(p -> typeParameters.add(p.getNameAsString()));
+                methodTypeParameters.add(typeParameters);
+                Map<String, ScopeType> variables = new HashMap<>();
+                locals.add(variables);
+                for (Parameter parameter : md.getParameters()) {
+                    variables.put(parameter.getNameAsString(), parameterType(parameter));
+                }
+                methods.add(method);
+                md.getBody().get().accept(this, arg);
+                methods.remove(methods.size() - 1);
+                locals.remove(locals.size() - 1);
+                methodTypeParameters.remove(methodTypeParameters.size() - 1);
+            }
+            summary.getMethods().add(method);
+        }
+
+        @Override
+        public void visit(LambdaExpr lambda, Void arg) {
+            if (locals.isEmpty()) {
+                super.visit(lambda, arg);
+                return;
+            }
+            locals.add(new HashMap<>());
+            super.visit(lambda, arg);
+            locals.remove(locals.size() - 1);
+        }
+
+        @Override
+        public void visit(Parameter parameter, Void arg) {
+            super.visit(parameter, arg);
+            // lambda参数和catch参数，方法参数在访问方法时记录
+            if (!locals.isEmpty()) {
+                locals.get(locals.size() - 1).put(parameter.getNameAsString(), parameterType(parameter));
+            }
+        }
+
+        @Override
+        public void visit(VariableDeclarator vd, Void arg) {
+            super.visit(vd, arg);
+            if (locals.isEmpty()) return;
+            ScopeType type;
+            if (isVar(vd.getType())) {
+                type = vd.getInitializer().map(this::scopeType).orElse(ScopeType.UNKNOWN);
+            } else {
+                type = declaredType(vd.getType().asString());
+            }
+            locals.get(locals.size() - 1).put(vd.getNameAsString(), type);
+        }
+
+        @Override
+        public void visit(FieldAccessExpr fae, Void arg) {
+            super.visit(fae, arg);
+            // 处理多种常量引用方式（以关键字本身为作用域的引用由NameExpr记录）
+            if (!methods.isEmpty() && fae.getScope().toString().endsWith("Constants")) {
+                for (MethodSummary method : methods) {
+                    method.addConstantReference(fae.getNameAsString());
+                }
+            }
+        }
+
+        @Override
+        public void visit(NameExpr ne, Void arg) {
+            super.visit(ne, arg);
+            // 记录所有标识符引用，查询时按关键字取出
+            for (MethodSummary method : methods) {
+                method.addConstantReference(ne.getNameAsString());
+            }
+        }
+
+        @Override
+        public void visit(MethodCallExpr mce, Void arg) {
+            if (methods.isEmpty()) {
+                super.visit(mce, arg);
+                return;
+            }
+            // 在访问参数之前推断，避免参数中lambda声明的同名变量影响作用域
+            ScopeType scopeType = mce.getScope().map(this::scopeType).orElse(null);
+            ScopeType[] argumentTypes = new ScopeType[mce.getArguments().size()];
+            for (int i = 0; i < argumentTypes.length; i++) {
+                argumentTypes[i] = argumentType(mce.getArgument(i));
+            }
+            super.visit(mce, arg);
+            String scope = mce.getScope().map(Expression::toString).orElse(null);
+            for (MethodSummary method : methods) {
+                method.addCall(scope, scopeType, mce.getNameAsString(), argumentTypes);
+            }
+        }
+
+        /**
+         * 推断实参的静态类型，在 {@link #scopeType(Expression)} 的基础上识别基本类型字面量
+         */
+        private ScopeType argumentType(Expression expr) {
+            if (expr.isIntegerLiteralExpr()) return ScopeType.type("int");
+            if (expr.isLongLiteralExpr()) return ScopeType.type("long");
+            if (expr.isBooleanLiteralExpr()) return ScopeType.type("boolean");
+            if (expr.isCharLiteralExpr()) return ScopeType.type("char");
+            if (expr.isDoubleLiteralExpr()) {
+                String value = expr.asDoubleLiteralExpr().getValue();
+                return ScopeType.type(value.endsWith("f") || value.endsWith("F") ? "float" : "double");
+            }
+            return scopeType(expr);
+        }
+
+        /**
+         * 推断表达式的静态类型，只使用当前文件中的信息
+         */
+        private ScopeType scopeType(Expression expr) {
+            if (expr.isThisExpr()) {
+                Optional<Name> typeName = expr.asThisExpr().getTypeName();
+                if (typeName.isPresent()) return ScopeType.type(typeName.get().getIdentifier());
+                return thisType();
+            }
+            if (expr.isSuperExpr()) return ScopeType.SUPER;
+            if (expr.isNameExpr()) return nameType(expr.asNameExpr().getNameAsString());
+            if (expr.isFieldAccessExpr()) {
+                FieldAccessExpr fieldAccess = expr.asFieldAccessExpr();
+                return scopeType(fieldAccess.getScope()).field(fieldAccess.getNameAsString());
+            }
+            if (expr.isMethodCallExpr()) {
+                MethodCallExpr call = expr.asMethodCallExpr();
+                return call.getScope().map(this::scopeType).orElseGet(this::thisType).method(call.getNameAsString());
+            }
+            if (expr.isObjectCreationExpr()) return ScopeType.type(expr.asObjectCreationExpr().getType().getNameAsString());
+            if (expr.isCastExpr()) return declaredType(expr.asCastExpr().getType().asString());
+            if (expr.isEnclosedExpr()) return scopeType(expr.asEnclosedExpr().getInner());
+            if (expr.isStringLiteralExpr() || expr.isTextBlockLiteralExpr()) return ScopeType.type("String");
+            if (expr.isClassExpr()) return ScopeType.type("Class");
+            return ScopeType.UNKNOWN;
+        }
+
+        /**
+         * 简单名称的类型：依次查找局部变量、当前类及外层类的字段，都不是时留给索引构建时解析
+         */
+        private ScopeType nameType(String name) {
+            for (int i = locals.size() - 1; i >= 0; i--) {
+                ScopeType type = locals.get(i).get(name);
+                if (type != null) return type;
+            }
+            for (ClassSummary cls : classes) {
+                String fieldType = cls.getFields().get(name);
+                if (fieldType != null) return declaredType(fieldType);
+            }
+            return ScopeType.name(name);
+        }
+
+        private ScopeType thisType() {
+            return classes.isEmpty() ? ScopeType.UNKNOWN : ScopeType.type(classes.peek().getName());
+        }
+
+        private ScopeType parameterType(Parameter parameter) {
+            Type type = parameter.getType();
+            if (parameter.isVarArgs() || type.isUnknownType() || isVar(type)) return ScopeType.UNKNOWN;
+            return declaredType(type.asString());
+        }
+
+        // 按Java 8语法解析时var是名为var的普通类型
+        private boolean isVar(Type type) {
+            return type.isVarType() || "var".equals(type.asString());
+        }
+
+        private ScopeType declaredType(String typeName) {
+            String erased = ScopeType.erase(typeName);
+            return erased == null || isTypeParameter(erased) ? ScopeType.UNKNOWN : ScopeType.type(erased);
+        }
+
+        private boolean isTypeParameter(String name) {
+            for (Set<String> typeParameters : methodTypeParameters) {
+                if (typeParameters.contains(name)) return true;
+            }
+            for (ClassOrInterfaceDeclaration declaration : declarations) {
+                for (TypeParameter typeParameter : declaration.getTypeParameters()) {
+                    if (typeParameter.getNameAsString().equals(name)) return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 记录类中直接声明的方法的返回类型，重载方法的返回类型不一致时记为未知
+         */
+        private void recordReturnType(ClassSummary owner, MethodDeclaration md) {
+            String type = ScopeType.erase(md.getType().asString());
+            for (TypeParameter typeParameter : md.getTypeParameters()) {
+                if (typeParameter.getNameAsString().equals(type)) type = null;
+            }
+            if (type == null || isTypeParameter(type)) type = "";
+            String previous = owner.getMethodReturnTypes().putIfAbsent(md.getNameAsString(), type);
+            if (previous != null && !previous.equals(type)) {
+                owner.getMethodReturnTypes().put(md.getNameAsString(), "");
+            }
+        }
+    }
+
+    /**
+     * 提取类级别信息；接口的方法映射在访问方法时收集
+     */
+    private static ClassSummary extractClass(ClassOrInterfaceDeclaration cid, String packageName) {
+        ClassSummary cls = new ClassSummary(cid.getNameAsString(), packageName, cid.isInterface());
+        cid.getAnnotations().forEach(a -> cls.getAnnotations().add(a.getNameAsString()));
+
+        for (FieldDeclaration fd : cid.getFields()) {
+            for (VariableDeclarator vd : fd.getVariables()) {
+                cls.getFields().put(vd.getNameAsString(), fd.getElementType().asString());
+            }
+        }
+
+        if (!cid.getExtendedTypes().isEmpty()) {
+            cls.setSuperClass(cid.getExtendedTypes().get(0).getNameAsString());
+        }
+        for (ClassOrInterfaceType extended : cid.getExtendedTypes()) {
+            cls.getExtendedTypes().add(extended.getNameAsString());
+        }
+        if (cid.isAnnotationPresent("RequestMapping")) {
+            cls.setRequestMapping(getMappingValue(cid, "RequestMapping"));
+        }
+        for (ClassOrInterfaceType implemented : cid.getImplementedTypes()) {
+            cls.getImplementedTypes().add(implemented.getNameAsString());
+        }
+        return cls;
+    }
+
+    /**
+     * 提取方法级别的映射路径
+     */
+    private static String extractMethodLevelMapping(MethodDeclaration md) {
+        for (String annotation : REST_ANNOTATIONS) {
+            String mapping = getMappingValue(md, annotation);
+            if (mapping != null) {
+                return mapping;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 从注解中提取映射路径值
+     */
+    private static String getMappingValue(NodeWithAnnotations<?> node, String annotationName) {
+        if (node.isAnnotationPresent(annotationName)) {
+            Optional<AnnotationExpr> annotationOpt = node.getAnnotationByName(annotationName);
+            if (annotationOpt.isPresent()) {
+                AnnotationExpr annotation = annotationOpt.get();
+                if (annotation instanceof SingleMemberAnnotationExpr) {
+                    // @RequestMapping("/path") 格式
+                    Expression valueExpr = ((SingleMemberAnnotationExpr) annotation).getMemberValue();
+                    return extractPathValue(valueExpr);
+                } else if (annotation instanceof NormalAnnotationExpr) {
+                    // @RequestMapping(value = "/path", method = ...) 格式
+                    NormalAnnotationExpr normalAnnotation = (NormalAnnotationExpr) annotation;
+                    for (MemberValuePair pair : normalAnnotation.getPairs()) {
+                        if ("value".equals(pair.getNameAsString()) || "path".equals(pair.getNameAsString())) {
+                            return extractPathValue(pair.getValue());
+                        }
+                    }
+                } else if (annotation instanceof MarkerAnnotationExpr) {
+                    // @RequestMapping() 格式，没有参数
+                    return ""; // 默认路径
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 从表达式中提取路径值
+     */
+    private static String extractPathValue(Expression expr) {
+        if (expr instanceof StringLiteralExpr) {
+            // "/path" 格式
+            return ((StringLiteralExpr) expr).getValue();
+        } else if (expr instanceof ArrayInitializerExpr) {
+            // {"/path1", "/path2"} 格式，取第一个
+            ArrayInitializerExpr arrayExpr = (ArrayInitializerExpr) expr;
+            if (!arrayExpr.getValues().isEmpty()) {
+                return extractPathValue(arrayExpr.getValues().get(0));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取方法签名字符串
+     */
+    private static String getMethodSignature(MethodDeclaration md) {
+        StringBuilder signature = new StringBuilder();
+        signature.append(md.getNameAsString()).append("(");
+        for (int i = 0; i < md.getParameters().size(); i++) {
+            if (i > 0) signature.append(",");
+            Parameter parameter = md.getParameters().get(i);
+            signature.append(parameter.getType().asString());
+            if (parameter.isVarArgs()) signature.append("...");
+        }
+        signature.append(")");
+        return signature.toString();
+    }
+}
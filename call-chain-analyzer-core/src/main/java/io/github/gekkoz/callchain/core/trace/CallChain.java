@@ -0,0 +1,41 @@
+package io.github.gekkoz.callchain.core.trace;
+
+import io.github.gekkoz.callchain.core.descriptor.MethodDescriptor;
+
+import java.util.List;
+
+/**
+ * 一条从Controller方法到起始方法的调用链
+ */
+public class CallChain {
+    private final MethodDescriptor start;
+    private final List<String> methods;
+
+    public CallChain(MethodDescriptor start, List<String> methods) {
+        this.start = start;
+        this.methods = methods;
+    }
+
+    /**
+     * 起始方法，即关键字的使用位置
+     */
+    public MethodDescriptor getStart() {
+        return start;
+    }
+
+    /**
+     * 调用链上的方法，Controller方法在前，起始方法在最后
+     */
+    public List<String> getMethods() {
+        return methods;
+    }
+
+    public String getControllerMethod() {
+        return methods.get(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.join(" <- ", methods);
+    }
+}
@@ -0,0 +1,200 @@
+package io.github.gekkoz.callchain.core.trace;
+
+import io.github.gekkoz.callchain.core.descriptor.MethodDescriptor;
+import io.github.gekkoz.callchain.core.index.CallGraph;
+import io.github.gekkoz.callchain.core.metrics.AnalysisMetrics;
+
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 逐条产生调用链的迭代器。
+ * 依次处理每个起始方法，每次只展开一条调用链，内存占用与调用链总数无关；
+ * 达到 {@link TraceOptions} 中的数量或时间限制后停止，可通过 {@link #getStopReason()} 查看停止原因。
+ * 迭代结束时把耗时、调用链数和访问的调用边数记入 {@link AnalysisMetrics}，中途放弃的迭代不记录。
+ */
+public final class CallChainIterator implements Iterator<CallChain> {
+
+    /**
+     * 迭代结束的原因
+     */
+    public enum StopReason {
+        /** 尚未结束 */
+        RUNNING,
+        /** 所有调用链均已输出（每个起始方法的数量限制、深度限制和按代价排序时的K除外） */
+        COMPLETED,
+        /** 达到调用链总数限制，之后可能还有未输出的调用链 */
+        MAX_TOTAL_CHAINS,
+        /** 超过查询时间限制 */
+        TIMEOUT
+    }
+
+    private final CallGraph graph;
+    private final CondensedCallGraph condensed;
+    private final List<MethodDescriptor> starts;
+    private final TraceOptions options;
+    private final AnalysisMetrics metrics;
+    private final long deadline;
+    private final long startTime;
+
+    // 按代价排序时各起始方法共用的搜索工作区，第一次使用时分配
+    private RankedChainCursor.Workspace rankedWorkspace;
+
+    private int startIndex = -1;
+    private int startNode;
+    private ChainCursor cursor;
+    private int startChainCount;
+    private long totalChainCount;
+    private long visits;
+    private boolean startTruncated;
+    private CallChain next;
+    private StopReason stopReason = StopReason.RUNNING;
+
+    /**
+     * @param condensed 缩点图，只在 {@link TraceOptions#isCondensed()} 为true且不按代价排序时使用
+     * @param starts    起始方法，重复的起始方法只追踪一次
+     */
+    public CallChainIterator(CallGraph graph, CondensedCallGraph condensed, List<MethodDescriptor> starts,
+                             TraceOptions options, AnalysisMetrics metrics) {
+        this.graph = graph;
+        this.condensed = condensed;
+        this.starts = dedupe(graph, starts);
+        this.options = options;
+        this.metrics = metrics;
+        this.startTime = metrics.startTime();
+        this.deadline = options.getTimeoutMillis() > 0
+                ? System.nanoTime() + options.getTimeoutMillis() * 1_000_000L
+                : 0;
+    }
+
+    private static List<MethodDescriptor> dedupe(CallGraph graph, List<MethodDescriptor> starts) {
+        Set<Integer> seen = new HashSet<>();
+        List<MethodDescriptor> result = new ArrayList<>();
+        for (MethodDescriptor start : starts) {
+            int node = graph.nodeOf(start);
+            if (node >= 0 && seen.add(node)) {
+                result.add(start);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && stopReason == StopReason.RUNNING) {
+            next = advance();
+            if (stopReason != StopReason.RUNNING) finish();
+        }
+        return next != null;
+    }
+
+    @Override
+    public CallChain next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        CallChain chain = next;
+        next = null;
+        return chain;
+    }
+
+    private void finish() {
+        if (cursor != null) visits += cursor.getVisits();
+        cursor = null;
+        String query = options.getTopK() > 0 ? AnalysisMetrics.QUERY_RANKED
+                : options.isCondensed() ? AnalysisMetrics.QUERY_DAG : AnalysisMetrics.QUERY_CHAINS;
+        metrics.recordQuery(query, startTime, totalChainCount, visits);
+        metrics.recordChainCount(totalChainCount);
+    }
+
+    private CallChain advance() {
+        while (true) {
+            if (totalChainCount >= options.getMaxTotalChains()) {
+                stopReason = StopReason.MAX_TOTAL_CHAINS;
+                return null;
+            }
+            if (ChainCursor.expired(deadline)) {
+                stopReason = StopReason.TIMEOUT;
+                return null;
+            }
+
+            if (cursor == null) {
+                if (++startIndex == starts.size()) {
+                    stopReason = StopReason.COMPLETED;
+                    return null;
+                }
+                MethodDescriptor start = starts.get(startIndex);
+                startNode = graph.nodeOf(start);
+                if (options.getTopK() > 0) {
+                    if (rankedWorkspace == null) rankedWorkspace = new RankedChainCursor.Workspace(graph);
+                    cursor = new RankedChainCursor(graph, rankedWorkspace, startNode, options.getTopK(), options.getEdgeWeight(),
+                            options.getMaxDepth(), deadline);
+                } else if (options.isCondensed()) {
+                    cursor = new DagChainCursor(condensed, startNode, options.getMaxDepth(), deadline);
+                } else {
+                    cursor = new ExactChainCursor(graph, startNode, options.getMaxDepth(), deadline);
+                }
+                startChainCount = 0;
+            }
+
+            if (startChainCount >= options.getMaxChainsPerStart()) {
+                if (cursor.next() != null) startTruncated = true;
+                visits += cursor.getVisits();
+                cursor = null;
+                continue;
+            }
+
+            int[] nodes = cursor.next();
+            if (nodes == null) {
+                visits += cursor.getVisits();
+                cursor = null;
+                continue;
+            }
+            startChainCount++;
+            totalChainCount++;
+            return new CallChain(graph.getMethod(startNode), toChain(graph, nodes));
+        }
+    }
+
+    /**
+     * 把起始方法在前的节点序列转换为Controller方法在前的调用链
+     */
+    static List<String> toChain(CallGraph graph, int[] nodes) {
+        List<String> chain = new ArrayList<>(nodes.length);
+        for (int i = nodes.length - 1; i >= 0; i--) {
+            chain.add(graph.getMethod(nodes[i]).toString());
+        }
+        return chain;
+    }
+
+    /**
+     * 以顺序流的形式消费剩余的调用链
+     */
+    public Stream<CallChain> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * 已输出的调用链数量
+     */
+    public long getChainCount() {
+        return totalChainCount;
+    }
+
+    /**
+     * 已检查过的调用边数，包括当前正在展开的起始方法
+     */
+    public long getVisits() {
+        return cursor == null ? visits : visits + cursor.getVisits();
+    }
+
+    public StopReason getStopReason() {
+        return stopReason;
+    }
+
+    /**
+     * 是否因数量或时间限制而少输出了调用链（深度限制不计入）
+     */
+    public boolean isTruncated() {
+        return startTruncated || stopReason == StopReason.MAX_TOTAL_CHAINS || stopReason == StopReason.TIMEOUT;
+    }
+}
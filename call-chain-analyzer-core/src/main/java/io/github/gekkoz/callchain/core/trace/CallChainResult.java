@@ -0,0 +1,73 @@
+package io.github.gekkoz.callchain.core.trace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一次调用链查询的完整结果：全部调用链以及迭代结束时的状态。创建后不再修改，可以在线程之间共享
+ */
+public final class CallChainResult {
+    private final List<CallChain> chains;
+    private final boolean truncated;
+    private final CallChainIterator.StopReason stopReason;
+    private final long visits;
+    private final long weight;
+
+    private CallChainResult(List<CallChain> chains, boolean truncated, CallChainIterator.StopReason stopReason, long visits) {
+        this.chains = Collections.unmodifiableList(chains);
+        this.truncated = truncated;
+        this.stopReason = stopReason;
+        this.visits = visits;
+        // 没有调用链的结果也要占用缓存，至少按1计算，否则缓存中的空结果不会被淘汰
+        long weight = 1;
+        for (CallChain chain : chains) {
+            weight += chain.getMethods().size();
+        }
+        this.weight = weight;
+    }
+
+    /**
+     * 取出迭代器中剩余的全部调用链
+     */
+    public static CallChainResult collect(CallChainIterator iterator) {
+        List<CallChain> chains = new ArrayList<>();
+        while (iterator.hasNext()) {
+            chains.add(iterator.next());
+        }
+        return new CallChainResult(chains, iterator.isTruncated(), iterator.getStopReason(), iterator.getVisits());
+    }
+
+    public List<CallChain> getChains() {
+        return chains;
+    }
+
+    public long getChainCount() {
+        return chains.size();
+    }
+
+    /**
+     * 见 {@link CallChainIterator#isTruncated()}
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public CallChainIterator.StopReason getStopReason() {
+        return stopReason;
+    }
+
+    /**
+     * 查询时检查过的调用边数
+     */
+    public long getVisits() {
+        return visits;
+    }
+
+    /**
+     * 结果的大小，即1加上各调用链的方法数之和，用于限制缓存占用的内存
+     */
+    public long getWeight() {
+        return weight;
+    }
+}
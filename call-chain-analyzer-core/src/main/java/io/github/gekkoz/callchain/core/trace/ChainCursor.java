@@ -0,0 +1,28 @@
+package io.github.gekkoz.callchain.core.trace;
+
+/**
+ * 按需产生单个起始方法调用链的游标
+ */
+interface ChainCursor {
+
+    /**
+     * 下一条调用链上的节点，起始方法在前、Controller方法在最后
+     *
+     * @return 没有更多调用链或已超过截止时间时返回null
+     */
+    int[] next();
+
+    /**
+     * 到目前为止检查过的调用边数
+     */
+    long getVisits();
+
+    /**
+     * 检查是否已超过截止时间
+     *
+     * @param deadline {@link System#nanoTime()} 形式的截止时间，0表示不限制
+     */
+    static boolean expired(long deadline) {
+        return deadline != 0 && System.nanoTime() - deadline > 0;
+    }
+}
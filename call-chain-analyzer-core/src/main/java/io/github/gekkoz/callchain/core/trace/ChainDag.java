@@ -0,0 +1,81 @@
+package io.github.gekkoz.callchain.core.trace;
+
+import io.github.gekkoz.callchain.core.descriptor.MethodDescriptor;
+import io.github.gekkoz.callchain.core.index.CallGraph;
+
+import java.util.*;
+
+/**
+ * 从一个起始方法出发的全部调用链，以共享后缀的有向无环图表示。
+ * 同一分量之后的调用链后缀由 {@link CondensedCallGraph} 统一保存，多个起始方法、多次查询之间共享；
+ * 调用链数量可以直接得到，完整路径只在遍历时逐条展开。
+ * <p>
+ * 每条调用链的格式与 {@code CallChainEngine#findCallChains} 一致：Controller方法在前，起始方法在最后。
+ */
+public final class ChainDag implements Iterable<List<String>> {
+
+    private final CondensedCallGraph condensed;
+    private final int start;
+
+    ChainDag(CondensedCallGraph condensed, int start) {
+        this.condensed = condensed;
+        this.start = start;
+    }
+
+    public MethodDescriptor getStart() {
+        return condensed.getGraph().getMethod(start);
+    }
+
+    /**
+     * 调用链数量，无需展开；超过Long.MAX_VALUE时返回Long.MAX_VALUE
+     */
+    public long getChainCount() {
+        CallGraph graph = condensed.getGraph();
+        if (graph.isController(start)) return 1;
+        return condensed.chainCount(condensed.componentOf(graph.keyOf(start)));
+    }
+
+    public boolean isEmpty() {
+        return getChainCount() == 0;
+    }
+
+    /**
+     * 展开全部调用链
+     */
+    public List<List<String>> toList() {
+        List<List<String>> chains = new ArrayList<>();
+        for (List<String> chain : this) {
+            chains.add(chain);
+        }
+        return chains;
+    }
+
+    /**
+     * 按深度优先顺序逐条展开调用链。只沿能到达Controller的出口前进，每产生一条调用链的开销与其长度成正比
+     */
+    @Override
+    public Iterator<List<String>> iterator() {
+        ChainCursor cursor = cursor(Integer.MAX_VALUE, 0);
+        CallGraph graph = condensed.getGraph();
+        return new Iterator<List<String>>() {
+            private int[] next = cursor.next();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public List<String> next() {
+                if (next == null) throw new NoSuchElementException();
+                List<String> chain = CallChainIterator.toChain(graph, next);
+                next = cursor.next();
+                return chain;
+            }
+        };
+    }
+
+    ChainCursor cursor(int maxDepth, long deadline) {
+        return new DagChainCursor(condensed, start, maxDepth, deadline);
+    }
+}
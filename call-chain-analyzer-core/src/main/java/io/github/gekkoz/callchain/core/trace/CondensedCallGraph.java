@@ -0,0 +1,250 @@
+package io.github.gekkoz.callchain.core.trace;
+
+import io.github.gekkoz.callchain.core.index.CallGraph;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按强连通分量缩点后的调用图，用于多项式时间的调用链追踪。
+ * <p>
+ * 以方法键为顶点、"方法键 -> 非Controller调用者的方法键"为边计算强连通分量（Tarjan），
+ * 缩点后的图是有向无环图。按分量逐个记忆化：每个分量只保存能到达Controller的出口边
+ * （成员方法键 -> 分量外的调用者节点，或任意Controller调用者节点）以及经由它能得到的调用链数量，
+ * 整个图只需计算一次，之后所有查询共享。
+ * <p>
+ * 无环部分得到的调用链与逐条枚举完全一致；环内只保留从入口方法键到出口方法键的一条最短路径。
+ */
+public final class CondensedCallGraph {
+
+    private final CallGraph graph;
+
+    // 方法键 -> 所属分量
+    private final int[] componentOf;
+
+    // 分量 -> 出口边，位于 [exitOffsets[s], exitOffsets[s + 1])
+    private final int[] exitOffsets;
+    private final int[] exitKeys;
+    private final int[] exitNodes;
+
+    // 分量 -> 经由该分量能得到的调用链数量（溢出时饱和为Long.MAX_VALUE）
+    private final long[] chainCounts;
+
+    // 环内最短路径树，按入口方法键缓存
+    private final Map<Integer, IntraTree> intraTrees = new ConcurrentHashMap<>();
+
+    private CondensedCallGraph(CallGraph graph, int[] componentOf, int[] exitOffsets, int[] exitKeys,
+                               int[] exitNodes, long[] chainCounts) {
+        this.graph = graph;
+        this.componentOf = componentOf;
+        this.exitOffsets = exitOffsets;
+        this.exitKeys = exitKeys;
+        this.exitNodes = exitNodes;
+        this.chainCounts = chainCounts;
+    }
+
+    public static CondensedCallGraph build(CallGraph graph) {
+        int keyCount = graph.getKeyCount();
+        int[] componentOf = new int[keyCount];
+        int[] index = new int[keyCount];
+        int[] lowLink = new int[keyCount];
+        Arrays.fill(index, -1);
+
+        // 迭代版Tarjan：分量按完成顺序编号，被调用方向上先完成的分量（调用者一侧）编号更小
+        int[] callStack = new int[16];
+        int[] cursor = new int[16];
+        int[] componentStack = new int[keyCount];
+        boolean[] onStack = new boolean[keyCount];
+        int componentTop = 0;
+        int counter = 0;
+        int componentCount = 0;
+        List<int[]> members = new ArrayList<>();
+
+        for (int root = 0; root < keyCount; root++) {
+            if (index[root] >= 0) continue;
+            int top = 0;
+            callStack[0] = root;
+            cursor[0] = graph.callersStart(root);
+            index[root] = lowLink[root] = counter++;
+            componentStack[componentTop++] = root;
+            onStack[root] = true;
+
+            while (top >= 0) {
+                int key = callStack[top];
+                if (cursor[top] < graph.callersEnd(key)) {
+                    int next = successor(graph, key, cursor[top]++);
+                    if (next < 0) continue;
+                    if (index[next] < 0) {
+                        if (++top == callStack.length) {
+                            callStack = Arrays.copyOf(callStack, top * 2);
+                            cursor = Arrays.copyOf(cursor, top * 2);
+                        }
+                        callStack[top] = next;
+                        cursor[top] = graph.callersStart(next);
+                        index[next] = lowLink[next] = counter++;
+                        componentStack[componentTop++] = next;
+                        onStack[next] = true;
+                    } else if (onStack[next]) {
+                        lowLink[key] = Math.min(lowLink[key], index[next]);
+                    }
+                    continue;
+                }
+
+                if (lowLink[key] == index[key]) {
+                    int start = componentTop;
+                    do {
+                        start--;
+                    } while (componentStack[start] != key);
+                    int[] component = Arrays.copyOfRange(componentStack, start, componentTop);
+                    Arrays.sort(component);
+                    for (int member : component) {
+                        onStack[member] = false;
+                        componentOf[member] = componentCount;
+                    }
+                    members.add(component);
+                    componentTop = start;
+                    componentCount++;
+                }
+                top--;
+                if (top >= 0) {
+                    lowLink[callStack[top]] = Math.min(lowLink[callStack[top]], lowLink[key]);
+                }
+            }
+        }
+
+        // 按完成顺序处理分量，出口指向的分量都已处理完毕
+        int[] exitOffsets = new int[componentCount + 1];
+        int[] exitKeys = new int[16];
+        int[] exitNodes = new int[16];
+        long[] chainCounts = new long[componentCount];
+        int exitCount = 0;
+        for (int component = 0; component < componentCount; component++) {
+            long count = 0;
+            for (int key : members.get(component)) {
+                for (int p = graph.callersStart(key); p < graph.callersEnd(key); p++) {
+                    int caller = graph.getCaller(p);
+                    if (graph.keyOf(caller) == key) continue;
+                    long callerCount;
+                    if (graph.isController(caller)) {
+                        callerCount = 1;
+                    } else {
+                        int target = componentOf[graph.keyOf(caller)];
+                        if (target == component || chainCounts[target] == 0) continue;
+                        callerCount = chainCounts[target];
+                    }
+                    if (exitCount == exitKeys.length) {
+                        exitKeys = Arrays.copyOf(exitKeys, exitCount * 2);
+                        exitNodes = Arrays.copyOf(exitNodes, exitCount * 2);
+                    }
+                    exitKeys[exitCount] = key;
+                    exitNodes[exitCount] = caller;
+                    exitCount++;
+                    count = count > Long.MAX_VALUE - callerCount ? Long.MAX_VALUE : count + callerCount;
+                }
+            }
+            chainCounts[component] = count;
+            exitOffsets[component + 1] = exitCount;
+        }
+
+        return new CondensedCallGraph(graph, componentOf, exitOffsets,
+                Arrays.copyOf(exitKeys, exitCount), Arrays.copyOf(exitNodes, exitCount), chainCounts);
+    }
+
+    /**
+     * 方法键在缩点图中的后继方法键：Controller调用者是终点，指向自身方法键的调用（重载之间）与逐条枚举时一样被忽略
+     *
+     * @return 后继方法键，不构成边时返回-1
+     */
+    private static int successor(CallGraph graph, int key, int position) {
+        int caller = graph.getCaller(position);
+        if (graph.isController(caller)) return -1;
+        int callerKey = graph.keyOf(caller);
+        return callerKey == key ? -1 : callerKey;
+    }
+
+    public CallGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * 从给定节点出发的调用链，结果以共享后缀的形式表示，按需展开
+     */
+    public ChainDag trace(int start) {
+        return new ChainDag(this, start);
+    }
+
+    int getComponentCount() {
+        return chainCounts.length;
+    }
+
+    int componentOf(int key) {
+        return componentOf[key];
+    }
+
+    int exitStart(int component) {
+        return exitOffsets[component];
+    }
+
+    int exitEnd(int component) {
+        return exitOffsets[component + 1];
+    }
+
+    int exitKey(int exit) {
+        return exitKeys[exit];
+    }
+
+    int exitNode(int exit) {
+        return exitNodes[exit];
+    }
+
+    long chainCount(int component) {
+        return chainCounts[component];
+    }
+
+    /**
+     * 环内从入口方法键到出口方法键的最短路径（广度优先），返回路径上依次经过的调用者节点，不含入口自身
+     */
+    int[] intraPath(int fromKey, int toKey) {
+        if (fromKey == toKey) return new int[0];
+        IntraTree tree = intraTrees.computeIfAbsent(fromKey, this::searchComponent);
+
+        List<Integer> reversed = new ArrayList<>();
+        for (int key = toKey; key != fromKey; key = tree.previousKeys.get(key)) {
+            reversed.add(tree.nodes.get(key));
+        }
+        int[] path = new int[reversed.size()];
+        for (int i = 0; i < path.length; i++) {
+            path[i] = reversed.get(path.length - 1 - i);
+        }
+        return path;
+    }
+
+    private IntraTree searchComponent(int fromKey) {
+        int component = componentOf[fromKey];
+        IntraTree tree = new IntraTree();
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(fromKey);
+        tree.previousKeys.put(fromKey, -1);
+        while (!queue.isEmpty()) {
+            int key = queue.poll();
+            for (int p = graph.callersStart(key); p < graph.callersEnd(key); p++) {
+                int next = successor(graph, key, p);
+                if (next < 0 || componentOf[next] != component || tree.previousKeys.containsKey(next)) continue;
+                tree.previousKeys.put(next, key);
+                tree.nodes.put(next, graph.getCaller(p));
+                queue.add(next);
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * 分量内以某个入口方法键为根的广度优先搜索树
+     */
+    private static final class IntraTree {
+        // 方法键 -> 到达该键时经过的调用者节点
+        private final Map<Integer, Integer> nodes = new HashMap<>();
+        // 方法键 -> 前驱方法键
+        private final Map<Integer, Integer> previousKeys = new HashMap<>();
+    }
+}
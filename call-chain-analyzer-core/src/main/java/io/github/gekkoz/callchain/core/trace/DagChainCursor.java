@@ -0,0 +1,104 @@
+package io.github.gekkoz.callchain.core.trace;
+
+import io.github.gekkoz.callchain.core.index.CallGraph;
+
+import java.util.Arrays;
+
+/**
+ * 在缩点图上展开调用链的游标，按深度优先顺序沿能到达Controller的出口前进
+ */
+final class DagChainCursor implements ChainCursor {
+
+    private final CondensedCallGraph condensed;
+    private final CallGraph graph;
+    private final int maxDepth;
+    private final long deadline;
+
+    // 栈中每一层：当前方法键、出口游标、进入该层时新增的节点
+    private int[] keys = new int[16];
+    private int[] cursors = new int[16];
+    private int[][] segments = new int[16][];
+    private int top = -1;
+
+    // 当前路径上的节点数
+    private int length;
+    private boolean startIsController;
+    private int steps;
+    private long visits;
+
+    DagChainCursor(CondensedCallGraph condensed, int start, int maxDepth, long deadline) {
+        this.condensed = condensed;
+        this.graph = condensed.getGraph();
+        this.maxDepth = maxDepth;
+        this.deadline = deadline;
+
+        if (graph.isController(start)) {
+            startIsController = true;
+            segments[0] = new int[]{start};
+        } else if (condensed.chainCount(condensed.componentOf(graph.keyOf(start))) > 0) {
+            push(graph.keyOf(start), new int[]{start});
+        }
+    }
+
+    private void push(int key, int[] segment) {
+        if (++top == keys.length) {
+            keys = Arrays.copyOf(keys, top * 2);
+            cursors = Arrays.copyOf(cursors, top * 2);
+            segments = Arrays.copyOf(segments, top * 2);
+        }
+        keys[top] = key;
+        cursors[top] = condensed.exitStart(condensed.componentOf(key));
+        segments[top] = segment;
+        length += segment.length;
+    }
+
+    @Override
+    public int[] next() {
+        if (startIsController) {
+            startIsController = false;
+            return segments[0];
+        }
+
+        while (top >= 0) {
+            if ((++steps & 0xFF) == 0 && ChainCursor.expired(deadline)) return null;
+
+            int key = keys[top];
+            int exit = cursors[top];
+            if (exit == condensed.exitEnd(condensed.componentOf(key))) {
+                length -= segments[top].length;
+                segments[top] = null;
+                top--;
+                continue;
+            }
+            cursors[top] = exit + 1;
+            visits++;
+
+            int caller = condensed.exitNode(exit);
+            int[] intra = condensed.intraPath(key, condensed.exitKey(exit));
+            // 调用层数 = 节点数 - 1；非Controller调用者还需要至少再向上一层
+            int depth = length + intra.length;
+            boolean controller = graph.isController(caller);
+            if (depth > maxDepth || (!controller && depth >= maxDepth)) continue;
+
+            int[] segment = Arrays.copyOf(intra, intra.length + 1);
+            segment[intra.length] = caller;
+            if (controller) {
+                int[] chain = new int[length + segment.length];
+                int position = 0;
+                for (int level = 0; level <= top; level++) {
+                    System.arraycopy(segments[level], 0, chain, position, segments[level].length);
+                    position += segments[level].length;
+                }
+                System.arraycopy(segment, 0, chain, position, segment.length);
+                return chain;
+            }
+            push(graph.keyOf(caller), segment);
+        }
+        return null;
+    }
+
+    @Override
+    public long getVisits() {
+        return visits;
+    }
+}
@@ -0,0 +1,21 @@
+package io.github.gekkoz.callchain.core.trace;
+
+import io.github.gekkoz.callchain.core.index.CallGraph;
+
+/**
+ * 按代价排序调用链时调用边的权重，调用链的代价为各条边的权重之和。权重不能为负数
+ */
+@FunctionalInterface
+public interface EdgeWeight {
+
+    /**
+     * 每条边权重为1，调用链的代价即调用层数
+     */
+    EdgeWeight UNIT = (graph, callee, caller) -> 1;
+
+    /**
+     * @param callee 被调用方法的节点
+     * @param caller 调用者节点
+     */
+    double weight(CallGraph graph, int callee, int caller);
+}
@@ -0,0 +1,46 @@
+package io.github.gekkoz.callchain.core.trace;
+
+import io.github.gekkoz.callchain.core.descriptor.ControllerMethodDescriptor;
+import io.github.gekkoz.callchain.core.descriptor.MethodDescriptor;
+
+import java.util.List;
+
+/**
+ * 受影响的REST控制器方法，以及影响到它的输入
+ */
+public class EndpointImpact {
+    private final MethodDescriptor controllerMethod;
+    private final ControllerMethodDescriptor mapping;
+    private final List<String> inputs;
+
+    public EndpointImpact(MethodDescriptor controllerMethod, ControllerMethodDescriptor mapping, List<String> inputs) {
+        this.controllerMethod = controllerMethod;
+        this.mapping = mapping;
+        this.inputs = inputs;
+    }
+
+    public MethodDescriptor getControllerMethod() {
+        return controllerMethod;
+    }
+
+    /**
+     * Controller方法的URL映射信息，没有记录时为null
+     */
+    public ControllerMethodDescriptor getMapping() {
+        return mapping;
+    }
+
+    /**
+     * 完整的URL路径，没有映射信息时为空字符串
+     */
+    public String getUrl() {
+        return mapping == null ? "" : mapping.getFullUrl();
+    }
+
+    /**
+     * 能到达该方法的输入名称，按输入顺序排列
+     */
+    public List<String> getInputs() {
+        return inputs;
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.gekkoz.callchain.core.trace;
+
+import io.github.gekkoz.callchain.core.index.CallGraph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * 逐条枚举调用链的游标。
+ * 使用显式栈做深度优先遍历，路径上的方法键记录在visited中防止循环，回溯时清除；
+ * 到达REST控制器方法时输出当前路径，不再继续向上追踪。
+ */
+final class ExactChainCursor implements ChainCursor {
+
+    private final CallGraph graph;
+    private final int maxDepth;
+    private final long deadline;
+
+    private final BitSet visited;
+    private int[] path = new int[16];
+    private int[] cursor = new int[16];
+    private int top;
+    private int steps;
+    private long visits;
+
+    ExactChainCursor(CallGraph graph, int start, int maxDepth, long deadline) {
+        this.graph = graph;
+        this.maxDepth = maxDepth;
+        this.deadline = deadline;
+        this.visited = new BitSet(graph.getKeyCount());
+
+        path[0] = start;
+        if (graph.isController(start)) {
+            // 起始方法本身就是REST控制器方法，只有一条调用链
+            cursor[0] = -1;
+        } else {
+            cursor[0] = graph.callersStart(graph.keyOf(start));
+            visited.set(graph.keyOf(start));
+        }
+    }
+
+    @Override
+    public int[] next() {
+        if (cursor[0] == -1) {
+            top = -1;
+            cursor[0] = 0;
+            return new int[]{path[0]};
+        }
+
+        while (top >= 0) {
+            if ((++steps & 0xFF) == 0 && ChainCursor.expired(deadline)) return null;
+
+            int key = graph.keyOf(path[top]);
+            if (cursor[top] == graph.callersEnd(key) || top >= maxDepth) {
+                visited.clear(key);
+                top--;
+                continue;
+            }
+
+            int caller = graph.getCaller(cursor[top]++);
+            visits++;
+            int callerKey = graph.keyOf(caller);
+            // 防止无限递归和循环依赖
+            if (visited.get(callerKey)) continue;
+
+            // 检查这是否已经是REST控制器方法
+            if (graph.isController(caller)) {
+                int[] chain = Arrays.copyOf(path, top + 2);
+                chain[top + 1] = caller;
+                return chain;
+            }
+
+            // 非Controller调用者还需要至少再向上一层才能到达Controller
+            if (top + 1 >= maxDepth) continue;
+            if (++top == path.length) {
+                path = Arrays.copyOf(path, top * 2);
+                cursor = Arrays.copyOf(cursor, top * 2);
+            }
+            path[top] = caller;
+            cursor[top] = graph.callersStart(callerKey);
+            visited.set(callerKey);
+        }
+        return null;
+    }
+
+    @Override
+    public long getVisits() {
+        return visits;
+    }
+}
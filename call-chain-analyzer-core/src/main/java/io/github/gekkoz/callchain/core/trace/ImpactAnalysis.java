@@ -0,0 +1,88 @@
+package io.github.gekkoz.callchain.core.trace;
+
+import io.github.gekkoz.callchain.core.descriptor.ControllerMethodDescriptor;
+import io.github.gekkoz.callchain.core.descriptor.MethodDescriptor;
+import io.github.gekkoz.callchain.core.index.CallGraph;
+import io.github.gekkoz.callchain.core.metrics.AnalysisMetrics;
+
+import java.util.*;
+
+/**
+ * 多输入的批量影响分析。
+ * 每项输入对应一个标签位，在缩点图上从被调用方向调用者方向按分量逐个传播标签位图，
+ * 所有输入共用一次遍历，只经过能到达Controller的出口；最终每个Controller方法上的位图即为影响到它的输入。
+ * 100个输入的耗时与单个输入基本相同，只多出位图合并的开销。
+ */
+public final class ImpactAnalysis {
+
+    private ImpactAnalysis() {
+    }
+
+    /**
+     * @param urlMappings Controller方法的URL映射信息，以方法描述的toString()为键
+     * @return 受影响的Controller方法，按调用图中的节点顺序排列
+     */
+    public static List<EndpointImpact> analyze(CondensedCallGraph condensed, List<ImpactInput> inputs,
+                                               Map<String, ControllerMethodDescriptor> urlMappings) {
+        return analyze(condensed, inputs, urlMappings, AnalysisMetrics.disabled());
+    }
+
+    /**
+     * @param metrics 记录查询耗时和经过的出口数
+     */
+    public static List<EndpointImpact> analyze(CondensedCallGraph condensed, List<ImpactInput> inputs,
+                                               Map<String, ControllerMethodDescriptor> urlMappings,
+                                               AnalysisMetrics metrics) {
+        long startTime = metrics.startTime();
+        long visits = 0;
+        CallGraph graph = condensed.getGraph();
+        BitSet[] labels = new BitSet[condensed.getComponentCount()];
+        Map<Integer, BitSet> controllers = new TreeMap<>();
+        int highest = -1;
+
+        for (int i = 0; i < inputs.size(); i++) {
+            for (MethodDescriptor start : inputs.get(i).getStarts()) {
+                int node = graph.nodeOf(start);
+                if (node < 0) continue;
+                if (graph.isController(node)) {
+                    controllers.computeIfAbsent(node, n -> new BitSet()).set(i);
+                    continue;
+                }
+                int component = condensed.componentOf(graph.keyOf(node));
+                if (labels[component] == null) labels[component] = new BitSet();
+                labels[component].set(i);
+                highest = Math.max(highest, component);
+            }
+        }
+
+        // 出口总是指向编号更小的分量，按编号从大到小处理时，每个分量的标签在处理前已经收集完整
+        for (int component = highest; component >= 0; component--) {
+            BitSet label = labels[component];
+            if (label == null) continue;
+            visits += condensed.exitEnd(component) - condensed.exitStart(component);
+            for (int exit = condensed.exitStart(component); exit < condensed.exitEnd(component); exit++) {
+                int caller = condensed.exitNode(exit);
+                if (graph.isController(caller)) {
+                    controllers.computeIfAbsent(caller, n -> new BitSet()).or(label);
+                } else {
+                    int target = condensed.componentOf(graph.keyOf(caller));
+                    if (labels[target] == null) labels[target] = new BitSet();
+                    labels[target].or(label);
+                }
+            }
+            labels[component] = null;
+        }
+
+        List<EndpointImpact> impacts = new ArrayList<>(controllers.size());
+        for (Map.Entry<Integer, BitSet> entry : controllers.entrySet()) {
+            MethodDescriptor controller = graph.getMethod(entry.getKey());
+            List<String> reachedBy = new ArrayList<>(entry.getValue().cardinality());
+            for (int i = entry.getValue().nextSetBit(0); i >= 0; i = entry.getValue().nextSetBit(i + 1)) {
+                reachedBy.add(inputs.get(i).getLabel());
+            }
+            impacts.add(new EndpointImpact(controller, urlMappings.get(controller.toString()), reachedBy));
+        }
+        metrics.recordQuery(AnalysisMetrics.QUERY_IMPACT, startTime, impacts.size(), visits);
+        return impacts;
+    }
+}
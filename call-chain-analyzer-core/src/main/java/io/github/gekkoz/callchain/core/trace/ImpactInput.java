@@ -0,0 +1,29 @@
+package io.github.gekkoz.callchain.core.trace;
+
+import io.github.gekkoz.callchain.core.descriptor.MethodDescriptor;
+
+import java.util.List;
+
+/**
+ * 批量影响分析的一项输入：一个查询关键字或一个被修改的方法，以及它对应的起始方法
+ */
+public class ImpactInput {
+    private final String label;
+    private final List<MethodDescriptor> starts;
+
+    public ImpactInput(String label, List<MethodDescriptor> starts) {
+        this.label = label;
+        this.starts = starts;
+    }
+
+    /**
+     * 输入的名称，用于在结果中标识
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    public List<MethodDescriptor> getStarts() {
+        return starts;
+    }
+}
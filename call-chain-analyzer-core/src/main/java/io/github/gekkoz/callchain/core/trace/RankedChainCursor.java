@@ -0,0 +1,346 @@
+package io.github.gekkoz.callchain.core.trace;
+
+import io.github.gekkoz.callchain.core.index.CallGraph;
+
+import java.util.*;
+
+/**
+ * 按代价由低到高输出调用链的游标，每个可达的Controller方法最多输出K条。
+ * <p>
+ * 先从起始方法沿调用者方向做一次Dijkstra，得到每个可达Controller方法的最短调用链，Controller方法按最短代价排序；
+ * 之后对每个Controller方法用Yen算法依次求第2到第K短的调用链：从上一条调用链的偏离位置起，
+ * 以每个节点为分支点，屏蔽已输出调用链在该处的下一跳和根路径上的方法键，再求一次最短路径作为候选。
+ * 每条调用链最多需要调用链长度次最短路径搜索，搜索到达目标即停止，总代价与K成正比而与调用链总数无关。
+ * <p>
+ * 与 {@link ExactChainCursor} 一样，调用链中不重复出现同一方法键，到达Controller方法即结束。
+ * 深度限制在搜索中按调用层数剪枝；边权不全为1时，代价较低但层数超出限制的路径会挡住层数更少的路径，结果可能少于K条。
+ * <p>
+ * 最短路径搜索的工作区按节点数分配，由同一次查询的各个起始方法依次复用，见 {@link Workspace}。
+ */
+final class RankedChainCursor implements ChainCursor {
+
+    private final CallGraph graph;
+    private final int start;
+    private final int k;
+    private final EdgeWeight weight;
+    private final int maxDepth;
+    private final long deadline;
+
+    private final Workspace workspace;
+    private final double[] dist;
+    private final int[] prev;
+    private final int[] hops;
+    private final int[] stamps;
+    private final Heap heap;
+    private final BitSet blockedKeys;
+
+    // 可达的Controller方法及其最短调用链，按代价排序
+    private int[][] shortest;
+    private int target = -1;
+    private final List<Path> accepted = new ArrayList<>();
+    private final PriorityQueue<Path> candidates = new PriorityQueue<>();
+    private final Set<String> seen = new HashSet<>();
+
+    private int steps;
+    private long visits;
+    private boolean expired;
+
+    /**
+     * @param workspace 与graph对应的工作区，同一时刻只能被一个游标使用
+     */
+    RankedChainCursor(CallGraph graph, Workspace workspace, int start, int k, EdgeWeight weight, int maxDepth, long deadline) {
+        this.graph = graph;
+        this.start = start;
+        this.k = k;
+        this.weight = weight;
+        this.maxDepth = maxDepth;
+        this.deadline = deadline;
+        this.workspace = workspace;
+        this.dist = workspace.dist;
+        this.prev = workspace.prev;
+        this.hops = workspace.hops;
+        this.stamps = workspace.stamps;
+        this.heap = workspace.heap;
+        this.blockedKeys = workspace.blockedKeys;
+    }
+
+    @Override
+    public int[] next() {
+        if (expired) return null;
+        if (shortest == null) {
+            if (graph.isController(start)) {
+                // 起始方法本身就是REST控制器方法，只有一条调用链
+                shortest = new int[0][];
+                return new int[]{start};
+            }
+            shortest = shortestToControllers();
+            if (expired) return null;
+        }
+        while (target < shortest.length) {
+            Path path = target >= 0 ? nextPath() : null;
+            if (expired) return null;
+            if (path != null) return path.nodes;
+            if (++target < shortest.length) {
+                accepted.clear();
+                candidates.clear();
+                seen.clear();
+                Path first = new Path(shortest[target], cost(shortest[target], shortest[target].length - 1), 0);
+                accepted.add(first);
+                return first.nodes;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 从起始方法出发的完整Dijkstra，返回每个可达Controller方法的最短调用链
+     */
+    private int[][] shortestToControllers() {
+        List<int[]> result = new ArrayList<>();
+        search(start, -1, maxDepth, Collections.<Integer>emptySet(), result);
+        return result.toArray(new int[0][]);
+    }
+
+    /**
+     * 由当前Controller方法已输出的最后一条调用链生成候选，返回下一条调用链
+     */
+    private Path nextPath() {
+        if (accepted.size() >= k) return null;
+        Path last = accepted.get(accepted.size() - 1);
+        int[] nodes = last.nodes;
+        int targetNode = nodes[nodes.length - 1];
+        for (int i = last.deviation; i < nodes.length - 1; i++) {
+            int spur = nodes[i];
+            // 与分支点之前的根路径相同的已输出调用链，在分支点处的下一跳不能再走
+            Set<Integer> blockedNext = new HashSet<>();
+            for (Path path : accepted) {
+                if (path.nodes.length > i + 1 && samePrefix(path.nodes, nodes, i + 1)) blockedNext.add(path.nodes[i + 1]);
+            }
+            for (int j = 0; j <= i; j++) blockedKeys.set(graph.keyOf(nodes[j]));
+            int[] spurPath = search(spur, targetNode, maxDepth - i, blockedNext, null);
+            for (int j = 0; j <= i; j++) blockedKeys.clear(graph.keyOf(nodes[j]));
+            if (expired) return null;
+            if (spurPath == null) continue;
+
+            int[] candidate = Arrays.copyOf(nodes, i + spurPath.length);
+            System.arraycopy(spurPath, 0, candidate, i, spurPath.length);
+            if (hasRepeatedKey(candidate) || !seen.add(Arrays.toString(candidate))) continue;
+            candidates.add(new Path(candidate, cost(candidate, candidate.length - 1), i));
+        }
+        Path next = candidates.poll();
+        if (next != null) accepted.add(next);
+        return next;
+    }
+
+    /**
+     * 从source出发沿调用者方向求最短路径。Controller方法是终点，不再经过它向上追踪
+     *
+     * @param target      目标节点，为-1时搜索全部可达节点，并把到达的每个Controller方法的最短路径加入controllers
+     * @param hopLimit    路径最多包含的调用层数
+     * @param blockedNext source的下一跳中不能走的节点
+     * @return 到target的路径，source在前；不可达、超时或未指定target时为null
+     */
+    private int[] search(int source, int target, int hopLimit, Set<Integer> blockedNext, List<int[]> controllers) {
+        int stamp = workspace.nextStamp();
+        heap.clear();
+        dist[source] = 0;
+        hops[source] = 0;
+        prev[source] = -1;
+        stamps[source] = stamp;
+        heap.push(0, source);
+        int sourceKey = graph.keyOf(source);
+        while (!heap.isEmpty()) {
+            if ((++steps & 0xFF) == 0 && ChainCursor.expired(deadline)) {
+                expired = true;
+                return null;
+            }
+            double d = heap.peekKey();
+            int node = heap.pop();
+            if (d > dist[node]) continue;
+            if (node != source && graph.isController(node)) {
+                if (node == target) return pathTo(node);
+                if (controllers != null) controllers.add(pathTo(node));
+                continue;
+            }
+            // 非Controller方法还需要至少再向上一层才能到达Controller
+            if (hops[node] + 1 > hopLimit) continue;
+            int key = graph.keyOf(node);
+            for (int p = graph.callersStart(key); p < graph.callersEnd(key); p++) {
+                int caller = graph.getCaller(p);
+                visits++;
+                int callerKey = graph.keyOf(caller);
+                if (callerKey == sourceKey || blockedKeys.get(callerKey)) continue;
+                if (node == source && blockedNext.contains(caller)) continue;
+                if (!graph.isController(caller) && hops[node] + 1 >= hopLimit) continue;
+                double next = d + weight.weight(graph, node, caller);
+                if (stamps[caller] != stamp || next < dist[caller]) {
+                    stamps[caller] = stamp;
+                    dist[caller] = next;
+                    prev[caller] = node;
+                    hops[caller] = hops[node] + 1;
+                    heap.push(next, caller);
+                }
+            }
+        }
+        return null;
+    }
+
+    private int[] pathTo(int node) {
+        int[] path = new int[hops[node] + 1];
+        for (int i = path.length - 1; i >= 0; i--) {
+            path[i] = node;
+            node = prev[node];
+        }
+        return path;
+    }
+
+    /**
+     * 调用链前to个节点之间各边的权重之和
+     */
+    private double cost(int[] nodes, int to) {
+        double cost = 0;
+        for (int i = 0; i < to; i++) {
+            cost += weight.weight(graph, nodes[i], nodes[i + 1]);
+        }
+        return cost;
+    }
+
+    private boolean hasRepeatedKey(int[] nodes) {
+        Set<Integer> keys = new HashSet<>();
+        for (int node : nodes) {
+            if (!keys.add(graph.keyOf(node))) return true;
+        }
+        return false;
+    }
+
+    private static boolean samePrefix(int[] a, int[] b, int length) {
+        for (int i = 0; i < length; i++) {
+            if (a[i] != b[i]) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public long getVisits() {
+        return visits;
+    }
+
+    /**
+     * 最短路径搜索的工作区。dist、prev、hops只在stamps等于本次搜索的编号时有效，
+     * 编号在各次搜索间递增，因此换一次搜索或换一个起始方法都不需要清空数组；屏蔽的方法键在每次搜索后逐个清除
+     */
+    static final class Workspace {
+        final double[] dist;
+        final int[] prev;
+        final int[] hops;
+        final int[] stamps;
+        final Heap heap = new Heap();
+        final BitSet blockedKeys;
+        private int stamp;
+
+        Workspace(CallGraph graph) {
+            int nodeCount = graph.getNodeCount();
+            this.dist = new double[nodeCount];
+            this.prev = new int[nodeCount];
+            this.hops = new int[nodeCount];
+            this.stamps = new int[nodeCount];
+            this.blockedKeys = new BitSet(graph.getKeyCount());
+        }
+
+        int nextStamp() {
+            if (++stamp == 0) {
+                // 编号溢出回到0时清空一次，避免与未使用的条目混淆
+                Arrays.fill(stamps, 0);
+                stamp = 1;
+            }
+            return stamp;
+        }
+    }
+
+    /**
+     * 候选调用链：节点（起始方法在前）、代价、与上一条调用链的偏离位置。代价相同时按节点序列排序，保证输出稳定
+     */
+    private static final class Path implements Comparable<Path> {
+        final int[] nodes;
+        final double cost;
+        final int deviation;
+
+        Path(int[] nodes, double cost, int deviation) {
+            this.nodes = nodes;
+            this.cost = cost;
+            this.deviation = deviation;
+        }
+
+        @Override
+        public int compareTo(Path other) {
+            int result = Double.compare(cost, other.cost);
+            if (result != 0) return result;
+            result = Integer.compare(nodes.length, other.nodes.length);
+            for (int i = 0; result == 0 && i < nodes.length; i++) {
+                result = Integer.compare(nodes[i], other.nodes[i]);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 以代价为键的二叉最小堆，代价相同时节点ID小的在前；过期的条目在弹出时跳过
+     */
+    private static final class Heap {
+        private double[] keys = new double[16];
+        private int[] values = new int[16];
+        private int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        double peekKey() {
+            return keys[0];
+        }
+
+        void push(double key, int value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!less(key, value, keys[parent], values[parent])) break;
+                keys[i] = keys[parent];
+                values[i] = values[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        int pop() {
+            int result = values[0];
+            double key = keys[--size];
+            int value = values[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && less(keys[child + 1], values[child + 1], keys[child], values[child])) child++;
+                if (!less(keys[child], values[child], key, value)) break;
+                keys[i] = keys[child];
+                values[i] = values[child];
+                i = child;
+            }
+            keys[i] = key;
+            values[i] = value;
+            return result;
+        }
+
+        private static boolean less(double key, int value, double otherKey, int otherValue) {
+            return key < otherKey || (key == otherKey && value < otherValue);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package io.github.gekkoz.callchain.core.trace;
+
+import io.github.gekkoz.callchain.core.descriptor.ControllerMethodDescriptor;
+import io.github.gekkoz.callchain.core.descriptor.MethodDescriptor;
+import io.github.gekkoz.callchain.core.index.CallGraph;
+import io.github.gekkoz.callchain.core.metrics.AnalysisMetrics;
+
+import java.util.*;
+
+/**
+ * 端点可达性分析：从全部使用位置同时出发，在调用图上做一次反向广度优先搜索，
+ * 只计算能到达哪些REST控制器方法而不枚举路径，耗时为O(V+E)，与路径数量无关。
+ * <p>
+ * 与逐条枚举一样，到达Controller方法后不再继续向上，调用同名方法键（重载之间）的边被忽略。
+ */
+public final class Reachability {
+
+    private Reachability() {
+    }
+
+    /**
+     * @param starts      起始方法
+     * @param urlMappings Controller方法的URL映射信息，以方法描述的toString()为键
+     * @param witness     是否为每个Controller方法记录一条最短调用链
+     * @return 可到达的Controller方法，按到最近使用位置的距离排列
+     */
+    public static List<ReachableEndpoint> search(CallGraph graph, List<MethodDescriptor> starts,
+                                                 Map<String, ControllerMethodDescriptor> urlMappings, boolean witness) {
+        return search(graph, starts, urlMappings, witness, AnalysisMetrics.disabled());
+    }
+
+    /**
+     * @param metrics 记录查询耗时和检查过的调用边数
+     */
+    public static List<ReachableEndpoint> search(CallGraph graph, List<MethodDescriptor> starts,
+                                                 Map<String, ControllerMethodDescriptor> urlMappings, boolean witness,
+                                                 AnalysisMetrics metrics) {
+        long startTime = metrics.startTime();
+        int keyCount = graph.getKeyCount();
+        BitSet visitedKeys = new BitSet(keyCount);
+        BitSet reached = new BitSet(graph.getNodeCount());
+
+        // 到达每个方法键时经过的节点及前驱方法键，用于还原最短调用链
+        int[] via = new int[keyCount];
+        int[] previous = new int[keyCount];
+        int[] distance = new int[keyCount];
+        int[] queue = new int[keyCount];
+        int head = 0;
+        int tail = 0;
+
+        List<int[]> found = new ArrayList<>();
+        for (MethodDescriptor start : starts) {
+            int node = graph.nodeOf(start);
+            if (node < 0) continue;
+            if (graph.isController(node)) {
+                if (!reached.get(node)) {
+                    reached.set(node);
+                    found.add(new int[]{node, -1, 0});
+                }
+                continue;
+            }
+            int key = graph.keyOf(node);
+            if (visitedKeys.get(key)) continue;
+            visitedKeys.set(key);
+            via[key] = node;
+            previous[key] = -1;
+            distance[key] = 0;
+            queue[tail++] = key;
+        }
+
+        while (head < tail) {
+            int key = queue[head++];
+            for (int p = graph.callersStart(key); p < graph.callersEnd(key); p++) {
+                int caller = graph.getCaller(p);
+                int callerKey = graph.keyOf(caller);
+                if (callerKey == key) continue;
+
+                if (graph.isController(caller)) {
+                    if (!reached.get(caller)) {
+                        reached.set(caller);
+                        found.add(new int[]{caller, key, distance[key] + 1});
+                    }
+                } else if (!visitedKeys.get(callerKey)) {
+                    visitedKeys.set(callerKey);
+                    via[callerKey] = caller;
+                    previous[callerKey] = key;
+                    distance[callerKey] = distance[key] + 1;
+                    queue[tail++] = callerKey;
+                }
+            }
+        }
+
+        List<ReachableEndpoint> endpoints = new ArrayList<>(found.size());
+        for (int[] entry : found) {
+            MethodDescriptor controller = graph.getMethod(entry[0]);
+            List<String> chain = null;
+            if (witness) {
+                chain = new ArrayList<>(entry[2] + 1);
+                chain.add(controller.toString());
+                for (int key = entry[1]; key >= 0; key = previous[key]) {
+                    chain.add(graph.getMethod(via[key]).toString());
+                }
+            }
+            endpoints.add(new ReachableEndpoint(controller, urlMappings.get(controller.toString()), entry[2], chain));
+        }
+        if (metrics.isEnabled()) {
+            long visits = 0;
+            for (int i = 0; i < tail; i++) {
+                visits += graph.callersEnd(queue[i]) - graph.callersStart(queue[i]);
+            }
+            metrics.recordQuery(AnalysisMetrics.QUERY_ENDPOINTS, startTime, endpoints.size(), visits);
+        }
+        return endpoints;
+    }
+}
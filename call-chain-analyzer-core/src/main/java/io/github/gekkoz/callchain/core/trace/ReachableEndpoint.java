@@ -0,0 +1,56 @@
+package io.github.gekkoz.callchain.core.trace;
+
+import io.github.gekkoz.callchain.core.descriptor.ControllerMethodDescriptor;
+import io.github.gekkoz.callchain.core.descriptor.MethodDescriptor;
+
+import java.util.List;
+
+/**
+ * 可以从关键字使用位置到达的REST控制器方法
+ */
+public class ReachableEndpoint {
+    private final MethodDescriptor controllerMethod;
+    private final ControllerMethodDescriptor mapping;
+    private final int distance;
+    private final List<String> witness;
+
+    public ReachableEndpoint(MethodDescriptor controllerMethod, ControllerMethodDescriptor mapping,
+                             int distance, List<String> witness) {
+        this.controllerMethod = controllerMethod;
+        this.mapping = mapping;
+        this.distance = distance;
+        this.witness = witness;
+    }
+
+    public MethodDescriptor getControllerMethod() {
+        return controllerMethod;
+    }
+
+    /**
+     * Controller方法的URL映射信息，没有记录时为null
+     */
+    public ControllerMethodDescriptor getMapping() {
+        return mapping;
+    }
+
+    /**
+     * 完整的URL路径，没有映射信息时为空字符串
+     */
+    public String getUrl() {
+        return mapping == null ? "" : mapping.getFullUrl();
+    }
+
+    /**
+     * 从最近的使用位置到该Controller方法的调用层数
+     */
+    public int getDistance() {
+        return distance;
+    }
+
+    /**
+     * 一条最短调用链（Controller方法在前，起始方法在最后），未要求时为null
+     */
+    public List<String> getWitness() {
+        return witness;
+    }
+}
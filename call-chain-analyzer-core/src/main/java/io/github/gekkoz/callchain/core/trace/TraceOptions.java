@@ -0,0 +1,99 @@
+package io.github.gekkoz.callchain.core.trace;
+
+/**
+ * 调用链追踪选项：追踪方式以及深度、数量、时间上的限制。默认不做任何限制
+ */
+public class TraceOptions {
+    private int maxDepth = Integer.MAX_VALUE;
+    private int maxChainsPerStart = Integer.MAX_VALUE;
+    private long maxTotalChains = Long.MAX_VALUE;
+    private long timeoutMillis;
+    private boolean condensed;
+    private int topK;
+    private EdgeWeight edgeWeight = EdgeWeight.UNIT;
+
+    /**
+     * 最多向上追踪的调用层数，即调用链最多包含 maxDepth + 1 个方法
+     */
+    public TraceOptions maxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * 每个起始方法最多输出的调用链数量
+     */
+    public TraceOptions maxChainsPerStart(int maxChainsPerStart) {
+        this.maxChainsPerStart = maxChainsPerStart;
+        return this;
+    }
+
+    /**
+     * 一次查询最多输出的调用链数量
+     */
+    public TraceOptions maxTotalChains(long maxTotalChains) {
+        this.maxTotalChains = maxTotalChains;
+        return this;
+    }
+
+    /**
+     * 查询的最长耗时，从开始遍历时计时，超时后不再输出新的调用链；0表示不限制
+     */
+    public TraceOptions timeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        return this;
+    }
+
+    /**
+     * 是否使用强连通分量缩点后的记忆化追踪，见 {@link CondensedCallGraph}
+     */
+    public TraceOptions condensed(boolean condensed) {
+        this.condensed = condensed;
+        return this;
+    }
+
+    /**
+     * 按代价排序，每个可达的Controller方法只输出代价最低的K条调用链，见 {@link RankedChainCursor}；
+     * 0表示枚举全部调用链。大于0时忽略 {@link #condensed(boolean)}
+     */
+    public TraceOptions topK(int topK) {
+        this.topK = topK;
+        return this;
+    }
+
+    /**
+     * 按代价排序时调用边的权重，默认每条边为1
+     */
+    public TraceOptions edgeWeight(EdgeWeight edgeWeight) {
+        this.edgeWeight = edgeWeight;
+        return this;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getMaxChainsPerStart() {
+        return maxChainsPerStart;
+    }
+
+    public long getMaxTotalChains() {
+        return maxTotalChains;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public boolean isCondensed() {
+        return condensed;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public EdgeWeight getEdgeWeight() {
+        return edgeWeight;
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.gekkoz.callchain.core;
+
+import io.github.gekkoz.callchain.core.index.IndexUpdate;
+import io.github.gekkoz.callchain.core.trace.CallChainResult;
+import io.github.gekkoz.callchain.core.trace.TraceOptions;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 多个线程查询的同时，一个线程反复在Service中增加、删除对Mapper的调用并增量更新。
+ * 版本号为奇数的快照中只有 /user/find 一条调用链，为偶数的快照中还有 /user/list，
+ * 查询看到更新到一半的索引、或者快照版本倒退时测试失败
+ */
+public class CallChainServiceConcurrencyTest {
+
+    private static final int READERS = 6;
+    private static final int UPDATES = 40;
+
+    private static final String SERVICE_WITHOUT_CALL = service("        return null;\n");
+    private static final String SERVICE_WITH_CALL = service("        return userMapper.selectById(id);\n");
+
+    @Rule
+    public final TestProject project = new TestProject();
+
+    @Before
+    public void setUp() throws IOException {
+        project.writeSource("UserMapper.java", "public interface UserMapper {\n"
+                + "    Object selectById(Long id);\n"
+                + "}\n");
+        project.writeSource("UserController.java", "@RestController\n"
+                + "@RequestMapping(\"/user\")\n"
+                + "public class UserController {\n"
+                + "    @Autowired\n"
+                + "    private UserService userService;\n\n"
+                + "    @GetMapping(\"/find\")\n"
+                + "    public Object find(Long id) {\n"
+                + "        return userService.find(id);\n"
+                + "    }\n\n"
+                + "    @GetMapping(\"/list\")\n"
+                + "    public Object list(Long id) {\n"
+                + "        return userService.list(id);\n"
+                + "    }\n"
+                + "}\n");
+        project.writeSource("UserService.java", SERVICE_WITHOUT_CALL);
+    }
+
+    @Test
+    public void readersOnlySeeCompleteSnapshots() throws Exception {
+        CallChainService service = new CallChainService(CallChainEngine.build(project.getPath().toString(), 1, false));
+        TraceOptions options = new TraceOptions();
+        assertEquals(1, chainCount(service, service.snapshot(), options));
+
+        AtomicBoolean done = new AtomicBoolean();
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            // 一半线程经过结果缓存，一半直接在快照上追踪
+            boolean cached = i % 2 == 0;
+            Thread reader = new Thread(() -> {
+                long lastVersion = 0;
+                try {
+                    while (!done.get()) {
+                        CallChainService.Snapshot snapshot = service.snapshot();
+                        assertTrue("快照版本从 " + lastVersion + " 倒退到 " + snapshot.getVersion(),
+                                snapshot.getVersion() >= lastVersion);
+                        lastVersion = snapshot.getVersion();
+                        long count = cached ? chainCount(service, snapshot, options)
+                                : CallChainResult.collect(snapshot.getEngine().streamCallChains(SearchType.MAPPING, "UserMapper", options))
+                                .getChainCount();
+                        assertEquals("版本 " + lastVersion + " 的调用链数", expectedChains(lastVersion), count);
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+
+        try {
+            for (int i = 1; i <= UPDATES && errors.isEmpty(); i++) {
+                project.writeSource("UserService.java", i % 2 == 1 ? SERVICE_WITH_CALL : SERVICE_WITHOUT_CALL);
+                IndexUpdate update = service.refresh();
+                assertEquals(1, update.getChangedFiles());
+                assertEquals(i + 1, service.snapshot().getVersion());
+                assertEquals(expectedChains(i + 1), chainCount(service, service.snapshot(), options));
+            }
+        } finally {
+            done.set(true);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        }
+        if (!errors.isEmpty()) {
+            AssertionError failure = new AssertionError(errors.size() + " 个查询线程失败");
+            errors.forEach(failure::addSuppressed);
+            throw failure;
+        }
+    }
+
+    private static long expectedChains(long version) {
+        return version % 2 == 1 ? 1 : 2;
+    }
+
+    private static long chainCount(CallChainService service, CallChainService.Snapshot snapshot, TraceOptions options) {
+        return service.findCallChains(snapshot, SearchType.MAPPING, "UserMapper", options).getChainCount();
+    }
+
+    private static String service(String listBody) {
+        return "@Service\n"
+                + "public class UserService {\n"
+                + "    @Autowired\n"
+                + "    private UserMapper userMapper;\n\n"
+                + "    public Object find(Long id) {\n"
+                + "        return userMapper.selectById(id);\n"
+                + "    }\n\n"
+                + "    public Object list(Long id) {\n"
+                + listBody
+                + "    }\n"
+                + "}\n";
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.gekkoz.callchain.core;
+
+import io.github.gekkoz.callchain.core.descriptor.MethodDescriptor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 模式查询：类名模式只与项目中声明的类比较，未能解析为类名的作用域文本（变量名、参数名）不参与匹配
+ */
+public class SearchPatternTest {
+
+    @Rule
+    public final TestProject project = new TestProject();
+
+    private CallChainEngine engine;
+
+    @Before
+    public void setUp() throws IOException {
+        project.writeSource("UserMapper.java", "public interface UserMapper {\n"
+                + "    Object selectById(Long id);\n"
+                + "}\n");
+        project.writeSource("UserService.java", "@Service\n"
+                + "public class UserService {\n"
+                + "    @Autowired\n"
+                + "    private UserMapper userMapper;\n\n"
+                + "    public Object find(Long id) {\n"
+                + "        return userMapper.selectById(id);\n"
+                + "    }\n"
+                + "}\n");
+        // 参数userMapper的类型未知，默认方式下作用域文本直接作为被调用类
+        project.writeSource("AdminService.java", "@Service\n"
+                + "public class AdminService {\n"
+                + "    public Object load(Object userMapper) {\n"
+                + "        return userMapper.selectAll();\n"
+                + "    }\n"
+                + "}\n");
+        engine = CallChainEngine.build(project.getPath().toString(), 1, false);
+    }
+
+    @Test
+    public void matchesDeclaredClassesLikeExactKey() {
+        List<String> exact = labels(engine.findUsages(SearchType.MAPPING, "UserMapper"));
+        assertEquals(Collections.singletonList("UserService#find"), exact);
+        assertEquals(exact, labels(engine.findUsages(SearchType.MAPPING, "*Mapper")));
+        assertEquals(exact, labels(engine.findUsages(SearchType.MAPPING, "regex:.*Mapper")));
+        assertEquals(exact, labels(engine.findUsages(SearchType.METHOD_CALL, "*Mapper#select*")));
+    }
+
+    @Test
+    public void ignoresVariableNamesThatNoDeclaredClassMatches() {
+        assertEquals(Collections.emptyList(), labels(engine.findUsages(SearchType.MAPPING, "user*")));
+        assertEquals(Collections.emptyList(), labels(engine.findUsages(SearchType.METHOD_CALL, "user*#select*")));
+    }
+
+    @Test
+    public void matchesPackagePrefixAgainstDeclaredPackage() {
+        assertEquals(Collections.singletonList("UserService#find"),
+                labels(engine.findUsages(SearchType.MAPPING, "com.example.*Mapper")));
+        assertEquals(Collections.emptyList(), labels(engine.findUsages(SearchType.MAPPING, "com.other.*Mapper")));
+    }
+
+    private static List<String> labels(List<MethodDescriptor> methods) {
+        List<String> labels = new ArrayList<>();
+        for (MethodDescriptor method : methods) labels.add(method.getClassName() + "#" + method.getMethodName());
+        return labels;
+    }
+}
@@ -0,0 +1,41 @@
+package io.github.gekkoz.callchain.core;
+
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 测试用的临时项目目录，作为JUnit规则在每个测试方法之前创建、之后删除。
+ * 源文件写在Maven默认布局的 src/main/java/com/example 下
+ */
+public class TestProject extends TemporaryFolder {
+
+    /**
+     * 项目根目录
+     */
+    public Path getPath() {
+        return getRoot().toPath();
+    }
+
+    /**
+     * 写入com.example包中的源文件，已存在时覆盖
+     *
+     * @param body 不含package声明的源码
+     */
+    public Path writeSource(String fileName, String body) throws IOException {
+        return writeFile("src/main/java/com/example/" + fileName, "package com.example;\n\n" + body);
+    }
+
+    /**
+     * 写入相对于项目根目录的文件，缺少的上级目录一并创建
+     */
+    public Path writeFile(String relativePath, String content) throws IOException {
+        Path file = getPath().resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,35 @@
+package io.github.gekkoz.callchain.core.index;
+
+import io.github.gekkoz.callchain.core.descriptor.MethodDescriptor;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 调用位置和常量引用的列表中每个方法只出现一次，同一方法的记录与其他方法交错时也是如此
+ */
+public class CallGraphIndexTest {
+
+    private static final String PATH = "/project/src/main/java/com/example/UserService.java";
+
+    @Test
+    public void recordsEachMethodOnceWhenInterleaved() {
+        CallGraphIndex index = new CallGraphIndex("/project");
+        FileContribution file = new FileContribution(PATH, null);
+        MethodDescriptor outer = new MethodDescriptor("UserService", "find", "find(Long)", PATH);
+        MethodDescriptor inner = new MethodDescriptor("UserService", "run", "run()", PATH);
+
+        for (MethodDescriptor method : Arrays.asList(outer, inner, outer, inner)) {
+            index.addConstantReference(file, "id", method);
+            index.addCallSite(file, "UserMapper", "selectById", "?", method);
+        }
+
+        assertEquals(Arrays.asList(outer, inner), index.getConstantReferences().get("id"));
+        assertEquals(Arrays.asList(outer, inner), index.getCallSites().get("UserMapper").get("selectById"));
+        assertEquals(2, file.getConstantReferenceCount());
+        // 调用位置的实参类型逐次记录在文件中
+        assertEquals(4, file.getCallSiteCount());
+    }
+}
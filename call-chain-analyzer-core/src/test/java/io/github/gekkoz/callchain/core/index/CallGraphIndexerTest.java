@@ -0,0 +1,194 @@
+package io.github.gekkoz.callchain.core.index;
+
+import io.github.gekkoz.callchain.core.TestProject;
+import io.github.gekkoz.callchain.core.descriptor.ControllerMethodDescriptor;
+import io.github.gekkoz.callchain.core.descriptor.MethodDescriptor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * 增量更新：新增、修改、删除文件后更新得到的索引与重新全量构建的相同，
+ * 包括多个文件贡献同一个键（同名类、同名调用者）的情况
+ */
+public class CallGraphIndexerTest {
+
+    @Rule
+    public final TestProject project = new TestProject();
+
+    @Before
+    public void setUp() throws IOException {
+        project.writeSource("UserMapper.java", "public interface UserMapper {\n"
+                + "    Object selectById(Long id);\n"
+                + "}\n");
+        project.writeSource("UserService.java", "@Service\n"
+                + "public class UserService {\n"
+                + "    @Autowired\n"
+                + "    private UserMapper userMapper;\n\n"
+                + "    public Object find(Long id) {\n"
+                + "        return userMapper.selectById(id);\n"
+                + "    }\n"
+                + "}\n");
+        project.writeSource("OrderService.java", "@Service\n"
+                + "public class OrderService {\n"
+                + "    @Autowired\n"
+                + "    private UserMapper userMapper;\n\n"
+                + "    public Object load(Long id) {\n"
+                + "        return userMapper.selectById(id);\n"
+                + "    }\n"
+                + "}\n");
+        project.writeSource("UserController.java", "@RestController\n"
+                + "@RequestMapping(\"/user\")\n"
+                + "public class UserController {\n"
+                + "    @Autowired\n"
+                + "    private UserService userService;\n\n"
+                + "    @GetMapping(\"/find\")\n"
+                + "    public Object find(Long id) {\n"
+                + "        return userService.find(id);\n"
+                + "    }\n"
+                + "}\n");
+    }
+
+    @Test
+    public void updateMatchesFullBuild() throws IOException {
+        CallGraphIndex index = build();
+
+        project.writeSource("UserService.java", "@Service\n"
+                + "public class UserService {\n"
+                + "    @Autowired\n"
+                + "    private UserMapper userMapper;\n\n"
+                + "    public Object find(Long id) {\n"
+                + "        return list(id);\n"
+                + "    }\n\n"
+                + "    public Object list(Long id) {\n"
+                + "        return userMapper.selectById(id);\n"
+                + "    }\n"
+                + "}\n");
+        project.writeSource("OrderController.java", "@RestController\n"
+                + "@RequestMapping(\"/order\")\n"
+                + "public class OrderController {\n"
+                + "    @Autowired\n"
+                + "    private UserService userService;\n\n"
+                + "    @GetMapping(\"/list\")\n"
+                + "    public Object list(Long id) {\n"
+                + "        return userService.list(id);\n"
+                + "    }\n"
+                + "}\n");
+        Files.delete(project.getPath().resolve("src/main/java/com/example/OrderService.java"));
+
+        IndexUpdate update = new CallGraphIndexer(index, 1, false).update();
+        assertEquals(1, update.getAddedFiles());
+        assertEquals(1, update.getChangedFiles());
+        assertEquals(1, update.getDeletedFiles());
+        assertSameIndex(build(), index);
+    }
+
+    @Test
+    public void updateWithoutChangesKeepsIndex() {
+        CallGraphIndex index = build();
+        IndexUpdate update = new CallGraphIndexer(index, 1, false).update();
+        assertFalse(update.hasChanges());
+        assertSameIndex(build(), index);
+    }
+
+    @Test
+    public void updateReindexesFilesSharingClassNamesTransitively() throws IOException {
+        // b中的Foo与a同名，Bar与c同名；全量构建时按路径顺序，Foo取b中的声明，Bar取c中的声明
+        project.writeSource("a/Foo.java", "public class Foo {\n"
+                + "    private UserMapper a;\n"
+                + "}\n");
+        project.writeSource("b/Pair.java", "class Foo {\n"
+                + "    private UserMapper b;\n"
+                + "}\n\n"
+                + "class Bar {\n"
+                + "    private UserMapper b;\n"
+                + "}\n");
+        project.writeSource("c/Bar.java", "public class Bar {\n"
+                + "    private UserMapper c;\n"
+                + "}\n");
+        CallGraphIndex index = build();
+
+        project.writeSource("a/Foo.java", "public class Foo {\n"
+                + "    private UserMapper a;\n"
+                + "    private UserService service;\n"
+                + "}\n");
+        IndexUpdate update = new CallGraphIndexer(index, 1, false).update();
+        assertEquals(1, update.getChangedFiles());
+        assertEquals(2, update.getDependentFiles());
+        assertSameIndex(build(), index);
+    }
+
+    @Test
+    public void updateKeepsCallersContributedByOtherFiles() throws IOException {
+        // 枚举中的方法不属于任何类声明，两个文件贡献同一条调用关系 UserMapper#selectById <- Unknown#load
+        for (String name : new String[]{"First", "Second"}) {
+            project.writeSource(name + ".java", "public enum " + name + " {\n"
+                    + "    A;\n\n"
+                    + "    public Object load(Long id) {\n"
+                    + "        return UserMapper.selectById(id);\n"
+                    + "    }\n"
+                    + "}\n");
+        }
+        CallGraphIndex index = build();
+
+        Files.delete(project.getPath().resolve("src/main/java/com/example/First.java"));
+        IndexUpdate update = new CallGraphIndexer(index, 1, false).update();
+        assertEquals(1, update.getDeletedFiles());
+        assertSameIndex(build(), index);
+    }
+
+    private CallGraphIndex build() {
+        CallGraphIndexer indexer = new CallGraphIndexer(new CallGraphIndex(project.getPath().toString()), 1, false);
+        indexer.build();
+        return indexer.getIndex();
+    }
+
+    /**
+     * 比较两个索引的内容。列表中条目的顺序取决于文件的索引顺序，按文件路径和方法排序后比较
+     */
+    private static void assertSameIndex(CallGraphIndex expected, CallGraphIndex actual) {
+        assertEquals(expected.getFiles().keySet(), actual.getFiles().keySet());
+        assertEquals(sorted(expected.getMethodDefinitions()), sorted(actual.getMethodDefinitions()));
+        assertEquals(expected.getMethodCallers(), actual.getMethodCallers());
+        assertEquals(expected.getRestControllerMethods(), actual.getRestControllerMethods());
+        assertEquals(expected.getFieldDeclarations(), actual.getFieldDeclarations());
+        assertEquals(expected.getInterfaceMethodMappings(), actual.getInterfaceMethodMappings());
+        assertEquals(urls(expected.getControllerMethodUrls()), urls(actual.getControllerMethodUrls()));
+        assertEquals(callSites(expected), callSites(actual));
+        assertEquals(sorted(expected.getConstantReferences()), sorted(actual.getConstantReferences()));
+        assertEquals(expected.getClassMappings(), actual.getClassMappings());
+        assertEquals(expected.getSuperClasses(), actual.getSuperClasses());
+        assertEquals(expected.getSuperTypes(), actual.getSuperTypes());
+        assertEquals(expected.getMethodReturnTypes(), actual.getMethodReturnTypes());
+    }
+
+    private static Map<String, List<String>> sorted(Map<String, List<MethodDescriptor>> map) {
+        Map<String, List<String>> result = new HashMap<>();
+        map.forEach((key, methods) -> {
+            List<String> names = new ArrayList<>();
+            for (MethodDescriptor method : methods) names.add(method + " " + method.getFilePath());
+            Collections.sort(names);
+            result.put(key, names);
+        });
+        return result;
+    }
+
+    private static Map<String, Map<String, List<String>>> callSites(CallGraphIndex index) {
+        Map<String, Map<String, List<String>>> result = new HashMap<>();
+        index.getCallSites().forEach((calledClass, methods) -> result.put(calledClass, sorted(methods)));
+        return result;
+    }
+
+    private static Map<String, String> urls(Map<String, ControllerMethodDescriptor> map) {
+        Map<String, String> result = new HashMap<>();
+        map.forEach((key, url) -> result.put(key, url.getFullUrl() + " " + url.getFilePath()));
+        return result;
+    }
+}
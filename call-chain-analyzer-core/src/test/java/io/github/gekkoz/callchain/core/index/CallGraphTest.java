@@ -0,0 +1,112 @@
+package io.github.gekkoz.callchain.core.index;
+
+import io.github.gekkoz.callchain.core.CallChainEngine;
+import io.github.gekkoz.callchain.core.SearchType;
+import io.github.gekkoz.callchain.core.TestProject;
+import io.github.gekkoz.callchain.core.trace.CallChainIterator;
+import io.github.gekkoz.callchain.core.trace.TraceOptions;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 分派边：经接口或父类的调用通过分派边到达覆盖它的方法，调用链延续到调用接口方法的Controller。
+ * 分派边只连到每条继承路径上最近的声明，多层覆盖时不产生经不同层数到达的重复调用链
+ */
+public class CallGraphTest {
+
+    @Rule
+    public final TestProject project = new TestProject();
+
+    @Before
+    public void setUp() throws IOException {
+        project.writeSource("UserMapper.java", "public interface UserMapper {\n"
+                + "    Object selectById(Long id);\n"
+                + "}\n");
+        project.writeSource("UserController.java", "@RestController\n"
+                + "@RequestMapping(\"/user\")\n"
+                + "public class UserController {\n"
+                + "    @Autowired\n"
+                + "    private UserService userService;\n\n"
+                + "    @GetMapping(\"/find\")\n"
+                + "    public Object find(Long id) {\n"
+                + "        return userService.find(id);\n"
+                + "    }\n"
+                + "}\n");
+        project.writeSource("UserService.java", "public interface UserService {\n"
+                + "    Object find(Long id);\n"
+                + "}\n");
+    }
+
+    @Test
+    public void linksInterfaceMethodToImplementation() throws IOException {
+        project.writeSource("UserServiceImpl.java", "public class UserServiceImpl implements UserService {\n"
+                + "    @Autowired\n"
+                + "    private UserMapper userMapper;\n\n"
+                + "    public Object find(Long id) {\n"
+                + "        return userMapper.selectById(id);\n"
+                + "    }\n"
+                + "}\n");
+
+        CallChainEngine engine = CallChainEngine.build(project.getPath().toString(), 1, false);
+        assertEquals(1, engine.getGraph().getDispatchEdgeCount());
+        assertEquals(Collections.singletonList(Arrays.asList("UserController#find#find(Long)",
+                "UserService#find#find(Long)", "UserServiceImpl#find#find(Long)")), chains(engine));
+    }
+
+    @Test
+    public void linksOverrideToNearestDeclarationOnly() throws IOException {
+        project.writeSource("BaseUserService.java", "public class BaseUserService implements UserService {\n"
+                + "    public Object find(Long id) {\n"
+                + "        return null;\n"
+                + "    }\n"
+                + "}\n");
+        project.writeSource("CachedUserService.java", "public class CachedUserService extends BaseUserService {\n"
+                + "    @Autowired\n"
+                + "    private UserMapper userMapper;\n\n"
+                + "    public Object find(Long id) {\n"
+                + "        return userMapper.selectById(id);\n"
+                + "    }\n"
+                + "}\n");
+
+        CallChainEngine engine = CallChainEngine.build(project.getPath().toString(), 1, false);
+        assertEquals(2, engine.getGraph().getDispatchEdgeCount());
+        assertEquals(Collections.singletonList(Arrays.asList("UserController#find#find(Long)",
+                "UserService#find#find(Long)", "BaseUserService#find#find(Long)", "CachedUserService#find#find(Long)")),
+                chains(engine));
+    }
+
+    @Test
+    public void skipsDeclarationInheritedThroughAnotherBranch() throws IOException {
+        project.writeSource("AuditedService.java", "public interface AuditedService extends UserService {\n"
+                + "    Object find(Long id);\n"
+                + "}\n");
+        project.writeSource("UserServiceImpl.java", "public class UserServiceImpl implements UserService, AuditedService {\n"
+                + "    @Autowired\n"
+                + "    private UserMapper userMapper;\n\n"
+                + "    public Object find(Long id) {\n"
+                + "        return userMapper.selectById(id);\n"
+                + "    }\n"
+                + "}\n");
+
+        CallChainEngine engine = CallChainEngine.build(project.getPath().toString(), 1, false);
+        assertEquals(Collections.singletonList(Arrays.asList("UserController#find#find(Long)",
+                "UserService#find#find(Long)", "AuditedService#find#find(Long)", "UserServiceImpl#find#find(Long)")),
+                chains(engine));
+    }
+
+    private static List<List<String>> chains(CallChainEngine engine) {
+        List<List<String>> result = new ArrayList<>();
+        CallChainIterator chains = engine.streamCallChains(SearchType.MAPPING, "UserMapper", new TraceOptions());
+        while (chains.hasNext()) result.add(chains.next().getMethods());
+        return result;
+    }
+}
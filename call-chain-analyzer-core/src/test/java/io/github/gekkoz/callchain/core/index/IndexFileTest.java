@@ -0,0 +1,110 @@
+package io.github.gekkoz.callchain.core.index;
+
+import io.github.gekkoz.callchain.core.CallChainEngine;
+import io.github.gekkoz.callchain.core.TestProject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 索引文件的读写：读回的索引与写入的相同，读取后可以原子替换同一个文件，
+ * 文件不完整或数量字段损坏时报告为IOException而不是分配过大的数组
+ */
+public class IndexFileTest {
+
+    @Rule
+    public final TestProject project = new TestProject();
+
+    private Path indexPath;
+
+    @Before
+    public void setUp() throws IOException {
+        project.writeSource("UserService.java", "@Service\n"
+                + "public class UserService {\n"
+                + "    @Autowired\n"
+                + "    private UserMapper userMapper;\n\n"
+                + "    public Object find(Long id) {\n"
+                + "        return userMapper.selectById(id);\n"
+                + "    }\n"
+                + "}\n");
+        indexPath = project.getPath().resolve("index.bin");
+    }
+
+    @Test
+    public void readsBackTheWrittenIndex() throws IOException {
+        CallGraphIndex built = build();
+        IndexFile.write(built, indexPath);
+        CallGraphIndex read = IndexFile.read(indexPath);
+
+        assertEquals(built.getProjectPath(), read.getProjectPath());
+        assertEquals(built.getSourceFingerprint(), read.getSourceFingerprint());
+        assertEquals(built.getMethodDefinitions(), read.getMethodDefinitions());
+        assertEquals(built.getMethodCallers(), read.getMethodCallers());
+        assertEquals(built.getFieldDeclarations(), read.getFieldDeclarations());
+        assertEquals(built.getCallSites(), read.getCallSites());
+    }
+
+    @Test
+    public void rewritesTheFileItWasReadFrom() throws IOException {
+        CallGraphIndex built = build();
+        IndexFile.write(built, indexPath);
+
+        CallGraphIndex read = IndexFile.read(indexPath);
+        IndexFile.write(read, indexPath);
+        CallGraphIndex reread = IndexFile.read(indexPath);
+
+        assertEquals(built.getMethodDefinitions().keySet(), reread.getMethodDefinitions().keySet());
+        assertEquals(built.getMethodCallers(), reread.getMethodCallers());
+        assertEquals(built.getFiles().keySet(), reread.getFiles().keySet());
+    }
+
+    @Test
+    public void reportsOversizedCountAsCorrupt() throws IOException {
+        assertCorruptWithStringCount(Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void reportsNegativeCountAsCorrupt() throws IOException {
+        assertCorruptWithStringCount(-1);
+    }
+
+    @Test
+    public void reportsTruncatedFileAsCorrupt() throws IOException {
+        IndexFile.write(build(), indexPath);
+        byte[] bytes = Files.readAllBytes(indexPath);
+        Files.write(indexPath, Arrays.copyOf(bytes, bytes.length / 2));
+        assertCorrupt();
+    }
+
+    private CallGraphIndex build() {
+        return CallChainEngine.build(project.getPath().toString(), 1, false).getIndex();
+    }
+
+    // 文件头之后紧接字符串表的数量
+    private void assertCorruptWithStringCount(int count) throws IOException {
+        IndexFile.write(build(), indexPath);
+        byte[] bytes = Files.readAllBytes(indexPath);
+        ByteBuffer.wrap(bytes).putInt(8, count);
+        Files.write(indexPath, bytes);
+        assertCorrupt();
+    }
+
+    private void assertCorrupt() {
+        try {
+            IndexFile.read(indexPath);
+            fail("损坏的索引文件应当读取失败");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("索引文件已损坏"));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.gekkoz.callchain.core.index;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * 按参数个数和实参类型选择重载方法，筛选后没有剩余方法时退回上一步的结果
+ */
+public class OverloadSelectorTest {
+
+    private static final String[] SIGNATURES = {
+            "save(User)",
+            "save(Order)",
+            "save(User,int)",
+            "save(String...)",
+            "save(long)",
+            "save(Admin)",
+            "save(List<User>)"
+    };
+    private static final int SAVE_USER = 0;
+    private static final int SAVE_ORDER = 1;
+    private static final int SAVE_USER_INT = 2;
+    private static final int SAVE_STRINGS = 3;
+    private static final int SAVE_LONG = 4;
+    private static final int SAVE_ADMIN = 5;
+    private static final int SAVE_LIST = 6;
+
+    private OverloadSelector selector;
+    private OverloadSelector.Parameters[] parameters;
+
+    @Before
+    public void setUp() {
+        // 有字段声明记录的类型是项目中的类型，Admin继承User
+        CallGraphIndex index = new CallGraphIndex("/project");
+        for (String type : new String[]{"User", "Admin", "Order"}) {
+            index.getFieldDeclarations().put(type, Collections.<String, String>emptyMap());
+        }
+        index.getSuperClasses().put("Admin", "User");
+        parameters = new OverloadSelector.Parameters[SIGNATURES.length];
+        for (int i = 0; i < SIGNATURES.length; i++) {
+            parameters[i] = OverloadSelector.Parameters.of(SIGNATURES[i]);
+        }
+        selector = new OverloadSelector(index, ClassHierarchy.build(index), parameters);
+    }
+
+    @Test
+    public void selectsByArity() {
+        assertArrayEquals(new int[]{SAVE_USER_INT}, select("?,?", SAVE_USER, SAVE_USER_INT, SAVE_LONG));
+        assertArrayEquals(new int[]{SAVE_USER, SAVE_LONG}, select("?", SAVE_USER, SAVE_USER_INT, SAVE_LONG));
+    }
+
+    @Test
+    public void varArgsAcceptAnyNumberOfTrailingArguments() {
+        assertArrayEquals(new int[]{SAVE_STRINGS}, select("String,String,String", SAVE_USER, SAVE_USER_INT, SAVE_STRINGS));
+        assertArrayEquals(new int[]{SAVE_STRINGS}, select("", SAVE_USER, SAVE_STRINGS));
+    }
+
+    @Test
+    public void selectsByArgumentType() {
+        assertArrayEquals(new int[]{SAVE_ORDER}, select("Order", SAVE_USER, SAVE_ORDER));
+        // 子类型实参可以传给父类型形参
+        assertArrayEquals(new int[]{SAVE_USER}, select("Admin", SAVE_USER, SAVE_ORDER));
+        // 装箱类型拆箱后拓宽为long
+        assertArrayEquals(new int[]{SAVE_LONG}, select("Integer", SAVE_ORDER, SAVE_LONG));
+        assertArrayEquals(new int[]{SAVE_LONG}, select("int", SAVE_USER, SAVE_LONG));
+        // 形参为项目外的类型时不作判断
+        assertArrayEquals(new int[]{SAVE_LIST}, select("ArrayList", SAVE_USER, SAVE_LIST));
+    }
+
+    @Test
+    public void prefersExactParameterTypes() {
+        assertArrayEquals(new int[]{SAVE_ADMIN}, select("Admin", SAVE_USER, SAVE_ADMIN));
+        assertArrayEquals(new int[]{SAVE_USER}, select("User", SAVE_USER, SAVE_ADMIN));
+    }
+
+    @Test
+    public void keepsAllCandidatesWhenAmbiguous() {
+        // 实参类型未知
+        assertArrayEquals(new int[]{SAVE_USER, SAVE_ORDER}, select("?", SAVE_USER, SAVE_ORDER));
+        // 没有记录实参类型
+        assertArrayEquals(new int[]{SAVE_USER, SAVE_USER_INT}, selector.select(new int[]{SAVE_USER, SAVE_USER_INT}, null));
+        // 没有兼容的重载时退回参数个数相同的方法，例如实际调用的是项目外父类中的重载
+        assertArrayEquals(new int[]{SAVE_USER, SAVE_ORDER}, select("String", SAVE_USER, SAVE_ORDER));
+        // 没有参数个数相同的重载时保留全部候选
+        assertArrayEquals(new int[]{SAVE_USER, SAVE_ORDER}, select("?,?,?", SAVE_USER, SAVE_ORDER));
+    }
+
+    @Test
+    public void overriddenRequiresSameArityAndPrefersSameTypes() {
+        int[] candidates = {SAVE_USER, SAVE_ORDER, SAVE_USER_INT, SAVE_LONG};
+        assertArrayEquals(new int[]{SAVE_ORDER}, selector.overridden(candidates, OverloadSelector.Parameters.of("save(Order)")));
+        assertArrayEquals(new int[]{SAVE_USER_INT},
+                selector.overridden(candidates, OverloadSelector.Parameters.of("save(User,int)")));
+        // 形参类型都不相同时保留参数个数相同的全部方法
+        assertArrayEquals(new int[]{SAVE_USER, SAVE_ORDER, SAVE_LONG},
+                selector.overridden(candidates, OverloadSelector.Parameters.of("save(T)")));
+        assertArrayEquals(new int[0], selector.overridden(candidates, OverloadSelector.Parameters.of("save(String...)")));
+    }
+
+    private int[] select(String argumentTypes, int... candidates) {
+        return selector.select(candidates, argumentTypes);
+    }
+}
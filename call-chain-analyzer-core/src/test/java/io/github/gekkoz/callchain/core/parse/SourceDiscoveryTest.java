@@ -0,0 +1,121 @@
+package io.github.gekkoz.callchain.core.parse;
+
+import io.github.gekkoz.callchain.core.TestProject;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 按构建文件查找源码目录：Maven读取模块和sourceDirectory，Gradle从settings脚本读取子项目（包括跨行的include语句）、从构建脚本读取srcDir；
+ * 没有构建文件时遍历整个项目并跳过构建输出和测试源码目录
+ */
+public class SourceDiscoveryTest {
+
+    @Rule
+    public final TestProject project = new TestProject();
+
+    @Test
+    public void readsMavenModulesAndSourceDirectories() throws IOException {
+        project.writeFile("pom.xml", "<project>\n"
+                + "  <modules><module>app</module></modules>\n"
+                + "  <profiles><profile><modules><module>lib/pom.xml</module></modules></profile></profiles>\n"
+                + "</project>\n");
+        project.writeFile("app/pom.xml", "<project>\n"
+                + "  <build><sourceDirectory>${project.basedir}/src/java</sourceDirectory></build>\n"
+                + "</project>\n");
+        project.writeFile("lib/pom.xml", "<project/>\n");
+        directories("src/main/java", "src/test/java", "app/src/java", "lib/src/main/java", "lib/src/test/java");
+
+        assertEquals(Arrays.asList("src/main/java", "app/src/java", "lib/src/main/java"), sourceRoots(new SourceDiscovery()));
+        assertEquals(Arrays.asList("src/main/java", "src/test/java", "app/src/java", "lib/src/main/java", "lib/src/test/java"),
+                sourceRoots(new SourceDiscovery().includeTests(true)));
+    }
+
+    @Test
+    public void readsGradleIncludesAndSourceDirectories() throws IOException {
+        project.writeFile("settings.gradle", "rootProject.name = 'demo'\n"
+                + "include ':app', ':lib'\n");
+        project.writeFile("app/build.gradle", "sourceSets.main.java.srcDirs 'src/generated/java'\n"
+                + "sourceSets.integrationTest.java.srcDir 'src/integrationTest/java'\n");
+        directories("src/main/java", "app/src/main/java", "app/src/generated/java", "app/src/integrationTest/java",
+                "lib/src/main/java");
+
+        assertEquals(Arrays.asList("src/main/java", "app/src/main/java", "app/src/generated/java", "lib/src/main/java"),
+                sourceRoots(new SourceDiscovery()));
+    }
+
+    @Test
+    public void walksProjectWithoutBuildFilesSkippingOutputsAndTests() throws IOException {
+        for (String file : Arrays.asList("src/main/java/A.java", "src/test/java/ATest.java", "target/generated/B.java",
+                "build/C.java", ".idea/D.java", "legacy/E.java", "tools/F.java")) {
+            project.writeFile(file, "class X {}\n");
+        }
+        SourceDiscovery discovery = new SourceDiscovery().exclude("legacy/**");
+
+        assertEquals(Arrays.asList("src/main/java/A.java", "tools/F.java"), relative(discovery.discover(project.getPath())));
+        assertEquals(Arrays.asList("src/main/java/A.java", "src/test/java/ATest.java", "tools/F.java"),
+                relative(discovery.includeTests(true).discover(project.getPath())));
+    }
+
+    @Test
+    public void readsMultiLineKotlinInclude() throws IOException {
+        project.writeFile("settings.gradle.kts", "rootProject.name = \"demo\"\n"
+                + "include(\n"
+                + "    \":app\",\n"
+                + "    \":lib\" // 公共库\n"
+                + ")\n"
+                + "includeBuild(\"tools\")\n");
+        project.writeFile("build.gradle.kts", "");
+        directories("src/main/java", "app/src/main/java", "lib/src/main/java", "tools/src/main/java");
+
+        assertEquals(Arrays.asList("src/main/java", "app/src/main/java", "lib/src/main/java"),
+                sourceRoots(new SourceDiscovery()));
+    }
+
+    @Test
+    public void readsMultiLineGroovyInclude() throws IOException {
+        project.writeFile("settings.gradle", "include ':app',\n"
+                + "        ':lib'\n"
+                + "// include ':tools'\n"
+                + "include 'core'\n");
+        directories("src/main/java", "app/src/main/java", "lib/src/main/java", "core/src/main/java",
+                "tools/src/main/java");
+
+        assertEquals(Arrays.asList("src/main/java", "app/src/main/java", "lib/src/main/java", "core/src/main/java"),
+                sourceRoots(new SourceDiscovery()));
+    }
+
+    @Test
+    public void excludesOnlyTestNamedSourceDirectories() throws IOException {
+        project.writeFile("settings.gradle", "rootProject.name = 'demo'\n");
+        project.writeFile("build.gradle", "sourceSets.main.java.srcDirs 'testing-utils/java'\n"
+                + "sourceSets.integrationTest.java.srcDir 'src/integrationTest/java'\n");
+        directories("src/main/java", "testing-utils/java", "src/integrationTest/java");
+
+        assertEquals(Arrays.asList("src/main/java", "testing-utils/java"), sourceRoots(new SourceDiscovery()));
+    }
+
+    private void directories(String... paths) throws IOException {
+        for (String path : paths) {
+            Files.createDirectories(project.getPath().resolve(path));
+        }
+    }
+
+    private List<String> sourceRoots(SourceDiscovery discovery) {
+        return relative(discovery.findSourceRoots(project.getPath()));
+    }
+
+    private List<String> relative(List<Path> paths) {
+        return paths.stream()
+                .map(path -> project.getPath().relativize(path).toString().replace('\\', '/'))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,135 @@
+package io.github.gekkoz.callchain.core.trace;
+
+import io.github.gekkoz.callchain.core.CallChainEngine;
+import io.github.gekkoz.callchain.core.SearchType;
+import io.github.gekkoz.callchain.core.TestProject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 按强连通分量缩点的追踪：图中有相互递归、自递归和菱形调用时，调用链数量和内容与逐条枚举相同
+ */
+public class CondensedCallGraphTest {
+
+    @Rule
+    public final TestProject project = new TestProject();
+
+    private CallChainEngine engine;
+
+    @Before
+    public void setUp() throws IOException {
+        project.writeSource("UserMapper.java", "public interface UserMapper {\n"
+                + "    Object selectById(Long id);\n"
+                + "}\n");
+        project.writeSource("UserService.java", "@Service\n"
+                + "public class UserService {\n"
+                + "    @Autowired\n"
+                + "    private UserMapper userMapper;\n\n"
+                + "    public Object find(Long id) {\n"
+                + "        return userMapper.selectById(id);\n"
+                + "    }\n"
+                + "}\n");
+        // walk与expand相互调用，recurse调用自身
+        project.writeSource("TreeService.java", "@Service\n"
+                + "public class TreeService {\n"
+                + "    @Autowired\n"
+                + "    private UserService userService;\n\n"
+                + "    public Object walk(Long id) {\n"
+                + "        userService.find(id);\n"
+                + "        return expand(id);\n"
+                + "    }\n\n"
+                + "    public Object expand(Long id) {\n"
+                + "        return walk(id);\n"
+                + "    }\n\n"
+                + "    public Object recurse(Long id) {\n"
+                + "        userService.find(id);\n"
+                + "        return recurse(id);\n"
+                + "    }\n"
+                + "}\n");
+        project.writeSource("UserFacade.java", "@Service\n"
+                + "public class UserFacade {\n"
+                + "    @Autowired\n"
+                + "    private UserService userService;\n\n"
+                + "    public Object left(Long id) {\n"
+                + "        return userService.find(id);\n"
+                + "    }\n\n"
+                + "    public Object right(Long id) {\n"
+                + "        return userService.find(id);\n"
+                + "    }\n\n"
+                + "    public Object both(Long id) {\n"
+                + "        left(id);\n"
+                + "        return right(id);\n"
+                + "    }\n"
+                + "}\n");
+        project.writeSource("TreeController.java", "@RestController\n"
+                + "@RequestMapping(\"/tree\")\n"
+                + "public class TreeController {\n"
+                + "    @Autowired\n"
+                + "    private TreeService treeService;\n"
+                + "    @Autowired\n"
+                + "    private UserFacade userFacade;\n\n"
+                + "    @GetMapping(\"/walk\")\n"
+                + "    public Object walk(Long id) {\n"
+                + "        return treeService.walk(id);\n"
+                + "    }\n\n"
+                + "    @GetMapping(\"/expand\")\n"
+                + "    public Object expand(Long id) {\n"
+                + "        return treeService.expand(id);\n"
+                + "    }\n\n"
+                + "    @GetMapping(\"/recurse\")\n"
+                + "    public Object recurse(Long id) {\n"
+                + "        return treeService.recurse(id);\n"
+                + "    }\n\n"
+                + "    @GetMapping(\"/both\")\n"
+                + "    public Object both(Long id) {\n"
+                + "        return userFacade.both(id);\n"
+                + "    }\n"
+                + "}\n");
+        engine = CallChainEngine.build(project.getPath().toString(), 1, false);
+    }
+
+    @Test
+    public void dagChainCountsMatchExactEnumeration() {
+        List<List<String>> exact = chains(new TraceOptions());
+        assertEquals(5, exact.size());
+
+        Map<String, ChainDag> dags = engine.findCallChainDags(SearchType.MAPPING, "UserMapper");
+        long dagCount = 0;
+        Set<List<String>> dagChains = new HashSet<>();
+        for (ChainDag dag : dags.values()) {
+            dagCount += dag.getChainCount();
+            dagChains.addAll(dag.toList());
+        }
+        assertEquals(exact.size(), dagCount);
+        assertEquals(new HashSet<>(exact), dagChains);
+    }
+
+    @Test
+    public void condensedStreamMatchesExactEnumeration() {
+        List<List<String>> exact = chains(new TraceOptions());
+        List<List<String>> condensed = chains(new TraceOptions().condensed(true));
+        assertEquals(exact.size(), condensed.size());
+        assertEquals(new HashSet<>(exact), new HashSet<>(condensed));
+    }
+
+    @Test
+    public void condensedStreamRespectsMaxDepth() {
+        // 两层以内只有经walk和recurse的调用链，经expand和both的调用链为三层
+        List<List<String>> exact = chains(new TraceOptions().maxDepth(2));
+        assertEquals(2, exact.size());
+        assertEquals(new HashSet<>(exact), new HashSet<>(chains(new TraceOptions().condensed(true).maxDepth(2))));
+    }
+
+    private List<List<String>> chains(TraceOptions options) {
+        List<List<String>> result = new ArrayList<>();
+        CallChainIterator chains = engine.streamCallChains(SearchType.MAPPING, "UserMapper", options);
+        while (chains.hasNext()) result.add(chains.next().getMethods());
+        return result;
+    }
+}
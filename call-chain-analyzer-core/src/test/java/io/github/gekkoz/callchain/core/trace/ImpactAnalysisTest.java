@@ -0,0 +1,160 @@
+package io.github.gekkoz.callchain.core.trace;
+
+import io.github.gekkoz.callchain.core.CallChainEngine;
+import io.github.gekkoz.callchain.core.SearchType;
+import io.github.gekkoz.callchain.core.TestProject;
+import io.github.gekkoz.callchain.core.diff.UnifiedDiff;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 由统一格式补丁得到修改的方法，一次遍历得到每个接口受哪些输入影响
+ */
+public class ImpactAnalysisTest {
+
+    private static final String FIND = "UserService#find#find(Long)";
+    private static final String LIST = "UserService#list#list(Long)";
+
+    @Rule
+    public final TestProject project = new TestProject();
+
+    private CallChainEngine engine;
+
+    @Before
+    public void setUp() throws IOException {
+        project.writeSource("UserMapper.java", "public interface UserMapper {\n"
+                + "    Object selectById(Long id);\n"
+                + "}\n");
+        // find在第8-10行，list在第12-14行
+        project.writeSource("UserService.java", "@Service\n"
+                + "public class UserService {\n"
+                + "    @Autowired\n"
+                + "    private UserMapper userMapper;\n"
+                + "\n"
+                + "    public Object find(Long id) {\n"
+                + "        return userMapper.selectById(id);\n"
+                + "    }\n"
+                + "\n"
+                + "    public Object list(Long id) {\n"
+                + "        return null;\n"
+                + "    }\n"
+                + "}\n");
+        project.writeSource("UserController.java", "@RestController\n"
+                + "@RequestMapping(\"/user\")\n"
+                + "public class UserController {\n"
+                + "    @Autowired\n"
+                + "    private UserService userService;\n\n"
+                + "    @GetMapping(\"/find\")\n"
+                + "    public Object find(Long id) {\n"
+                + "        return userService.find(id);\n"
+                + "    }\n\n"
+                + "    @GetMapping(\"/list\")\n"
+                + "    public Object list(Long id) {\n"
+                + "        return userService.list(id);\n"
+                + "    }\n\n"
+                + "    @GetMapping(\"/both\")\n"
+                + "    public Object both(Long id) {\n"
+                + "        userService.find(id);\n"
+                + "        return userService.list(id);\n"
+                + "    }\n"
+                + "}\n");
+        engine = CallChainEngine.build(project.getPath().toString(), 1, false);
+    }
+
+    @Test
+    public void recordsAddedAndDeletedLinesInTheNewFile() {
+        UnifiedDiff diff = UnifiedDiff.parse(Arrays.asList(
+                "--- a/Foo.java",
+                "+++ b/Foo.java",
+                "@@ -3,3 +3,3 @@",
+                " a",
+                "-b",
+                "+c",
+                " d",
+                "@@ -20,3 +20,2 @@",
+                " e",
+                "-f",
+                " g",
+                "--- a/Removed.java",
+                "+++ /dev/null",
+                "@@ -1,1 +0,0 @@",
+                "-x"));
+        assertEquals(Collections.singleton("Foo.java"), diff.getFiles());
+        // 新增的第4行，以及两处删除位置前后相邻的行
+        BitSet expected = new BitSet();
+        expected.set(3, 5);
+        expected.set(20, 22);
+        assertEquals(expected, diff.getChangedLines("Foo.java"));
+        assertTrue(diff.isChanged("Foo.java", 1, 3));
+        assertFalse(diff.isChanged("Foo.java", 1, 2));
+        assertFalse(diff.isChanged("Foo.java", 5, 19));
+    }
+
+    @Test
+    public void propagatesChangedMethodsToEndpoints() {
+        // 补丁相对于项目的上层目录：修改find的一行，删除list中的一行
+        String path = project.getPath().getFileName() + "/src/main/java/com/example/UserService.java";
+        UnifiedDiff diff = UnifiedDiff.parse(Arrays.asList(
+                "diff --git a/" + path + " b/" + path,
+                "--- a/" + path,
+                "+++ b/" + path,
+                "@@ -8,3 +8,3 @@",
+                "     public Object find(Long id) {",
+                "-        return userMapper.selectById(null);",
+                "+        return userMapper.selectById(id);",
+                "     }",
+                "@@ -12,4 +12,3 @@",
+                "     public Object list(Long id) {",
+                "-        audit(id);",
+                "         return null;",
+                "     }"));
+
+        List<ImpactInput> changed = engine.findChangedMethods(diff);
+        List<String> labels = new ArrayList<>();
+        for (ImpactInput input : changed) labels.add(input.getLabel());
+        assertEquals(new HashSet<>(Arrays.asList(FIND, LIST)), new HashSet<>(labels));
+
+        Map<String, Set<String>> impacts = impacts(engine.analyzeImpact(changed));
+        Map<String, Set<String>> expected = new HashMap<>();
+        expected.put("/user/find", Collections.singleton(FIND));
+        expected.put("/user/list", Collections.singleton(LIST));
+        expected.put("/user/both", new HashSet<>(Arrays.asList(FIND, LIST)));
+        assertEquals(expected, impacts);
+    }
+
+    @Test
+    public void combinesDiffAndQueryInputs() {
+        String path = "src/main/java/com/example/UserService.java";
+        UnifiedDiff diff = UnifiedDiff.parse(Arrays.asList(
+                "--- a/" + path,
+                "+++ b/" + path,
+                "@@ -13,1 +13,1 @@",
+                "-        return list;",
+                "+        return null;"));
+        List<ImpactInput> inputs = new ArrayList<>(engine.findChangedMethods(diff));
+        inputs.add(engine.usageInput(SearchType.MAPPING, "UserMapper"));
+        inputs.add(engine.usageInput(SearchType.MAPPING, "OrderMapper"));
+
+        Map<String, Set<String>> impacts = impacts(engine.analyzeImpact(inputs));
+        assertEquals(Collections.singleton("UserMapper"), impacts.get("/user/find"));
+        assertEquals(Collections.singleton(LIST), impacts.get("/user/list"));
+        assertEquals(new HashSet<>(Arrays.asList(LIST, "UserMapper")), impacts.get("/user/both"));
+        assertEquals(3, impacts.size());
+    }
+
+    private static Map<String, Set<String>> impacts(List<EndpointImpact> impacts) {
+        Map<String, Set<String>> result = new HashMap<>();
+        for (EndpointImpact impact : impacts) {
+            result.put(impact.getUrl(), new HashSet<>(impact.getInputs()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,167 @@
+package io.github.gekkoz.callchain.core.trace;
+
+import io.github.gekkoz.callchain.core.CallChainEngine;
+import io.github.gekkoz.callchain.core.SearchType;
+import io.github.gekkoz.callchain.core.TestProject;
+import io.github.gekkoz.callchain.core.descriptor.MethodDescriptor;
+import io.github.gekkoz.callchain.core.metrics.AnalysisMetrics;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 按代价排序的追踪：每个起始方法到同一个Controller方法的调用链按层数由少到多输出、不重复，
+ * K足够大时与精确枚举的结果相同；同一次查询的多个起始方法依次复用搜索工作区
+ */
+public class RankedChainCursorTest {
+
+    private static final String GET = "UserController#get#get(Long)";
+    private static final String USER_START = "UserService#find#find(Long)";
+    private static final String ORDER_START = "OrderService#load#load(Long)";
+
+    @Rule
+    public final TestProject project = new TestProject();
+
+    private CallChainEngine engine;
+
+    @Before
+    public void setUp() throws IOException {
+        project.writeSource("UserMapper.java", "public interface UserMapper {\n"
+                + "    Object selectById(Long id);\n"
+                + "}\n");
+        project.writeSource("UserService.java", "@Service\n"
+                + "public class UserService {\n"
+                + "    @Autowired\n"
+                + "    private UserMapper userMapper;\n\n"
+                + "    public Object find(Long id) {\n"
+                + "        return userMapper.selectById(id);\n"
+                + "    }\n"
+                + "}\n");
+        project.writeSource("OrderService.java", "@Service\n"
+                + "public class OrderService {\n"
+                + "    @Autowired\n"
+                + "    private UserMapper userMapper;\n\n"
+                + "    public Object load(Long id) {\n"
+                + "        return userMapper.selectById(id);\n"
+                + "    }\n"
+                + "}\n");
+        // UserService#find 到 get 有1、2、3层三条调用链，OrderService#load 有1、3层两条
+        project.writeSource("UserFacade.java", "@Service\n"
+                + "public class UserFacade {\n"
+                + "    @Autowired\n"
+                + "    private UserService userService;\n"
+                + "    @Autowired\n"
+                + "    private OrderService orderService;\n\n"
+                + "    public Object viaOne(Long id) {\n"
+                + "        return userService.find(id);\n"
+                + "    }\n\n"
+                + "    public Object viaTwo(Long id) {\n"
+                + "        return step(id);\n"
+                + "    }\n\n"
+                + "    public Object step(Long id) {\n"
+                + "        orderService.load(id);\n"
+                + "        return userService.find(id);\n"
+                + "    }\n"
+                + "}\n");
+        project.writeSource("UserController.java", "@RestController\n"
+                + "@RequestMapping(\"/user\")\n"
+                + "public class UserController {\n"
+                + "    @Autowired\n"
+                + "    private UserService userService;\n"
+                + "    @Autowired\n"
+                + "    private OrderService orderService;\n"
+                + "    @Autowired\n"
+                + "    private UserFacade userFacade;\n\n"
+                + "    @GetMapping(\"/get\")\n"
+                + "    public Object get(Long id) {\n"
+                + "        userService.find(id);\n"
+                + "        orderService.load(id);\n"
+                + "        userFacade.viaOne(id);\n"
+                + "        return userFacade.viaTwo(id);\n"
+                + "    }\n"
+                + "}\n");
+        engine = CallChainEngine.build(project.getPath().toString(), 1, false);
+    }
+
+    @Test
+    public void outputsShortestChainsFirstWithoutDuplicates() {
+        Map<String, List<List<String>>> ranked = byStart(new TraceOptions().topK(10));
+        assertEquals(new HashSet<>(Arrays.asList(USER_START, ORDER_START)), ranked.keySet());
+        assertEquals(Arrays.asList(2, 3, 4), lengths(ranked.get(USER_START)));
+        assertEquals(Arrays.asList(2, 4), lengths(ranked.get(ORDER_START)));
+        for (List<List<String>> chains : ranked.values()) {
+            assertEquals(chains.size(), new HashSet<>(chains).size());
+            for (List<String> chain : chains) assertEquals(GET, chain.get(0));
+        }
+    }
+
+    @Test
+    public void limitsEachControllerToKChains() {
+        Map<String, List<List<String>>> ranked = byStart(new TraceOptions().topK(2));
+        assertEquals(Arrays.asList(
+                Arrays.asList(GET, USER_START),
+                Arrays.asList(GET, "UserFacade#viaOne#viaOne(Long)", USER_START)), ranked.get(USER_START));
+        assertEquals(Arrays.asList(2, 4), lengths(ranked.get(ORDER_START)));
+    }
+
+    @Test
+    public void matchesExactEnumerationForEveryStart() {
+        Map<String, List<List<String>>> ranked = byStart(new TraceOptions().topK(10));
+        Map<String, List<List<String>>> exact = byStart(new TraceOptions());
+        assertEquals(exact.keySet(), ranked.keySet());
+        for (String start : exact.keySet()) {
+            assertEquals(start, new HashSet<>(exact.get(start)), new HashSet<>(ranked.get(start)));
+        }
+    }
+
+    @Test
+    public void reusedWorkspaceGivesSameChainsAsSeparateIterators() {
+        TraceOptions weighted = new TraceOptions().topK(10)
+                .edgeWeight((graph, callee, caller) -> graph.keyOf(caller) % 3 + 1);
+        List<MethodDescriptor> starts = engine.findUsages(SearchType.MAPPING, "UserMapper");
+        assertEquals(2, starts.size());
+
+        // 每个迭代器只有一个起始方法时使用新的工作区
+        Map<String, List<List<String>>> separate = new HashMap<>();
+        for (MethodDescriptor start : starts) {
+            separate.putAll(byStart(Collections.singletonList(start), weighted));
+        }
+        assertEquals(separate, byStart(starts, weighted));
+        List<MethodDescriptor> reversed = new ArrayList<>(starts);
+        Collections.reverse(reversed);
+        assertEquals(separate, byStart(reversed, weighted));
+        for (List<List<String>> chains : separate.values()) {
+            assertTrue(chains.size() >= 2);
+        }
+    }
+
+    private Map<String, List<List<String>>> byStart(TraceOptions options) {
+        return collect(engine.streamCallChains(SearchType.MAPPING, "UserMapper", options));
+    }
+
+    private Map<String, List<List<String>>> byStart(List<MethodDescriptor> starts, TraceOptions options) {
+        return collect(new CallChainIterator(engine.getGraph(), engine.getCondensedGraph(), starts, options,
+                AnalysisMetrics.disabled()));
+    }
+
+    private static Map<String, List<List<String>>> collect(CallChainIterator chains) {
+        Map<String, List<List<String>>> result = new LinkedHashMap<>();
+        while (chains.hasNext()) {
+            List<String> methods = chains.next().getMethods();
+            result.computeIfAbsent(methods.get(methods.size() - 1), k -> new ArrayList<>()).add(methods);
+        }
+        return result;
+    }
+
+    private static List<Integer> lengths(List<List<String>> chains) {
+        List<Integer> lengths = new ArrayList<>();
+        for (List<String> chain : chains) lengths.add(chain.size());
+        return lengths;
+    }
+}